@@ -0,0 +1,117 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.benchmark;
+
+import com.github.tilastokeskus.minotaurus.util.ArrayList;
+import com.github.tilastokeskus.minotaurus.util.Position;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link ArrayList} to {@link java.util.ArrayList}. Both are used
+ * through the {@link List} interface, so the only difference between the runs
+ * is the implementation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ArrayListBenchmark {
+    
+    @Param({"util", "java.util"})
+    String impl;
+    
+    @Param({"51", "251"})
+    int mazeSize;
+    
+    private Position[] positions;
+    private List<Position> list;
+    
+    @Setup
+    public void setUp() {
+        positions = new MazeFixture(mazeSize, 42).bfsOrder;
+        list = newList();
+        for (Position p : positions)
+            list.add(p);
+    }
+    
+    private List<Position> newList() {
+        return impl.equals("util") ? new ArrayList<>() : new java.util.ArrayList<>();
+    }
+    
+    @Benchmark
+    public List<Position> add() {
+        List<Position> l = newList();
+        for (Position p : positions)
+            l.add(p);
+        return l;
+    }
+    
+    @Benchmark
+    public int get() {
+        int sum = 0;
+        for (int i = 0; i < list.size(); i++)
+            sum += list.get(i).x;
+        return sum;
+    }
+    
+    @Benchmark
+    public int iterate() {
+        int sum = 0;
+        for (Position p : list)
+            sum += p.x;
+        return sum;
+    }
+    
+    /**
+     * A runner's path is collected goal first while following parent links,
+     * and then walked backwards to find the first move.
+     */
+    @Benchmark
+    public Position pathReconstruction() {
+        List<Position> path = newList();
+        for (int i = positions.length - 1; i >= 0; i--)
+            path.add(positions[i]);
+        
+        Position first = null;
+        for (int i = path.size() - 1; i >= 0; i--)
+            first = path.get(i);
+        return first;
+    }
+    
+}
@@ -0,0 +1,47 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.benchmark;
+
+import java.util.Arrays;
+
+/**
+ * Entry point of the benchmark jar. Delegates to the JMH runner, writing the
+ * results as JSON to {@code jmh-result.json} unless a result format or file
+ * is given on the command line.
+ */
+public class BenchmarkMain {
+    
+    public static void main(String[] args) throws Exception {
+        String[] jmhArgs = args;
+        if (!Arrays.asList(args).contains("-rf")) {
+            jmhArgs = Arrays.copyOf(args, args.length + 2);
+            jmhArgs[args.length] = "-rf";
+            jmhArgs[args.length + 1] = "json";
+        }
+        
+        org.openjdk.jmh.Main.main(jmhArgs);
+    }
+    
+}
@@ -0,0 +1,149 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.benchmark;
+
+import com.github.tilastokeskus.minotaurus.util.BitGrid;
+import com.github.tilastokeskus.minotaurus.util.HashSet;
+import com.github.tilastokeskus.minotaurus.util.IntStack;
+import com.github.tilastokeskus.minotaurus.util.Position;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares closed sets of a flood fill through a maze: a {@link HashSet} of
+ * positions, a {@code boolean[]} allocated for each search as the runners used
+ * to do, and a {@link BitGrid} cleared between searches.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BitGridBenchmark {
+    
+    private static final int[] DX = {1, -1, 0, 0};
+    private static final int[] DY = {0, 0, 1, -1};
+    
+    @Param({"251", "1001"})
+    int mazeSize;
+    
+    private MazeFixture maze;
+    private BitGrid grid;
+    private IntStack open;
+    
+    @Setup
+    public void setUp() {
+        maze = new MazeFixture(mazeSize, 42);
+        grid = new BitGrid(maze.width, maze.height);
+        open = new IntStack();
+    }
+    
+    @Benchmark
+    public int hashSet() {
+        HashSet<Position> closed = new HashSet<>();
+        Position start = maze.start();
+        open.add(start.y * maze.width + start.x);
+        closed.add(start);
+        
+        while (!open.isEmpty()) {
+            int cell = open.pop();
+            int x = cell % maze.width;
+            int y = cell / maze.width;
+            for (int d = 0; d < DX.length; d++) {
+                int nx = x + DX[d];
+                int ny = y + DY[d];
+                if (maze.isFloor(nx, ny) && closed.add(new Position(nx, ny)))
+                    open.add(ny * maze.width + nx);
+            }
+        }
+        
+        return closed.size();
+    }
+    
+    @Benchmark
+    public int booleanArray() {
+        boolean[] closed = new boolean[maze.width * maze.height];
+        Position start = maze.start();
+        int count = 1;
+        open.add(start.y * maze.width + start.x);
+        closed[start.y * maze.width + start.x] = true;
+        
+        while (!open.isEmpty()) {
+            int cell = open.pop();
+            int x = cell % maze.width;
+            int y = cell / maze.width;
+            for (int d = 0; d < DX.length; d++) {
+                int nx = x + DX[d];
+                int ny = y + DY[d];
+                int newCell = ny * maze.width + nx;
+                if (maze.isFloor(nx, ny) && !closed[newCell]) {
+                    closed[newCell] = true;
+                    open.add(newCell);
+                    count++;
+                }
+            }
+        }
+        
+        return count;
+    }
+    
+    @Benchmark
+    public int bitGrid() {
+        grid.clearAll();
+        Position start = maze.start();
+        int count = 1;
+        open.add(start.y * maze.width + start.x);
+        grid.set(start.y * maze.width + start.x);
+        
+        while (!open.isEmpty()) {
+            int cell = open.pop();
+            int x = cell % maze.width;
+            int y = cell / maze.width;
+            for (int d = 0; d < DX.length; d++) {
+                int nx = x + DX[d];
+                int ny = y + DY[d];
+                int newCell = ny * maze.width + nx;
+                if (maze.isFloor(nx, ny) && grid.testAndSet(newCell)) {
+                    open.add(newCell);
+                    count++;
+                }
+            }
+        }
+        
+        return count;
+    }
+    
+}
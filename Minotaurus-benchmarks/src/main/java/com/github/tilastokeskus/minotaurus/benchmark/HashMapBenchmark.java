@@ -0,0 +1,141 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.benchmark;
+
+import com.github.tilastokeskus.minotaurus.util.HashMap;
+import com.github.tilastokeskus.minotaurus.util.Position;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link HashMap} to {@link java.util.HashMap} with {@link Position}
+ * keys, visited in the order a search through a maze visits them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HashMapBenchmark {
+    
+    private static final int[] DX = {1, -1, 0, 0};
+    private static final int[] DY = {0, 0, 1, -1};
+    
+    @Param({"util", "java.util"})
+    String impl;
+    
+    @Param({"51", "251"})
+    int mazeSize;
+    
+    private MazeFixture maze;
+    private Map<Position, Integer> map;
+    
+    @Setup
+    public void setUp() {
+        maze = new MazeFixture(mazeSize, 42);
+        map = newMap();
+        for (int i = 0; i < maze.bfsOrder.length; i++)
+            map.put(maze.bfsOrder[i], i);
+    }
+    
+    private Map<Position, Integer> newMap() {
+        return impl.equals("util") ? new HashMap<>() : new java.util.HashMap<>();
+    }
+    
+    @Benchmark
+    public Map<Position, Integer> put() {
+        Map<Position, Integer> m = newMap();
+        for (int i = 0; i < maze.bfsOrder.length; i++)
+            m.put(maze.bfsOrder[i], i);
+        return m;
+    }
+    
+    @Benchmark
+    public int getHit() {
+        int sum = 0;
+        for (Position p : maze.bfsOrder)
+            sum += map.get(p);
+        return sum;
+    }
+    
+    @Benchmark
+    public int getMiss() {
+        int misses = 0;
+        for (Position p : maze.walls)
+            if (map.get(p) == null)
+                misses++;
+        return misses;
+    }
+    
+    @Benchmark
+    public int putRemove() {
+        Map<Position, Integer> m = newMap();
+        for (int i = 0; i < maze.bfsOrder.length; i++)
+            m.put(maze.bfsOrder[i], i);
+        for (Position p : maze.bfsOrder)
+            m.remove(p);
+        return m.size();
+    }
+    
+    /**
+     * Builds the distance map of a search from the start of the maze, looking
+     * up and relaxing every neighbour of each cell like a runner computing
+     * g-scores does.
+     */
+    @Benchmark
+    public int relaxDistances() {
+        Map<Position, Integer> dist = newMap();
+        dist.put(maze.start(), 0);
+        for (Position p : maze.bfsOrder) {
+            int g = dist.get(p);
+            for (int d = 0; d < DX.length; d++) {
+                int nx = p.x + DX[d];
+                int ny = p.y + DY[d];
+                if (!maze.isFloor(nx, ny))
+                    continue;
+                
+                Position n = new Position(nx, ny);
+                Integer old = dist.get(n);
+                if (old == null || g + 1 < old)
+                    dist.put(n, g + 1);
+            }
+        }
+        
+        return dist.get(maze.goal());
+    }
+    
+}
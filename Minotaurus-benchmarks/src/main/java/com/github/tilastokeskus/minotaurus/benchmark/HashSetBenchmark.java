@@ -0,0 +1,130 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.benchmark;
+
+import com.github.tilastokeskus.minotaurus.util.HashSet;
+import com.github.tilastokeskus.minotaurus.util.Position;
+import java.util.ArrayDeque;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link HashSet} to {@link java.util.HashSet} used as the closed set
+ * of a search through a maze.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HashSetBenchmark {
+    
+    private static final int[] DX = {1, -1, 0, 0};
+    private static final int[] DY = {0, 0, 1, -1};
+    
+    @Param({"util", "java.util"})
+    String impl;
+    
+    @Param({"51", "251"})
+    int mazeSize;
+    
+    private MazeFixture maze;
+    private Set<Position> set;
+    
+    @Setup
+    public void setUp() {
+        maze = new MazeFixture(mazeSize, 42);
+        set = newSet();
+        for (Position p : maze.bfsOrder)
+            set.add(p);
+    }
+    
+    private Set<Position> newSet() {
+        return impl.equals("util") ? new HashSet<>() : new java.util.HashSet<>();
+    }
+    
+    @Benchmark
+    public Set<Position> add() {
+        Set<Position> s = newSet();
+        for (Position p : maze.bfsOrder)
+            s.add(p);
+        return s;
+    }
+    
+    @Benchmark
+    public int contains() {
+        int found = 0;
+        for (Position p : maze.bfsOrder)
+            if (set.contains(p))
+                found++;
+        for (Position p : maze.walls)
+            if (set.contains(p))
+                found++;
+        return found;
+    }
+    
+    /**
+     * Floods the maze from its start, checking every neighbour against the
+     * closed set before queueing it.
+     */
+    @Benchmark
+    public int closedSetSearch() {
+        Set<Position> closed = newSet();
+        ArrayDeque<Position> open = new ArrayDeque<>();
+        open.add(maze.start());
+        closed.add(maze.start());
+        
+        while (!open.isEmpty()) {
+            Position p = open.poll();
+            for (int d = 0; d < DX.length; d++) {
+                int nx = p.x + DX[d];
+                int ny = p.y + DY[d];
+                if (!maze.isFloor(nx, ny))
+                    continue;
+                
+                Position n = new Position(nx, ny);
+                if (!closed.contains(n)) {
+                    closed.add(n);
+                    open.add(n);
+                }
+            }
+        }
+        
+        return closed.size();
+    }
+    
+}
@@ -0,0 +1,181 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.benchmark;
+
+import com.github.tilastokeskus.minotaurus.pathfinding.JumpPointSearch;
+import com.github.tilastokeskus.minotaurus.pathfinding.SearchContext;
+import com.github.tilastokeskus.minotaurus.util.Position;
+import com.github.tilastokeskus.minotaurus.util.PositionPredicate;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+/**
+ * Compares a search from the start of a maze to the cell furthest from it
+ * done the way {@code AStarRunner} does it, in a borrowed
+ * {@link SearchContext}, to one done with {@link JumpPointSearch}, in a
+ * perfect maze and in an open arena. Next to the time of each search, the
+ * number of cells it took out of its open set is reported as the
+ * {@code expansions} counter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JumpPointSearchBenchmark {
+    
+    private static final int[] DX = {1, -1, 0, 0};
+    private static final int[] DY = {0, 0, 1, -1};
+    
+    @Param({"dfs", "arena"})
+    String mazeType;
+    
+    @Param({"251", "1001"})
+    int mazeSize;
+    
+    private MazeFixture maze;
+    private PositionPredicate floor;
+    private int[] goalCells;
+    private JumpPointSearch search;
+    
+    @Setup
+    public void setUp() {
+        maze = mazeType.equals("arena")
+                ? MazeFixture.arena(mazeSize)
+                : new MazeFixture(mazeSize, 42);
+        floor = maze::isFloor;
+        goalCells = new int[] {maze.goal().y * maze.width + maze.goal().x};
+        search = new JumpPointSearch(maze.width, maze.height);
+    }
+    
+    @Benchmark
+    public int aStar(Expansions counter) {
+        int width = maze.width;
+        SearchContext context = SearchContext.acquire(width, maze.height);
+        try {
+            Position start = maze.start();
+            Position goal = maze.goal();
+            int goalCell = goal.y * width + goal.x;
+            int startCell = start.y * width + start.x;
+            context.reach(startCell, 0, SearchContext.NONE);
+            context.queue(startCell, distance(start.x, start.y, goal));
+            
+            int expansions = 0;
+            while (!context.isQueueEmpty()) {
+                int cell = context.extractMin();
+                expansions++;
+                if (cell == goalCell)
+                    break;
+                
+                context.setClosed(cell);
+                int x = cell % width;
+                int y = cell / width;
+                int newG = context.getG(cell) + 1;
+                for (int d = 0; d < DX.length; d++) {
+                    int nx = x + DX[d];
+                    int ny = y + DY[d];
+                    if (!floor.test(nx, ny))
+                        continue;
+                    
+                    int newCell = ny * width + nx;
+                    if (context.isClosed(newCell))
+                        continue;
+                    
+                    if (context.isQueued(newCell) && newG >= context.getG(newCell))
+                        continue;
+                    
+                    context.reach(newCell, newG, cell);
+                    context.queue(newCell, newG + distance(nx, ny, goal));
+                }
+            }
+            
+            counter.record(expansions);
+            return context.getG(goalCell);
+        } finally {
+            context.release();
+        }
+    }
+    
+    @Benchmark
+    public int jumpPointSearch(Expansions counter) {
+        Position start = maze.start();
+        search.search(start.x, start.y, goalCells, floor);
+        counter.record(search.getExpansions());
+        return search.getPathLength();
+    }
+    
+    private static int distance(int x, int y, Position p) {
+        return Math.abs(x - p.x) + Math.abs(y - p.y);
+    }
+    
+    /**
+     * Number of cells a search takes out of its open set. JMH adds event
+     * counters up over the measurement iterations, so each iteration reports
+     * its share of the mean, and the sum is the count of a single search.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Expansions {
+        
+        private int iterations;
+        private long total;
+        private long searches;
+        
+        @Setup(Level.Trial)
+        public void setUp(BenchmarkParams params) {
+            iterations = params.getMeasurement().getCount();
+        }
+        
+        @Setup(Level.Iteration)
+        public void reset() {
+            total = 0;
+            searches = 0;
+        }
+        
+        void record(int expansions) {
+            total += expansions;
+            searches++;
+        }
+        
+        public double expansions() {
+            return searches == 0 ? 0 : (double) total / searches / iterations;
+        }
+    }
+    
+}
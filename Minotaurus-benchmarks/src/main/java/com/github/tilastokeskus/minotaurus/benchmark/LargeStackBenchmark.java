@@ -0,0 +1,183 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.benchmark;
+
+import com.github.tilastokeskus.minotaurus.util.ArrayStack;
+import com.github.tilastokeskus.minotaurus.util.IntStack;
+import com.github.tilastokeskus.minotaurus.util.LinkedListStack;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Pushes ten million elements through each stack, either all at once or as a
+ * sawtooth of short pushes and pops on a stack that lives across invocations.
+ * The sawtooth is the steady state of a backtracking search, in which
+ * {@link ArrayStack} and {@link IntStack} allocate nothing while
+ * {@link LinkedListStack} allocates a node per push.
+ * <p>
+ * Run with {@code -prof gc} to see the allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Thread)
+public class LargeStackBenchmark {
+    
+    @Param({"10000000"})
+    int pushes;
+    
+    // Height of each tooth of the sawtooth.
+    @Param({"1000"})
+    int depth;
+    
+    private final Integer elem = 42;
+    
+    private LinkedListStack<Integer> linkedListStack;
+    private ArrayStack<Integer> arrayStack;
+    private IntStack intStack;
+    private ArrayDeque<Integer> arrayDeque;
+    
+    @Setup
+    public void setUp() {
+        linkedListStack = new LinkedListStack<>();
+        arrayStack = new ArrayStack<>();
+        intStack = new IntStack();
+        arrayDeque = new ArrayDeque<>();
+    }
+    
+    @Benchmark
+    public int fillAndDrainLinkedListStack() {
+        LinkedListStack<Integer> stack = new LinkedListStack<>();
+        for (int i = 0; i < pushes; i++)
+            stack.add(elem);
+        
+        int count = 0;
+        while (stack.pop() != null)
+            count++;
+        return count;
+    }
+    
+    @Benchmark
+    public int fillAndDrainArrayStack() {
+        ArrayStack<Integer> stack = new ArrayStack<>();
+        for (int i = 0; i < pushes; i++)
+            stack.add(elem);
+        
+        int count = 0;
+        while (stack.pop() != null)
+            count++;
+        return count;
+    }
+    
+    @Benchmark
+    public long fillAndDrainIntStack() {
+        IntStack stack = new IntStack();
+        for (int i = 0; i < pushes; i++)
+            stack.add(i);
+        
+        long sum = 0;
+        while (!stack.isEmpty())
+            sum += stack.pop();
+        return sum;
+    }
+    
+    @Benchmark
+    public int fillAndDrainArrayDeque() {
+        ArrayDeque<Integer> stack = new ArrayDeque<>();
+        for (int i = 0; i < pushes; i++)
+            stack.push(elem);
+        
+        int count = 0;
+        while (stack.poll() != null)
+            count++;
+        return count;
+    }
+    
+    @Benchmark
+    public int sawtoothLinkedListStack() {
+        int count = 0;
+        for (int round = 0; round < pushes / depth; round++) {
+            for (int i = 0; i < depth; i++)
+                linkedListStack.add(elem);
+            while (linkedListStack.pop() != null)
+                count++;
+        }
+        
+        return count;
+    }
+    
+    @Benchmark
+    public int sawtoothArrayStack() {
+        int count = 0;
+        for (int round = 0; round < pushes / depth; round++) {
+            for (int i = 0; i < depth; i++)
+                arrayStack.add(elem);
+            while (arrayStack.pop() != null)
+                count++;
+        }
+        
+        return count;
+    }
+    
+    @Benchmark
+    public long sawtoothIntStack() {
+        long sum = 0;
+        for (int round = 0; round < pushes / depth; round++) {
+            for (int i = 0; i < depth; i++)
+                intStack.add(i);
+            while (!intStack.isEmpty())
+                sum += intStack.pop();
+        }
+        
+        return sum;
+    }
+    
+    @Benchmark
+    public int sawtoothArrayDeque() {
+        int count = 0;
+        for (int round = 0; round < pushes / depth; round++) {
+            for (int i = 0; i < depth; i++)
+                arrayDeque.push(elem);
+            while (arrayDeque.poll() != null)
+                count++;
+        }
+        
+        return count;
+    }
+    
+}
@@ -0,0 +1,181 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.benchmark;
+
+import com.github.tilastokeskus.minotaurus.util.Direction;
+import com.github.tilastokeskus.minotaurus.util.Position;
+import java.util.ArrayDeque;
+import java.util.Random;
+
+/**
+ * A perfect maze carved with a seeded depth-first search, the same way the
+ * DFS maze generator plugin carves its mazes. Benchmarks use it to replay the
+ * access patterns of a runner searching a maze.
+ */
+final class MazeFixture {
+    
+    final int width;
+    final int height;
+    final boolean[] floor;
+    
+    // Floor cells in the order a breadth-first search from (1, 1) visits them.
+    final Position[] bfsOrder;
+    
+    // Wall cells, used as keys that are never found.
+    final Position[] walls;
+    
+    /**
+     * Creates a new MazeFixture.
+     * 
+     * @param size Width and height of the maze; rounded up to an odd number.
+     * @param seed Seed of the random number generator used to carve the maze.
+     */
+    MazeFixture(int size, long seed) {
+        this(size, seed, false);
+    }
+    
+    private MazeFixture(int size, long seed, boolean arena) {
+        this.width = size | 1;
+        this.height = size | 1;
+        this.floor = new boolean[width * height];
+        if (arena)
+            clearArena();
+        else
+            carve(new Random(seed));
+        this.bfsOrder = breadthFirstOrder();
+        this.walls = wallCells();
+    }
+    
+    /**
+     * Creates an arena that is all floor except for its boundary, like the
+     * ones the arena maze generator plugin generates. The start and the goal
+     * are in opposite corners.
+     * 
+     * @param size Width and height of the arena; rounded up to an odd number.
+     * @return A new MazeFixture.
+     */
+    static MazeFixture arena(int size) {
+        return new MazeFixture(size, 0, true);
+    }
+    
+    boolean isFloor(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height
+                && floor[y * width + x];
+    }
+    
+    Position start() {
+        return bfsOrder[0];
+    }
+    
+    Position goal() {
+        return bfsOrder[bfsOrder.length - 1];
+    }
+    
+    private void clearArena() {
+        for (int y = 1; y < height - 1; y++)
+            for (int x = 1; x < width - 1; x++)
+                floor[y * width + x] = true;
+    }
+    
+    private void carve(Random random) {
+        int[] stack = new int[width * height];
+        int top = 0;
+        int[] dirs = {0, 1, 2, 3};
+        
+        floor[width + 1] = true;
+        stack[top++] = width + 1;
+        while (top > 0) {
+            int cell = stack[top - 1];
+            int x = cell % width;
+            int y = cell / width;
+            shuffle(dirs, random);
+            
+            boolean carved = false;
+            for (int d : dirs) {
+                int dx = d == 0 ? 2 : d == 1 ? -2 : 0;
+                int dy = d == 2 ? 2 : d == 3 ? -2 : 0;
+                int nx = x + dx;
+                int ny = y + dy;
+                if (nx > 0 && ny > 0 && nx < width - 1 && ny < height - 1
+                        && !floor[ny * width + nx]) {
+                    floor[(y + dy / 2) * width + x + dx / 2] = true;
+                    floor[ny * width + nx] = true;
+                    stack[top++] = ny * width + nx;
+                    carved = true;
+                    break;
+                }
+            }
+            
+            if (!carved)
+                top--;
+        }
+    }
+    
+    private Position[] breadthFirstOrder() {
+        boolean[] seen = new boolean[floor.length];
+        ArrayDeque<Position> queue = new ArrayDeque<>();
+        java.util.ArrayList<Position> order = new java.util.ArrayList<>();
+        
+        queue.add(new Position(1, 1));
+        seen[width + 1] = true;
+        while (!queue.isEmpty()) {
+            Position p = queue.poll();
+            order.add(p);
+            for (Direction dir : Direction.values()) {
+                if (dir == Direction.NONE)
+                    continue;
+                
+                int nx = p.x + dir.deltaX;
+                int ny = p.y + dir.deltaY;
+                if (isFloor(nx, ny) && !seen[ny * width + nx]) {
+                    seen[ny * width + nx] = true;
+                    queue.add(new Position(nx, ny));
+                }
+            }
+        }
+        
+        return order.toArray(new Position[order.size()]);
+    }
+    
+    private Position[] wallCells() {
+        java.util.ArrayList<Position> list = new java.util.ArrayList<>();
+        for (int y = 0; y < height; y++)
+            for (int x = 0; x < width; x++)
+                if (!floor[y * width + x])
+                    list.add(new Position(x, y));
+        
+        return list.toArray(new Position[list.size()]);
+    }
+    
+    private static void shuffle(int[] arr, Random random) {
+        for (int i = arr.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = arr[i];
+            arr[i] = arr[j];
+            arr[j] = tmp;
+        }
+    }
+    
+}
@@ -0,0 +1,198 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.benchmark;
+
+import com.github.tilastokeskus.minotaurus.util.Position;
+import com.github.tilastokeskus.minotaurus.util.PriorityQueue;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link PriorityQueue} to {@link java.util.PriorityQueue}. The two
+ * share no interface, so each operation is written out once per
+ * implementation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PriorityQueueBenchmark {
+    
+    private static final int[] DX = {1, -1, 0, 0};
+    private static final int[] DY = {0, 0, 1, -1};
+    
+    private static final Comparator<Node> BY_F = (a, b) -> Integer.compare(a.f, b.f);
+    
+    @Param({"51", "251"})
+    int mazeSize;
+    
+    private MazeFixture maze;
+    private Integer[] values;
+    
+    @Setup
+    public void setUp() {
+        maze = new MazeFixture(mazeSize, 42);
+        
+        Random random = new Random(42);
+        values = new Integer[maze.bfsOrder.length];
+        for (int i = 0; i < values.length; i++)
+            values[i] = random.nextInt();
+    }
+    
+    @Benchmark
+    public int addExtractUtil() {
+        PriorityQueue<Integer> queue = new PriorityQueue<>();
+        for (Integer v : values)
+            queue.add(v);
+        
+        int last = 0;
+        while (!queue.isEmpty())
+            last = queue.extractMin();
+        return last;
+    }
+    
+    @Benchmark
+    public int addExtractJava() {
+        java.util.PriorityQueue<Integer> queue = new java.util.PriorityQueue<>();
+        for (Integer v : values)
+            queue.add(v);
+        
+        int last = 0;
+        while (!queue.isEmpty())
+            last = queue.poll();
+        return last;
+    }
+    
+    /*
+     * A* from the start of the maze to the cell furthest from it, with the
+     * queue as the open set. Improved nodes are queued again and stale ones
+     * skipped when extracted, which is how the runners use a queue that has
+     * no decrease-key operation.
+     */
+    
+    @Benchmark
+    public int aStarUtil() {
+        int[] g = newDistances();
+        PriorityQueue<Node> open = new PriorityQueue<>(BY_F);
+        Position start = maze.start();
+        g[index(start)] = 0;
+        open.add(new Node(start, 0, heuristic(start)));
+        
+        while (!open.isEmpty()) {
+            Node n = open.extractMin();
+            if (n.g > g[index(n.pos)])
+                continue;
+            if (n.pos.equals(maze.goal()))
+                return n.g;
+            
+            for (int d = 0; d < DX.length; d++) {
+                Node next = relax(g, n, d);
+                if (next != null)
+                    open.add(next);
+            }
+        }
+        
+        return -1;
+    }
+    
+    @Benchmark
+    public int aStarJava() {
+        int[] g = newDistances();
+        java.util.PriorityQueue<Node> open = new java.util.PriorityQueue<>(BY_F);
+        Position start = maze.start();
+        g[index(start)] = 0;
+        open.add(new Node(start, 0, heuristic(start)));
+        
+        while (!open.isEmpty()) {
+            Node n = open.poll();
+            if (n.g > g[index(n.pos)])
+                continue;
+            if (n.pos.equals(maze.goal()))
+                return n.g;
+            
+            for (int d = 0; d < DX.length; d++) {
+                Node next = relax(g, n, d);
+                if (next != null)
+                    open.add(next);
+            }
+        }
+        
+        return -1;
+    }
+    
+    private Node relax(int[] g, Node n, int d) {
+        int nx = n.pos.x + DX[d];
+        int ny = n.pos.y + DY[d];
+        if (!maze.isFloor(nx, ny) || n.g + 1 >= g[ny * maze.width + nx])
+            return null;
+        
+        Position pos = new Position(nx, ny);
+        g[ny * maze.width + nx] = n.g + 1;
+        return new Node(pos, n.g + 1, n.g + 1 + heuristic(pos));
+    }
+    
+    private int[] newDistances() {
+        int[] g = new int[maze.floor.length];
+        Arrays.fill(g, Integer.MAX_VALUE);
+        return g;
+    }
+    
+    private int index(Position p) {
+        return p.y * maze.width + p.x;
+    }
+    
+    private int heuristic(Position p) {
+        Position goal = maze.goal();
+        return Math.abs(goal.x - p.x) + Math.abs(goal.y - p.y);
+    }
+    
+    private static class Node {
+        final Position pos;
+        final int g;
+        final int f;
+        
+        Node(Position pos, int g, int f) {
+            this.pos = pos;
+            this.g = g;
+            this.f = f;
+        }
+    }
+    
+}
@@ -0,0 +1,186 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.benchmark;
+
+import com.github.tilastokeskus.minotaurus.pathfinding.SearchContext;
+import com.github.tilastokeskus.minotaurus.util.BitGrid;
+import com.github.tilastokeskus.minotaurus.util.IndexedPriorityQueue;
+import com.github.tilastokeskus.minotaurus.util.Position;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares an A* search across a maze that allocates a queue, a node per
+ * queued cell and a position per neighbor, as {@code AStarRunner} used to, to
+ * the same search done in a borrowed {@link SearchContext}. Run with
+ * {@code -prof gc} to see the allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SearchContextBenchmark {
+    
+    private static final int[] DX = {1, -1, 0, 0};
+    private static final int[] DY = {0, 0, 1, -1};
+    
+    @Param({"251", "1001"})
+    int mazeSize;
+    
+    private MazeFixture maze;
+    private BitGrid closed;
+    private int[] g;
+    
+    @Setup
+    public void setUp() {
+        maze = new MazeFixture(mazeSize, 42);
+        closed = new BitGrid(maze.width, maze.height);
+        g = new int[maze.width * maze.height];
+    }
+    
+    @Benchmark
+    public int nodes() {
+        int width = maze.width;
+        IndexedPriorityQueue<Node> open = new IndexedPriorityQueue<>(
+                (Node o1, Node o2) -> Integer.compare(o1.score, o2.score),
+                width * maze.height,
+                (Node node) -> node.pos.y * width + node.pos.x);
+        closed.clearAll();
+        
+        Position start = maze.start();
+        Position goal = maze.goal();
+        g[start.y * width + start.x] = 0;
+        Node n = new Node(start, null);
+        n.score = distance(start.x, start.y, goal);
+        open.add(n);
+        
+        while (!open.isEmpty()) {
+            n = open.extractMin();
+            if (n.pos.equals(goal))
+                break;
+            
+            int cell = n.pos.y * width + n.pos.x;
+            closed.set(cell);
+            for (int d = 0; d < DX.length; d++) {
+                int nx = n.pos.x + DX[d];
+                int ny = n.pos.y + DY[d];
+                if (!maze.isFloor(nx, ny))
+                    continue;
+                
+                int newCell = ny * width + nx;
+                if (closed.test(newCell))
+                    continue;
+                
+                boolean queued = open.containsKey(newCell);
+                if (queued && g[cell] + 1 >= g[newCell])
+                    continue;
+                
+                Position newPos = new Position(nx, ny);
+                Node newNode = new Node(newPos, n);
+                newNode.score = g[cell] + 1 + distance(nx, ny, goal);
+                if (queued)
+                    open.decreaseKey(newNode);
+                else
+                    open.add(newNode);
+                g[newCell] = g[cell] + 1;
+            }
+        }
+        
+        return g[goal.y * width + goal.x];
+    }
+    
+    @Benchmark
+    public int searchContext() {
+        int width = maze.width;
+        SearchContext search = SearchContext.acquire(width, maze.height);
+        try {
+            Position start = maze.start();
+            Position goal = maze.goal();
+            int goalCell = goal.y * width + goal.x;
+            int startCell = start.y * width + start.x;
+            search.reach(startCell, 0, SearchContext.NONE);
+            search.queue(startCell, distance(start.x, start.y, goal));
+            
+            while (!search.isQueueEmpty()) {
+                int cell = search.extractMin();
+                if (cell == goalCell)
+                    break;
+                
+                search.setClosed(cell);
+                int x = cell % width;
+                int y = cell / width;
+                int newG = search.getG(cell) + 1;
+                for (int d = 0; d < DX.length; d++) {
+                    int nx = x + DX[d];
+                    int ny = y + DY[d];
+                    if (!maze.isFloor(nx, ny))
+                        continue;
+                    
+                    int newCell = ny * width + nx;
+                    if (search.isClosed(newCell))
+                        continue;
+                    
+                    if (search.isQueued(newCell) && newG >= search.getG(newCell))
+                        continue;
+                    
+                    search.reach(newCell, newG, cell);
+                    search.queue(newCell, newG + distance(nx, ny, goal));
+                }
+            }
+            
+            return search.getG(goalCell);
+        } finally {
+            search.release();
+        }
+    }
+    
+    private static int distance(int x, int y, Position p) {
+        return Math.abs(x - p.x) + Math.abs(y - p.y);
+    }
+    
+    private static class Node {
+        int score;
+        final Position pos;
+        final Node prev;
+        
+        Node(Position pos, Node prev) {
+            this.pos = pos;
+            this.prev = prev;
+        }
+    }
+    
+}
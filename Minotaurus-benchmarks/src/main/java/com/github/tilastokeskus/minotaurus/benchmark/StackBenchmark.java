@@ -0,0 +1,214 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.benchmark;
+
+import com.github.tilastokeskus.minotaurus.util.ArrayStack;
+import com.github.tilastokeskus.minotaurus.util.LinkedListStack;
+import com.github.tilastokeskus.minotaurus.util.Position;
+import java.util.ArrayDeque;
+import java.util.Stack;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link LinkedListStack} and {@link ArrayStack} to {@link Stack} and
+ * {@link ArrayDeque}. The stacks share no interface, so each operation is
+ * written out once per implementation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StackBenchmark {
+    
+    private static final int[] DX = {1, -1, 0, 0};
+    private static final int[] DY = {0, 0, 1, -1};
+    
+    @Param({"51", "251"})
+    int mazeSize;
+    
+    private MazeFixture maze;
+    
+    @Setup
+    public void setUp() {
+        maze = new MazeFixture(mazeSize, 42);
+    }
+    
+    @Benchmark
+    public int pushPopLinkedListStack() {
+        LinkedListStack<Position> stack = new LinkedListStack<>();
+        for (Position p : maze.bfsOrder)
+            stack.add(p);
+        
+        int sum = 0;
+        while (!stack.isEmpty())
+            sum += stack.pop().x;
+        return sum;
+    }
+    
+    @Benchmark
+    public int pushPopArrayStack() {
+        ArrayStack<Position> stack = new ArrayStack<>();
+        for (Position p : maze.bfsOrder)
+            stack.add(p);
+        
+        int sum = 0;
+        while (!stack.isEmpty())
+            sum += stack.pop().x;
+        return sum;
+    }
+    
+    @Benchmark
+    public int pushPopStack() {
+        Stack<Position> stack = new Stack<>();
+        for (Position p : maze.bfsOrder)
+            stack.push(p);
+        
+        int sum = 0;
+        while (!stack.isEmpty())
+            sum += stack.pop().x;
+        return sum;
+    }
+    
+    @Benchmark
+    public int pushPopArrayDeque() {
+        ArrayDeque<Position> stack = new ArrayDeque<>();
+        for (Position p : maze.bfsOrder)
+            stack.push(p);
+        
+        int sum = 0;
+        while (!stack.isEmpty())
+            sum += stack.pop().x;
+        return sum;
+    }
+    
+    /*
+     * Depth-first traversals of the maze, the pattern the DFS maze generator
+     * and depth-first runners put their stacks through: a push for every
+     * unvisited neighbour and a pop for every cell.
+     */
+    
+    @Benchmark
+    public int depthFirstLinkedListStack() {
+        boolean[] visited = new boolean[maze.floor.length];
+        LinkedListStack<Position> stack = new LinkedListStack<>();
+        stack.add(maze.start());
+        
+        int count = 0;
+        while (!stack.isEmpty()) {
+            Position p = stack.pop();
+            if (visit(visited, p)) {
+                count++;
+                for (int d = 0; d < DX.length; d++)
+                    if (maze.isFloor(p.x + DX[d], p.y + DY[d]))
+                        stack.add(new Position(p.x + DX[d], p.y + DY[d]));
+            }
+        }
+        
+        return count;
+    }
+    
+    @Benchmark
+    public int depthFirstArrayStack() {
+        boolean[] visited = new boolean[maze.floor.length];
+        ArrayStack<Position> stack = new ArrayStack<>();
+        stack.add(maze.start());
+        
+        int count = 0;
+        while (!stack.isEmpty()) {
+            Position p = stack.pop();
+            if (visit(visited, p)) {
+                count++;
+                for (int d = 0; d < DX.length; d++)
+                    if (maze.isFloor(p.x + DX[d], p.y + DY[d]))
+                        stack.add(new Position(p.x + DX[d], p.y + DY[d]));
+            }
+        }
+        
+        return count;
+    }
+    
+    @Benchmark
+    public int depthFirstStack() {
+        boolean[] visited = new boolean[maze.floor.length];
+        Stack<Position> stack = new Stack<>();
+        stack.push(maze.start());
+        
+        int count = 0;
+        while (!stack.isEmpty()) {
+            Position p = stack.pop();
+            if (visit(visited, p)) {
+                count++;
+                for (int d = 0; d < DX.length; d++)
+                    if (maze.isFloor(p.x + DX[d], p.y + DY[d]))
+                        stack.push(new Position(p.x + DX[d], p.y + DY[d]));
+            }
+        }
+        
+        return count;
+    }
+    
+    @Benchmark
+    public int depthFirstArrayDeque() {
+        boolean[] visited = new boolean[maze.floor.length];
+        ArrayDeque<Position> stack = new ArrayDeque<>();
+        stack.push(maze.start());
+        
+        int count = 0;
+        while (!stack.isEmpty()) {
+            Position p = stack.pop();
+            if (visit(visited, p)) {
+                count++;
+                for (int d = 0; d < DX.length; d++)
+                    if (maze.isFloor(p.x + DX[d], p.y + DY[d]))
+                        stack.push(new Position(p.x + DX[d], p.y + DY[d]));
+            }
+        }
+        
+        return count;
+    }
+    
+    private boolean visit(boolean[] visited, Position p) {
+        int index = p.y * maze.width + p.x;
+        if (visited[index])
+            return false;
+        
+        visited[index] = true;
+        return true;
+    }
+    
+}
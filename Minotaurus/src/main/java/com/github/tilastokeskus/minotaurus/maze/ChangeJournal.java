@@ -0,0 +1,84 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.maze;
+
+import java.util.function.IntConsumer;
+
+/**
+ * A bounded log of the cells of a maze that have changed, either because a
+ * block was set or because an entity entered or left them. Changes are
+ * numbered from zero, and a reader remembers how many changes it has seen to
+ * later ask for the cells changed after them. Only the latest
+ * {@value #CAPACITY} changes are kept; a reader that falls further behind is
+ * told to start over.
+ */
+final class ChangeJournal {
+    
+    static final int CAPACITY = 1 << 12;
+    
+    private final int[] cells = new int[CAPACITY];
+    
+    // Total number of changes recorded.
+    private long count;
+    
+    // Readers that have seen fewer changes than this have to start over.
+    private long resetAt;
+    
+    synchronized void record(int cell) {
+        cells[(int) (count & (CAPACITY - 1))] = cell;
+        count++;
+    }
+    
+    /**
+     * Records that every cell may have changed.
+     */
+    synchronized void reset() {
+        count++;
+        resetAt = count;
+    }
+    
+    synchronized long getCount() {
+        return count;
+    }
+    
+    /**
+     * Passes the cells changed after the first {@code since} changes to the
+     * action, oldest first. A cell is passed once for each time it changed.
+     * 
+     * @param since  Number of changes seen before.
+     * @param action Action taking the index of a cell.
+     * @return False if the changes are no longer known, in which case nothing
+     *         is passed to the action.
+     */
+    synchronized boolean forEachSince(long since, IntConsumer action) {
+        if (since < resetAt || since < count - CAPACITY || since > count)
+            return false;
+        
+        for (long i = since; i < count; i++)
+            action.accept(cells[(int) (i & (CAPACITY - 1))]);
+        return true;
+    }
+    
+}
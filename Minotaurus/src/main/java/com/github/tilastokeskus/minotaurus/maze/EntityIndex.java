@@ -0,0 +1,419 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.maze;
+
+import com.github.tilastokeskus.minotaurus.util.Position;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Index of the entities in a maze, grouped by the cell they are in.
+ * <p>
+ * Every entity occupies a slot, and the entities in the same cell are chained
+ * together through the slots in the order they arrived. Each cell only stores
+ * the first slot of its chain and the number of entities in it, so finding or
+ * counting the entities in a cell takes constant time and allocates nothing.
+ * Entities outside the bounds of the maze share a single chain.
+ * <p>
+ * The per-cell data is split into chunks that are allocated when the first
+ * entity enters them. Like in {@link PackedLayout}, chunks and slot data are
+ * copied on write, so that a {@link #fork() fork} is cheap and costs memory
+ * only for what changes.
+ * <p>
+ * Entities are told apart by identity, not by {@code equals}.
+ */
+class EntityIndex {
+    
+    private static final int NONE = -1;
+    private static final int OUTSIDE = -1;
+    private static final int INITIAL_CAPACITY = 8;
+    static final int CELLS_PER_CHUNK = 4096;
+    
+    private final int width;
+    private final int height;
+    
+    /* First slot + 1 of the chain in each cell, so that a fresh chunk means
+     * that all its cells are empty. A null chunk has no entities at all.
+     */
+    private int[][] heads;
+    private char[][] counts;
+    private boolean[] ownedChunks;
+    private int outsideHead;
+    
+    /* Per-slot data. The previous slot of the first slot in a chain is the
+     * last slot of the chain, and the next slot of the last slot is NONE.
+     */
+    private MazeEntity[] entities;
+    private int[] next;
+    private int[] prev;
+    private int[] cells;
+    private Map<MazeEntity, Integer> slots;
+    private boolean ownsSlots;
+    
+    private int slotsUsed;
+    private int freeSlot;
+    private int size;
+    
+    /**
+     * Creates a new empty index for a maze of the given size.
+     * 
+     * @param width  Width of the maze.
+     * @param height Height of the maze.
+     */
+    EntityIndex(int width, int height) {
+        this.width = width;
+        this.height = height;
+        clear();
+    }
+    
+    private EntityIndex(EntityIndex parent) {
+        this.width = parent.width;
+        this.height = parent.height;
+        this.heads = parent.heads.clone();
+        this.counts = parent.counts.clone();
+        this.ownedChunks = new boolean[heads.length];
+        this.outsideHead = parent.outsideHead;
+        this.entities = parent.entities;
+        this.next = parent.next;
+        this.prev = parent.prev;
+        this.cells = parent.cells;
+        this.slots = parent.slots;
+        this.ownsSlots = false;
+        this.slotsUsed = parent.slotsUsed;
+        this.freeSlot = parent.freeSlot;
+        this.size = parent.size;
+    }
+    
+    /**
+     * Returns an index with the same entities in the same cells as this one,
+     * sharing its data with this index until either of them changes. The
+     * fork is a snapshot: it does not follow the entities unless they are
+     * moved in the fork itself.
+     * 
+     * @return A new index.
+     */
+    EntityIndex fork() {
+        
+        // From now on, both indexes must copy shared data before writing.
+        Arrays.fill(ownedChunks, false);
+        ownsSlots = false;
+        return new EntityIndex(this);
+    }
+    
+    /**
+     * Adds an entity to the cell it is in.
+     * 
+     * @param ent Entity to add.
+     * @return True if the entity was added, false if it was already indexed.
+     */
+    boolean add(MazeEntity ent) {
+        if (slots.containsKey(ent))
+            return false;
+        
+        ensureOwnSlots();
+        int slot = allocateSlot();
+        entities[slot] = ent;
+        slots.put(ent, slot);
+        link(slot, cellOf(ent.getPosition()));
+        size++;
+        return true;
+    }
+    
+    /**
+     * Removes an entity from the index.
+     * 
+     * @param ent Entity to remove.
+     * @return True if the entity was removed, false if it was not indexed.
+     */
+    boolean remove(MazeEntity ent) {
+        if (!slots.containsKey(ent))
+            return false;
+        
+        ensureOwnSlots();
+        int slot = slots.remove(ent);
+        unlink(slot);
+        entities[slot] = null;
+        next[slot] = freeSlot;
+        freeSlot = slot;
+        size--;
+        return true;
+    }
+    
+    /**
+     * Moves an entity to the cell of its current position.
+     * 
+     * @param ent Entity that has moved.
+     * @return True if the entity is indexed, false otherwise.
+     */
+    boolean move(MazeEntity ent) {
+        Integer slot = slots.get(ent);
+        if (slot == null)
+            return false;
+        
+        int cell = cellOf(ent.getPosition());
+        if (cell != OUTSIDE && cell == cells[slot])
+            return true;
+        
+        ensureOwnSlots();
+        unlink(slot);
+        link(slot, cell);
+        return true;
+    }
+    
+    /**
+     * Removes all entities from the index.
+     */
+    final void clear() {
+        int numChunks = (int) (((long) width * height + CELLS_PER_CHUNK - 1)
+                / CELLS_PER_CHUNK);
+        heads = new int[numChunks][];
+        counts = new char[numChunks][];
+        ownedChunks = new boolean[numChunks];
+        outsideHead = 0;
+        
+        entities = new MazeEntity[INITIAL_CAPACITY];
+        next = new int[INITIAL_CAPACITY];
+        prev = new int[INITIAL_CAPACITY];
+        cells = new int[INITIAL_CAPACITY];
+        slots = new IdentityHashMap<>();
+        ownsSlots = true;
+        slotsUsed = 0;
+        freeSlot = NONE;
+        size = 0;
+    }
+    
+    /**
+     * Returns whether the entity is in the index.
+     * 
+     * @param ent An entity.
+     * @return True if the entity is indexed.
+     */
+    boolean contains(MazeEntity ent) {
+        return slots.containsKey(ent);
+    }
+    
+    /**
+     * Returns the number of entities in the index.
+     * 
+     * @return Number of entities.
+     */
+    int size() {
+        return size;
+    }
+    
+    /**
+     * Returns the number of entities at the given position.
+     * 
+     * @param x X position.
+     * @param y Y position.
+     * @return Number of entities.
+     */
+    int countAt(int x, int y) {
+        if (isInBounds(x, y)) {
+            int cell = y * width + x;
+            char[] chunk = counts[cell / CELLS_PER_CHUNK];
+            return chunk == null ? 0 : chunk[cell % CELLS_PER_CHUNK];
+        }
+        
+        int count = 0;
+        for (int s = outsideHead - 1; s != NONE; s = next[s])
+            if (isAt(entities[s], x, y))
+                count++;
+        return count;
+    }
+    
+    /**
+     * Passes each entity at the given position to the action, in the order
+     * they arrived there. The action must not add, remove or move entities.
+     * 
+     * @param x      X position.
+     * @param y      Y position.
+     * @param action Action to perform on each entity.
+     */
+    void forEachAt(int x, int y, Consumer<? super MazeEntity> action) {
+        if (isInBounds(x, y)) {
+            for (int s = headOf(y * width + x); s != NONE; s = next[s])
+                action.accept(entities[s]);
+        } else {
+            for (int s = outsideHead - 1; s != NONE; s = next[s])
+                if (isAt(entities[s], x, y))
+                    action.accept(entities[s]);
+        }
+    }
+    
+    /**
+     * Passes each entity in the index to the action. The action must not add,
+     * remove or move entities.
+     * 
+     * @param action Action to perform on each entity.
+     */
+    void forEach(Consumer<? super MazeEntity> action) {
+        for (int s = 0; s < slotsUsed; s++)
+            if (entities[s] != null)
+                action.accept(entities[s]);
+    }
+    
+    /**
+     * Returns the number of chunks of per-cell data that have been allocated.
+     * 
+     * @return Number of chunks.
+     */
+    int allocatedChunks() {
+        int count = 0;
+        for (int[] chunk : heads)
+            if (chunk != null)
+                count++;
+        return count;
+    }
+    
+    private void ensureOwnSlots() {
+        if (ownsSlots)
+            return;
+        
+        entities = entities.clone();
+        next = next.clone();
+        prev = prev.clone();
+        cells = cells.clone();
+        slots = new IdentityHashMap<>(slots);
+        ownsSlots = true;
+    }
+    
+    private int allocateSlot() {
+        if (freeSlot != NONE) {
+            int slot = freeSlot;
+            freeSlot = next[slot];
+            return slot;
+        }
+        
+        if (slotsUsed == entities.length) {
+            int capacity = entities.length * 2;
+            entities = Arrays.copyOf(entities, capacity);
+            next = Arrays.copyOf(next, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+            cells = Arrays.copyOf(cells, capacity);
+        }
+        
+        return slotsUsed++;
+    }
+    
+    private void link(int slot, int cell) {
+        int head = headOf(cell);
+        if (head == NONE) {
+            setHead(cell, slot);
+            prev[slot] = slot;
+        } else {
+            int tail = prev[head];
+            next[tail] = slot;
+            prev[slot] = tail;
+            prev[head] = slot;
+        }
+        
+        next[slot] = NONE;
+        cells[slot] = cell;
+        
+        if (cell != OUTSIDE) {
+            char[] chunk = counts[writableChunk(cell)];
+            int i = cell % CELLS_PER_CHUNK;
+            if (chunk[i] == Character.MAX_VALUE)
+                throw new IllegalStateException("Too many entities in one cell");
+            chunk[i]++;
+        }
+    }
+    
+    private void unlink(int slot) {
+        int cell = cells[slot];
+        int head = headOf(cell);
+        int n = next[slot];
+        
+        if (slot == head) {
+            if (n != NONE)
+                prev[n] = prev[slot];
+            setHead(cell, n);
+        } else {
+            int p = prev[slot];
+            next[p] = n;
+            if (n != NONE)
+                prev[n] = p;
+            else
+                prev[head] = p;
+        }
+        
+        if (cell != OUTSIDE)
+            counts[writableChunk(cell)][cell % CELLS_PER_CHUNK]--;
+    }
+    
+    private int headOf(int cell) {
+        if (cell == OUTSIDE)
+            return outsideHead - 1;
+        
+        int[] chunk = heads[cell / CELLS_PER_CHUNK];
+        return chunk == null ? NONE : chunk[cell % CELLS_PER_CHUNK] - 1;
+    }
+    
+    private void setHead(int cell, int slot) {
+        if (cell == OUTSIDE)
+            outsideHead = slot + 1;
+        else
+            heads[writableChunk(cell)][cell % CELLS_PER_CHUNK] = slot + 1;
+    }
+    
+    /**
+     * Makes sure that the chunk of the cell exists and is not shared.
+     * 
+     * @param cell Index of a cell.
+     * @return Index of the chunk.
+     */
+    private int writableChunk(int cell) {
+        int c = cell / CELLS_PER_CHUNK;
+        if (heads[c] == null) {
+            int length = Math.min(CELLS_PER_CHUNK, width * height - c * CELLS_PER_CHUNK);
+            heads[c] = new int[length];
+            counts[c] = new char[length];
+            ownedChunks[c] = true;
+        } else if (!ownedChunks[c]) {
+            heads[c] = heads[c].clone();
+            counts[c] = counts[c].clone();
+            ownedChunks[c] = true;
+        }
+        
+        return c;
+    }
+    
+    private int cellOf(Position pos) {
+        return isInBounds(pos.x, pos.y) ? pos.y * width + pos.x : OUTSIDE;
+    }
+    
+    private boolean isInBounds(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+    
+    private static boolean isAt(MazeEntity ent, int x, int y) {
+        Position pos = ent.getPosition();
+        return pos.x == x && pos.y == y;
+    }
+    
+}
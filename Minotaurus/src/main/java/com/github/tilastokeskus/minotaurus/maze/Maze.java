@@ -25,32 +25,44 @@
 package com.github.tilastokeskus.minotaurus.maze;
 
 import com.github.tilastokeskus.minotaurus.util.ArrayList;
-import com.github.tilastokeskus.minotaurus.util.HashMap;
 import com.github.tilastokeskus.minotaurus.util.HashSet;
+import com.github.tilastokeskus.minotaurus.util.PackedPosition;
 import com.github.tilastokeskus.minotaurus.util.Position;
-import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.Observable;
 import java.util.Observer;
-import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 public class Maze implements Observer, Cloneable {
     
-    Map<Position, List<MazeEntity>> entityMap;
-    Set<MazeEntity> entitySet;
-    MazeBlock[][] layout;
+    /* Entities move on the simulation thread while runners and the user
+     * interface query them on others, so every access to the index holds
+     * this lock. Queries only take its read lock, so runners deciding at the
+     * same time do not wait for each other. The lock outlives the index,
+     * which is replaced when the maze changes size.
+     */
+    private final ReentrantReadWriteLock entityLock = new ReentrantReadWriteLock();
+    private final Lock readLock = entityLock.readLock();
+    private final Lock writeLock = entityLock.writeLock();
+    EntityIndex entities;
+    PackedLayout layout;
+    
+    // Incremented whenever a block of the layout changes.
+    int layoutVersion;
+    
+    ChangeJournal journal = new ChangeJournal();
     
     /**
-     * Creates a new maze with the given layout.
+     * Creates a new maze with the given layout. Null blocks in the layout
+     * become walls.
      * 
      * @param layout Layout of the new maze.
      */
     public Maze(MazeBlock[][] layout) {      
-        this.layout = copyLayout(layout);
-        checkValidity(this.layout);
-        entityMap = new HashMap<>();
-        entitySet = new HashSet<>();
+        this(PackedLayout.of(layout));
     }
     
     /**
@@ -60,20 +72,39 @@ public class Maze implements Observer, Cloneable {
      * @param height    Height of the maze.
      */
     public Maze(int width, int height) {
-        this.layout = new MazeBlock[height][width];
-        checkValidity(this.layout);
-        entityMap = new HashMap<>();
-        entitySet = new HashSet<>();
+        this(new PackedLayout(width, height));
+    }
+    
+    private Maze(PackedLayout layout) {
+        this.layout = layout;
+        entities = new EntityIndex(getWidth(), getHeight());
     }
     
     /**
-     * Sets the maze's current layout.
+     * Sets the maze's current layout. Null blocks in the layout become walls.
+     * The entities in the maze are kept.
      * 
      * @param layout  New layout.
      */
     protected void setLayout(MazeBlock[][] layout) {
-        layout = copyLayout(layout);
-        checkValidity(layout);
+        PackedLayout packed = PackedLayout.of(layout);
+        
+        writeLock.lock();
+        try {
+            if (packed.getWidth() != getWidth()
+                    || packed.getHeight() != getHeight()) {
+                EntityIndex index = new EntityIndex(packed.getWidth(),
+                        packed.getHeight());
+                entities.forEach(index::add);
+                entities = index;
+            }
+            
+            this.layout = packed;
+            layoutVersion++;
+            journal.reset();
+        } finally {
+            writeLock.unlock();
+        }
     }
     
     /**
@@ -82,7 +113,7 @@ public class Maze implements Observer, Cloneable {
      * @return Width of the maze.
      */
     public int getWidth() {
-        return this.layout[0].length;
+        return this.layout.getWidth();
     }
     
     /**
@@ -91,7 +122,7 @@ public class Maze implements Observer, Cloneable {
      * @return Height of the maze.
      */
     public int getHeight() {
-        return this.layout.length;
+        return this.layout.getHeight();
     }
     
     /**
@@ -101,7 +132,47 @@ public class Maze implements Observer, Cloneable {
      * @return 2D MazeEntity matrix.
      */
     public MazeBlock[][] getLayout() {
-        return copyLayout(layout);
+        return layout.toArray();
+    }
+    
+    /**
+     * Returns a number that changes whenever the layout of this maze changes,
+     * so that anything derived from the layout can tell when it is out of
+     * date. Moving entities does not change it.
+     * 
+     * @return Version of the layout.
+     */
+    public int getLayoutVersion() {
+        return layoutVersion;
+    }
+    
+    /**
+     * Returns the number of changes made to this maze so far. Setting a block
+     * to a different one counts as a change, as does an entity entering or
+     * leaving a cell. Pass the count to {@link #forEachChangedCell} later on
+     * to find out which cells have changed since.
+     * 
+     * @return Number of changes.
+     */
+    public long getChangeCount() {
+        return journal.getCount();
+    }
+    
+    /**
+     * Passes the cells that have changed after the specified number of
+     * changes to the action, oldest first. A cell is passed once for each
+     * change in it. Only a limited number of the latest changes are
+     * remembered; if older ones are asked for, or if the whole layout has
+     * been replaced since, nothing is passed and false is returned, and the
+     * caller should treat every cell as changed.
+     * 
+     * @param since  Change count as returned by {@link #getChangeCount()}.
+     * @param action Action taking the index of a cell, as given by
+     *               {@link #cellOf(int, int)}.
+     * @return True if the changes were passed, otherwise false.
+     */
+    public boolean forEachChangedCell(long since, IntConsumer action) {
+        return journal.forEachSince(since, action);
     }
     
     /**
@@ -109,11 +180,17 @@ public class Maze implements Observer, Cloneable {
      * 
      * @param x         Location in x-axis.
      * @param y         Location in y-axis.
-     * @param block    Entity to write to the location.
+     * @param block    Entity to write to the location. Null is stored as a
+     *                  wall.
      */
     public void set(int x, int y, MazeBlock block) {
         testBounds(x, y);
-        layout[y][x] = block;
+        block = block == null ? MazeBlock.WALL : block;
+        if (layout.get(x, y) != block) {
+            layout.set(x, y, block);
+            layoutVersion++;
+            journal.record(PackedPosition.pack(x, y, getWidth()));
+        }
     }
     
     /**
@@ -125,7 +202,47 @@ public class Maze implements Observer, Cloneable {
      */
     public MazeBlock get(int x, int y) {
         testBounds(x, y);
-        return layout[y][x];
+        return layout.get(x, y);
+    }
+    
+    /**
+     * Retrieves a block from the maze in the specified cell.
+     * 
+     * @param cell      Index of the cell, as given by {@link #cellOf(int, int)}.
+     * @return          Block in the specified cell.
+     */
+    public MazeBlock get(int cell) {
+        int width = getWidth();
+        int x = PackedPosition.unpackX(cell, width);
+        int y = PackedPosition.unpackY(cell, width);
+        testBounds(x, y);
+        return layout.get(x, y);
+    }
+    
+    /**
+     * Returns the index of the cell in the specified location. Cells are
+     * numbered row by row, so the index is {@code y * width + x}.
+     * 
+     * @param x         Location in x-axis.
+     * @param y         Location in y-axis.
+     * @return          Index of the cell.
+     * @see PackedPosition
+     */
+    public int cellOf(int x, int y) {
+        testBounds(x, y);
+        return PackedPosition.pack(x, y, getWidth());
+    }
+    
+    /**
+     * Returns whether or not the specified location lies inside this maze.
+     * 
+     * @param x         Location in x-axis.
+     * @param y         Location in y-axis.
+     * @return          True if the location is inside the maze, otherwise
+     *                  false.
+     */
+    public boolean isInBounds(int x, int y) {
+        return x >= 0 && y >= 0 && x < getWidth() && y < getHeight();
     }
     
     /**
@@ -136,10 +253,70 @@ public class Maze implements Observer, Cloneable {
      * @return  A list of MazeEntities.
      */
     public List<MazeEntity> getEntitiesAt(int x, int y) {
-        Position p = new Position(x, y);
-        if (!entityMap.containsKey(p))
-            entityMap.put(p, new ArrayList<>());
-        return new ArrayList<>(entityMap.get(p));
+        List<MazeEntity> list = new ArrayList<>();
+        readLock.lock();
+        try {
+            entities.forEachAt(x, y, list::add);
+        } finally {
+            readLock.unlock();
+        }
+        
+        return list;
+    }
+    
+    /**
+     * Returns the number of entities at the specified position. Unlike
+     * {@link #getEntitiesAt(int, int)}, this allocates nothing.
+     * 
+     * @param x X position to search.
+     * @param y Y position to search.
+     * @return  Number of entities at the position.
+     */
+    public int entityCountAt(int x, int y) {
+        readLock.lock();
+        try {
+            return entities.countAt(x, y);
+        } finally {
+            readLock.unlock();
+        }
+    }
+    
+    /**
+     * Returns the number of entities in the specified cell.
+     * 
+     * @param cell Index of the cell, as given by {@link #cellOf(int, int)}.
+     * @return     Number of entities in the cell.
+     */
+    public int entityCountAt(int cell) {
+        int width = getWidth();
+        readLock.lock();
+        try {
+            return entities.countAt(PackedPosition.unpackX(cell, width),
+                    PackedPosition.unpackY(cell, width));
+        } finally {
+            readLock.unlock();
+        }
+    }
+    
+    /**
+     * Performs the given action on each entity at the specified position, in
+     * the order they arrived there. Unlike {@link #getEntitiesAt(int, int)},
+     * this allocates nothing. The action is performed while holding the read
+     * lock that guards the entities, so it may query this maze but must not
+     * add, remove or move any entities in it, nor wait for another thread
+     * that might.
+     * 
+     * @param x      X position to search.
+     * @param y      Y position to search.
+     * @param action Action to perform on each entity.
+     */
+    public void forEachEntityAt(int x, int y, Consumer<? super MazeEntity> action) {
+        readLock.lock();
+        try {
+            entities.forEachAt(x, y, action);
+        } finally {
+            readLock.unlock();
+        }
     }
     
     /**
@@ -148,27 +325,31 @@ public class Maze implements Observer, Cloneable {
      * @return A set of MazeEntities.
      */
     public HashSet<MazeEntity> getEntities() {
-        synchronized(entitySet) {
-            return new HashSet<>(entitySet);
+        HashSet<MazeEntity> set = new HashSet<>();
+        readLock.lock();
+        try {
+            entities.forEach(set::add);
+        } finally {
+            readLock.unlock();
         }
+        
+        return set;
     }
     
     /**
      * Adds a MazeEntity to this maze, and adds this maze to that entity's
-     * list of observers.
+     * list of observers. Adding an entity that is already in this maze does
+     * nothing.
      * 
      * @param ent MazeEntity to add.
      */
     public void addEntity(MazeEntity ent) {
-        Position p = ent.getPosition();
-        
-        if (!entityMap.containsKey(p))
-            entityMap.put(p, new ArrayList<>());
-        
-        entityMap.get(p).add(ent);
-        
-        synchronized(entitySet) {
-            entitySet.add(ent);
+        writeLock.lock();
+        try {
+            if (entities.add(ent))
+                recordChange(ent.getPosition());
+        } finally {
+            writeLock.unlock();
         }
         
         ent.addObserver(this);
@@ -182,13 +363,13 @@ public class Maze implements Observer, Cloneable {
      * @param entities List of MazeEntities to set.
      */
     public void setEntities(List<MazeEntity> entities) {
-        entityMap.clear();
-        
-        synchronized(entitySet) {
-            for (MazeEntity ent : entitySet)
-                ent.deleteObserver(this);
-
-            entitySet.clear();
+        writeLock.lock();
+        try {
+            this.entities.forEach(ent -> ent.deleteObserver(this));
+            this.entities.clear();
+            journal.reset();
+        } finally {
+            writeLock.unlock();
         }
         
         for (MazeEntity ent : entities)
@@ -202,11 +383,12 @@ public class Maze implements Observer, Cloneable {
      * @param ent Entity to remove.
      */
     public void removeEntity(MazeEntity ent) {
-        if (entityMap.containsKey(ent.getPosition()))
-            entityMap.get(ent.getPosition()).remove(ent);
-        
-        synchronized(entitySet) {
-            entitySet.remove(ent);
+        writeLock.lock();
+        try {
+            if (entities.remove(ent))
+                recordChange(ent.getPosition());
+        } finally {
+            writeLock.unlock();
         }
         
         ent.deleteObserver(this);
@@ -219,48 +401,73 @@ public class Maze implements Observer, Cloneable {
             throw new IllegalArgumentException("Index out of bounds: y " + y);
     }
     
-    final void checkValidity(MazeBlock[][] layout) {
-        for (int i = 0; i < layout.length; i++)
-            for (int j = 0; j < layout[i].length; j++)
-                if (layout[i][j] == null)
-                    layout[i][j] = MazeBlock.WALL;
+    private void recordChange(Position pos) {
+        if (isInBounds(pos.x, pos.y))
+            journal.record(PackedPosition.pack(pos.x, pos.y, getWidth()));
     }
     
-    MazeBlock[][] copyLayout(MazeBlock[][] layout) {
-        MazeBlock[][] copy = new MazeBlock[layout.length][];
-        for (int i = 0; i < layout.length; i++)
-            copy[i] = Arrays.copyOf(layout[i], layout[i].length);
-        
-        return copy;
-    }
-
     @Override
     public void update(Observable o, Object arg) {
         MazeEntity ent = (MazeEntity) o;
-        Position oldPos = (Position) arg;
-        entityMap.get(oldPos).remove(ent);
+        writeLock.lock();
+        try {
+            entities.move(ent);
+            
+            // Entities pass their old position when they move.
+            if (arg instanceof Position && !arg.equals(ent.getPosition())) {
+                recordChange((Position) arg);
+                recordChange(ent.getPosition());
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    /**
+     * Returns a copy of this maze with the same layout and entities. The copy
+     * shares its data with this maze, and only the parts of it that either
+     * maze changes afterwards are copied, so forking is cheap even for large
+     * mazes.
+     * <p>
+     * The fork is a snapshot: its entities stay where they were at the time
+     * of forking, even if they move in this maze. Entities can be added to and
+     * removed from the fork without affecting this maze. An entity added to
+     * the fork is tracked by the fork, like in any maze.
+     * <p>
+     * Forking must not happen while another thread is modifying this maze.
+     * 
+     * @return A new maze.
+     */
+    public Maze fork() {
+        Maze fork = clone();
         
-        synchronized(entitySet) {
-            entitySet.remove(ent);
+        // Forking the index marks its data as shared, which is a write.
+        writeLock.lock();
+        try {
+            fork.entities = entities.fork();
+        } finally {
+            writeLock.unlock();
         }
         
-        addEntity(ent);
+        return fork;
     }
     
+    /**
+     * Returns a copy of this maze with the same layout, but without any
+     * entities. Like with {@link #fork()}, the layout is only copied as it is
+     * changed.
+     * 
+     * @return A new maze.
+     */
     @Override
     public Maze clone() {
-        try {
-            Maze clone = (Maze) super.clone();
-                
-            clone.entitySet = new HashSet<>();
-            clone.entityMap = new HashMap<>();
-            clone.layout = new MazeBlock[getHeight()][];
-            for (int i = 0; i < getHeight(); i++)
-                clone.layout[i] = Arrays.copyOf(layout[i], layout[i].length);
-            return clone;
-        } catch (CloneNotSupportedException ex) {
-            return null;
-        }
+        
+        /* Built with a constructor rather than Object.clone(), which would
+         * share the entity lock with this maze.
+         */
+        Maze clone = new Maze(layout.fork());
+        clone.layoutVersion = layoutVersion;
+        return clone;
     }
 
 }
@@ -26,14 +26,17 @@ package com.github.tilastokeskus.minotaurus.maze;
 
 import com.github.tilastokeskus.minotaurus.ui.Drawable;
 import com.github.tilastokeskus.minotaurus.ui.component.Rotatable;
+import com.github.tilastokeskus.minotaurus.util.ArrayList;
 import com.github.tilastokeskus.minotaurus.util.ColorFactory;
 import com.github.tilastokeskus.minotaurus.util.Position;
 import java.awt.Color;
 import java.awt.Shape;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
+import java.util.List;
 import java.util.Objects;
 import java.util.Observable;
+import java.util.Observer;
 
 public class MazeEntity extends Observable implements Drawable, Rotatable, Cloneable {
     
@@ -42,6 +45,11 @@ public class MazeEntity extends Observable implements Drawable, Rotatable, Clone
     protected Shape shape;
     protected Color shapeColor;
     
+    /* Observers are kept here instead of in Observable, whose list would be
+     * shared between an entity and its clones.
+     */
+    private List<Observer> observers = new ArrayList<>();
+    
     /**
      * Creates a new MazeEntity with a position at (0, 0).
      */
@@ -111,6 +119,17 @@ public class MazeEntity extends Observable implements Drawable, Rotatable, Clone
         return this.position;
     }
     
+    /**
+     * Returns whether or not this MazeEntity is at the specified position.
+     * 
+     * @param x X position.
+     * @param y Y position.
+     * @return True if the entity is at (x, y), otherwise false.
+     */
+    public boolean isAt(int x, int y) {
+        return position.x == x && position.y == y;
+    }
+    
     /**
      * Sets this MazeEntity's position, and notifies its observers, passing the
      * previous position to them.
@@ -119,13 +138,59 @@ public class MazeEntity extends Observable implements Drawable, Rotatable, Clone
      * @param y New Y position.
      */
     public void setPosition(int x, int y) {
-        Position oldPos = new Position(position);
-        position = new Position(x, y);
+        
+        // Positions are immutable, so the old one can be handed out as is.
+        Position oldPos = position;
+        if (x != oldPos.x || y != oldPos.y)
+            position = new Position(x, y);
         
         setChanged();
         notifyObservers(oldPos);
     }
 
+    @Override
+    public synchronized void addObserver(Observer o) {
+        if (o == null)
+            throw new NullPointerException();
+        if (!observers.contains(o))
+            observers.add(o);
+    }
+    
+    @Override
+    public synchronized void deleteObserver(Observer o) {
+        observers.remove(o);
+    }
+    
+    @Override
+    public synchronized void deleteObservers() {
+        observers.clear();
+    }
+    
+    @Override
+    public synchronized int countObservers() {
+        return observers.size();
+    }
+    
+    @Override
+    public void notifyObservers() {
+        notifyObservers(null);
+    }
+    
+    @Override
+    public void notifyObservers(Object arg) {
+        Object[] local;
+        
+        synchronized (this) {
+            if (!hasChanged())
+                return;
+            local = observers.toArray();
+            clearChanged();
+        }
+        
+        for (Object o : local)
+            ((Observer) o).update(this, arg);
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj)
@@ -180,6 +245,7 @@ public class MazeEntity extends Observable implements Drawable, Rotatable, Clone
             ent.shape = af.createTransformedShape(shape);
             ent.shapeColor = shapeColor;
             ent.position = position;
+            ent.observers = new ArrayList<>();
             return ent;
         } catch (CloneNotSupportedException ex) {
             return null;
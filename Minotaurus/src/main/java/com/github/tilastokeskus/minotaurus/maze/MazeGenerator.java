@@ -26,6 +26,7 @@ package com.github.tilastokeskus.minotaurus.maze;
 
 import com.github.tilastokeskus.minotaurus.plugin.Plugin;
 import com.github.tilastokeskus.minotaurus.ui.MazePanel;
+import java.util.Random;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JFrame;
@@ -71,6 +72,22 @@ public interface MazeGenerator extends Plugin {
      */
     Maze generateMaze(int width, int height);
     
+    /**
+     * Generates a Maze with the given width and height, drawing all random
+     * numbers from the given random number generator. Generators that use
+     * randomness should override this, so that the same seed always produces
+     * the same maze. By default the generator is ignored.
+     * 
+     * @param width     Width of the maze to generate.
+     * @param height    Height of the maze to generate.
+     * @param random    Random number generator to use.
+     * @return          A Maze object.
+     * @see Maze
+     */
+    default Maze generateMaze(int width, int height, Random random) {
+        return generateMaze(width, height);
+    }
+    
     /**
      * Returns a shallow copy of this class instance.
      * 
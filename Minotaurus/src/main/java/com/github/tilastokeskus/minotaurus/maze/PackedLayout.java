@@ -0,0 +1,209 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.maze;
+
+import java.util.Arrays;
+
+/**
+ * A maze layout that stores each block in two bits. The blocks are packed in
+ * row-major order into longs, 32 blocks per long, and the longs are split into
+ * fixed-size chunks.
+ * <p>
+ * Chunks are copied on write: a {@link #fork() fork} shares all chunks with
+ * the layout it was forked from, and either of them copies a chunk only when
+ * it first changes a block in it. Forking therefore costs one reference per
+ * chunk, and changes cost at most one chunk copy each.
+ * <p>
+ * Blocks are stored by their ordinal. Since {@link MazeBlock#WALL} is the
+ * first constant, a new layout is all walls.
+ */
+class PackedLayout {
+    
+    private static final MazeBlock[] BLOCKS = MazeBlock.values();
+    private static final int BITS = 2;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final int BLOCKS_PER_WORD = Long.SIZE / BITS;
+    static final int WORDS_PER_CHUNK = 256;
+    
+    static {
+        if (BLOCKS.length > 1 << BITS)
+            throw new AssertionError("Too many blocks to pack in " + BITS + " bits");
+    }
+    
+    private final int width;
+    private final int height;
+    private final long[][] chunks;
+    
+    /* Whether this layout may write to each chunk, that is, whether the chunk
+     * is not shared with any fork.
+     */
+    private final boolean[] owned;
+    
+    /**
+     * Creates a new layout of the given size, filled with walls.
+     * 
+     * @param width  Width of the layout.
+     * @param height Height of the layout.
+     */
+    PackedLayout(int width, int height) {
+        this.width = width;
+        this.height = height;
+        
+        int words = wordsFor(width, height);
+        int numChunks = (words + WORDS_PER_CHUNK - 1) / WORDS_PER_CHUNK;
+        this.chunks = new long[numChunks][];
+        this.owned = new boolean[numChunks];
+        for (int c = 0; c < numChunks; c++) {
+            chunks[c] = new long[Math.min(WORDS_PER_CHUNK, words - c * WORDS_PER_CHUNK)];
+            owned[c] = true;
+        }
+    }
+    
+    private PackedLayout(PackedLayout parent) {
+        this.width = parent.width;
+        this.height = parent.height;
+        this.chunks = parent.chunks.clone();
+        this.owned = new boolean[chunks.length];
+    }
+    
+    /**
+     * Creates a new layout from the given matrix. Null blocks become walls.
+     * 
+     * @param layout A matrix of blocks, indexed by row first.
+     * @return A new layout.
+     */
+    static PackedLayout of(MazeBlock[][] layout) {
+        int height = layout.length;
+        int width = height == 0 ? 0 : layout[0].length;
+        PackedLayout packed = new PackedLayout(width, height);
+        
+        for (int y = 0; y < height; y++)
+            for (int x = 0; x < width; x++)
+                if (layout[y][x] != null)
+                    packed.set(x, y, layout[y][x]);
+        
+        return packed;
+    }
+    
+    int getWidth() {
+        return width;
+    }
+    
+    int getHeight() {
+        return height;
+    }
+    
+    /**
+     * Returns the block at the given location. The location is not checked.
+     * 
+     * @param x Location in x-axis.
+     * @param y Location in y-axis.
+     * @return The block at the location.
+     */
+    MazeBlock get(int x, int y) {
+        int i = y * width + x;
+        int w = i / BLOCKS_PER_WORD;
+        int shift = (i % BLOCKS_PER_WORD) * BITS;
+        long word = chunks[w / WORDS_PER_CHUNK][w % WORDS_PER_CHUNK];
+        return BLOCKS[(int) (word >>> shift) & MASK];
+    }
+    
+    /**
+     * Sets the block at the given location, copying the chunk it is in first
+     * if the chunk is shared. The location is not checked.
+     * 
+     * @param x     Location in x-axis.
+     * @param y     Location in y-axis.
+     * @param block Block to set, not null.
+     */
+    void set(int x, int y, MazeBlock block) {
+        int i = y * width + x;
+        int w = i / BLOCKS_PER_WORD;
+        int shift = (i % BLOCKS_PER_WORD) * BITS;
+        long[] chunk = writableChunk(w / WORDS_PER_CHUNK);
+        int j = w % WORDS_PER_CHUNK;
+        chunk[j] = (chunk[j] & ~((long) MASK << shift))
+                | ((long) block.ordinal() << shift);
+    }
+    
+    /**
+     * Returns a layout with the same blocks as this one, sharing all chunks
+     * with this layout until either of them changes.
+     * 
+     * @return A new layout.
+     */
+    PackedLayout fork() {
+        
+        // From now on, both layouts must copy a chunk before writing to it.
+        Arrays.fill(owned, false);
+        return new PackedLayout(this);
+    }
+    
+    /**
+     * Returns the number of chunks this layout may write to without copying
+     * them first.
+     * 
+     * @return Number of chunks.
+     */
+    int ownedChunks() {
+        int count = 0;
+        for (boolean o : owned)
+            if (o)
+                count++;
+        return count;
+    }
+    
+    /**
+     * Returns this layout as a matrix of blocks, indexed by row first.
+     * 
+     * @return A new matrix.
+     */
+    MazeBlock[][] toArray() {
+        MazeBlock[][] layout = new MazeBlock[height][width];
+        for (int y = 0; y < height; y++)
+            for (int x = 0; x < width; x++)
+                layout[y][x] = get(x, y);
+        
+        return layout;
+    }
+    
+    private long[] writableChunk(int c) {
+        if (!owned[c]) {
+            chunks[c] = chunks[c].clone();
+            owned[c] = true;
+        }
+        
+        return chunks[c];
+    }
+    
+    private static int wordsFor(int width, int height) {
+        long cells = (long) width * height;
+        long words = (cells + BLOCKS_PER_WORD - 1) / BLOCKS_PER_WORD;
+        if (words > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Layout too large: " + width + "x" + height);
+        return (int) words;
+    }
+    
+}
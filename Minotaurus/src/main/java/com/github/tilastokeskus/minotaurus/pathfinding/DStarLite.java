@@ -0,0 +1,355 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.pathfinding;
+
+import com.github.tilastokeskus.minotaurus.maze.Maze;
+import com.github.tilastokeskus.minotaurus.util.BitGrid;
+import com.github.tilastokeskus.minotaurus.util.Direction;
+import com.github.tilastokeskus.minotaurus.util.IndexedPriorityQueue;
+import com.github.tilastokeskus.minotaurus.util.PackedPosition;
+import com.github.tilastokeskus.minotaurus.util.PositionPredicate;
+import java.util.Arrays;
+
+/**
+ * Incremental path-finding with D* Lite. The search runs backwards from the
+ * goals to the start, and its state is kept between searches: when the start
+ * moves, cells become blocked or free, or goals appear and disappear, only
+ * the cells whose distance to the goals is affected are searched again.
+ * Which cells have changed is read from the maze's change journal, so a
+ * search usually costs a handful of queue operations instead of a whole
+ * search.
+ * <p>
+ * Cells are considered blocked when the position predicate rejects them. The
+ * predicate is checked for every cell the first time a search is made in the
+ * maze, and after that only for changed cells and the neighbors of the
+ * start. A pathfinder is not thread-safe.
+ */
+public final class DStarLite {
+    
+    private static final Direction[] DIRS = new Direction[] {
+        Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT
+    };
+    
+    // Large enough to mean unreachable, small enough not to overflow.
+    static final int INF = Integer.MAX_VALUE / 2;
+    
+    final Maze maze;
+    int width;
+    int height;
+    
+    // Number of maze changes already taken into account.
+    long seenChanges;
+    
+    // Distance to the nearest goal, and its one-step lookahead.
+    int[] g;
+    int[] rhs;
+    
+    BitGrid blocked;
+    BitGrid goal;
+    int[] goalCells;
+    
+    IndexedPriorityQueue<QueueEntry> open;
+    
+    // Position of the start when the keys were last adjusted, and the adjustment.
+    int lastCell;
+    long km;
+    
+    // Number of cells taken off the queue so far.
+    int expansions;
+    
+    private int pathLength = -1;
+    
+    /**
+     * Creates a new pathfinder for the specified maze. Nothing is searched
+     * until the first call to {@link #getNextMove}.
+     * 
+     * @param maze Maze to find paths in.
+     */
+    public DStarLite(Maze maze) {
+        this.maze = maze;
+    }
+    
+    public Maze getMaze() {
+        return maze;
+    }
+    
+    /**
+     * Returns the direction of the first move on a shortest path from the
+     * specified position to the nearest of the specified goals. The move
+     * leads to a neighbor the predicate accepts. Goals outside the maze are
+     * ignored.
+     * 
+     * @param startX    X position of the start.
+     * @param startY    Y position of the start.
+     * @param goalCells Cells of the goals, as given by {@link Maze#cellOf}.
+     * @param predicate Predicate telling which cells can be moved through.
+     * @return Direction of the first move, or {@link Direction#NONE} if no
+     *         goal can be reached or the start is a goal.
+     */
+    public Direction getNextMove(int startX, int startY, int[] goalCells,
+                                 PositionPredicate predicate) {
+        int start;
+        if (g == null || width != maze.getWidth() || height != maze.getHeight()) {
+            start = PackedPosition.pack(startX, startY, maze.getWidth());
+            initialize(predicate, start);
+        } else {
+            start = PackedPosition.pack(startX, startY, width);
+            
+            // Blocked cells are only rechecked where something has changed.
+            if (!maze.forEachChangedCell(seenChanges,
+                    cell -> checkCell(cell, predicate))) {
+                for (int cell = 0; cell < width * height; cell++)
+                    checkCell(cell, predicate);
+            }
+            
+            seenChanges = maze.getChangeCount();
+            
+            // The start moved, so queued keys are lower bounds by this much.
+            km += distance(lastCell, start);
+            lastCell = start;
+        }
+        
+        for (Direction dir : DIRS) {
+            int nx = startX + dir.deltaX;
+            int ny = startY + dir.deltaY;
+            if (maze.isInBounds(nx, ny))
+                checkCell(PackedPosition.pack(nx, ny, width), predicate);
+        }
+        
+        updateGoals(goalCells);
+        computeShortestPath(start);
+        
+        pathLength = g[start] >= INF ? -1 : g[start];
+        if (goal.test(start) || g[start] >= INF)
+            return Direction.NONE;
+        
+        // Step to the free neighbor closest to a goal.
+        int bestG = INF;
+        Direction bestDir = Direction.NONE;
+        for (Direction dir : DIRS) {
+            int nx = startX + dir.deltaX;
+            int ny = startY + dir.deltaY;
+            if (!maze.isInBounds(nx, ny))
+                continue;
+            
+            int cell = PackedPosition.pack(nx, ny, width);
+            if (!blocked.test(cell) && g[cell] < bestG) {
+                bestG = g[cell];
+                bestDir = dir;
+            }
+        }
+        
+        return bestDir;
+    }
+    
+    /**
+     * Returns the number of moves on the path found by the latest call to
+     * {@link #getNextMove}.
+     * 
+     * @return Length of the path, or -1 if no path was found.
+     */
+    public int getPathLength() {
+        return pathLength;
+    }
+    
+    /**
+     * Starts the search over with the current size of the maze.
+     */
+    private void initialize(PositionPredicate predicate, int start) {
+        width = maze.getWidth();
+        height = maze.getHeight();
+        int numCells = width * height;
+        
+        seenChanges = maze.getChangeCount();
+        g = new int[numCells];
+        rhs = new int[numCells];
+        Arrays.fill(g, INF);
+        Arrays.fill(rhs, INF);
+        blocked = new BitGrid(width, height);
+        goal = new BitGrid(width, height);
+        goalCells = new int[0];
+        open = new IndexedPriorityQueue<>(
+                (QueueEntry e1, QueueEntry e2) -> Long.compare(e1.key, e2.key),
+                numCells, (QueueEntry e) -> e.cell);
+        lastCell = start;
+        km = 0;
+        
+        for (int y = 0; y < height; y++)
+            for (int x = 0; x < width; x++)
+                if (!predicate.test(x, y))
+                    blocked.set(PackedPosition.pack(x, y, width));
+    }
+    
+    /**
+     * Rechecks whether a cell is blocked, and if that has changed, updates the
+     * cells that could have stepped into it.
+     */
+    private void checkCell(int cell, PositionPredicate predicate) {
+        int x = PackedPosition.unpackX(cell, width);
+        int y = PackedPosition.unpackY(cell, width);
+        boolean isBlocked = !predicate.test(x, y);
+        if (isBlocked == blocked.test(cell))
+            return;
+        
+        if (isBlocked)
+            blocked.set(cell);
+        else
+            blocked.clear(cell);
+        updateNeighbors(cell);
+    }
+    
+    /**
+     * Makes the specified cells the only goal cells. Cells that stop or start
+     * being goals are updated like any other changed cell.
+     */
+    private void updateGoals(int[] goalCells) {
+        int numCells = width * height;
+        int[] cells = new int[goalCells.length];
+        int n = 0;
+        for (int cell : goalCells)
+            if (cell >= 0 && cell < numCells)
+                cells[n++] = cell;
+        
+        cells = Arrays.copyOf(cells, n);
+        Arrays.sort(cells);
+        if (Arrays.equals(cells, this.goalCells))
+            return;
+        
+        for (int cell : this.goalCells) {
+            goal.clear(cell);
+            updateVertex(cell);
+        }
+        
+        for (int cell : cells)
+            goal.set(cell);
+        for (int cell : cells)
+            updateVertex(cell);
+        
+        this.goalCells = cells;
+    }
+    
+    private void computeShortestPath(int start) {
+        while (!open.isEmpty()) {
+            QueueEntry top = open.min();
+            if (top.key >= calculateKey(start, start) && rhs[start] == g[start])
+                break;
+            
+            expansions++;
+            int u = top.cell;
+            long newKey = calculateKey(u, start);
+            if (top.key < newKey) {
+                open.decreaseKey(new QueueEntry(u, newKey));
+            } else if (g[u] > rhs[u]) {
+                
+                // Overconsistent: the cell has found a shorter way to a goal.
+                g[u] = rhs[u];
+                open.removeKey(u);
+                updateNeighbors(u);
+            } else {
+                
+                // Underconsistent: the cell's way to a goal got longer.
+                g[u] = INF;
+                updateVertex(u);
+                updateNeighbors(u);
+            }
+        }
+    }
+    
+    private void updateNeighbors(int cell) {
+        int x = PackedPosition.unpackX(cell, width);
+        int y = PackedPosition.unpackY(cell, width);
+        for (Direction dir : DIRS) {
+            int nx = x + dir.deltaX;
+            int ny = y + dir.deltaY;
+            if (nx >= 0 && ny >= 0 && nx < width && ny < height)
+                updateVertex(PackedPosition.pack(nx, ny, width));
+        }
+    }
+    
+    /**
+     * Recomputes the lookahead of a cell from its neighbors, and queues the
+     * cell if it has become inconsistent.
+     */
+    private void updateVertex(int cell) {
+        if (goal.test(cell)) {
+            rhs[cell] = 0;
+        } else {
+            int best = INF;
+            int x = PackedPosition.unpackX(cell, width);
+            int y = PackedPosition.unpackY(cell, width);
+            for (Direction dir : DIRS) {
+                int nx = x + dir.deltaX;
+                int ny = y + dir.deltaY;
+                if (nx < 0 || ny < 0 || nx >= width || ny >= height)
+                    continue;
+                
+                // Stepping into a blocked cell costs infinitely much.
+                int next = PackedPosition.pack(nx, ny, width);
+                if (!blocked.test(next) && g[next] + 1 < best)
+                    best = g[next] + 1;
+            }
+            
+            rhs[cell] = best;
+        }
+        
+        boolean queued = open.containsKey(cell);
+        if (g[cell] != rhs[cell]) {
+            QueueEntry e = new QueueEntry(cell, calculateKey(cell, lastCell));
+            if (queued)
+                open.decreaseKey(e);
+            else
+                open.add(e);
+        } else if (queued) {
+            open.removeKey(cell);
+        }
+    }
+    
+    /**
+     * Returns the priority of a cell: the estimated length of a path from the
+     * start through the cell to a goal, ties broken by the cell's distance to
+     * the goal. Both are packed in one long so that keys compare as numbers.
+     */
+    private long calculateKey(int cell, int start) {
+        long k2 = Math.min(g[cell], rhs[cell]);
+        long k1 = k2 + distance(start, cell) + km;
+        return (k1 << 32) | k2;
+    }
+    
+    private int distance(int cell1, int cell2) {
+        return Math.abs(PackedPosition.unpackX(cell1, width) - PackedPosition.unpackX(cell2, width))
+                + Math.abs(PackedPosition.unpackY(cell1, width) - PackedPosition.unpackY(cell2, width));
+    }
+    
+    private static class QueueEntry {
+        final int cell;
+        final long key;
+        
+        QueueEntry(int cell, long key) {
+            this.cell = cell;
+            this.key = key;
+        }
+    }
+    
+}
@@ -0,0 +1,191 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.pathfinding;
+
+import com.github.tilastokeskus.minotaurus.maze.Maze;
+import com.github.tilastokeskus.minotaurus.maze.MazeBlock;
+import com.github.tilastokeskus.minotaurus.util.Direction;
+import com.github.tilastokeskus.minotaurus.util.PackedPosition;
+import java.util.Arrays;
+
+/**
+ * The number of moves it takes to reach the nearest of a set of goals from
+ * every cell of a maze, as computed by a breadth-first search spreading out
+ * from all of the goals at once. Only floor blocks can be moved through;
+ * entities in the maze are not taken into account.
+ * <p>
+ * A runner anywhere in the maze finds its shortest path to the nearest goal by
+ * repeatedly stepping to a neighbor one move closer, see
+ * {@link #getDescent(int, int)}. Distance fields are immutable, so any number
+ * of runners can read one at the same time.
+ */
+public final class DistanceField {
+    
+    /**
+     * Distance of cells from which no goal can be reached.
+     */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+    
+    private static final Direction[] DIRS = new Direction[] {
+        Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT
+    };
+    
+    final int width;
+    final int height;
+    final int[] distances;
+    final int layoutVersion;
+    
+    private DistanceField(int width, int height, int[] distances,
+                          int layoutVersion) {
+        this.width = width;
+        this.height = height;
+        this.distances = distances;
+        this.layoutVersion = layoutVersion;
+    }
+    
+    /**
+     * Computes the distance field of the specified goals in the specified
+     * maze. Goals outside the maze are ignored.
+     * 
+     * @param maze      Maze to compute the distances in.
+     * @param goalCells Cells of the goals, as given by {@link Maze#cellOf}.
+     * @return A new distance field.
+     */
+    public static DistanceField compute(Maze maze, int... goalCells) {
+        int width = maze.getWidth();
+        int height = maze.getHeight();
+        int numCells = width * height;
+        int[] distances = new int[numCells];
+        Arrays.fill(distances, UNREACHABLE);
+        
+        // Every cell is queued at most once, so the queue never wraps around.
+        int[] queue = new int[numCells];
+        int head = 0;
+        int tail = 0;
+        for (int cell : goalCells) {
+            if (cell >= 0 && cell < numCells && distances[cell] != 0) {
+                distances[cell] = 0;
+                queue[tail++] = cell;
+            }
+        }
+        
+        while (head < tail) {
+            int cell = queue[head++];
+            int x = PackedPosition.unpackX(cell, width);
+            int y = PackedPosition.unpackY(cell, width);
+            int next = distances[cell] + 1;
+            
+            for (Direction dir : DIRS) {
+                int nx = x + dir.deltaX;
+                int ny = y + dir.deltaY;
+                if (nx < 0 || ny < 0 || nx >= width || ny >= height)
+                    continue;
+                
+                int newCell = PackedPosition.pack(nx, ny, width);
+                if (distances[newCell] == UNREACHABLE
+                        && maze.get(nx, ny) == MazeBlock.FLOOR) {
+                    distances[newCell] = next;
+                    queue[tail++] = newCell;
+                }
+            }
+        }
+        
+        return new DistanceField(width, height, distances,
+                                 maze.getLayoutVersion());
+    }
+    
+    public int getWidth() {
+        return width;
+    }
+    
+    public int getHeight() {
+        return height;
+    }
+    
+    /**
+     * Returns the version of the maze's layout this field was computed for.
+     * 
+     * @return Version of the layout.
+     * @see Maze#getLayoutVersion()
+     */
+    public int getLayoutVersion() {
+        return layoutVersion;
+    }
+    
+    /**
+     * Returns the number of moves from the specified location to the nearest
+     * goal.
+     * 
+     * @param x Location in x-axis.
+     * @param y Location in y-axis.
+     * @return Number of moves, or {@link #UNREACHABLE} if no goal can be
+     *         reached or the location is outside the maze.
+     */
+    public int getDistance(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height)
+            return UNREACHABLE;
+        return distances[PackedPosition.pack(x, y, width)];
+    }
+    
+    /**
+     * Returns the number of moves from the specified cell to the nearest goal.
+     * 
+     * @param cell Index of the cell, as given by {@link Maze#cellOf}.
+     * @return Number of moves, or {@link #UNREACHABLE} if no goal can be
+     *         reached.
+     */
+    public int getDistance(int cell) {
+        return distances[cell];
+    }
+    
+    public boolean isReachable(int x, int y) {
+        return getDistance(x, y) != UNREACHABLE;
+    }
+    
+    /**
+     * Returns the direction of a neighbor that is one move closer to the
+     * nearest goal than the specified location. Following these directions
+     * from any reachable location leads to a goal along a shortest path. When
+     * several neighbors are equally close, the first of up, down, left and
+     * right is chosen.
+     * 
+     * @param x Location in x-axis.
+     * @param y Location in y-axis.
+     * @return A direction, or {@link Direction#NONE} if the location is a goal
+     *         or no goal can be reached from it.
+     */
+    public Direction getDescent(int x, int y) {
+        int distance = getDistance(x, y);
+        if (distance == 0 || distance == UNREACHABLE)
+            return Direction.NONE;
+        
+        for (Direction dir : DIRS)
+            if (getDistance(x + dir.deltaX, y + dir.deltaY) == distance - 1)
+                return dir;
+        
+        return Direction.NONE;
+    }
+    
+}
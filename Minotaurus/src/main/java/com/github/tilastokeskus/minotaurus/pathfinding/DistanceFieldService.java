@@ -0,0 +1,139 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.pathfinding;
+
+import com.github.tilastokeskus.minotaurus.maze.Maze;
+import com.github.tilastokeskus.minotaurus.maze.MazeEntity;
+import com.github.tilastokeskus.minotaurus.util.LruCache;
+import com.github.tilastokeskus.minotaurus.util.Position;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Computes distance fields of goal sets in a maze and shares them between all
+ * runners of a simulation. A field is computed when a runner first asks for
+ * it, and is then handed to every runner that asks for the same goal cells,
+ * until the goals move or the layout of the maze changes. In a round where no
+ * goal moves, the field is therefore computed at most once no matter how many
+ * runners use it.
+ * <p>
+ * The fields of the {@value #DEFAULT_CAPACITY} most recently used goal sets
+ * are kept, so scenarios that give runners goals of their own don't make the
+ * runners recompute each other's fields. This class is thread-safe.
+ */
+public class DistanceFieldService {
+    
+    static final int DEFAULT_CAPACITY = 8;
+    
+    private final Maze maze;
+    private final LruCache<GoalSet, DistanceField> fields;
+    private int layoutVersion;
+    
+    // Number of fields computed so far.
+    int computations;
+    
+    /**
+     * Creates a new DistanceFieldService.
+     * 
+     * @param maze Maze to compute distance fields in.
+     */
+    public DistanceFieldService(Maze maze) {
+        this.maze = maze;
+        this.fields = new LruCache<>(DEFAULT_CAPACITY);
+        this.layoutVersion = maze.getLayoutVersion();
+    }
+    
+    public Maze getMaze() {
+        return maze;
+    }
+    
+    /**
+     * Returns the distance field of the specified goals, computing it if the
+     * goals have moved or the maze has changed since it was last computed.
+     * 
+     * @param goals Goals to compute distances to.
+     * @return A distance field.
+     */
+    public DistanceField getDistanceField(Collection<? extends MazeEntity> goals) {
+        int[] cells = new int[goals.size()];
+        int width = maze.getWidth();
+        int i = 0;
+        for (MazeEntity goal : goals) {
+            Position p = goal.getPosition();
+            cells[i++] = maze.isInBounds(p.x, p.y) ? p.y * width + p.x : -1;
+        }
+        
+        return getDistanceField(cells);
+    }
+    
+    /**
+     * Returns the distance field of goals in the specified cells, computing it
+     * if the maze has changed since it was last computed.
+     * 
+     * @param goalCells Cells of the goals, as given by {@link Maze#cellOf}.
+     *                  The order of the cells doesn't matter.
+     * @return A distance field.
+     */
+    public synchronized DistanceField getDistanceField(int... goalCells) {
+        if (maze.getLayoutVersion() != layoutVersion) {
+            fields.clear();
+            layoutVersion = maze.getLayoutVersion();
+        }
+        
+        int[] sorted = goalCells.clone();
+        Arrays.sort(sorted);
+        GoalSet key = new GoalSet(sorted);
+        return fields.computeIfAbsent(key, k -> {
+            computations++;
+            return DistanceField.compute(maze, k.cells);
+        });
+    }
+    
+    /**
+     * Sorted goal cells, used as the key of a distance field.
+     */
+    private static final class GoalSet {
+        
+        final int[] cells;
+        final int hash;
+        
+        GoalSet(int[] cells) {
+            this.cells = cells;
+            this.hash = Arrays.hashCode(cells);
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof GoalSet
+                    && Arrays.equals(cells, ((GoalSet) obj).cells);
+        }
+        
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+    
+}
@@ -0,0 +1,679 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.pathfinding;
+
+import com.github.tilastokeskus.minotaurus.maze.Maze;
+import com.github.tilastokeskus.minotaurus.maze.MazeBlock;
+import com.github.tilastokeskus.minotaurus.util.BitGrid;
+import com.github.tilastokeskus.minotaurus.util.Direction;
+import com.github.tilastokeskus.minotaurus.util.IntIntHashMap;
+import com.github.tilastokeskus.minotaurus.util.IntObjectHashMap;
+import com.github.tilastokeskus.minotaurus.util.IntStack;
+import com.github.tilastokeskus.minotaurus.util.PackedPosition;
+import com.github.tilastokeskus.minotaurus.util.PriorityQueue;
+import java.util.Arrays;
+
+/**
+ * Hierarchical path-finding (HPA*) for large mazes. The maze is divided into
+ * square clusters, and wherever floor continues across the border of two
+ * clusters, a transition is placed on it. A search first finds a path through
+ * the transitions, using the distances between the transitions of each
+ * cluster, and only then works out the moves within the first cluster. The
+ * paths found are at most a few moves longer than the shortest ones.
+ * <p>
+ * Like {@link DistanceField}, the pathfinder only knows about walls. The
+ * distances within a cluster are computed the first time a search passes
+ * through it and kept until a block in the cluster changes; changes are read
+ * from the maze's change journal, so only the clusters that were touched are
+ * computed again. A pathfinder is not thread-safe.
+ */
+public final class HierarchicalPathfinder {
+    
+    public static final int DEFAULT_CLUSTER_SIZE = 16;
+    
+    // Entrances at least this long get a transition at both ends.
+    static final int LONG_ENTRANCE = 6;
+    
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+    private static final int[] NONE = new int[0];
+    
+    // Identifiers of the start and the goals in the abstract search.
+    private static final int START = -1;
+    private static final int GOAL = -2;
+    
+    private static final Direction[] DIRS = new Direction[] {
+        Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT
+    };
+    
+    final Maze maze;
+    final int clusterSize;
+    
+    int width;
+    int height;
+    int clustersX;
+    int clustersY;
+    Cluster[] clusters;
+    
+    // Floor cells as of the latest search.
+    BitGrid floor;
+    long seenChanges;
+    
+    /* Borders whose transitions have to be found again. Border 2i is between
+     * cluster i and the one east of it, border 2i + 1 between cluster i and
+     * the one south of it.
+     */
+    boolean[] dirtyBorders;
+    IntStack dirtyBorderStack;
+    
+    // Number of times the distances within a cluster have been computed.
+    int clusterBuilds;
+    
+    // Scratch space for searches within one cluster.
+    private final int[] localDistances;
+    private final int[] localParents;
+    private final int[] localQueue;
+    
+    private int pathLength = -1;
+    
+    /**
+     * Creates a new pathfinder for the specified maze with clusters of the
+     * default size.
+     * 
+     * @param maze Maze to find paths in.
+     */
+    public HierarchicalPathfinder(Maze maze) {
+        this(maze, DEFAULT_CLUSTER_SIZE);
+    }
+    
+    /**
+     * Creates a new pathfinder for the specified maze.
+     * 
+     * @param maze        Maze to find paths in.
+     * @param clusterSize Width and height of the clusters.
+     */
+    public HierarchicalPathfinder(Maze maze, int clusterSize) {
+        if (clusterSize < 2)
+            throw new IllegalArgumentException("Cluster size must be at least 2: " + clusterSize);
+        
+        this.maze = maze;
+        this.clusterSize = clusterSize;
+        this.localDistances = new int[clusterSize * clusterSize];
+        this.localParents = new int[clusterSize * clusterSize];
+        this.localQueue = new int[clusterSize * clusterSize];
+        build();
+    }
+    
+    public Maze getMaze() {
+        return maze;
+    }
+    
+    public int getClusterSize() {
+        return clusterSize;
+    }
+    
+    /**
+     * Returns the direction of the first move on a path from the specified
+     * position to the nearest of the specified goals. Goals outside the maze
+     * or on walls are ignored.
+     * 
+     * @param startX    X position of the start.
+     * @param startY    Y position of the start.
+     * @param goalCells Cells of the goals, as given by {@link Maze#cellOf}.
+     * @return Direction of the first move, or {@link Direction#NONE} if no
+     *         goal can be reached or the start is a goal.
+     */
+    public Direction getNextMove(int startX, int startY, int... goalCells) {
+        update();
+        pathLength = -1;
+        
+        int start = PackedPosition.pack(startX, startY, width);
+        int[] goals = validGoals(goalCells);
+        if (goals.length == 0)
+            return Direction.NONE;
+        
+        for (int goal : goals) {
+            if (goal == start) {
+                pathLength = 0;
+                return Direction.NONE;
+            }
+        }
+        
+        IntObjectHashMap<int[]> goalDistances = goalDistances(goals);
+        IntIntHashMap g = new IntIntHashMap(64, UNREACHABLE);
+        IntIntHashMap parents = new IntIntHashMap(64, START);
+        PriorityQueue<QueueEntry> open = new PriorityQueue<>(
+                (e1, e2) -> Integer.compare(e1.f, e2.f));
+        
+        // Connect the start to the transitions of its cluster and to goals in it.
+        Cluster startCluster = clusterAt(startX, startY);
+        ensureBuilt(startCluster);
+        searchLocally(startCluster, start);
+        for (int node : startCluster.nodes) {
+            int d = localDistances[localIndex(startCluster, node)];
+            if (d != UNREACHABLE)
+                relax(node, d, START, g, parents, open, goals);
+        }
+        
+        for (int goal : goals) {
+            if (clusterOf(goal) != startCluster)
+                continue;
+            
+            int d = localDistances[localIndex(startCluster, goal)];
+            if (d != UNREACHABLE)
+                relax(GOAL, d, START, g, parents, open, goals);
+        }
+        
+        while (!open.isEmpty()) {
+            QueueEntry e = open.extractMin();
+            if (e.g > g.get(e.node))
+                continue;
+            if (e.node == GOAL)
+                break;
+            
+            int clusterIndex = clusterIndexOf(e.node);
+            Cluster cluster = clusters[clusterIndex];
+            ensureBuilt(cluster);
+            int i = indexOf(cluster.nodes, e.node);
+            
+            int[] row = cluster.distances[i];
+            for (int j = 0; j < row.length; j++)
+                if (j != i && row[j] != UNREACHABLE)
+                    relax(cluster.nodes[j], e.g + row[j], e.node, g, parents, open, goals);
+            for (int partner : cluster.partners[i])
+                relax(partner, e.g + 1, e.node, g, parents, open, goals);
+            
+            int[] toGoal = goalDistances.get(clusterIndex);
+            if (toGoal != null && toGoal[i] != UNREACHABLE)
+                relax(GOAL, e.g + toGoal[i], e.node, g, parents, open, goals);
+        }
+        
+        if (g.get(GOAL) == UNREACHABLE)
+            return Direction.NONE;
+        pathLength = g.get(GOAL);
+        
+        // Find the first waypoint after the start, and refine the way to it.
+        int waypoint = GOAL;
+        int prev = parents.get(GOAL);
+        while (prev != START && prev != start) {
+            waypoint = prev;
+            prev = parents.get(waypoint);
+        }
+        
+        if (waypoint != GOAL && !inCluster(startCluster, waypoint))
+            return directionBetween(start, waypoint);
+        
+        searchLocally(startCluster, start);
+        int target = waypoint;
+        if (waypoint == GOAL) {
+            int best = UNREACHABLE;
+            for (int goal : goals) {
+                if (inCluster(startCluster, goal)
+                        && localDistances[localIndex(startCluster, goal)] < best) {
+                    best = localDistances[localIndex(startCluster, goal)];
+                    target = goal;
+                }
+            }
+        }
+        
+        int local = localIndex(startCluster, target);
+        int startLocal = localIndex(startCluster, start);
+        while (localParents[local] != startLocal)
+            local = localParents[local];
+        return directionBetween(start, cellOf(startCluster, local));
+    }
+    
+    /**
+     * Returns the number of moves on the path found by the latest call to
+     * {@link #getNextMove}.
+     * 
+     * @return Length of the path, or -1 if no path was found.
+     */
+    public int getPathLength() {
+        return pathLength;
+    }
+    
+    /**
+     * Divides the maze into clusters and finds the transitions between them.
+     */
+    private void build() {
+        width = maze.getWidth();
+        height = maze.getHeight();
+        clustersX = (width + clusterSize - 1) / clusterSize;
+        clustersY = (height + clusterSize - 1) / clusterSize;
+        clusters = new Cluster[clustersX * clustersY];
+        dirtyBorders = new boolean[2 * clusters.length];
+        dirtyBorderStack = new IntStack();
+        seenChanges = maze.getChangeCount();
+        
+        floor = new BitGrid(width, height);
+        for (int cell = 0; cell < width * height; cell++)
+            if (maze.get(cell) == MazeBlock.FLOOR)
+                floor.set(cell);
+        
+        for (int cy = 0; cy < clustersY; cy++) {
+            for (int cx = 0; cx < clustersX; cx++) {
+                int x0 = cx * clusterSize;
+                int y0 = cy * clusterSize;
+                clusters[cy * clustersX + cx] = new Cluster(x0, y0,
+                        Math.min(x0 + clusterSize, width),
+                        Math.min(y0 + clusterSize, height));
+            }
+        }
+        
+        for (int i = 0; i < clusters.length; i++) {
+            findTransitions(i, false);
+            findTransitions(i, true);
+        }
+    }
+    
+    /**
+     * Catches up on the changes made to the maze since the latest search.
+     */
+    private void update() {
+        if (maze.getWidth() != width || maze.getHeight() != height) {
+            build();
+            return;
+        }
+        
+        long count = maze.getChangeCount();
+        if (count == seenChanges)
+            return;
+        
+        if (!maze.forEachChangedCell(seenChanges, this::checkCell))
+            for (int cell = 0; cell < width * height; cell++)
+                checkCell(cell);
+        seenChanges = count;
+        
+        while (!dirtyBorderStack.isEmpty()) {
+            int border = dirtyBorderStack.pop();
+            dirtyBorders[border] = false;
+            findTransitions(border / 2, border % 2 == 1);
+        }
+    }
+    
+    /**
+     * Invalidates the cluster of a cell if the cell has turned into floor or
+     * stopped being floor. If the cell is on the border of the cluster, the
+     * transitions on the border are found again too.
+     */
+    private void checkCell(int cell) {
+        boolean isFloor = maze.get(cell) == MazeBlock.FLOOR;
+        if (isFloor == floor.test(cell))
+            return;
+        
+        if (isFloor)
+            floor.set(cell);
+        else
+            floor.clear(cell);
+        
+        int x = PackedPosition.unpackX(cell, width);
+        int y = PackedPosition.unpackY(cell, width);
+        int cx = x / clusterSize;
+        int cy = y / clusterSize;
+        int i = cy * clustersX + cx;
+        Cluster cluster = clusters[i];
+        cluster.invalidate();
+        
+        if (x == cluster.x1 - 1 && cx + 1 < clustersX)
+            markBorder(2 * i);
+        if (x == cluster.x0 && cx > 0)
+            markBorder(2 * (i - 1));
+        if (y == cluster.y1 - 1 && cy + 1 < clustersY)
+            markBorder(2 * i + 1);
+        if (y == cluster.y0 && cy > 0)
+            markBorder(2 * (i - clustersX) + 1);
+    }
+    
+    private void markBorder(int border) {
+        if (!dirtyBorders[border]) {
+            dirtyBorders[border] = true;
+            dirtyBorderStack.add(border);
+        }
+    }
+    
+    /**
+     * Finds the transitions between a cluster and the one east or south of
+     * it. Each run of floor continuing across the border gets a transition in
+     * its middle, or at both of its ends if it is long.
+     */
+    private void findTransitions(int clusterIndex, boolean south) {
+        Cluster cluster = clusters[clusterIndex];
+        int cx = clusterIndex % clustersX;
+        int cy = clusterIndex / clustersX;
+        Cluster other;
+        if (south) {
+            if (cy + 1 >= clustersY)
+                return;
+            other = clusters[clusterIndex + clustersX];
+        } else {
+            if (cx + 1 >= clustersX)
+                return;
+            other = clusters[clusterIndex + 1];
+        }
+        
+        int length = south ? cluster.x1 - cluster.x0 : cluster.y1 - cluster.y0;
+        int[] pairs = new int[4 * length];
+        int n = 0;
+        int runStart = -1;
+        for (int k = 0; k <= length; k++) {
+            boolean open = k < length && isOpenAcross(cluster, south, k);
+            if (open && runStart == -1) {
+                runStart = k;
+            } else if (!open && runStart != -1) {
+                int runEnd = k - 1;
+                if (runEnd - runStart + 1 >= LONG_ENTRANCE) {
+                    n = addTransition(pairs, n, cluster, south, runStart);
+                    n = addTransition(pairs, n, cluster, south, runEnd);
+                } else {
+                    n = addTransition(pairs, n, cluster, south, (runStart + runEnd) / 2);
+                }
+                runStart = -1;
+            }
+        }
+        
+        pairs = Arrays.copyOf(pairs, n);
+        if (south)
+            cluster.south = pairs;
+        else
+            cluster.east = pairs;
+        cluster.invalidate();
+        other.invalidate();
+    }
+    
+    private boolean isOpenAcross(Cluster cluster, boolean south, int k) {
+        int x = south ? cluster.x0 + k : cluster.x1 - 1;
+        int y = south ? cluster.y1 - 1 : cluster.y0 + k;
+        return floor.test(PackedPosition.pack(x, y, width))
+                && floor.test(south ? PackedPosition.pack(x, y + 1, width)
+                                    : PackedPosition.pack(x + 1, y, width));
+    }
+    
+    private int addTransition(int[] pairs, int n, Cluster cluster,
+                              boolean south, int k) {
+        int x = south ? cluster.x0 + k : cluster.x1 - 1;
+        int y = south ? cluster.y1 - 1 : cluster.y0 + k;
+        pairs[n++] = PackedPosition.pack(x, y, width);
+        pairs[n++] = south ? PackedPosition.pack(x, y + 1, width)
+                           : PackedPosition.pack(x + 1, y, width);
+        return n;
+    }
+    
+    /**
+     * Collects the transitions of a cluster and computes the distances
+     * between them, unless that has already been done.
+     */
+    private void ensureBuilt(Cluster cluster) {
+        if (cluster.nodes != null)
+            return;
+        
+        int cx = cluster.x0 / clusterSize;
+        int cy = cluster.y0 / clusterSize;
+        int i = cy * clustersX + cx;
+        
+        // Pairs of (node, partner) on each of the four borders.
+        int[][] sides = new int[][] {
+            cluster.east,
+            cluster.south,
+            cx > 0 ? swapped(clusters[i - 1].east) : NONE,
+            cy > 0 ? swapped(clusters[i - clustersX].south) : NONE
+        };
+        
+        int total = 0;
+        for (int[] side : sides)
+            total += side.length / 2;
+        
+        int[] nodes = new int[total];
+        int[][] partners = new int[total][];
+        int n = 0;
+        for (int[] side : sides) {
+            for (int k = 0; k < side.length; k += 2) {
+                int j = indexOf(nodes, n, side[k]);
+                if (j == -1) {
+                    j = n++;
+                    nodes[j] = side[k];
+                    partners[j] = NONE;
+                }
+                
+                partners[j] = Arrays.copyOf(partners[j], partners[j].length + 1);
+                partners[j][partners[j].length - 1] = side[k + 1];
+            }
+        }
+        
+        cluster.nodes = Arrays.copyOf(nodes, n);
+        cluster.partners = Arrays.copyOf(partners, n);
+        cluster.distances = new int[n][n];
+        for (int j = 0; j < n; j++) {
+            searchLocally(cluster, nodes[j]);
+            for (int k = 0; k < n; k++)
+                cluster.distances[j][k] = localDistances[localIndex(cluster, nodes[k])];
+        }
+        
+        clusterBuilds++;
+    }
+    
+    private static int[] swapped(int[] pairs) {
+        int[] result = new int[pairs.length];
+        for (int k = 0; k < pairs.length; k += 2) {
+            result[k] = pairs[k + 1];
+            result[k + 1] = pairs[k];
+        }
+        
+        return result;
+    }
+    
+    /**
+     * For every goal cluster, computes the distances from the transitions of
+     * the cluster to the nearest goal within it.
+     */
+    private IntObjectHashMap<int[]> goalDistances(int[] goals) {
+        IntObjectHashMap<int[]> result = new IntObjectHashMap<>();
+        for (int goal : goals) {
+            int clusterIndex = clusterIndexOf(goal);
+            Cluster cluster = clusters[clusterIndex];
+            ensureBuilt(cluster);
+            searchLocally(cluster, goal);
+            
+            int[] distances = result.get(clusterIndex);
+            if (distances == null) {
+                distances = new int[cluster.nodes.length];
+                Arrays.fill(distances, UNREACHABLE);
+                result.put(clusterIndex, distances);
+            }
+            
+            for (int j = 0; j < distances.length; j++) {
+                int d = localDistances[localIndex(cluster, cluster.nodes[j])];
+                distances[j] = Math.min(distances[j], d);
+            }
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Breadth-first search from a cell that stays within its cluster. Fills
+     * the local distances and parents of the cluster's cells.
+     */
+    private void searchLocally(Cluster cluster, int source) {
+        int w = cluster.x1 - cluster.x0;
+        int h = cluster.y1 - cluster.y0;
+        Arrays.fill(localDistances, 0, w * h, UNREACHABLE);
+        
+        int head = 0;
+        int tail = 0;
+        int sourceLocal = localIndex(cluster, source);
+        localDistances[sourceLocal] = 0;
+        localParents[sourceLocal] = -1;
+        localQueue[tail++] = sourceLocal;
+        
+        while (head < tail) {
+            int local = localQueue[head++];
+            int lx = local % w;
+            int ly = local / w;
+            for (Direction dir : DIRS) {
+                int nx = lx + dir.deltaX;
+                int ny = ly + dir.deltaY;
+                if (nx < 0 || ny < 0 || nx >= w || ny >= h)
+                    continue;
+                
+                int next = ny * w + nx;
+                if (localDistances[next] == UNREACHABLE && floor.test(
+                        PackedPosition.pack(cluster.x0 + nx, cluster.y0 + ny, width))) {
+                    localDistances[next] = localDistances[local] + 1;
+                    localParents[next] = local;
+                    localQueue[tail++] = next;
+                }
+            }
+        }
+    }
+    
+    private void relax(int node, int newG, int parent, IntIntHashMap g,
+                       IntIntHashMap parents, PriorityQueue<QueueEntry> open,
+                       int[] goals) {
+        if (newG >= g.get(node))
+            return;
+        
+        g.put(node, newG);
+        parents.put(node, parent);
+        open.add(new QueueEntry(node, newG, newG + heuristic(node, goals)));
+    }
+    
+    private int heuristic(int node, int[] goals) {
+        if (node == GOAL)
+            return 0;
+        
+        int x = PackedPosition.unpackX(node, width);
+        int y = PackedPosition.unpackY(node, width);
+        int best = UNREACHABLE;
+        for (int goal : goals)
+            best = Math.min(best, Math.abs(PackedPosition.unpackX(goal, width) - x)
+                    + Math.abs(PackedPosition.unpackY(goal, width) - y));
+        return best;
+    }
+    
+    private int[] validGoals(int[] goalCells) {
+        int[] goals = new int[goalCells.length];
+        int n = 0;
+        for (int cell : goalCells)
+            if (cell >= 0 && cell < width * height && floor.test(cell))
+                goals[n++] = cell;
+        return Arrays.copyOf(goals, n);
+    }
+    
+    private Direction directionBetween(int from, int to) {
+        int dx = PackedPosition.unpackX(to, width) - PackedPosition.unpackX(from, width);
+        int dy = PackedPosition.unpackY(to, width) - PackedPosition.unpackY(from, width);
+        for (Direction dir : DIRS)
+            if (dir.deltaX == dx && dir.deltaY == dy)
+                return dir;
+        return Direction.NONE;
+    }
+    
+    private Cluster clusterAt(int x, int y) {
+        return clusters[(y / clusterSize) * clustersX + x / clusterSize];
+    }
+    
+    private Cluster clusterOf(int cell) {
+        return clusters[clusterIndexOf(cell)];
+    }
+    
+    private int clusterIndexOf(int cell) {
+        int x = PackedPosition.unpackX(cell, width);
+        int y = PackedPosition.unpackY(cell, width);
+        return (y / clusterSize) * clustersX + x / clusterSize;
+    }
+    
+    private boolean inCluster(Cluster cluster, int cell) {
+        int x = PackedPosition.unpackX(cell, width);
+        int y = PackedPosition.unpackY(cell, width);
+        return x >= cluster.x0 && y >= cluster.y0
+                && x < cluster.x1 && y < cluster.y1;
+    }
+    
+    private int localIndex(Cluster cluster, int cell) {
+        int x = PackedPosition.unpackX(cell, width);
+        int y = PackedPosition.unpackY(cell, width);
+        return (y - cluster.y0) * (cluster.x1 - cluster.x0) + x - cluster.x0;
+    }
+    
+    private int cellOf(Cluster cluster, int local) {
+        int w = cluster.x1 - cluster.x0;
+        return PackedPosition.pack(cluster.x0 + local % w,
+                                   cluster.y0 + local / w, width);
+    }
+    
+    private static int indexOf(int[] nodes, int node) {
+        return indexOf(nodes, nodes.length, node);
+    }
+    
+    private static int indexOf(int[] nodes, int n, int node) {
+        for (int i = 0; i < n; i++)
+            if (nodes[i] == node)
+                return i;
+        return -1;
+    }
+    
+    static final class Cluster {
+        final int x0;
+        final int y0;
+        final int x1;
+        final int y1;
+        
+        // Transitions east and south of the cluster, as pairs of cells: the
+        // one in this cluster, then the one in the neighboring cluster.
+        int[] east = NONE;
+        int[] south = NONE;
+        
+        // Transition cells of the cluster; null when they need collecting.
+        int[] nodes;
+        int[][] partners;
+        int[][] distances;
+        
+        Cluster(int x0, int y0, int x1, int y1) {
+            this.x0 = x0;
+            this.y0 = y0;
+            this.x1 = x1;
+            this.y1 = y1;
+        }
+        
+        void invalidate() {
+            nodes = null;
+            partners = null;
+            distances = null;
+        }
+    }
+    
+    private static final class QueueEntry {
+        final int node;
+        final int g;
+        final int f;
+        
+        QueueEntry(int node, int g, int f) {
+            this.node = node;
+            this.g = g;
+            this.f = f;
+        }
+    }
+    
+}
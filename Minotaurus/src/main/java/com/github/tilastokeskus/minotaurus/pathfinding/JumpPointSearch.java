@@ -0,0 +1,349 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.pathfinding;
+
+import com.github.tilastokeskus.minotaurus.util.BitGrid;
+import com.github.tilastokeskus.minotaurus.util.Direction;
+import com.github.tilastokeskus.minotaurus.util.IndexedPriorityQueue;
+import com.github.tilastokeskus.minotaurus.util.PackedPosition;
+import com.github.tilastokeskus.minotaurus.util.PositionPredicate;
+import java.util.Arrays;
+
+/**
+ * Jump point search on a 4-connected grid where every move costs the same.
+ * Of the many equally short paths such a grid has, only those that move
+ * horizontally before turning vertically are searched: a vertical run only
+ * turns sideways where an obstacle beside it forces it to. Straight runs are
+ * scanned without queuing anything, and only the cells where a path may turn
+ * are queued and expanded, so open areas cost a fraction of the queue
+ * operations of A*.
+ * <p>
+ * A search is reusable: its arrays are allocated once for a grid of a given
+ * size, and stamped with a generation so that they need no clearing between
+ * searches. It is not thread-safe.
+ */
+public final class JumpPointSearch {
+    
+    private static final Direction[] DIRS = new Direction[] {
+        Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT
+    };
+    
+    final int width;
+    final int height;
+    
+    // Values of a cell are only valid if its stamp equals the generation.
+    final int[] stamps;
+    int generation;
+    
+    final int[] g;
+    final int[] parents;
+    final Direction[] arrivals;
+    
+    final BitGrid closed;
+    final BitGrid goals;
+    int[] goalX = new int[1];
+    int[] goalY = new int[1];
+    int numGoals;
+    
+    final IndexedPriorityQueue<Node> open;
+    
+    private PositionPredicate predicate;
+    private int start;
+    private int found;
+    private int expansions;
+    
+    /**
+     * Creates a new search for grids of the specified size.
+     * 
+     * @param width  Width of the grid.
+     * @param height Height of the grid.
+     */
+    public JumpPointSearch(int width, int height) {
+        int numCells = width * height;
+        this.width = width;
+        this.height = height;
+        this.stamps = new int[numCells];
+        this.g = new int[numCells];
+        this.parents = new int[numCells];
+        this.arrivals = new Direction[numCells];
+        this.closed = new BitGrid(width, height);
+        this.goals = new BitGrid(width, height);
+        this.open = new IndexedPriorityQueue<>(
+                (Node n1, Node n2) -> n1.f != n2.f
+                        ? Integer.compare(n1.f, n2.f)
+                        : Integer.compare(n2.g, n1.g),
+                numCells, (Node n) -> n.cell);
+        this.found = -1;
+    }
+    
+    public int getWidth() {
+        return width;
+    }
+    
+    public int getHeight() {
+        return height;
+    }
+    
+    /**
+     * Searches for a shortest path from the specified position to the nearest
+     * of the specified goals. Cells the predicate rejects are not moved
+     * through; the start cell itself is not tested. Goals outside the grid
+     * are ignored.
+     * 
+     * @param startX    X position of the start.
+     * @param startY    Y position of the start.
+     * @param goalCells Cells of the goals, as given by
+     *                  {@link PackedPosition#pack(int, int, int)}.
+     * @param predicate Predicate telling which cells can be moved through.
+     * @return True if a path was found, otherwise false.
+     */
+    public boolean search(int startX, int startY, int[] goalCells,
+                          PositionPredicate predicate) {
+        this.predicate = predicate;
+        this.start = PackedPosition.pack(startX, startY, width);
+        this.found = -1;
+        this.expansions = 0;
+        nextGeneration();
+        setGoals(goalCells);
+        if (numGoals == 0)
+            return false;
+        
+        stamps[start] = generation;
+        g[start] = 0;
+        parents[start] = -1;
+        arrivals[start] = Direction.NONE;
+        open.add(new Node(start, 0, heuristic(startX, startY)));
+        
+        while (!open.isEmpty()) {
+            Node n = open.extractMin();
+            int cell = n.cell;
+            closed.set(cell);
+            expansions++;
+            
+            if (goals.test(cell)) {
+                found = cell;
+                break;
+            }
+            
+            int x = PackedPosition.unpackX(cell, width);
+            int y = PackedPosition.unpackY(cell, width);
+            Direction arrival = arrivals[cell];
+            if (arrival == Direction.NONE) {
+                for (Direction dir : DIRS)
+                    jumpFrom(cell, x, y, dir);
+            } else if (arrival.deltaY == 0) {
+                
+                // Arrived horizontally, so turning up or down is natural.
+                jumpFrom(cell, x, y, arrival);
+                jumpFrom(cell, x, y, Direction.UP);
+                jumpFrom(cell, x, y, Direction.DOWN);
+            } else {
+                
+                // Arrived vertically: only turn where the way is forced.
+                jumpFrom(cell, x, y, arrival);
+                if (isForced(x - 1, y, arrival.deltaY))
+                    jumpFrom(cell, x, y, Direction.LEFT);
+                if (isForced(x + 1, y, arrival.deltaY))
+                    jumpFrom(cell, x, y, Direction.RIGHT);
+            }
+        }
+        
+        open.clear();
+        this.predicate = null;
+        return found != -1;
+    }
+    
+    /**
+     * Returns the direction of the first move of the path found by the latest
+     * search.
+     * 
+     * @return Direction of the first move, or {@link Direction#NONE} if no
+     *         path was found or the start was a goal.
+     */
+    public Direction getFirstMove() {
+        if (found == -1 || found == start)
+            return Direction.NONE;
+        
+        int cell = found;
+        while (parents[cell] != start)
+            cell = parents[cell];
+        
+        int dx = PackedPosition.unpackX(cell, width) - PackedPosition.unpackX(start, width);
+        int dy = PackedPosition.unpackY(cell, width) - PackedPosition.unpackY(start, width);
+        if (dx != 0)
+            return dx > 0 ? Direction.RIGHT : Direction.LEFT;
+        return dy > 0 ? Direction.DOWN : Direction.UP;
+    }
+    
+    /**
+     * Returns the number of moves in the path found by the latest search.
+     * 
+     * @return Length of the path, or -1 if no path was found.
+     */
+    public int getPathLength() {
+        return found == -1 ? -1 : g[found];
+    }
+    
+    /**
+     * Returns the number of cells expanded by the latest search, that is,
+     * the number of cells taken out of the open set.
+     * 
+     * @return Number of expanded cells.
+     */
+    public int getExpansions() {
+        return expansions;
+    }
+    
+    private void nextGeneration() {
+        generation++;
+        if (generation == 0) {
+            Arrays.fill(stamps, 0);
+            generation = 1;
+        }
+        
+        closed.clearAll();
+        goals.clearAll();
+    }
+    
+    private void setGoals(int[] goalCells) {
+        if (goalX.length < goalCells.length) {
+            goalX = new int[goalCells.length];
+            goalY = new int[goalCells.length];
+        }
+        
+        numGoals = 0;
+        for (int cell : goalCells) {
+            if (cell < 0 || cell >= width * height || goals.test(cell))
+                continue;
+            
+            goals.set(cell);
+            goalX[numGoals] = PackedPosition.unpackX(cell, width);
+            goalY[numGoals] = PackedPosition.unpackY(cell, width);
+            numGoals++;
+        }
+    }
+    
+    /**
+     * Jumps from a cell in the specified direction, and queues the cell
+     * jumped to if it is reached with fewer moves than before.
+     */
+    private void jumpFrom(int cell, int x, int y, Direction dir) {
+        int next = dir.deltaY == 0
+                ? jumpHorizontally(x, y, dir.deltaX)
+                : jumpVertically(x, y, dir.deltaY);
+        if (next == -1 || closed.test(next))
+            return;
+        
+        int nx = PackedPosition.unpackX(next, width);
+        int ny = PackedPosition.unpackY(next, width);
+        int newG = g[cell] + Math.abs(nx - x) + Math.abs(ny - y);
+        boolean seen = stamps[next] == generation;
+        if (seen && newG >= g[next])
+            return;
+        
+        stamps[next] = generation;
+        g[next] = newG;
+        parents[next] = cell;
+        arrivals[next] = dir;
+        
+        Node node = new Node(next, newG, newG + heuristic(nx, ny));
+        if (open.containsKey(next))
+            open.decreaseKey(node);
+        else
+            open.add(node);
+    }
+    
+    /**
+     * Moves horizontally until reaching a goal, or a cell from which a
+     * vertical jump finds one or a forced turn.
+     * 
+     * @return The cell jumped to, or -1 if the way is blocked first.
+     */
+    private int jumpHorizontally(int x, int y, int dx) {
+        while (true) {
+            x += dx;
+            if (!isFree(x, y))
+                return -1;
+            
+            int cell = PackedPosition.pack(x, y, width);
+            if (goals.test(cell) || jumpVertically(x, y, -1) != -1
+                    || jumpVertically(x, y, 1) != -1)
+                return cell;
+        }
+    }
+    
+    /**
+     * Moves vertically until reaching a goal or a cell where the path is
+     * forced to turn sideways.
+     * 
+     * @return The cell jumped to, or -1 if the way is blocked first.
+     */
+    private int jumpVertically(int x, int y, int dy) {
+        while (true) {
+            y += dy;
+            if (!isFree(x, y))
+                return -1;
+            
+            int cell = PackedPosition.pack(x, y, width);
+            if (goals.test(cell) || isForced(x - 1, y, dy)
+                    || isForced(x + 1, y, dy))
+                return cell;
+        }
+    }
+    
+    /*
+     * A vertical run moving dy needs to turn into (x, y) only if (x, y) can't
+     * be reached by turning one cell earlier, i.e. the cell behind it is
+     * blocked.
+     */
+    private boolean isForced(int x, int y, int dy) {
+        return isFree(x, y) && !isFree(x, y - dy);
+    }
+    
+    private boolean isFree(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height
+                && predicate.test(x, y);
+    }
+    
+    private int heuristic(int x, int y) {
+        int best = Integer.MAX_VALUE;
+        for (int i = 0; i < numGoals; i++)
+            best = Math.min(best, Math.abs(goalX[i] - x) + Math.abs(goalY[i] - y));
+        return best;
+    }
+    
+    static final class Node {
+        final int cell;
+        final int g;
+        final int f;
+        
+        Node(int cell, int g, int f) {
+            this.cell = cell;
+            this.g = g;
+            this.f = f;
+        }
+    }
+    
+}
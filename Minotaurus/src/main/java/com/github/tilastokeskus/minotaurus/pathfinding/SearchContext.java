@@ -0,0 +1,456 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.pathfinding;
+
+import com.github.tilastokeskus.minotaurus.util.ArrayList;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Scratch memory for a single grid search. A context holds the g-score, the
+ * parent and the closed status of every cell, along with an open set keyed by
+ * cell index, all in arrays allocated up front. The arrays are stamped with a
+ * generation, so starting a new search takes constant time and nothing has to
+ * be cleared.
+ * <p>
+ * Contexts are pooled. A runner borrows one with {@link #acquire(int, int)}
+ * at the start of a move and gives it back with {@link #release()} at the
+ * end, so searches allocate nothing once the pool holds a context that is
+ * large enough. A borrower gets the smallest pooled context with room for its
+ * grid, so runners on small mazes leave the large contexts to runners on
+ * large ones. The pool is thread-safe, but a borrowed context is not.
+ * <p>
+ * A context takes 24 bytes per cell, and the pool keeps released contexts
+ * for the life of the program. It keeps at most {@value #MAX_POOLED}
+ * contexts with room for at most {@value #MAX_POOLED_CELLS} cells in total,
+ * about 100 MB; contexts released beyond that are left to the garbage
+ * collector.
+ */
+public final class SearchContext {
+    
+    /**
+     * Parent of cells that have none, such as the start of a search.
+     */
+    public static final int NONE = -1;
+    
+    // Number of released contexts the pool keeps at most.
+    static final int MAX_POOLED = 16;
+    
+    // Number of cells the released contexts in the pool have room for at most.
+    static final int MAX_POOLED_CELLS = 1 << 22;
+    
+    private static final ArrayList<SearchContext> pool = new ArrayList<>();
+    
+    // Lowered by tests, which cannot afford to fill a pool of the default size.
+    static int maxPooledCells = MAX_POOLED_CELLS;
+    
+    // Cells the contexts in the pool have room for, guarded by the pool.
+    static long pooledCells;
+    
+    // Heap indices of cells that are reached but not in the heap.
+    private static final int UNQUEUED = -1;
+    private static final int CLOSED = -2;
+    
+    int width;
+    int height;
+    boolean borrowed;
+    
+    // Values of a cell are only valid if its stamp equals the generation.
+    int[] stamps;
+    int generation;
+    
+    int[] g;
+    int[] parents;
+    
+    // Index of each reached cell in the heap, or UNQUEUED or CLOSED.
+    int[] heapIndices;
+    
+    int[] heap;
+    int[] priorities;
+    int heapSize;
+    
+    SearchContext(int width, int height) {
+        resize(width, height);
+    }
+    
+    /**
+     * Borrows a context for a grid of the specified size from the pool, or
+     * creates one if the pool is empty. The smallest pooled context with room
+     * for the grid is preferred; if none has room, the largest one is grown.
+     * The context starts a new search.
+     * 
+     * @param width  Width of the grid.
+     * @param height Height of the grid.
+     * @return A context that must be given back with {@link #release()}.
+     */
+    public static SearchContext acquire(int width, int height) {
+        if (width <= 0)
+            throw new IllegalArgumentException("Width must be positive: " + width);
+        if (height <= 0)
+            throw new IllegalArgumentException("Height must be positive: " + height);
+        
+        int numCells = width * height;
+        SearchContext context = null;
+        synchronized (pool) {
+            int best = -1;
+            for (int i = 0; i < pool.size(); i++)
+                if (best == -1 || isBetterFit(pool.get(i), pool.get(best), numCells))
+                    best = i;
+            
+            if (best != -1) {
+                context = pool.remove(best);
+                pooledCells -= context.capacity();
+            }
+        }
+        
+        if (context == null)
+            context = new SearchContext(width, height);
+        else
+            context.resize(width, height);
+        
+        context.borrowed = true;
+        context.reset();
+        return context;
+    }
+    
+    /**
+     * Gives this context back to the pool. The context must not be used after
+     * it has been released.
+     * 
+     * @throws IllegalStateException if the context is not borrowed.
+     */
+    public void release() {
+        if (!borrowed)
+            throw new IllegalStateException("Context is not borrowed");
+        
+        borrowed = false;
+        synchronized (pool) {
+            if (pool.size() < MAX_POOLED
+                    && pooledCells + capacity() <= maxPooledCells) {
+                pool.add(this);
+                pooledCells += capacity();
+            }
+        }
+    }
+    
+    /**
+     * Empties the pool.
+     */
+    static void clearPool() {
+        synchronized (pool) {
+            pool.clear();
+            pooledCells = 0;
+        }
+    }
+    
+    /**
+     * Returns whether a context suits a grid of the specified number of cells
+     * better than another one: contexts with room for the grid beat those
+     * without, the smaller of two that have room wins, and the larger of two
+     * that do not.
+     */
+    private static boolean isBetterFit(SearchContext context, SearchContext other,
+                                       int numCells) {
+        boolean fits = context.capacity() >= numCells;
+        if (fits != other.capacity() >= numCells)
+            return fits;
+        return fits ? context.capacity() < other.capacity()
+                    : context.capacity() > other.capacity();
+    }
+    
+    /**
+     * Returns the number of cells this context has room for.
+     */
+    int capacity() {
+        return stamps.length;
+    }
+    
+    public int getWidth() {
+        return width;
+    }
+    
+    public int getHeight() {
+        return height;
+    }
+    
+    /**
+     * Starts a new search, forgetting every cell reached so far and emptying
+     * the open set.
+     */
+    public void reset() {
+        
+        /* Once the counter runs out, stamps of the first generations could be
+         * mistaken for current ones, so they are cleared for real.
+         */
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            generation = 0;
+        }
+        
+        generation++;
+        heapSize = 0;
+    }
+    
+    /**
+     * Returns whether or not the specified cell has been reached during the
+     * current search.
+     * 
+     * @param cell Index of the cell.
+     * @return True if the cell has been reached, otherwise false.
+     */
+    public boolean isReached(int cell) {
+        return stamps[cell] == generation;
+    }
+    
+    /**
+     * Records the g-score and the parent of the specified cell. A cell reached
+     * for the first time is neither queued nor closed; otherwise its status is
+     * left as it was.
+     * 
+     * @param cell   Index of the cell.
+     * @param g      Cost of the best known path to the cell.
+     * @param parent Index of the cell the path arrives from, or {@link #NONE}.
+     */
+    public void reach(int cell, int g, int parent) {
+        if (stamps[cell] != generation) {
+            stamps[cell] = generation;
+            heapIndices[cell] = UNQUEUED;
+        }
+        
+        this.g[cell] = g;
+        this.parents[cell] = parent;
+    }
+    
+    /**
+     * Returns the g-score of the specified cell.
+     * 
+     * @param cell Index of a reached cell.
+     * @return Cost of the best known path to the cell.
+     */
+    public int getG(int cell) {
+        checkReached(cell);
+        return g[cell];
+    }
+    
+    /**
+     * Returns the parent of the specified cell.
+     * 
+     * @param cell Index of a reached cell.
+     * @return Index of the cell the best known path arrives from, or
+     *         {@link #NONE}.
+     */
+    public int getParent(int cell) {
+        checkReached(cell);
+        return parents[cell];
+    }
+    
+    /**
+     * Returns whether or not the specified cell has been closed during the
+     * current search.
+     * 
+     * @param cell Index of the cell.
+     * @return True if the cell is closed, otherwise false.
+     */
+    public boolean isClosed(int cell) {
+        return stamps[cell] == generation && heapIndices[cell] == CLOSED;
+    }
+    
+    /**
+     * Closes the specified cell, removing it from the open set if it is
+     * queued.
+     * 
+     * @param cell Index of a reached cell.
+     */
+    public void setClosed(int cell) {
+        checkReached(cell);
+        if (heapIndices[cell] >= 0)
+            removeAt(heapIndices[cell]);
+        heapIndices[cell] = CLOSED;
+    }
+    
+    /**
+     * Returns whether or not the specified cell is in the open set.
+     * 
+     * @param cell Index of the cell.
+     * @return True if the cell is queued, otherwise false.
+     */
+    public boolean isQueued(int cell) {
+        return stamps[cell] == generation && heapIndices[cell] >= 0;
+    }
+    
+    /**
+     * Adds the specified cell to the open set, or changes its priority if it
+     * is already queued. A closed cell is opened again.
+     * 
+     * @param cell     Index of a reached cell.
+     * @param priority Priority of the cell; the lowest is extracted first.
+     */
+    public void queue(int cell, int priority) {
+        checkReached(cell);
+        int index = heapIndices[cell];
+        if (index < 0) {
+            index = heapSize++;
+            heap[index] = cell;
+            heapIndices[cell] = index;
+        }
+        
+        priorities[index] = priority;
+        if (siftUp(index) == index)
+            siftDown(index);
+    }
+    
+    /**
+     * Returns whether or not the open set is empty.
+     * 
+     * @return True if no cell is queued, otherwise false.
+     */
+    public boolean isQueueEmpty() {
+        return heapSize == 0;
+    }
+    
+    /**
+     * Returns the number of cells in the open set.
+     * 
+     * @return An integer.
+     */
+    public int queueSize() {
+        return heapSize;
+    }
+    
+    /**
+     * Returns and removes a cell with the lowest priority from the open set.
+     * The cell is left reached but neither queued nor closed.
+     * 
+     * @return Index of the cell.
+     * @throws NoSuchElementException if the open set is empty.
+     */
+    public int extractMin() {
+        if (heapSize == 0)
+            throw new NoSuchElementException("Queue is empty");
+        
+        int cell = heap[0];
+        removeAt(0);
+        heapIndices[cell] = UNQUEUED;
+        return cell;
+    }
+    
+    /**
+     * Sets the size of the grid, growing the arrays if they are too small for
+     * it. Arrays that are large enough are kept as they are.
+     */
+    private void resize(int width, int height) {
+        this.width = width;
+        this.height = height;
+        
+        int numCells = width * height;
+        if (stamps != null && stamps.length >= numCells)
+            return;
+        
+        stamps = new int[numCells];
+        generation = 0;
+        g = new int[numCells];
+        parents = new int[numCells];
+        heapIndices = new int[numCells];
+        heap = new int[numCells];
+        priorities = new int[numCells];
+    }
+    
+    private void checkReached(int cell) {
+        if (stamps[cell] != generation)
+            throw new NoSuchElementException("Cell not reached: " + cell);
+    }
+    
+    private void removeAt(int index) {
+        int last = --heapSize;
+        if (index != last) {
+            place(heap[last], priorities[last], index);
+            
+            // The moved cell may belong either above or below its new slot.
+            if (siftUp(index) == index)
+                siftDown(index);
+        }
+    }
+    
+    /**
+     * Moves the cell at the specified heap index up until its parent has no
+     * greater priority.
+     * 
+     * @param index Heap index of the cell.
+     * @return The index the cell ended up in.
+     */
+    private int siftUp(int index) {
+        int cell = heap[index];
+        int priority = priorities[index];
+        
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (priority >= priorities[parent])
+                break;
+            
+            place(heap[parent], priorities[parent], index);
+            index = parent;
+        }
+        
+        place(cell, priority, index);
+        return index;
+    }
+    
+    /**
+     * Moves the cell at the specified heap index down until neither of its
+     * children has a lower priority.
+     * 
+     * @param index Heap index of the cell.
+     * @return The index the cell ended up in.
+     */
+    private int siftDown(int index) {
+        int cell = heap[index];
+        int priority = priorities[index];
+        int half = heapSize >>> 1;
+        
+        // Cells at or past half have no children.
+        while (index < half) {
+            int child = 2*index + 1;
+            int right = child + 1;
+            if (right < heapSize && priorities[right] < priorities[child])
+                child = right;
+            
+            if (priority <= priorities[child])
+                break;
+            
+            place(heap[child], priorities[child], index);
+            index = child;
+        }
+        
+        place(cell, priority, index);
+        return index;
+    }
+    
+    private void place(int cell, int priority, int index) {
+        heap[index] = cell;
+        priorities[index] = priority;
+        heapIndices[cell] = index;
+    }
+    
+}
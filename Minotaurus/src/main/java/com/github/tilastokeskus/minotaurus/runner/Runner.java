@@ -28,12 +28,15 @@ import com.github.tilastokeskus.minotaurus.Main;
 import com.github.tilastokeskus.minotaurus.maze.Maze;
 import com.github.tilastokeskus.minotaurus.maze.MazeEntity;
 import com.github.tilastokeskus.minotaurus.maze.TestMazeGenerator;
+import com.github.tilastokeskus.minotaurus.pathfinding.DistanceField;
+import com.github.tilastokeskus.minotaurus.pathfinding.DistanceFieldService;
 import com.github.tilastokeskus.minotaurus.plugin.Plugin;
 import com.github.tilastokeskus.minotaurus.scenario.TestScenario;
 import com.github.tilastokeskus.minotaurus.ui.TriangleShape;
 import com.github.tilastokeskus.minotaurus.util.ColorFactory;
 import com.github.tilastokeskus.minotaurus.util.Direction;
 import com.github.tilastokeskus.minotaurus.util.Position;
+import com.github.tilastokeskus.minotaurus.util.PositionPredicate;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Objects;
@@ -72,6 +75,9 @@ public abstract class Runner extends MazeEntity implements Plugin {
     
     protected String title;
     
+    // Shared by all runners of a simulation.
+    private DistanceFieldService distanceFields;
+    
     public Runner() {
         super(0, 0, new TriangleShape(10), ColorFactory.nextColor());
     }
@@ -93,11 +99,48 @@ public abstract class Runner extends MazeEntity implements Plugin {
      * @param maze Maze to navigate.
      * @param goals Goals to aim for.
      * @param positionPredicate Predicate to test if it is allowed to visit a
-     *                          position.
+     *                          position. {@link PositionPredicate#of} turns it
+     *                          into one that can be tested with plain
+     *                          coordinates.
      * @return A direction.
      */
     public abstract Direction getNextMove(Maze maze, 
             Collection<MazeEntity> goals, Predicate<Position> positionPredicate);
+    
+    /**
+     * Sets the service this runner gets its distance fields from. A
+     * simulation gives the same service to all of its runners, so that a
+     * distance field is only computed once for all of them.
+     * 
+     * @param service Service to use.
+     */
+    public void setDistanceFieldService(DistanceFieldService service) {
+        this.distanceFields = service;
+    }
+    
+    /**
+     * Returns the distance field of the specified goals in the specified maze,
+     * from which the shortest path to the nearest goal can be read from any
+     * position. The field only considers the maze's walls, not the position
+     * predicate.
+     * <p>
+     * Within a simulation the field is shared with the other runners, and only
+     * recomputed when the goals move or the maze changes. A runner outside a
+     * simulation gets a service of its own.
+     * 
+     * @param maze Maze given to {@link #getNextMove}.
+     * @param goals Goals given to {@link #getNextMove}.
+     * @return A distance field.
+     */
+    protected DistanceField getDistanceField(Maze maze, Collection<MazeEntity> goals) {
+        DistanceFieldService service = distanceFields;
+        if (service == null || service.getMaze() != maze) {
+            service = new DistanceFieldService(maze);
+            distanceFields = service;
+        }
+        
+        return service.getDistanceField(goals);
+    }
 
     @Override
     public boolean equals(Object obj) {
@@ -126,6 +169,7 @@ public abstract class Runner extends MazeEntity implements Plugin {
     public Runner clone() {
         Runner clone = (Runner) super.clone();
         clone.title = title;
+        clone.distanceFields = null;
         return clone;
     }
 }
\ No newline at end of file
@@ -26,8 +26,9 @@ package com.github.tilastokeskus.minotaurus.scenario;
 
 import com.github.tilastokeskus.minotaurus.maze.Maze;
 import java.util.Map;
+import java.util.Random;
 import com.github.tilastokeskus.minotaurus.runner.Runner;
-import com.github.tilastokeskus.minotaurus.util.HashMap;
+import com.github.tilastokeskus.minotaurus.util.ConcurrentHashMap;
 
 /**
  * A skeletal implementation of a Scenario to help creating scenarios as easily
@@ -35,17 +36,20 @@ import com.github.tilastokeskus.minotaurus.util.HashMap;
  */
 public abstract class AbstractScenario implements Scenario {
     
+    // Written by the simulation thread and read by the user interface.
     protected Map<Runner, Integer> scoreMap;    
     protected Maze maze;    
     protected String title;
+    protected Random random;
     
     public AbstractScenario() {
-        this.scoreMap = new HashMap<>();
+        this.scoreMap = new ConcurrentHashMap<>();
+        this.random = new Random();
     }
     
     @Override
     public void reset() {
-        this.scoreMap = new HashMap<>();
+        this.scoreMap = new ConcurrentHashMap<>();
         this.maze = null;
         _reset();
     }
@@ -62,14 +66,18 @@ public abstract class AbstractScenario implements Scenario {
     
     @Override
     public int getScore(Runner runner) {
-        return scoreMap.containsKey(runner) ? scoreMap.get(runner) : 0;
+        return scoreMap.getOrDefault(runner, 0);
     }
     
     @Override
     public int setScore(Runner runner, int score) {
-        int oldScore = scoreMap.containsKey(runner) ? scoreMap.get(runner) : 0;
-        scoreMap.put(runner, score);
-        return oldScore;
+        Integer oldScore = scoreMap.put(runner, score);
+        return oldScore != null ? oldScore : 0;
+    }
+    
+    @Override
+    public void setRandom(Random random) {
+        this.random = random;
     }
     
     @Override
@@ -86,8 +94,9 @@ public abstract class AbstractScenario implements Scenario {
     public AbstractScenario clone() {
         try {
             AbstractScenario clone = (AbstractScenario) super.clone();
-            clone.scoreMap = new HashMap<>();
+            clone.scoreMap = new ConcurrentHashMap<>();
             clone.title = title;
+            clone.random = new Random();
             if (maze != null)
                 clone.maze = maze.clone();
             return clone;
@@ -32,7 +32,9 @@ import java.util.List;
 import com.github.tilastokeskus.minotaurus.runner.Runner;
 import com.github.tilastokeskus.minotaurus.util.Direction;
 import com.github.tilastokeskus.minotaurus.util.Position;
+import com.github.tilastokeskus.minotaurus.util.PositionPredicate;
 import java.util.Map;
+import java.util.Random;
 import java.util.function.Predicate;
 
 /**
@@ -104,7 +106,9 @@ public interface Scenario extends Plugin {
     
     /**
      * Returns a predicate that tests if a position is allowed to be visited by
-     * a runner.
+     * a runner. Runners test many positions per move, so implementations
+     * should return a {@link PositionPredicate}, which runners can test
+     * without creating positions.
      * 
      * @param runner A Runner.
      * @return A predicate.
@@ -143,6 +147,17 @@ public interface Scenario extends Plugin {
      */
     void reset();
     
+    /**
+     * Sets the random number generator this scenario should draw all of its
+     * random numbers from. Scenarios that use randomness should override this,
+     * so that simulations with the same seed play out identically. By default
+     * the generator is ignored.
+     * 
+     * @param random A random number generator.
+     */
+    default void setRandom(Random random) {
+    }
+    
     /**
      * Returns a shallow copy of this class instance.
      * 
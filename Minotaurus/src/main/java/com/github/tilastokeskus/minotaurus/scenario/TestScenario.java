@@ -30,10 +30,10 @@ import com.github.tilastokeskus.minotaurus.maze.MazeEntity;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
-import java.util.Random;
 import com.github.tilastokeskus.minotaurus.runner.Runner;
 import com.github.tilastokeskus.minotaurus.util.Direction;
 import com.github.tilastokeskus.minotaurus.util.Position;
+import com.github.tilastokeskus.minotaurus.util.PositionPredicate;
 import java.util.Map;
 import java.util.function.Predicate;
 
@@ -103,7 +103,7 @@ public class TestScenario extends AbstractScenario {
 
         // If the runner tries to move illegally, skip its turn.
         if (maze.get(nx, ny) == MazeBlock.WALL
-                || !maze.getEntitiesAt(nx, ny).isEmpty())
+                || maze.entityCountAt(nx, ny) > 0)
             return false;
         
         setScore(runner, getScore(runner) + 1);
@@ -119,7 +119,8 @@ public class TestScenario extends AbstractScenario {
 
     @Override
     public Predicate<Position> getPositionPredicate(Runner runner) {
-        return pos -> maze.get(pos.x, pos.y) == MazeBlock.FLOOR;
+        PositionPredicate predicate = (x, y) -> maze.get(x, y) == MazeBlock.FLOOR;
+        return predicate;
     }
     
     private void resetGoal() {
@@ -127,11 +128,10 @@ public class TestScenario extends AbstractScenario {
         /* Randomly select a position in the maze until we find
          * an unoccupied one.
          */
-        Random r = new Random();
         int x, y;
         do {
-            x = r.nextInt(maze.getWidth());
-            y = r.nextInt(maze.getHeight());
+            x = random.nextInt(maze.getWidth());
+            y = random.nextInt(maze.getHeight());
         } while (maze.get(x, y) != MazeBlock.FLOOR);
         
         goal.setPosition(x, y);
@@ -142,4 +142,12 @@ public class TestScenario extends AbstractScenario {
         return null;
     }
     
+    @Override
+    public TestScenario clone() {
+        TestScenario clone = (TestScenario) super.clone();
+        clone.goal = goal.clone();
+        clone.runner = null;
+        return clone;
+    }
+    
 }
@@ -0,0 +1,143 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.simulation;
+
+import java.util.Arrays;
+
+/**
+ * Distribution of the scores one runner obtained over a number of games.
+ */
+public class ScoreDistribution {
+    
+    private final int[] scores;
+    private final int[] sorted;
+    
+    /**
+     * Creates a new distribution from the specified scores.
+     * 
+     * @param scores Scores, one per game.
+     */
+    public ScoreDistribution(int[] scores) {
+        this.scores = Arrays.copyOf(scores, scores.length);
+        this.sorted = Arrays.copyOf(scores, scores.length);
+        Arrays.sort(this.sorted);
+    }
+    
+    /**
+     * Returns the scores in the order the games were played.
+     * 
+     * @return An array of scores.
+     */
+    public int[] getScores() {
+        return Arrays.copyOf(scores, scores.length);
+    }
+    
+    /**
+     * Returns the number of scores in this distribution.
+     * 
+     * @return Number of games.
+     */
+    public int getCount() {
+        return scores.length;
+    }
+    
+    /**
+     * Returns the smallest score.
+     * 
+     * @return Minimum score, or 0 if there are no scores.
+     */
+    public int getMin() {
+        return sorted.length == 0 ? 0 : sorted[0];
+    }
+    
+    /**
+     * Returns the biggest score.
+     * 
+     * @return Maximum score, or 0 if there are no scores.
+     */
+    public int getMax() {
+        return sorted.length == 0 ? 0 : sorted[sorted.length - 1];
+    }
+    
+    /**
+     * Returns the arithmetic mean of the scores.
+     * 
+     * @return Mean score, or 0 if there are no scores.
+     */
+    public double getMean() {
+        if (scores.length == 0)
+            return 0;
+        
+        long sum = 0;
+        for (int score : scores)
+            sum += score;
+        
+        return sum / (double) scores.length;
+    }
+    
+    /**
+     * Returns the standard deviation of the scores.
+     * 
+     * @return Standard deviation, or 0 if there are no scores.
+     */
+    public double getStandardDeviation() {
+        if (scores.length == 0)
+            return 0;
+        
+        double mean = getMean();
+        double sum = 0;
+        for (int score : scores)
+            sum += (score - mean) * (score - mean);
+        
+        return Math.sqrt(sum / scores.length);
+    }
+    
+    /**
+     * Returns the score below which the specified percentage of scores fall,
+     * using the nearest-rank method.
+     * 
+     * @param percentile A percentage between 0 and 100.
+     * @return The score at the percentile, or 0 if there are no scores.
+     */
+    public int getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100)
+            throw new IllegalArgumentException("Percentile out of range: " + percentile);
+        if (sorted.length == 0)
+            return 0;
+        
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return sorted[Math.max(rank - 1, 0)];
+    }
+    
+    /**
+     * Returns the median score.
+     * 
+     * @return The median score, or 0 if there are no scores.
+     */
+    public int getMedian() {
+        return getPercentile(50);
+    }
+    
+}
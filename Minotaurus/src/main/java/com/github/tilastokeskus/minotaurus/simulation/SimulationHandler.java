@@ -25,18 +25,33 @@
 package com.github.tilastokeskus.minotaurus.simulation;
 
 import com.github.tilastokeskus.minotaurus.maze.Maze;
+import com.github.tilastokeskus.minotaurus.maze.MazeEntity;
 import com.github.tilastokeskus.minotaurus.maze.MazeGenerator;
+import com.github.tilastokeskus.minotaurus.pathfinding.DistanceFieldService;
 import com.github.tilastokeskus.minotaurus.scenario.Scenario;
 import com.github.tilastokeskus.minotaurus.util.Direction;
+import com.github.tilastokeskus.minotaurus.util.Position;
 import java.util.List;
 import java.util.Observable;
 import com.github.tilastokeskus.minotaurus.runner.Runner;
 import com.github.tilastokeskus.minotaurus.util.ArrayList;
 import com.github.tilastokeskus.minotaurus.util.Rotation;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -49,10 +64,29 @@ public class SimulationHandler extends Observable {
     
     private static final Logger LOGGER = Logger.getLogger(SimulationHandler.class.getName());
     
+    /**
+     * Width and height of the maze when no size is given.
+     */
+    public static final int DEFAULT_MAZE_SIZE = 50;
+    
     private final Maze maze;
+    private final DistanceFieldService distanceFields;
     private final Scenario scenario;
     private final List<Runner> runners;
+    private final List<Runner> participants;
+    private final long seed;
     private ScheduledExecutorService executor;
+    private ExecutorService decisionPool;
+    private boolean parallelDecisions;
+    private long moveTimeLimit;
+    
+    // Runners whose move is being decided, cleared by the deciding thread.
+    private final Set<Runner> busyRunners;
+    
+    private final Map<Runner, Integer> timeouts;
+    private volatile boolean running;
+    private boolean initialized;
+    private boolean headless;
 
     /**
      * Creates a new simulation handler with the given maze generator, scenario
@@ -63,28 +97,144 @@ public class SimulationHandler extends Observable {
      * @param runners Runners to use.
      */
     public SimulationHandler(MazeGenerator gen, Scenario scenario, List<Runner> runners) {
-        this.maze = gen.generateMaze(50, 50).clone();
+        this(gen, scenario, runners, new Random().nextLong());
+    }
+    
+    /**
+     * Creates a new simulation handler with the given maze generator, scenario,
+     * runners and seed. The maze generator and the scenario share a random
+     * number generator initialized with the seed, so two simulations with the
+     * same seed, plugins and limits play out identically.
+     * 
+     * @param gen Maze generator to use.
+     * @param scenario Scenario to use.
+     * @param runners Runners to use.
+     * @param seed Seed of the random number generator.
+     */
+    public SimulationHandler(MazeGenerator gen, Scenario scenario,
+            List<Runner> runners, long seed) {
+        this(gen, scenario, runners, seed, DEFAULT_MAZE_SIZE, DEFAULT_MAZE_SIZE);
+    }
+    
+    /**
+     * Creates a new simulation handler with the given maze generator, scenario,
+     * runners, seed and maze size.
+     * 
+     * @param gen Maze generator to use.
+     * @param scenario Scenario to use.
+     * @param runners Runners to use.
+     * @param seed Seed of the random number generator.
+     * @param mazeWidth Width of the generated maze.
+     * @param mazeHeight Height of the generated maze.
+     * @see #SimulationHandler(MazeGenerator, Scenario, List, long)
+     */
+    public SimulationHandler(MazeGenerator gen, Scenario scenario,
+            List<Runner> runners, long seed, int mazeWidth, int mazeHeight) {
+        if (mazeWidth <= 0 || mazeHeight <= 0)
+            throw new IllegalArgumentException("Maze size must be positive: "
+                    + mazeWidth + "x" + mazeHeight);
+        
+        Random random = new Random(seed);
+        this.maze = gen.generateMaze(mazeWidth, mazeHeight, random).clone();
+        this.distanceFields = new DistanceFieldService(maze);
         this.scenario = scenario;
         this.runners = runners;
+        this.participants = new ArrayList<>(runners);
+        this.seed = seed;
+        this.busyRunners = Collections.newSetFromMap(
+                Collections.synchronizedMap(new IdentityHashMap<>()));
+        this.timeouts = new IdentityHashMap<>();
+        scenario.setRandom(random);
+    }
+    
+    /**
+     * Sets whether the runners decide their moves concurrently. By default
+     * the runners take turns: each runner decides its move and has it applied
+     * before the next runner is asked, so later runners see the moves of
+     * earlier ones.
+     * <p>
+     * In parallel mode, all runners are first asked for their moves at the
+     * same time, each in its own thread, and the moves are then applied one
+     * by one in the order of the runners. The maze is not modified while the
+     * runners are deciding, so they all see it as it was at the start of the
+     * round. A move that has become illegal because of the moves applied
+     * before it removes the runner as usual. With several slow runners, a
+     * round then takes as long as the slowest runner instead of all of them
+     * combined.
+     * <p>
+     * Runners must not modify the maze or any state they share with other
+     * runners in {@link Runner#getNextMove}.
+     * 
+     * @param parallelDecisions True to let the runners decide concurrently.
+     */
+    public void setParallelDecisions(boolean parallelDecisions) {
+        this.parallelDecisions = parallelDecisions;
+    }
+    
+    /**
+     * Sets the time each runner has to decide its move. A runner that does
+     * not decide in time does not move that round, and the timeout is
+     * recorded in the runner's timeout count. The scenario is not consulted
+     * about such a runner at all; it simply stays where it is.
+     * <p>
+     * With a time limit, the runners' moves are decided in separate threads
+     * so that the simulation can go on without them. A runner that runs out
+     * of time is interrupted, and its late move is thrown away. A runner that
+     * is still working on a move it ran out of time for is not asked for a
+     * new one until it has returned; it times out on every round until then.
+     * When the simulation ends or is stopped, the threads still deciding are
+     * interrupted once more. A runner that ignores interrupts keeps its
+     * thread busy until it returns on its own.
+     * <p>
+     * A late runner keeps reading the live maze while the simulation goes on,
+     * so it sees the maze being modified under it: other runners move and the
+     * scenario moves goals and changes blocks. Each query of the maze is
+     * consistent on its own, but two queries may see different rounds.
+     * 
+     * @param moveTimeLimit Time limit for each move, in milliseconds, or 0 for
+     *                      no limit.
+     */
+    public void setMoveTimeLimit(long moveTimeLimit) {
+        if (moveTimeLimit < 0)
+            throw new IllegalArgumentException("Negative time limit: " + moveTimeLimit);
         
-        executor = Executors.newSingleThreadScheduledExecutor();
+        this.moveTimeLimit = moveTimeLimit;
+    }
+    
+    /**
+     * Returns the number of times the runner has run out of time deciding its
+     * move.
+     * 
+     * @param runner A runner of this simulation.
+     * @return Number of timeouts.
+     * @see #setMoveTimeLimit(long)
+     */
+    public int getTimeouts(Runner runner) {
+        Integer count = timeouts.get(runner);
+        return count == null ? 0 : count;
+    }
+    
+    /**
+     * Returns the service the runners of this simulation share their distance
+     * fields through.
+     * 
+     * @return The distance field service.
+     */
+    public DistanceFieldService getDistanceFieldService() {
+        return distanceFields;
     }
     
     /**
      * Starts the simulation with the specified speed.
      * 
      * @param rate Delay, in milliseconds, between each move.
+     * @param cap  Score at which the simulation is stopped, or 0 for no cap.
      */
     public void startSimulation(int rate, int cap) {
+        initialize();
+        running = true;
         
-        // Initialize the scenario and ask it to place the runners in the maze.
-        this.scenario.setMaze(maze);
-        this.scenario.placeRunners(runners);
-        
-        // Place runners in the maze.
-        for (Runner runner : runners)
-            maze.addEntity(runner);
-        
+        executor = Executors.newSingleThreadScheduledExecutor();
         executor.scheduleWithFixedDelay(() -> {
             
             // Wrap call to try-catch, since Future devours exceptions.
@@ -94,26 +244,114 @@ public class SimulationHandler extends Observable {
                 LOGGER.log(Level.SEVERE, "", ex);
             }
             
-            if (runners.isEmpty())
+            if (runners.isEmpty() || isCapReached(cap))
                 stop();
             
-            if (cap > 0) {
-                for (Runner r : runners) {
-                    if (scenario.getScore(r) >= cap) {
-                        stop();
-                        break;
-                    }
-                }
-            }
+            this.setChanged();
+            this.notifyObservers();
         }, rate, rate, TimeUnit.MILLISECONDS);
     }
     
+    /**
+     * Runs the simulation on the calling thread as fast as possible. Rounds
+     * are simulated back to back without any delay, observers are not
+     * notified and runners' shapes are not rotated, as there is no one to
+     * draw them. The simulation ends when a limit is reached, when all
+     * runners have been removed from it or when {@link #stop()} is called.
+     * 
+     * @param maxRounds Number of rounds after which the simulation is stopped,
+     *                  or 0 for no limit.
+     * @param cap       Score at which the simulation is stopped, or 0 for no
+     *                  cap.
+     * @param timeLimit Wall-clock time, in milliseconds, after which the
+     *                  simulation is stopped, or 0 for no limit.
+     * @return Final scores and timing of the simulation.
+     * @throws IllegalArgumentException if no limit is given.
+     */
+    public SimulationResult runHeadless(int maxRounds, int cap, long timeLimit) {
+        if (maxRounds <= 0 && cap <= 0 && timeLimit <= 0)
+            throw new IllegalArgumentException("No limit given, simulation would never end");
+        
+        initialize();
+        headless = true;
+        running = true;
+        
+        long limitNanos = TimeUnit.MILLISECONDS.toNanos(timeLimit);
+        long start = System.nanoTime();
+        int rounds = 0;
+        
+        while (running && !runners.isEmpty()) {
+            simulateRound();
+            rounds++;
+            
+            if ((maxRounds > 0 && rounds >= maxRounds) || isCapReached(cap))
+                break;
+            if (timeLimit > 0 && System.nanoTime() - start >= limitNanos)
+                break;
+        }
+        
+        long elapsed = System.nanoTime() - start;
+        running = false;
+        shutdownDecisionPool();
+        
+        int[] scores = new int[participants.size()];
+        int[] timeoutCounts = new int[participants.size()];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = scenario.getScore(participants.get(i));
+            timeoutCounts[i] = getTimeouts(participants.get(i));
+        }
+        
+        return new SimulationResult(participants, scores, timeoutCounts,
+                rounds, elapsed, seed);
+    }
+    
+    /**
+     * Initializes the scenario and asks it to place the runners in the maze.
+     * Does nothing if the simulation has already been initialized.
+     */
+    private void initialize() {
+        if (initialized)
+            return;
+        
+        this.scenario.setMaze(maze);
+        this.scenario.placeRunners(runners);
+        
+        // Place runners in the maze, and let them share distance fields.
+        for (Runner runner : runners) {
+            maze.addEntity(runner);
+            runner.setDistanceFieldService(distanceFields);
+        }
+        
+        initialized = true;
+    }
+    
+    private boolean isCapReached(int cap) {
+        if (cap <= 0)
+            return false;
+        
+        for (Runner r : runners)
+            if (scenario.getScore(r) >= cap)
+                return true;
+        
+        return false;
+    }
+    
     /**
      * Simulates a single round, a round being when all runners have moved once.
      * If a runner makes a move that is not allowed, that runner will be removed
      * from the simulation.
      */
     private void simulateRound() {
+        if (moveTimeLimit > 0) {
+            simulateRoundWithTimeLimit();
+            return;
+        }
+        
+        if (parallelDecisions && runners.size() > 1) {
+            simulateRoundInParallel();
+            return;
+        }
+        
         Iterator<Runner> it = runners.iterator();
         while (it.hasNext()) {
             Runner runner = it.next();
@@ -123,40 +361,274 @@ public class SimulationHandler extends Observable {
                     scenario.getRunnerGoals(runner), 
                     scenario.getPositionPredicate(runner));
             
-            boolean acceptedMove = scenario.handleRunnerMove(runner, dir);
+            applyMove(it, runner, dir);
+        }
+    }
+    
+    /**
+     * Simulates a single round by first asking all runners for their moves
+     * concurrently, and then applying the moves in the order of the runners.
+     */
+    private void simulateRoundInParallel() {
+        /* Goals and predicates are fetched beforehand, as scenarios are not
+         * expected to be thread-safe.
+         */
+        List<Callable<Direction>> decisions = new ArrayList<>();
+        for (Runner runner : runners) {
+            List<MazeEntity> goals = scenario.getRunnerGoals(runner);
+            Predicate<Position> predicate = scenario.getPositionPredicate(runner);
+            decisions.add(() -> runner.getNextMove(maze, goals, predicate));
+        }
+        
+        List<Future<Direction>> moves;
+        try {
+            moves = getDecisionPool().invokeAll(decisions);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            stop();
+            return;
+        } catch (RejectedExecutionException ex) {
             
-            if (acceptedMove) {
+            // The simulation was stopped in the middle of the round.
+            return;
+        }
+        
+        Iterator<Runner> it = runners.iterator();
+        for (Future<Direction> move : moves)
+            applyMove(it, it.next(), getMove(move));
+    }
+    
+    /**
+     * Simulates a single round, giving each runner at most the move time limit
+     * to decide its move. In parallel mode all runners start deciding at the
+     * same time and share the same deadline; otherwise each runner gets its
+     * own deadline when its turn comes.
+     */
+    private void simulateRoundWithTimeLimit() {
+        long limit = TimeUnit.MILLISECONDS.toNanos(moveTimeLimit);
+        Iterator<Runner> it = runners.iterator();
+        
+        if (parallelDecisions) {
+            List<Future<Direction>> moves = new ArrayList<>();
+            for (Runner runner : runners)
+                moves.add(startMove(runner));
+            
+            /* All moves are collected before any of them is applied, so that
+             * the maze stays as it was while the runners are deciding.
+             */
+            long deadline = System.nanoTime() + limit;
+            List<Direction> dirs = new ArrayList<>();
+            for (Future<Direction> move : moves)
+                dirs.add(awaitMove(it.next(), move, deadline));
             
-                // Update the runner to point in the direction it moved.
-                switch (dir) {
-                    case UP:
-                        runner.setRotation(Rotation.UP.angle);
-                        break;
-                    case RIGHT:
-                        runner.setRotation(Rotation.RIGHT.angle);
-                        break;
-                    case DOWN:
-                        runner.setRotation(Rotation.DOWN.angle);
-                        break;
-                    case LEFT:
-                        runner.setRotation(Rotation.LEFT.angle);
-                        break;
+            it = runners.iterator();
+            for (Direction dir : dirs) {
+                Runner runner = it.next();
+                if (dir != null)
+                    applyMove(it, runner, dir);
+            }
+        } else {
+            while (it.hasNext()) {
+                Runner runner = it.next();
+                Future<Direction> move = startMove(runner);
+                Direction dir = awaitMove(runner, move, System.nanoTime() + limit);
+                if (dir != null)
+                    applyMove(it, runner, dir);
+            }
+        }
+    }
+    
+    /**
+     * Starts asking the runner for its next move in a separate thread.
+     * 
+     * @param runner Runner to ask.
+     * @return The pending move, or null if the runner is still working on a
+     *         move it ran out of time for.
+     */
+    private Future<Direction> startMove(Runner runner) {
+        
+        /* A cancelled move is done as soon as it is cancelled, so whether the
+         * runner is still deciding is tracked by the task itself.
+         */
+        if (!busyRunners.add(runner))
+            return null;
+        
+        List<MazeEntity> goals = scenario.getRunnerGoals(runner);
+        Predicate<Position> predicate = scenario.getPositionPredicate(runner);
+        try {
+            return getDecisionPool().submit(() -> {
+                try {
+                    return runner.getNextMove(maze, goals, predicate);
+                } finally {
+                    busyRunners.remove(runner);
                 }
-            } else {
-                System.out.println("illegal");
-                it.remove();
+            });
+        } catch (RejectedExecutionException ex) {
+            busyRunners.remove(runner);
+            throw ex;
+        }
+    }
+    
+    /**
+     * Waits for the runner's move until the deadline.
+     * 
+     * @param runner Runner whose move to wait for.
+     * @param move The pending move, or null if the runner is still busy.
+     * @param deadline Deadline as given by {@link System#nanoTime()}.
+     * @return The move, or null if the runner ran out of time or the
+     *         simulation was interrupted.
+     */
+    private Direction awaitMove(Runner runner, Future<Direction> move, long deadline) {
+        if (move != null) {
+            try {
+                return getMove(move, deadline - System.nanoTime());
+            } catch (TimeoutException ex) {
+                move.cancel(true);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                stop();
+                return null;
             }
         }
         
-        this.setChanged();
-        this.notifyObservers();
+        LOGGER.log(Level.FINE, "{0} ran out of time", runner);
+        timeouts.put(runner, getTimeouts(runner) + 1);
+        return null;
+    }
+    
+    /**
+     * Waits at most the given time for a move a runner is deciding,
+     * rethrowing any exception the runner threw.
+     */
+    private Direction getMove(Future<Direction> move, long timeout)
+            throws TimeoutException, InterruptedException {
+        try {
+            return move.get(Math.max(timeout, 0), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException ex) {
+            throw rethrow(ex);
+        }
+    }
+    
+    /**
+     * Returns the move a runner decided on, rethrowing any exception the
+     * runner threw.
+     */
+    private Direction getMove(Future<Direction> move) {
+        try {
+            return move.get();
+        } catch (ExecutionException ex) {
+            throw rethrow(ex);
+        } catch (InterruptedException ex) {
+            
+            // The future is already done, so this should never happen.
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+    
+    /**
+     * Rethrows the exception a runner threw while deciding its move.
+     */
+    private RuntimeException rethrow(ExecutionException ex) {
+        Throwable cause = ex.getCause();
+        if (cause instanceof RuntimeException)
+            throw (RuntimeException) cause;
+        if (cause instanceof Error)
+            throw (Error) cause;
+        throw new IllegalStateException(cause);
+    }
+    
+    /**
+     * Lets the scenario handle the runner's move, and removes the runner from
+     * the simulation if the move is not allowed.
+     * 
+     * @param it Iterator of the runners, positioned at the runner.
+     * @param runner Runner that moves.
+     * @param dir Direction the runner moves in.
+     */
+    private void applyMove(Iterator<Runner> it, Runner runner, Direction dir) {
+        boolean acceptedMove = scenario.handleRunnerMove(runner, dir);
+
+        if (acceptedMove) {
+            if (!headless)
+                rotate(runner, dir);
+        } else {
+            LOGGER.log(Level.FINE, "Illegal move by {0}", runner);
+            it.remove();
+        }
+    }
+    
+    /**
+     * Updates the runner to point in the direction it moved.
+     * 
+     * @param runner Runner to rotate.
+     * @param dir Direction the runner moved in.
+     */
+    private void rotate(Runner runner, Direction dir) {
+        switch (dir) {
+            case UP:
+                runner.setRotation(Rotation.UP.angle);
+                break;
+            case RIGHT:
+                runner.setRotation(Rotation.RIGHT.angle);
+                break;
+            case DOWN:
+                runner.setRotation(Rotation.DOWN.angle);
+                break;
+            case LEFT:
+                runner.setRotation(Rotation.LEFT.angle);
+                break;
+        }
     }
     
     /**
      * Stops the simulation.
      */
     public void stop() {
-        executor.shutdown();
+        running = false;
+        if (executor != null)
+            executor.shutdown();
+        shutdownDecisionPool();
+    }
+    
+    private synchronized ExecutorService getDecisionPool() {
+        if (decisionPool == null) {
+            
+            // Daemon threads, so that an abandoned simulation never keeps the
+            // program running.
+            decisionPool = Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "runner-decision");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        
+        return decisionPool;
+    }
+    
+    private synchronized void shutdownDecisionPool() {
+        if (decisionPool != null)
+            decisionPool.shutdownNow();
+        decisionPool = null;
+    }
+    
+    /**
+     * Returns whether or not the simulation is currently running.
+     * 
+     * @return True if the simulation has been started and not yet stopped.
+     */
+    public boolean isRunning() {
+        return running;
+    }
+    
+    /**
+     * Returns the seed of this simulation's random number generator. Passing
+     * it to a new simulation handler reproduces this simulation.
+     * 
+     * @return The seed.
+     */
+    public long getSeed() {
+        return seed;
     }
     
     public Maze getMaze() {
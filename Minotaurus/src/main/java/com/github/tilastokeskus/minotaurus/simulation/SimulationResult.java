@@ -0,0 +1,156 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.simulation;
+
+import com.github.tilastokeskus.minotaurus.maze.MazeGenerator;
+import com.github.tilastokeskus.minotaurus.runner.Runner;
+import com.github.tilastokeskus.minotaurus.scenario.Scenario;
+import com.github.tilastokeskus.minotaurus.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The outcome of a simulation: the final score of each runner and how long it
+ * took to reach it.
+ */
+public class SimulationResult {
+    
+    private final List<Runner> runners;
+    private final int[] scores;
+    private final int[] timeouts;
+    private final int rounds;
+    private final long elapsedNanos;
+    private final long seed;
+    
+    /**
+     * Creates a new simulation result.
+     * 
+     * @param runners      Runners that took part in the simulation.
+     * @param scores       Final score of each runner, in the same order as
+     *                     {@code runners}.
+     * @param timeouts     Number of times each runner ran out of time deciding
+     *                     its move, in the same order as {@code runners}.
+     * @param rounds       Number of rounds that were simulated.
+     * @param elapsedNanos Wall-clock time the simulation took, in nanoseconds.
+     * @param seed         Seed the simulation was run with.
+     */
+    public SimulationResult(List<Runner> runners, int[] scores, int[] timeouts,
+            int rounds, long elapsedNanos, long seed) {
+        this.runners = new ArrayList<>(runners);
+        this.scores = Arrays.copyOf(scores, scores.length);
+        this.timeouts = Arrays.copyOf(timeouts, timeouts.length);
+        this.rounds = rounds;
+        this.elapsedNanos = elapsedNanos;
+        this.seed = seed;
+    }
+    
+    /**
+     * Returns the runners that took part in the simulation, including the ones
+     * that were removed from it during the simulation.
+     * 
+     * @return A list of runners.
+     */
+    public List<Runner> getRunners() {
+        return new ArrayList<>(runners);
+    }
+    
+    /**
+     * Returns the final score of the runner at the specified index of
+     * {@link #getRunners()}.
+     * 
+     * @param index Index of the runner.
+     * @return The runner's final score.
+     */
+    public int getScore(int index) {
+        return scores[index];
+    }
+    
+    /**
+     * Returns the final score of the specified runner.
+     * 
+     * @param runner A Runner.
+     * @return The runner's final score, or 0 if it didn't take part in the
+     *         simulation.
+     */
+    public int getScore(Runner runner) {
+        for (int i = 0; i < runners.size(); i++)
+            if (runners.get(i) == runner)
+                return scores[i];
+        
+        return 0;
+    }
+    
+    /**
+     * Returns the number of times the runner at the specified index of
+     * {@link #getRunners()} ran out of time deciding its move.
+     * 
+     * @param index Index of the runner.
+     * @return Number of timeouts.
+     * @see SimulationHandler#setMoveTimeLimit(long)
+     */
+    public int getTimeouts(int index) {
+        return timeouts[index];
+    }
+    
+    /**
+     * Returns the number of rounds that were simulated.
+     * 
+     * @return Number of rounds.
+     */
+    public int getRounds() {
+        return rounds;
+    }
+    
+    /**
+     * Returns the wall-clock time the simulation took.
+     * 
+     * @return Elapsed time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+    
+    /**
+     * Returns the average number of rounds simulated per second.
+     * 
+     * @return Rounds per second, or 0 if no time was measured.
+     */
+    public double getRoundsPerSecond() {
+        if (elapsedNanos <= 0)
+            return 0;
+        return rounds / (elapsedNanos / 1e9);
+    }
+    
+    /**
+     * Returns the seed the simulation was run with.
+     * 
+     * @return The seed.
+     * @see SimulationHandler#SimulationHandler(MazeGenerator, Scenario, List, long)
+     */
+    public long getSeed() {
+        return seed;
+    }
+    
+}
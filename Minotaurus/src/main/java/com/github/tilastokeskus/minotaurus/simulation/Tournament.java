@@ -0,0 +1,220 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.simulation;
+
+import com.github.tilastokeskus.minotaurus.maze.MazeGenerator;
+import com.github.tilastokeskus.minotaurus.runner.Runner;
+import com.github.tilastokeskus.minotaurus.scenario.Scenario;
+import com.github.tilastokeskus.minotaurus.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tournament plays a number of independent headless simulations with the same
+ * maze generator, scenario and runners, and aggregates their results. The
+ * games are spread over a work-stealing thread pool; each game works on its
+ * own clones of the generator, scenario and runners, so the given instances
+ * are never modified.
+ */
+public class Tournament {
+    
+    private static final Logger LOGGER = Logger.getLogger(Tournament.class.getName());
+    
+    private final MazeGenerator generator;
+    private final Scenario scenario;
+    private final List<Runner> runners;
+    private final int games;
+    
+    private int maxRounds;
+    private int cap;
+    private long timeLimit;
+    private int parallelism;
+    private long moveTimeLimit;
+    private Long seed;
+    private int mazeWidth;
+    private int mazeHeight;
+
+    /**
+     * Creates a new tournament. By default each game lasts at most 1000
+     * rounds, is played in a maze of the default size, and as many games are
+     * played at a time as there are available processors.
+     * 
+     * @param generator Maze generator to use.
+     * @param scenario  Scenario to use.
+     * @param runners   Runners taking part in each game.
+     * @param games     Number of games to play.
+     */
+    public Tournament(MazeGenerator generator, Scenario scenario,
+            List<Runner> runners, int games) {
+        if (games <= 0)
+            throw new IllegalArgumentException("Number of games must be positive: " + games);
+        
+        this.generator = generator;
+        this.scenario = scenario;
+        this.runners = new ArrayList<>(runners);
+        this.games = games;
+        this.maxRounds = 1000;
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+        this.mazeWidth = SimulationHandler.DEFAULT_MAZE_SIZE;
+        this.mazeHeight = SimulationHandler.DEFAULT_MAZE_SIZE;
+    }
+    
+    /**
+     * Sets the limits each game is played with. At least one of the limits
+     * must be given.
+     * 
+     * @param maxRounds Number of rounds after which a game is stopped, or 0
+     *                  for no limit.
+     * @param cap       Score at which a game is stopped, or 0 for no cap.
+     * @param timeLimit Wall-clock time, in milliseconds, after which a game is
+     *                  stopped, or 0 for no limit.
+     * @see SimulationHandler#runHeadless(int, int, long)
+     */
+    public void setLimits(int maxRounds, int cap, long timeLimit) {
+        if (maxRounds <= 0 && cap <= 0 && timeLimit <= 0)
+            throw new IllegalArgumentException("No limit given, games would never end");
+        
+        this.maxRounds = maxRounds;
+        this.cap = cap;
+        this.timeLimit = timeLimit;
+    }
+    
+    /**
+     * Sets the number of games played at a time.
+     * 
+     * @param parallelism Number of worker threads.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism <= 0)
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        
+        this.parallelism = parallelism;
+    }
+    
+    /**
+     * Sets the time each runner has to decide its move in each game.
+     * 
+     * @param moveTimeLimit Time limit for each move, in milliseconds, or 0 for
+     *                      no limit.
+     * @see SimulationHandler#setMoveTimeLimit(long)
+     */
+    public void setMoveTimeLimit(long moveTimeLimit) {
+        if (moveTimeLimit < 0)
+            throw new IllegalArgumentException("Negative time limit: " + moveTimeLimit);
+        
+        this.moveTimeLimit = moveTimeLimit;
+    }
+    
+    /**
+     * Sets the size of the maze each game is played in.
+     * 
+     * @param width  Width of the maze.
+     * @param height Height of the maze.
+     */
+    public void setMazeSize(int width, int height) {
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("Maze size must be positive: "
+                    + width + "x" + height);
+        
+        this.mazeWidth = width;
+        this.mazeHeight = height;
+    }
+    
+    /**
+     * Sets the seed the seeds of the individual games are derived from. With a
+     * seed, running the tournament again with the same plugins and limits
+     * plays exactly the same games, regardless of the order in which the games
+     * get executed. Without a seed, each game gets a random seed.
+     * 
+     * @param seed Seed of the tournament.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+    
+    /**
+     * Plays all games and blocks until they have finished. A game that throws
+     * an exception is logged and counted as failed; it does not affect the
+     * other games.
+     * 
+     * @return Aggregated results of the games.
+     * @throws InterruptedException if the calling thread is interrupted while
+     *                              waiting for the games to finish.
+     */
+    public TournamentResult run() throws InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        List<Future<SimulationResult>> futures = new ArrayList<>();
+        Random random = seed == null ? new Random() : new Random(seed);
+        long start = System.nanoTime();
+        
+        try {
+            for (int i = 0; i < games; i++) {
+                long gameSeed = random.nextLong();
+                futures.add(pool.submit(() -> playGame(gameSeed)));
+            }
+            
+            List<SimulationResult> results = new ArrayList<>();
+            int failed = 0;
+            for (Future<SimulationResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException ex) {
+                    LOGGER.log(Level.SEVERE, "Game failed", ex.getCause());
+                    failed++;
+                }
+            }
+            
+            return new TournamentResult(runners, results, failed,
+                    System.nanoTime() - start);
+        } finally {
+            pool.shutdownNow();
+            pool.awaitTermination(1, TimeUnit.SECONDS);
+        }
+    }
+    
+    /**
+     * Plays a single game with fresh clones of the generator, scenario and
+     * runners.
+     */
+    private SimulationResult playGame(long gameSeed) {
+        List<Runner> gameRunners = new ArrayList<>();
+        for (Runner runner : runners)
+            gameRunners.add(runner.clone());
+        
+        SimulationHandler handler = new SimulationHandler(
+                generator.clone(), scenario.clone(), gameRunners, gameSeed,
+                mazeWidth, mazeHeight);
+        handler.setMoveTimeLimit(moveTimeLimit);
+        
+        return handler.runHeadless(maxRounds, cap, timeLimit);
+    }
+    
+}
@@ -0,0 +1,168 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.simulation;
+
+import com.github.tilastokeskus.minotaurus.runner.Runner;
+import com.github.tilastokeskus.minotaurus.util.ArrayList;
+import java.util.List;
+
+/**
+ * Aggregated results of a tournament: a score distribution and the number of
+ * won games for each runner.
+ */
+public class TournamentResult {
+    
+    private final List<Runner> runners;
+    private final List<SimulationResult> games;
+    private final int failedGames;
+    private final long elapsedNanos;
+    
+    /**
+     * Creates a new tournament result.
+     * 
+     * @param runners      Runners that took part in the tournament.
+     * @param games        Results of the games that were played to the end.
+     * @param failedGames  Number of games that ended in an exception.
+     * @param elapsedNanos Wall-clock time the tournament took, in nanoseconds.
+     */
+    public TournamentResult(List<Runner> runners, List<SimulationResult> games,
+            int failedGames, long elapsedNanos) {
+        this.runners = new ArrayList<>(runners);
+        this.games = new ArrayList<>(games);
+        this.failedGames = failedGames;
+        this.elapsedNanos = elapsedNanos;
+    }
+    
+    /**
+     * Returns the runners that took part in the tournament.
+     * 
+     * @return A list of runners.
+     */
+    public List<Runner> getRunners() {
+        return new ArrayList<>(runners);
+    }
+    
+    /**
+     * Returns the results of the individual games, in the order they were
+     * created in.
+     * 
+     * @return A list of simulation results.
+     */
+    public List<SimulationResult> getGames() {
+        return new ArrayList<>(games);
+    }
+    
+    /**
+     * Returns the number of games that were played to the end.
+     * 
+     * @return Number of games.
+     */
+    public int getCompletedGames() {
+        return games.size();
+    }
+    
+    /**
+     * Returns the number of games that ended in an exception, and are
+     * therefore not included in the results.
+     * 
+     * @return Number of failed games.
+     */
+    public int getFailedGames() {
+        return failedGames;
+    }
+    
+    /**
+     * Returns the wall-clock time the tournament took.
+     * 
+     * @return Elapsed time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+    
+    /**
+     * Returns the total number of rounds simulated in all games.
+     * 
+     * @return Number of rounds.
+     */
+    public long getTotalRounds() {
+        long rounds = 0;
+        for (SimulationResult game : games)
+            rounds += game.getRounds();
+        return rounds;
+    }
+    
+    /**
+     * Returns the distribution of the scores the runner at the specified
+     * index of {@link #getRunners()} obtained.
+     * 
+     * @param index Index of the runner.
+     * @return A score distribution.
+     */
+    public ScoreDistribution getScoreDistribution(int index) {
+        int[] scores = new int[games.size()];
+        for (int i = 0; i < scores.length; i++)
+            scores[i] = games.get(i).getScore(index);
+        
+        return new ScoreDistribution(scores);
+    }
+    
+    /**
+     * Returns the total number of times the runner at the specified index of
+     * {@link #getRunners()} ran out of time deciding its move, over all games.
+     * 
+     * @param index Index of the runner.
+     * @return Number of timeouts.
+     */
+    public long getTimeouts(int index) {
+        long count = 0;
+        for (SimulationResult game : games)
+            count += game.getTimeouts(index);
+        return count;
+    }
+    
+    /**
+     * Returns the number of games in which the runner at the specified index
+     * of {@link #getRunners()} had the highest score. A game with a shared
+     * highest score counts as a win for all runners sharing it.
+     * 
+     * @param index Index of the runner.
+     * @return Number of games won.
+     */
+    public int getWins(int index) {
+        int wins = 0;
+        for (SimulationResult game : games) {
+            int score = game.getScore(index);
+            boolean best = true;
+            for (int i = 0; i < runners.size() && best; i++)
+                best = game.getScore(i) <= score;
+            if (best)
+                wins++;
+        }
+        
+        return wins;
+    }
+    
+}
@@ -26,6 +26,9 @@ package com.github.tilastokeskus.minotaurus.util;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 
 public class ArrayList<E> extends AbstractList<E> {
     
@@ -116,6 +119,17 @@ public class ArrayList<E> extends AbstractList<E> {
         return a;
     }
     
+    /**
+     * Returns a spliterator that splits the backing array in halves, so that
+     * parallel streams over this list divide the work evenly.
+     * 
+     * @return A late-binding, fail-fast spliterator.
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return new ArrayListSpliterator(0, -1, 0);
+    }
+    
     void shiftElements(int startIndex) {
         int elementsToShift = numElements - startIndex;
         System.arraycopy(data, startIndex, data, startIndex + 1, elementsToShift);
@@ -145,5 +159,76 @@ public class ArrayList<E> extends AbstractList<E> {
         if (index < 0 || index > size())
             throw new IndexOutOfBoundsException("" + index);
     }
+    
+    final class ArrayListSpliterator implements Spliterator<E> {
+        
+        int index;
+        
+        // One past the last index, or -1 until the first use.
+        int fence;
+        int expectedMods;
+        
+        ArrayListSpliterator(int origin, int fence, int expectedMods) {
+            this.index = origin;
+            this.fence = fence;
+            this.expectedMods = expectedMods;
+        }
+        
+        private int getFence() {
+            if (fence < 0) {
+                expectedMods = mods;
+                fence = numElements;
+            }
+            
+            return fence;
+        }
+
+        @Override
+        public Spliterator<E> trySplit() {
+            int hi = getFence();
+            int lo = index;
+            int mid = (lo + hi) >>> 1;
+            if (lo >= mid)
+                return null;
+            
+            index = mid;
+            return new ArrayListSpliterator(lo, mid, expectedMods);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super E> action) {
+            int hi = getFence();
+            if (index >= hi)
+                return false;
+            
+            E e = (E) data[index++];
+            action.accept(e);
+            if (expectedMods != mods)
+                throw new ConcurrentModificationException();
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super E> action) {
+            int hi = getFence();
+            Object[] d = data;
+            for (int i = index; i < hi; i++)
+                action.accept((E) d[i]);
+            
+            index = hi;
+            if (expectedMods != mods)
+                throw new ConcurrentModificationException();
+        }
+
+        @Override
+        public long estimateSize() {
+            return getFence() - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+        }
+    }
 
 }
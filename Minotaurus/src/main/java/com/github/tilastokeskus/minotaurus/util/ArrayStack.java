@@ -0,0 +1,122 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.util;
+
+import java.util.Arrays;
+
+/**
+ * A stack that stores its elements in fixed-size array chunks. Unlike
+ * {@link LinkedListStack}, adding an element allocates nothing unless a new
+ * chunk is needed, and chunks are kept after their elements are popped, so a
+ * stack that grows and shrinks within the same bounds allocates nothing at
+ * all once it has reached its largest size.
+ * 
+ * @param <T> Type of elements to store.
+ */
+public class ArrayStack<T> {
+    
+    static final int CHUNK_SHIFT = 10;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    
+    Object[][] chunks;
+    int allocatedChunks;
+    int size;
+    
+    public ArrayStack() {
+        this.chunks = new Object[4][];
+        this.chunks[0] = new Object[CHUNK_SIZE];
+        this.allocatedChunks = 1;
+        this.size = 0;
+    }
+    
+    /**
+     * Returns and removes the last added element of this stack.
+     * 
+     * @return The element, or null if the stack is empty.
+     */
+    public T pop() {
+        if (size == 0)
+            return null;
+        
+        size--;
+        Object[] chunk = chunks[size >>> CHUNK_SHIFT];
+        T elem = (T) chunk[size & CHUNK_MASK];
+        chunk[size & CHUNK_MASK] = null;
+        return elem;
+    }
+    
+    /**
+     * Returns the last added element of this stack.
+     * 
+     * @return The element, or null if the stack is empty.
+     */
+    public T peek() {
+        if (size == 0)
+            return null;
+        
+        int last = size - 1;
+        return (T) chunks[last >>> CHUNK_SHIFT][last & CHUNK_MASK];
+    }
+    
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean add(T e) {
+        int chunk = size >>> CHUNK_SHIFT;
+        if (chunk == allocatedChunks)
+            allocateChunk();
+        
+        chunks[chunk][size & CHUNK_MASK] = e;
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes all elements from this stack, and releases all but the first
+     * chunk.
+     */
+    public void clear() {
+        Arrays.fill(chunks[0], null);
+        for (int c = 1; c < allocatedChunks; c++)
+            chunks[c] = null;
+        
+        allocatedChunks = 1;
+        size = 0;
+    }
+    
+    private void allocateChunk() {
+        if (allocatedChunks == chunks.length)
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+        
+        chunks[allocatedChunks++] = new Object[CHUNK_SIZE];
+    }
+
+}
@@ -0,0 +1,241 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A set of cells of a grid, stored as one bit per cell in a flat array of
+ * longs. Cells are numbered row by row as in {@link PackedPosition}, so a
+ * 1000x1000 grid takes 125 KB.
+ * <p>
+ * Clearing the whole grid takes constant time: the bits are grouped in blocks
+ * of {@value #BLOCK_WORDS} words, and each block is stamped with the
+ * generation it was last written in. {@link #clearAll()} starts a new
+ * generation, and blocks with an older stamp read as empty until they are
+ * written again. A grid can therefore be reused for every search in a maze
+ * without touching all of its memory each time.
+ */
+public final class BitGrid {
+    
+    static final int BLOCK_SHIFT = 3;
+    static final int BLOCK_WORDS = 1 << BLOCK_SHIFT;
+    
+    final int width;
+    final int height;
+    final long[] words;
+    
+    // Generation each block was last written in.
+    final int[] stamps;
+    int generation = 1;
+    
+    /**
+     * Creates a new, empty BitGrid.
+     * 
+     * @param width  Width of the grid.
+     * @param height Height of the grid.
+     */
+    public BitGrid(int width, int height) {
+        if (width < 0 || height < 0)
+            throw new IllegalArgumentException("Negative size: " + width + "x" + height);
+        
+        this.width = width;
+        this.height = height;
+        this.words = new long[(int) (((long) width * height + 63) >>> 6)];
+        this.stamps = new int[(words.length + BLOCK_WORDS - 1) >>> BLOCK_SHIFT];
+    }
+    
+    public int getWidth() {
+        return width;
+    }
+    
+    public int getHeight() {
+        return height;
+    }
+    
+    /**
+     * Returns whether or not the specified cell is set.
+     * 
+     * @param cell Index of the cell, in {@code [0, width * height)}.
+     * @return True if the cell is set, otherwise false.
+     */
+    public boolean test(int cell) {
+        int word = cell >>> 6;
+        return stamps[word >>> BLOCK_SHIFT] == generation
+                && (words[word] & (1L << cell)) != 0;
+    }
+    
+    public boolean test(int x, int y) {
+        return test(cellOf(x, y));
+    }
+    
+    /**
+     * Sets the specified cell.
+     * 
+     * @param cell Index of the cell, in {@code [0, width * height)}.
+     */
+    public void set(int cell) {
+        words[currentWord(cell)] |= 1L << cell;
+    }
+    
+    public void set(int x, int y) {
+        set(cellOf(x, y));
+    }
+    
+    /**
+     * Sets the specified cell if it isn't set already.
+     * 
+     * @param cell Index of the cell, in {@code [0, width * height)}.
+     * @return True if the cell was not set before, otherwise false.
+     */
+    public boolean testAndSet(int cell) {
+        int word = currentWord(cell);
+        long bit = 1L << cell;
+        long w = words[word];
+        words[word] = w | bit;
+        return (w & bit) == 0;
+    }
+    
+    /**
+     * Clears the specified cell.
+     * 
+     * @param cell Index of the cell, in {@code [0, width * height)}.
+     */
+    public void clear(int cell) {
+        words[currentWord(cell)] &= ~(1L << cell);
+    }
+    
+    public void clear(int x, int y) {
+        clear(cellOf(x, y));
+    }
+    
+    /**
+     * Clears all cells in constant time, by starting a new generation.
+     */
+    public void clearAll() {
+        
+        /* Once the counter runs out, stamps of the first generations could be
+         * mistaken for current ones, so they are wiped for real.
+         */
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            generation = 0;
+        }
+        
+        generation++;
+    }
+    
+    /**
+     * Returns the first set cell at or after the specified cell.
+     * 
+     * @param fromCell Index of the cell to start from.
+     * @return Index of the set cell, or -1 if there is none.
+     */
+    public int nextSetBit(int fromCell) {
+        if (fromCell < 0)
+            fromCell = 0;
+        
+        int word = fromCell >>> 6;
+        if (word >= words.length)
+            return -1;
+        
+        long w = wordAt(word) & (-1L << fromCell);
+        while (w == 0) {
+            if (++word >= words.length)
+                return -1;
+            
+            // Skip blocks of older generations as a whole.
+            if ((word & (BLOCK_WORDS - 1)) == 0
+                    && stamps[word >>> BLOCK_SHIFT] != generation) {
+                word += BLOCK_WORDS - 1;
+                w = 0;
+                continue;
+            }
+            
+            w = wordAt(word);
+        }
+        
+        return (word << 6) + Long.numberOfTrailingZeros(w);
+    }
+    
+    /**
+     * Performs the specified action for each set cell, in ascending order.
+     * 
+     * @param action Action taking the index of a cell.
+     */
+    public void forEachSetBit(IntConsumer action) {
+        for (int cell = nextSetBit(0); cell >= 0; cell = nextSetBit(cell + 1))
+            action.accept(cell);
+    }
+    
+    /**
+     * Returns the number of set cells.
+     * 
+     * @return An integer.
+     */
+    public int cardinality() {
+        int count = 0;
+        for (int block = 0; block < stamps.length; block++) {
+            if (stamps[block] != generation)
+                continue;
+            
+            int end = Math.min(words.length, (block + 1) << BLOCK_SHIFT);
+            for (int word = block << BLOCK_SHIFT; word < end; word++)
+                count += Long.bitCount(words[word]);
+        }
+        
+        return count;
+    }
+    
+    private long wordAt(int word) {
+        return stamps[word >>> BLOCK_SHIFT] == generation ? words[word] : 0;
+    }
+    
+    /**
+     * Returns the index of the word holding the specified cell, first wiping
+     * the word's block if it was last written in an older generation.
+     */
+    private int currentWord(int cell) {
+        int word = cell >>> 6;
+        int block = word >>> BLOCK_SHIFT;
+        if (stamps[block] != generation) {
+            int start = block << BLOCK_SHIFT;
+            Arrays.fill(words, start, Math.min(words.length, start + BLOCK_WORDS), 0L);
+            stamps[block] = generation;
+        }
+        
+        return word;
+    }
+    
+    private int cellOf(int x, int y) {
+        if (x < 0 || x >= width)
+            throw new IllegalArgumentException("Index out of bounds: x " + x);
+        if (y < 0 || y >= height)
+            throw new IllegalArgumentException("Index out of bounds: y " + y);
+        return PackedPosition.pack(x, y, width);
+    }
+    
+}
@@ -0,0 +1,278 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.util;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A monotone priority queue of small integer elements with small integer
+ * priorities, as used by Dial's algorithm. Elements lie in
+ * {@code [0, capacity)}, e.g. cell indices of a maze, and each element may be
+ * queued at most once.
+ * <p>
+ * The queue is monotone: no element may be given a priority lower than the
+ * priority of the most recently extracted element, and all queued priorities
+ * must lie within {@code priorityRange} of it. Searches where every step costs
+ * the same and the heuristic is consistent satisfy both rules. In exchange,
+ * adding, removing and changing priorities take constant time, extracting the
+ * minimum takes amortized constant time, and no operation allocates memory.
+ */
+public final class BucketQueue {
+    
+    private static final int NOT_QUEUED = -2;
+    private static final int NONE = -1;
+    
+    /* Each bucket holds a doubly linked list of elements threaded through the
+     * next and prev arrays. Buckets are used circularly: priority p lives in
+     * bucket p % priorityRange.
+     */
+    final int[] heads;
+    final int[] next;
+    final int[] prev;
+    final int[] priorities;
+    
+    // Lowest priority that may still be queued.
+    int base;
+    int numElements;
+    
+    /**
+     * Creates a new BucketQueue.
+     * 
+     * @param capacity      Number of distinct elements; elements must lie in
+     *                      {@code [0, capacity)}.
+     * @param priorityRange Maximum difference plus one between the lowest
+     *                      possible and any queued priority.
+     */
+    public BucketQueue(int capacity, int priorityRange) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("Negative capacity: " + capacity);
+        if (priorityRange <= 0)
+            throw new IllegalArgumentException("Priority range must be positive: " + priorityRange);
+        
+        this.heads = new int[priorityRange];
+        this.next = new int[capacity];
+        this.prev = new int[capacity];
+        this.priorities = new int[capacity];
+        Arrays.fill(heads, NONE);
+        Arrays.fill(prev, NOT_QUEUED);
+    }
+    
+    /**
+     * Returns the number of elements in this queue.
+     * 
+     * @return An integer.
+     */
+    public int size() {
+        return numElements;
+    }
+    
+    /**
+     * Returns whether or not this queue is empty.
+     * 
+     * @return True if queue is empty, otherwise false.
+     */
+    public boolean isEmpty() {
+        return numElements == 0;
+    }
+    
+    /**
+     * Removes all elements from this queue.
+     */
+    public void clear() {
+        for (int b = 0; b < heads.length; b++) {
+            for (int e = heads[b]; e != NONE; e = next[e])
+                prev[e] = NOT_QUEUED;
+            heads[b] = NONE;
+        }
+        
+        base = 0;
+        numElements = 0;
+    }
+    
+    /**
+     * Adds the specified element to this queue. If the queue is empty, any
+     * priority is accepted.
+     * 
+     * @param elem     Element to add.
+     * @param priority Priority of the element.
+     * @throws IllegalStateException    if the element is already queued.
+     * @throws IllegalArgumentException if the priority is out of range.
+     */
+    public void add(int elem, int priority) {
+        if (prev[elem] != NOT_QUEUED)
+            throw new IllegalStateException("Element already queued: " + elem);
+        
+        // An empty queue may move its window anywhere.
+        if (numElements == 0 && !inRange(priority))
+            base = priority;
+        checkPriority(priority);
+        
+        link(elem, priority);
+        numElements++;
+    }
+    
+    /**
+     * Returns whether or not the specified element is contained in this queue.
+     * 
+     * @param elem Element to search for.
+     * @return True if element is queued, otherwise false.
+     */
+    public boolean contains(int elem) {
+        return prev[elem] != NOT_QUEUED;
+    }
+    
+    /**
+     * Returns the priority of the specified queued element.
+     * 
+     * @param elem A queued element.
+     * @return The element's priority.
+     * @throws NoSuchElementException if the element is not queued.
+     */
+    public int getPriority(int elem) {
+        if (prev[elem] == NOT_QUEUED)
+            throw new NoSuchElementException("Element not queued: " + elem);
+        return priorities[elem];
+    }
+    
+    /**
+     * Changes the priority of the specified queued element.
+     * 
+     * @param elem     A queued element.
+     * @param priority New priority of the element.
+     * @throws NoSuchElementException   if the element is not queued.
+     * @throws IllegalArgumentException if the priority is out of range.
+     */
+    public void changePriority(int elem, int priority) {
+        if (prev[elem] == NOT_QUEUED)
+            throw new NoSuchElementException("Element not queued: " + elem);
+        checkPriority(priority);
+        
+        unlink(elem);
+        link(elem, priority);
+    }
+    
+    /**
+     * Removes the specified element from this queue if it exists.
+     * 
+     * @param elem Element to remove.
+     * @return True if the element was queued, otherwise false.
+     */
+    public boolean remove(int elem) {
+        if (prev[elem] == NOT_QUEUED)
+            return false;
+        
+        unlink(elem);
+        prev[elem] = NOT_QUEUED;
+        numElements--;
+        return true;
+    }
+    
+    /**
+     * Returns and removes an element with the minimum priority in this queue.
+     * Elements of equal priority are returned last in, first out.
+     * 
+     * @return An element with the minimum priority.
+     * @throws NoSuchElementException if the queue is empty.
+     */
+    public int extractMin() {
+        int elem = heads[advance()];
+        remove(elem);
+        return elem;
+    }
+    
+    /**
+     * Returns an element with the minimum priority in this queue.
+     * 
+     * @return An element with the minimum priority.
+     * @throws NoSuchElementException if the queue is empty.
+     */
+    public int min() {
+        return heads[advance()];
+    }
+    
+    /**
+     * Returns the minimum priority in this queue.
+     * 
+     * @return The minimum priority.
+     * @throws NoSuchElementException if the queue is empty.
+     */
+    public int minPriority() {
+        advance();
+        return base;
+    }
+    
+    /**
+     * Moves the base priority forward to the first non-empty bucket.
+     * 
+     * @return Index of the bucket.
+     */
+    private int advance() {
+        if (numElements == 0)
+            throw new NoSuchElementException("Queue is empty");
+        
+        int bucket = Math.floorMod(base, heads.length);
+        while (heads[bucket] == NONE) {
+            base++;
+            if (++bucket == heads.length)
+                bucket = 0;
+        }
+        
+        return bucket;
+    }
+    
+    private boolean inRange(int priority) {
+        return priority >= base && priority - base < heads.length;
+    }
+    
+    private void checkPriority(int priority) {
+        if (!inRange(priority))
+            throw new IllegalArgumentException("Priority " + priority
+                    + " outside of [" + base + ", " + (base + heads.length) + ")");
+    }
+    
+    private void link(int elem, int priority) {
+        int bucket = Math.floorMod(priority, heads.length);
+        int head = heads[bucket];
+        next[elem] = head;
+        prev[elem] = NONE;
+        if (head != NONE)
+            prev[head] = elem;
+        heads[bucket] = elem;
+        priorities[elem] = priority;
+    }
+    
+    private void unlink(int elem) {
+        int p = prev[elem];
+        int n = next[elem];
+        if (p == NONE)
+            heads[Math.floorMod(priorities[elem], heads.length)] = n;
+        else
+            next[p] = n;
+        if (n != NONE)
+            prev[n] = p;
+    }
+    
+}
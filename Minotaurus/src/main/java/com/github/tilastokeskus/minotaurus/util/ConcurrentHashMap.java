@@ -0,0 +1,631 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.util;
+
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A thread-safe hash map using lock striping. The map is split into segments,
+ * each a small hash table guarded by its own lock, so threads that write to
+ * different segments do not contend. Reads take no locks at all.
+ * <p>
+ * Iterators are weakly consistent: they never throw
+ * {@link java.util.ConcurrentModificationException}, they see every entry that
+ * existed when they were created and was not removed since, and they may or
+ * may not see later changes. For the same reason {@link #size()} is only a
+ * snapshot while other threads are writing.
+ * <p>
+ * Neither keys nor values may be null.
+ * 
+ * @param <K> Type of keys.
+ * @param <V> Type of values.
+ */
+public class ConcurrentHashMap<K, V> implements ConcurrentMap<K, V> {
+    
+    static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+    static final int MAX_SEGMENTS = 1<<16;
+    static final int SEGMENT_INITIAL_CAPACITY = 4;
+    static final int SEGMENT_MAX_CAPACITY = 1<<30;
+    static final float LOAD_FACTOR = 0.75f;
+    
+    final Segment<K, V>[] segments;
+    
+    // Number of high hash bits that select the segment.
+    final int segmentShift;
+    
+    public ConcurrentHashMap() {
+        this(DEFAULT_CONCURRENCY_LEVEL);
+    }
+    
+    /**
+     * Creates a new ConcurrentHashMap.
+     * 
+     * @param concurrencyLevel Expected number of threads writing to the map at
+     *                         the same time. Rounded up to a power of two.
+     */
+    public ConcurrentHashMap(int concurrencyLevel) {
+        if (concurrencyLevel <= 0)
+            throw new IllegalArgumentException("Concurrency level must be positive: " + concurrencyLevel);
+        
+        int numSegments = 1;
+        int bits = 0;
+        while (numSegments < concurrencyLevel && numSegments < MAX_SEGMENTS) {
+            numSegments <<= 1;
+            bits++;
+        }
+        
+        this.segmentShift = 32 - bits;
+        this.segments = new Segment[numSegments];
+        for (int i = 0; i < numSegments; i++)
+            segments[i] = new Segment<>();
+    }
+
+    @Override
+    public int size() {
+        long sum = 0;
+        for (Segment<K, V> s : segments)
+            sum += s.count;
+        
+        return sum > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) sum;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (Segment<K, V> s : segments)
+            if (s.count != 0)
+                return false;
+        
+        return true;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int hash = hash(key);
+        return segmentFor(hash).find(key, hash) != null;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        Objects.requireNonNull(value);
+        for (Segment<K, V> s : segments) {
+            AtomicReferenceArray<Node<K, V>> t = s.table;
+            for (int i = 0; i < t.length(); i++)
+                for (Node<K, V> e = t.get(i); e != null; e = e.next)
+                    if (value.equals(e.value))
+                        return true;
+        }
+        
+        return false;
+    }
+
+    @Override
+    public V get(Object key) {
+        int hash = hash(key);
+        Node<K, V> e = segmentFor(hash).find(key, hash);
+        return e != null ? e.value : null;
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        V value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        Objects.requireNonNull(value);
+        int hash = hash(key);
+        return segmentFor(hash).put(key, hash, value, false);
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        Objects.requireNonNull(value);
+        int hash = hash(key);
+        return segmentFor(hash).put(key, hash, value, true);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        for (Map.Entry<? extends K, ? extends V> entry : m.entrySet())
+            put(entry.getKey(), entry.getValue());
+    }
+
+    @Override
+    public V remove(Object key) {
+        int hash = hash(key);
+        return segmentFor(hash).remove(key, hash, null);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        int hash = hash(key);
+        return value != null && segmentFor(hash).remove(key, hash, value) != null;
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        Objects.requireNonNull(oldValue);
+        Objects.requireNonNull(newValue);
+        int hash = hash(key);
+        Segment<K, V> s = segmentFor(hash);
+        s.lock();
+        try {
+            Node<K, V> e = s.find(key, hash);
+            if (e == null || !oldValue.equals(e.value))
+                return false;
+            e.value = newValue;
+            return true;
+        } finally {
+            s.unlock();
+        }
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        Objects.requireNonNull(value);
+        int hash = hash(key);
+        Segment<K, V> s = segmentFor(hash);
+        s.lock();
+        try {
+            Node<K, V> e = s.find(key, hash);
+            if (e == null)
+                return null;
+            V old = e.value;
+            e.value = value;
+            return old;
+        } finally {
+            s.unlock();
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The mapping function is called at most once, while holding the lock of
+     * the key's segment. It must therefore be short and must not modify this
+     * map.
+     */
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        int hash = hash(key);
+        Segment<K, V> s = segmentFor(hash);
+        Node<K, V> e = s.find(key, hash);
+        if (e != null)
+            return e.value;
+        
+        s.lock();
+        try {
+            e = s.find(key, hash);
+            if (e != null)
+                return e.value;
+            
+            V value = mappingFunction.apply(key);
+            if (value != null)
+                s.insert(key, hash, value);
+            return value;
+        } finally {
+            s.unlock();
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The remapping function is called while holding the lock of the key's
+     * segment. It must therefore be short and must not modify this map.
+     */
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(value);
+        int hash = hash(key);
+        Segment<K, V> s = segmentFor(hash);
+        s.lock();
+        try {
+            Node<K, V> e = s.find(key, hash);
+            if (e == null) {
+                s.insert(key, hash, value);
+                return value;
+            }
+            
+            V newValue = remappingFunction.apply(e.value, value);
+            if (newValue == null)
+                s.remove(key, hash, null);
+            else
+                e.value = newValue;
+            return newValue;
+        } finally {
+            s.unlock();
+        }
+    }
+
+    /**
+     * Removes all mappings from this map. Segments are cleared one at a time,
+     * so entries added by other threads meanwhile may survive.
+     */
+    @Override
+    public void clear() {
+        for (Segment<K, V> s : segments)
+            s.clear();
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return new KeySet();
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new Values();
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new EntrySet();
+    }
+    
+    /**
+     * Spreads the higher bits of the key's hash code downwards, as both the
+     * segment and the bucket index are taken from a few bits of the hash.
+     * 
+     * @param key Key to hash.
+     * @return An integer.
+     */
+    static int hash(Object key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        return h ^ (h >>> 13);
+    }
+    
+    Segment<K, V> segmentFor(int hash) {
+        
+        // A shift by 32 leaves the hash as it is, so mask the single segment.
+        return segments[(hash >>> segmentShift) & (segments.length - 1)];
+    }
+    
+    /**
+     * An entry in a segment's bucket chain. Readers traverse chains without
+     * locking, so the value and the link to the next entry are volatile.
+     */
+    static final class Node<K, V> {
+        final int hash;
+        final K key;
+        volatile V value;
+        volatile Node<K, V> next;
+        
+        Node(int hash, K key, V value, Node<K, V> next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+    
+    /**
+     * A single hash table guarded by its own lock. The table reference is
+     * volatile and is only ever replaced by a fully built copy, so readers
+     * always see either the old or the new table intact. The buckets are read
+     * and written with volatile semantics too, so that a reader that finds a
+     * new entry in a bucket also sees the entry's fields.
+     */
+    static final class Segment<K, V> extends ReentrantLock {
+        
+        volatile AtomicReferenceArray<Node<K, V>> table;
+        volatile int count;
+        
+        Segment() {
+            this.table = new AtomicReferenceArray<>(SEGMENT_INITIAL_CAPACITY);
+        }
+        
+        Node<K, V> find(Object key, int hash) {
+            AtomicReferenceArray<Node<K, V>> t = table;
+            for (Node<K, V> e = t.get(hash & (t.length() - 1)); e != null; e = e.next)
+                if (e.hash == hash && key.equals(e.key))
+                    return e;
+            
+            return null;
+        }
+        
+        V put(K key, int hash, V value, boolean onlyIfAbsent) {
+            lock();
+            try {
+                Node<K, V> e = find(key, hash);
+                if (e != null) {
+                    V old = e.value;
+                    if (!onlyIfAbsent)
+                        e.value = value;
+                    return old;
+                }
+                
+                insert(key, hash, value);
+                return null;
+            } finally {
+                unlock();
+            }
+        }
+        
+        /**
+         * Adds a new entry. Must be called while holding the lock, and only if
+         * the key is not yet in the segment.
+         */
+        void insert(K key, int hash, V value) {
+            AtomicReferenceArray<Node<K, V>> t = table;
+            if (count + 1 > LOAD_FACTOR * t.length() && t.length() < SEGMENT_MAX_CAPACITY)
+                t = resize(t);
+            
+            int bucket = hash & (t.length() - 1);
+            t.set(bucket, new Node<>(hash, key, value, t.get(bucket)));
+            count++;
+        }
+        
+        /**
+         * Removes the entry with the key, if its value equals the expected
+         * value or no value is expected.
+         * 
+         * @return The removed value, or null if nothing was removed.
+         */
+        V remove(Object key, int hash, Object expected) {
+            lock();
+            try {
+                AtomicReferenceArray<Node<K, V>> t = table;
+                int bucket = hash & (t.length() - 1);
+                Node<K, V> prev = null;
+                for (Node<K, V> e = t.get(bucket); e != null; prev = e, e = e.next) {
+                    if (e.hash != hash || !key.equals(e.key))
+                        continue;
+                    
+                    V value = e.value;
+                    if (expected != null && !expected.equals(value))
+                        return null;
+                    
+                    /* Unlinking leaves e.next intact, so readers standing on
+                     * the removed entry can still walk to the end of the chain.
+                     */
+                    if (prev == null)
+                        t.set(bucket, e.next);
+                    else
+                        prev.next = e.next;
+                    count--;
+                    return value;
+                }
+                
+                return null;
+            } finally {
+                unlock();
+            }
+        }
+        
+        void clear() {
+            lock();
+            try {
+                table = new AtomicReferenceArray<>(SEGMENT_INITIAL_CAPACITY);
+                count = 0;
+            } finally {
+                unlock();
+            }
+        }
+        
+        /**
+         * Copies the entries into a table twice as large and publishes it.
+         * Entries are copied rather than relinked so that readers still
+         * walking the old table are not led astray.
+         */
+        private AtomicReferenceArray<Node<K, V>> resize(AtomicReferenceArray<Node<K, V>> old) {
+            AtomicReferenceArray<Node<K, V>> t = new AtomicReferenceArray<>(old.length() * 2);
+            for (int i = 0; i < old.length(); i++) {
+                for (Node<K, V> e = old.get(i); e != null; e = e.next) {
+                    int bucket = e.hash & (t.length() - 1);
+                    t.set(bucket, new Node<>(e.hash, e.key, e.value, t.get(bucket)));
+                }
+            }
+            
+            table = t;
+            return t;
+        }
+    }
+    
+    /**
+     * A snapshot of an entry whose setValue writes through to the map.
+     */
+    private final class MapEntry implements Map.Entry<K, V> {
+        
+        final K key;
+        V value;
+        
+        MapEntry(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            V old = this.value;
+            put(key, value);
+            this.value = value;
+            return old;
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ value.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Map.Entry))
+                return false;
+            
+            Map.Entry<?, ?> other = (Map.Entry<?, ?>) obj;
+            return key.equals(other.getKey()) && value.equals(other.getValue());
+        }
+        
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+    
+    private class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+            return ConcurrentHashMap.this.size();
+        }
+    }
+    
+    private class KeySet extends AbstractSet<K> {
+        @Override
+        public Iterator<K> iterator() {
+            return new KeyIterator();
+        }
+
+        @Override
+        public int size() {
+            return ConcurrentHashMap.this.size();
+        }
+    }
+    
+    private class Values extends AbstractCollection<V> {
+        @Override
+        public Iterator<V> iterator() {
+            return new ValueIterator();
+        }
+
+        @Override
+        public int size() {
+            return ConcurrentHashMap.this.size();
+        }
+    }
+    
+    /**
+     * Walks the segments one at a time, traversing the table each segment had
+     * when the iterator reached it.
+     */
+    private abstract class MapIterator<E> implements Iterator<E> {
+        int segmentIndex;
+        AtomicReferenceArray<Node<K, V>> table;
+        int bucketIndex;
+        Node<K, V> next;
+        Node<K, V> current;
+        
+        MapIterator() {
+            advance();
+        }
+        
+        private void advance() {
+            while (true) {
+                if (table != null) {
+                    while (bucketIndex < table.length())
+                        if ((next = table.get(bucketIndex++)) != null)
+                            return;
+                }
+                
+                if (segmentIndex == segments.length) {
+                    next = null;
+                    return;
+                }
+                
+                table = segments[segmentIndex++].table;
+                bucketIndex = 0;
+            }
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+        
+        @Override
+        public void remove() {
+            if (current == null)
+                throw new IllegalStateException();
+            
+            ConcurrentHashMap.this.remove(current.key);
+            current = null;
+        }
+
+        Node<K, V> nextNode() {
+            if (next == null)
+                throw new NoSuchElementException();
+            
+            current = next;
+            next = current.next;
+            if (next == null)
+                advance();
+            
+            return current;
+        }
+    }
+    
+    private class EntryIterator extends MapIterator<Map.Entry<K, V>> {
+        @Override
+        public Map.Entry<K, V> next() {
+            Node<K, V> e = nextNode();
+            return new MapEntry(e.key, e.value);
+        }
+    }
+    
+    private class KeyIterator extends MapIterator<K> {
+        @Override
+        public K next() {
+            return nextNode().key;
+        }
+    }
+    
+    private class ValueIterator extends MapIterator<V> {
+        @Override
+        public V next() {
+            return nextNode().value;
+        }
+    }
+
+}
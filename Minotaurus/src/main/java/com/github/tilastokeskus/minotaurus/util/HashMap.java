@@ -26,7 +26,6 @@ package com.github.tilastokeskus.minotaurus.util;
 
 import java.util.AbstractCollection;
 import java.util.AbstractSet;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
@@ -34,25 +33,57 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
+/**
+ * A hash table of chained entries. The table's capacity is always a power of
+ * two, and hash codes are spread before they are masked into a bucket index.
+ * <p>
+ * Keys with equal hash codes still end up in the same bucket, which happens a
+ * lot with {@link Position}s on large grids. When a bucket's chain grows long
+ * and its keys are {@link Comparable} instances of the same class, the bucket
+ * is additionally indexed by a balanced tree, so that looking up a key in it
+ * takes logarithmic time.
+ * 
+ * @param <K> Type of keys.
+ * @param <V> Type of values.
+ */
 public class HashMap<K, V> implements Map<K, V> {
     
     static final int INITIAL_CAPACITY = 16;
     static final int MAX_CAPACITY = 1<<30;
     static final float LOAD_FACTOR = 0.75f;
     
+    // Chain length at which a bucket gets a tree.
+    static final int TREEIFY_THRESHOLD = 8;
+    
+    // Number of entries below which a tree is dropped again.
+    static final int UNTREEIFY_THRESHOLD = 6;
+    
+    /* Smaller tables are resized before their chains get long, so trees are
+     * only worth it from this capacity on.
+     */
+    static final int MIN_TREEIFY_CAPACITY = 64;
+    
     Entry[] table;    
     int size;
     volatile int mods;
     
+    // Tree of each bucket, or null if the bucket has none. Null if no bucket has one.
+    TreeBin[] trees;
+    
     public HashMap() {
         this.table = new Entry[INITIAL_CAPACITY];
     }
     
     public HashMap(HashMap<K, V> m) {
-        this.table = Arrays.copyOf(m.table, m.size);
-        this.size = m.size;
-        this.mods = m.mods;
+        this.table = new Entry[m.table.length];
+        for (Entry<K, V> e : m.table)
+            for (; e != null; e = e.next)
+                addNewEntry(table, e.hash, getBucketIndex(e.hash, table.length),
+                            e.key, e.value);
     }
 
     @Override
@@ -67,14 +98,7 @@ public class HashMap<K, V> implements Map<K, V> {
 
     @Override
     public boolean containsKey(Object key) {
-        int hash = hash(key);
-        int bucket = getBucketIndex(hash, table.length);
-        for (Entry<K, V> e = table[bucket]; e != null; e = e.next) {
-            if (e.hash == hash && key.equals(e.key))
-                return true;
-        }
-        
-        return false;
+        return getEntry(key) != null;
     }
 
     @Override
@@ -89,28 +113,24 @@ public class HashMap<K, V> implements Map<K, V> {
 
     @Override
     public V get(Object key) {
-        int hash = hash(key);
-        int bucket = getBucketIndex(hash, table.length);
-        
-        for (Entry<K, V> e = table[bucket]; e != null; e = e.next) {
-            if (e.hash == hash && key.equals(e.key))
-                return e.value;
-        }
-        
-        return null;
+        Entry<K, V> e = getEntry(key);
+        return e == null ? null : e.value;
     }
 
     @Override
     public V put(K key, V value) {
         int hash = hash(key);
         int bucket = getBucketIndex(hash, table.length);
-        for (Entry<K, V> e = table[bucket]; e != null; e = e.next) {
-            if (e.hash == hash && key.equals(e.key))
-                return e.setValue(value);
+        Entry<K, V> e = findEntry(hash, bucket, key);
+        if (e != null) {
+            V oldValue = e.setValue(value);
+            afterAccess(e);
+            return oldValue;
         }
         
         addNewEntry(table, hash, bucket, key, value);
         mods++;
+        afterInsertion();
         return null;
     }
 
@@ -118,33 +138,35 @@ public class HashMap<K, V> implements Map<K, V> {
     public V remove(Object key) {
         int hash = hash(key);
         int bucket = getBucketIndex(hash, table.length);
+        Entry<K, V> e = findEntry(hash, bucket, key);
+        if (e == null)
+            return null;
         
+        /* The entry is unlinked by identity, so even in a treeified bucket
+         * no keys are compared here.
+         */
         Entry<K, V> prev = table[bucket];
-        Entry<K, V> e = table[bucket];
-        Entry<K, V> next;
-        
-        while (e != null) {
-            next = e.next;
-            
-            if (e.hash == hash && key.equals(e.key)) {
-                if (e != prev) {
-                    prev.next = next;
-                } else {
-                    
-                    // key was found in the bucket's first entry
-                    table[bucket] = next;
-                }
-                
-                mods++;
-                size--;
-                return e.value;
-            }
+        if (prev == e) {
             
-            prev = e;
-            e = next;
+            // key was found in the bucket's first entry
+            table[bucket] = e.next;
+        } else {
+            while (prev.next != e)
+                prev = prev.next;
+            prev.next = e.next;
         }
         
-        return null;
+        if (trees != null && trees[bucket] != null) {
+            TreeBin<K, V> tree = trees[bucket];
+            tree.remove(e);
+            if (tree.size < UNTREEIFY_THRESHOLD)
+                trees[bucket] = null;
+        }
+        
+        mods++;
+        size--;
+        afterRemoval(e);
+        return e.value;
     }
 
     @Override
@@ -159,6 +181,7 @@ public class HashMap<K, V> implements Map<K, V> {
         for (int i = 0; i < table.length; i++)
             table[i] = null;
         
+        trees = null;
         size = 0;
     }
 
@@ -177,14 +200,109 @@ public class HashMap<K, V> implements Map<K, V> {
         return new EntrySet();
     }
     
+    Entry<K, V> getEntry(Object key) {
+        int hash = hash(key);
+        return findEntry(hash, getBucketIndex(hash, table.length), key);
+    }
+    
+    Entry<K, V> findEntry(int hash, int bucket, Object key) {
+        if (trees != null) {
+            TreeBin<K, V> tree = trees[bucket];
+            
+            // Keys of another class can't be in the tree's order, but may still be equal.
+            if (tree != null && tree.keyClass == key.getClass())
+                return tree.find(hash, key);
+        }
+        
+        for (Entry<K, V> e = table[bucket]; e != null; e = e.next) {
+            if (e.hash == hash && key.equals(e.key))
+                return e;
+        }
+        
+        return null;
+    }
+    
     void addNewEntry(Entry[] t, int hash, int bucket, K key, V value) {
-        Entry<K, V> e = t[bucket];
-        t[bucket] = new Entry<>(hash, key, value, e);
+        Entry<K, V> e = newEntry(hash, key, value, t[bucket]);
+        t[bucket] = e;
+        if (t == table)
+            indexNewEntry(bucket, e);
+        
         if (shouldResize(size++))
             resizeTable(table.length * 2);
     }
     
+    Entry<K, V> newEntry(int hash, K key, V value, Entry<K, V> next) {
+        return new Entry<>(hash, key, value, next);
+    }
+    
+    /* Hooks for subclasses that keep track of the order of their entries.
+     * An access is a lookup or a replaced value of an existing key.
+     */
+    void afterAccess(Entry<K, V> e) {}
+    void afterInsertion() {}
+    void afterRemoval(Entry<K, V> e) {}
+    
+    /**
+     * Adds a new entry to its bucket's tree, dropping the tree if the entry
+     * can't be ordered against the others, or gives the bucket a tree if its
+     * chain has grown long.
+     * 
+     * @param bucket Index of the bucket the entry was added to.
+     * @param e      The new entry.
+     */
+    void indexNewEntry(int bucket, Entry<K, V> e) {
+        TreeBin<K, V> tree = trees == null ? null : trees[bucket];
+        if (tree != null) {
+            if (!tree.insert(e))
+                trees[bucket] = null;
+        } else if (table.length >= MIN_TREEIFY_CAPACITY
+                && isLongChain(table[bucket])) {
+            treeify(bucket);
+        }
+    }
+    
+    /**
+     * Indexes the specified bucket with a tree, if all of its keys are
+     * Comparable instances of the same class.
+     * 
+     * @param bucket Index of the bucket.
+     */
+    void treeify(int bucket) {
+        Entry<K, V> head = table[bucket];
+        Class<?> keyClass = head.key.getClass();
+        if (!Comparable.class.isAssignableFrom(keyClass))
+            return;
+        
+        TreeBin<K, V> tree = new TreeBin<>(keyClass);
+        for (Entry<K, V> e = head; e != null; e = e.next)
+            if (!tree.insert(e))
+                return;
+        
+        if (trees == null)
+            trees = new TreeBin[table.length];
+        trees[bucket] = tree;
+    }
+    
+    static boolean isLongChain(Entry<?, ?> e) {
+        int length = 0;
+        for (; e != null && length < TREEIFY_THRESHOLD; e = e.next)
+            length++;
+        return length == TREEIFY_THRESHOLD;
+    }
+    
+    /**
+     * Returns the bucket of a hash. The map's own tables are powers of two,
+     * for which the index is a mask of the hash's lowest bits; for other
+     * capacities the index is the remainder.
+     * 
+     * @param hash     A hash as returned by {@link #hash(Object)}.
+     * @param capacity Length of the table.
+     * @return Index of the bucket.
+     */
     int getBucketIndex(int hash, int capacity) {
+        if ((capacity & (capacity - 1)) == 0)
+            return hash & (capacity - 1);
         return hash % capacity;
     }
     
@@ -192,8 +310,17 @@ public class HashMap<K, V> implements Map<K, V> {
         return numElements > LOAD_FACTOR * table.length;
     }
     
+    /**
+     * Returns the hash of an object: its hash code with the high bits folded
+     * into the low ones, which are the only ones a small table's mask sees.
+     * The result is never negative.
+     * 
+     * @param obj Object to hash.
+     * @return A non-negative integer.
+     */
     int hash(Object obj) {
-        return Math.abs(obj.hashCode());
+        int h = obj.hashCode();
+        return (h ^ (h >>> 16)) & 0x7FFFFFFF;
     }
     
     Iterator<Map.Entry<K, V>> entryIterator() {
@@ -208,6 +335,18 @@ public class HashMap<K, V> implements Map<K, V> {
         return new ValueIterator();
     }
     
+    Spliterator<Map.Entry<K, V>> entrySpliterator() {
+        return new MapSpliterator<>(this, e -> e, Spliterator.DISTINCT);
+    }
+    
+    Spliterator<K> keySpliterator() {
+        return new MapSpliterator<>(this, e -> e.key, Spliterator.DISTINCT);
+    }
+    
+    Spliterator<V> valueSpliterator() {
+        return new MapSpliterator<>(this, e -> e.value, 0);
+    }
+    
     boolean resizeTable(int newCapacity) {
         if (table.length >= MAX_CAPACITY)
             return false;
@@ -218,6 +357,15 @@ public class HashMap<K, V> implements Map<K, V> {
         Entry[] newTable = new Entry[newCapacity];
         rehash(table, newTable);
         table = newTable;
+        
+        // Trees are rebuilt for the buckets whose chains are still long.
+        if (trees != null) {
+            trees = null;
+            for (int i = 0; i < table.length; i++)
+                if (isLongChain(table[i]))
+                    treeify(i);
+        }
+        
         return true;
     }
     
@@ -291,7 +439,7 @@ public class HashMap<K, V> implements Map<K, V> {
             if (obj == null)
                 return false;
                 
-            if (getClass() != obj.getClass())
+            if (!(obj instanceof Entry))
                 return false;
                 
             final Entry<?, ?> other = (Entry<?, ?>) obj;                
@@ -301,12 +449,178 @@ public class HashMap<K, V> implements Map<K, V> {
         
     }
     
+    /**
+     * An AVL tree indexing the entries of one bucket, ordered by hash and then
+     * by key. All keys in a tree are of the same Comparable class. The bucket's
+     * chain is kept alongside the tree, so iterating the map needs no trees.
+     */
+    static final class TreeBin<K, V> {
+        
+        final Class<?> keyClass;
+        TreeNode<K, V> root;
+        int size;
+        
+        TreeBin(Class<?> keyClass) {
+            this.keyClass = keyClass;
+        }
+        
+        Entry<K, V> find(int hash, Object key) {
+            TreeNode<K, V> n = root;
+            while (n != null) {
+                int c = compare(hash, key, n.entry);
+                if (c == 0)
+                    return key.equals(n.entry.key) ? n.entry : null;
+                n = c < 0 ? n.left : n.right;
+            }
+            
+            return null;
+        }
+        
+        /**
+         * Inserts a new entry into this tree.
+         * 
+         * @param e Entry whose key is not yet in the tree.
+         * @return False if the key can't be ordered against the other keys,
+         *         in which case the tree is no longer usable.
+         */
+        boolean insert(Entry<K, V> e) {
+            if (e.key.getClass() != keyClass)
+                return false;
+            
+            try {
+                root = insert(root, e);
+            } catch (IllegalArgumentException ex) {
+                return false;
+            }
+            
+            size++;
+            return true;
+        }
+        
+        void remove(Entry<K, V> e) {
+            root = remove(root, e);
+            size--;
+        }
+        
+        private TreeNode<K, V> insert(TreeNode<K, V> n, Entry<K, V> e) {
+            if (n == null)
+                return new TreeNode<>(e);
+            
+            int c = compare(e.hash, e.key, n.entry);
+            
+            // A compareTo inconsistent with equals can't be searched by.
+            if (c == 0)
+                throw new IllegalArgumentException();
+            
+            if (c < 0)
+                n.left = insert(n.left, e);
+            else
+                n.right = insert(n.right, e);
+            return balance(n);
+        }
+        
+        private TreeNode<K, V> remove(TreeNode<K, V> n, Entry<K, V> e) {
+            if (n.entry != e) {
+                if (compare(e.hash, e.key, n.entry) < 0)
+                    n.left = remove(n.left, e);
+                else
+                    n.right = remove(n.right, e);
+                return balance(n);
+            }
+            
+            if (n.left == null)
+                return n.right;
+            if (n.right == null)
+                return n.left;
+            
+            // Replace the node with its successor.
+            TreeNode<K, V> successor = n.right;
+            while (successor.left != null)
+                successor = successor.left;
+            successor.right = removeMin(n.right);
+            successor.left = n.left;
+            return balance(successor);
+        }
+        
+        private TreeNode<K, V> removeMin(TreeNode<K, V> n) {
+            if (n.left == null)
+                return n.right;
+            n.left = removeMin(n.left);
+            return balance(n);
+        }
+        
+        private static int compare(int hash, Object key, Entry<?, ?> e) {
+            if (hash != e.hash)
+                return hash < e.hash ? -1 : 1;
+            return ((Comparable) key).compareTo(e.key);
+        }
+        
+        private static <K, V> TreeNode<K, V> balance(TreeNode<K, V> n) {
+            int diff = height(n.left) - height(n.right);
+            if (diff > 1) {
+                if (height(n.left.left) < height(n.left.right))
+                    n.left = rotateLeft(n.left);
+                n = rotateRight(n);
+            } else if (diff < -1) {
+                if (height(n.right.right) < height(n.right.left))
+                    n.right = rotateRight(n.right);
+                n = rotateLeft(n);
+            } else {
+                n.updateHeight();
+            }
+            
+            return n;
+        }
+        
+        private static <K, V> TreeNode<K, V> rotateLeft(TreeNode<K, V> n) {
+            TreeNode<K, V> r = n.right;
+            n.right = r.left;
+            r.left = n;
+            n.updateHeight();
+            r.updateHeight();
+            return r;
+        }
+        
+        private static <K, V> TreeNode<K, V> rotateRight(TreeNode<K, V> n) {
+            TreeNode<K, V> l = n.left;
+            n.left = l.right;
+            l.right = n;
+            n.updateHeight();
+            l.updateHeight();
+            return l;
+        }
+        
+        static int height(TreeNode<?, ?> n) {
+            return n == null ? 0 : n.height;
+        }
+        
+        static final class TreeNode<K, V> {
+            final Entry<K, V> entry;
+            TreeNode<K, V> left;
+            TreeNode<K, V> right;
+            int height = 1;
+            
+            TreeNode(Entry<K, V> entry) {
+                this.entry = entry;
+            }
+            
+            void updateHeight() {
+                height = 1 + Math.max(height(left), height(right));
+            }
+        }
+    }
+    
     private class EntrySet extends AbstractSet<Map.Entry<K, V>> {
         @Override
         public Iterator<Map.Entry<K, V>> iterator() {
             return entryIterator();
         }
 
+        @Override
+        public Spliterator<Map.Entry<K, V>> spliterator() {
+            return entrySpliterator();
+        }
+
         @Override
         public int size() {
             return size;
@@ -319,6 +633,11 @@ public class HashMap<K, V> implements Map<K, V> {
             return keyIterator();
         }
 
+        @Override
+        public Spliterator<K> spliterator() {
+            return keySpliterator();
+        }
+
         @Override
         public int size() {
             return size;
@@ -331,6 +650,11 @@ public class HashMap<K, V> implements Map<K, V> {
             return valueIterator();
         }
 
+        @Override
+        public Spliterator<V> spliterator() {
+            return valueSpliterator();
+        }
+
         @Override
         public int size() {
             return size;
@@ -411,4 +735,115 @@ public class HashMap<K, V> implements Map<K, V> {
         }        
     }
 
+    /**
+     * Splits the bucket table in halves. Only the unsplit spliterator knows
+     * its exact size; halves estimate theirs as half of their parent's.
+     */
+    static final class MapSpliterator<K, V, T> implements Spliterator<T> {
+        
+        final HashMap<K, V> map;
+        final Function<Entry<K, V>, T> extractor;
+        final int extraCharacteristics;
+        
+        int index;
+        
+        // One past the last bucket, or -1 until the first use.
+        int fence;
+        int est;
+        int expectedMods;
+        Entry<K, V> current;
+        
+        MapSpliterator(HashMap<K, V> map, Function<Entry<K, V>, T> extractor,
+                       int extraCharacteristics) {
+            this(map, extractor, extraCharacteristics, 0, -1, 0, 0);
+        }
+        
+        MapSpliterator(HashMap<K, V> map, Function<Entry<K, V>, T> extractor,
+                       int extraCharacteristics, int origin, int fence,
+                       int est, int expectedMods) {
+            this.map = map;
+            this.extractor = extractor;
+            this.extraCharacteristics = extraCharacteristics;
+            this.index = origin;
+            this.fence = fence;
+            this.est = est;
+            this.expectedMods = expectedMods;
+        }
+        
+        private int getFence() {
+            if (fence < 0) {
+                est = map.size;
+                expectedMods = map.mods;
+                fence = map.table.length;
+            }
+            
+            return fence;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int hi = getFence();
+            int lo = index;
+            int mid = (lo + hi) >>> 1;
+            if (lo >= mid || current != null)
+                return null;
+            
+            index = mid;
+            est >>>= 1;
+            return new MapSpliterator<>(map, extractor, extraCharacteristics,
+                                        lo, mid, est, expectedMods);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            int hi = getFence();
+            Entry[] tab = map.table;
+            while (current != null || index < hi) {
+                if (current == null) {
+                    current = tab[index++];
+                } else {
+                    Entry<K, V> e = current;
+                    current = e.next;
+                    action.accept(extractor.apply(e));
+                    if (expectedMods != map.mods)
+                        throw new ConcurrentModificationException();
+                    return true;
+                }
+            }
+            
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            int hi = getFence();
+            Entry[] tab = map.table;
+            Entry<K, V> e = current;
+            current = null;
+            
+            // Finish the chain the last tryAdvance stopped in first.
+            for (; e != null; e = e.next)
+                action.accept(extractor.apply(e));
+            
+            for (; index < hi; index++)
+                for (e = tab[index]; e != null; e = e.next)
+                    action.accept(extractor.apply(e));
+            
+            if (expectedMods != map.mods)
+                throw new ConcurrentModificationException();
+        }
+
+        @Override
+        public long estimateSize() {
+            getFence();
+            return est;
+        }
+
+        @Override
+        public int characteristics() {
+            return (fence < 0 || est == map.size ? Spliterator.SIZED : 0)
+                    | extraCharacteristics;
+        }
+    }
+
 }
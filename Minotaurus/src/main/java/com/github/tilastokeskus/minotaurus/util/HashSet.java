@@ -27,6 +27,7 @@ package com.github.tilastokeskus.minotaurus.util;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.Spliterator;
 
 public class HashSet<E> implements Set<E> {
     
@@ -63,6 +64,11 @@ public class HashSet<E> implements Set<E> {
         return map.keyIterator();
     }
 
+    @Override
+    public Spliterator<E> spliterator() {
+        return map.keySpliterator();
+    }
+
     @Override
     public Object[] toArray() {
         return map.keySet().toArray();
@@ -0,0 +1,323 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.function.ToIntFunction;
+
+/**
+ * A binary min-heap that keeps track of where each of its elements lies in the
+ * heap. Every element maps to an integer key in the range
+ * {@code [0, keyCapacity)}, and at most one element per key may be queued at a
+ * time. This makes {@link #contains(Object)} a constant time operation, and
+ * {@link #remove(Object)} and {@link #decreaseKey(Object)} logarithmic.
+ * <p>
+ * In a maze, a natural key is the index of a cell, {@code y * width + x}.
+ * 
+ * @param <T> Type of elements to store.
+ */
+public final class IndexedPriorityQueue<T> {
+    
+    static final int INITIAL_CAPACITY = 16;
+    static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+    
+    final Comparator<? super T> comparator;
+    final ToIntFunction<? super T> keyFunction;
+    
+    /* Heap of elements, and the key of each element stored alongside it so
+     * that moving an element in the heap needs no call to the key function.
+     */
+    Object[] data;
+    int[] keys;
+    int numElements;
+    
+    // Heap index of the element with each key, or -1 if it isn't queued.
+    final int[] positions;
+    
+    /**
+     * Creates a new IndexedPriorityQueue.
+     * 
+     * @param comparator  Comparator used to order the elements.
+     * @param keyCapacity Number of distinct keys; keys must lie in
+     *                    {@code [0, keyCapacity)}.
+     * @param keyFunction Function mapping an element to its key.
+     */
+    public IndexedPriorityQueue(Comparator<? super T> comparator,
+                                int keyCapacity,
+                                ToIntFunction<? super T> keyFunction) {
+        if (keyCapacity < 0)
+            throw new IllegalArgumentException("Negative key capacity: " + keyCapacity);
+        
+        this.comparator = comparator;
+        this.keyFunction = keyFunction;
+        this.data = new Object[INITIAL_CAPACITY];
+        this.keys = new int[INITIAL_CAPACITY];
+        this.positions = new int[keyCapacity];
+        Arrays.fill(positions, -1);
+    }
+    
+    /**
+     * Returns the number of elements in this queue.
+     * 
+     * @return An integer.
+     */
+    public int size() {
+        return numElements;
+    }
+    
+    /**
+     * Returns whether or not this queue is empty.
+     * 
+     * @return True if queue is empty, otherwise false.
+     */
+    public boolean isEmpty() {
+        return numElements == 0;
+    }
+    
+    /**
+     * Removes all elements from this queue. Only the slots of queued elements
+     * are reset, so clearing a nearly empty queue is cheap no matter how many
+     * keys it supports.
+     */
+    public void clear() {
+        for (int i = 0; i < numElements; i++) {
+            positions[keys[i]] = -1;
+            data[i] = null;
+        }
+        
+        numElements = 0;
+    }
+    
+    /**
+     * Adds the specified element to this queue.
+     * 
+     * @param elem Element to add.
+     * @throws IllegalStateException if an element with the same key is
+     *                               already queued.
+     */
+    public void add(T elem) {
+        int key = keyFunction.applyAsInt(elem);
+        if (positions[key] != -1)
+            throw new IllegalStateException("Key already queued: " + key);
+        
+        if (numElements == data.length)
+            resize(data.length * 2);
+        
+        place(elem, key, numElements++);
+        siftUp(numElements - 1);
+    }
+    
+    /**
+     * Returns whether or not an element with the same key as the specified
+     * element is contained in this queue.
+     * 
+     * @param elem Element whose key to search for.
+     * @return True if such an element is queued, otherwise false.
+     */
+    public boolean contains(T elem) {
+        return containsKey(keyFunction.applyAsInt(elem));
+    }
+    
+    /**
+     * Returns whether or not an element with the specified key is contained in
+     * this queue.
+     * 
+     * @param key Key to search for.
+     * @return True if such an element is queued, otherwise false.
+     */
+    public boolean containsKey(int key) {
+        return positions[key] != -1;
+    }
+    
+    /**
+     * Returns the queued element with the specified key.
+     * 
+     * @param key Key of the element.
+     * @return The element, or null if no element with the key is queued.
+     */
+    public T get(int key) {
+        int index = positions[key];
+        return index == -1 ? null : (T) data[index];
+    }
+    
+    /**
+     * Replaces the queued element that has the same key as the specified
+     * element with the specified element, and restores the heap order. The new
+     * element would usually compare less than the one it replaces, but a
+     * greater one is sifted down just as well.
+     * 
+     * @param elem Element with a changed priority.
+     * @throws NoSuchElementException if no element with the same key is
+     *                                queued.
+     */
+    public void decreaseKey(T elem) {
+        int key = keyFunction.applyAsInt(elem);
+        int index = positions[key];
+        if (index == -1)
+            throw new NoSuchElementException("Key not queued: " + key);
+        
+        data[index] = elem;
+        if (siftUp(index) == index)
+            siftDown(index);
+    }
+    
+    /**
+     * Removes the element with the same key as the specified element from this
+     * queue if it exists.
+     * 
+     * @param elem Element whose key to remove.
+     * @return True if such an element existed, otherwise false.
+     */
+    public boolean remove(T elem) {
+        return removeKey(keyFunction.applyAsInt(elem)) != null;
+    }
+    
+    /**
+     * Removes the element with the specified key from this queue if it exists.
+     * 
+     * @param key Key of the element to remove.
+     * @return The removed element, or null if no element had the key.
+     */
+    public T removeKey(int key) {
+        int index = positions[key];
+        if (index == -1)
+            return null;
+        
+        return removeAt(index);
+    }
+    
+    /**
+     * Returns and removes the minimum element in this queue.
+     * 
+     * @return The minimum element, or null if the queue is empty.
+     */
+    public T extractMin() {
+        return numElements == 0 ? null : removeAt(0);
+    }
+    
+    /**
+     * Returns the minimum element in this queue.
+     * 
+     * @return The minimum element, or null if the queue is empty.
+     */
+    public T min() {
+        return (T) data[0];
+    }
+    
+    T removeAt(int index) {
+        T elem = (T) data[index];
+        positions[keys[index]] = -1;
+        
+        int last = --numElements;
+        if (index != last) {
+            place((T) data[last], keys[last], index);
+            data[last] = null;
+            
+            // The moved element may belong either above or below its new slot.
+            if (siftUp(index) == index)
+                siftDown(index);
+        } else {
+            data[last] = null;
+        }
+        
+        return elem;
+    }
+    
+    /**
+     * Moves the element at the specified index up in the heap until its parent
+     * is no greater than it.
+     * 
+     * @param index Index of the element to sift.
+     * @return The index the element ended up in.
+     */
+    int siftUp(int index) {
+        T elem = (T) data[index];
+        int key = keys[index];
+        
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            T p = (T) data[parent];
+            if (comparator.compare(elem, p) >= 0)
+                break;
+            
+            place(p, keys[parent], index);
+            index = parent;
+        }
+        
+        place(elem, key, index);
+        return index;
+    }
+    
+    /**
+     * Moves the element at the specified index down in the heap until it is
+     * no greater than either of its children.
+     * 
+     * @param index Index of the element to sift.
+     * @return The index the element ended up in.
+     */
+    int siftDown(int index) {
+        T elem = (T) data[index];
+        int key = keys[index];
+        int half = numElements >>> 1;
+        
+        // Nodes at or past half have no children.
+        while (index < half) {
+            int child = 2*index + 1;
+            int right = child + 1;
+            if (right < numElements
+                    && comparator.compare((T) data[right], (T) data[child]) < 0)
+                child = right;
+            
+            if (comparator.compare(elem, (T) data[child]) <= 0)
+                break;
+            
+            place((T) data[child], keys[child], index);
+            index = child;
+        }
+        
+        place(elem, key, index);
+        return index;
+    }
+    
+    private void place(T elem, int key, int index) {
+        data[index] = elem;
+        keys[index] = key;
+        positions[key] = index;
+    }
+    
+    void resize(int newCapacity) {
+        if (numElements == MAX_CAPACITY)
+            throw new IllegalStateException("Queue is full");
+        
+        if (newCapacity > MAX_CAPACITY || newCapacity < 0)
+            newCapacity = MAX_CAPACITY;
+        
+        data = Arrays.copyOf(data, newCapacity);
+        keys = Arrays.copyOf(keys, newCapacity);
+    }
+    
+}
@@ -0,0 +1,323 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.util;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from ints to ints that stores its keys and values in flat arrays
+ * without boxing them. Collisions are resolved by linear probing, and removal
+ * shifts the following entries back instead of leaving tombstones, so lookups
+ * never slow down as entries come and go.
+ * <p>
+ * A lookup of a missing key returns the map's no-entry value, which is 0
+ * unless specified otherwise.
+ */
+public class IntIntHashMap {
+    
+    static final int INITIAL_CAPACITY = 16;
+    static final int MAX_CAPACITY = 1<<30;
+    static final float LOAD_FACTOR = 0.5f;
+    
+    /* Key 0 marks a free slot, so an entry with key 0 is stored separately. */
+    private static final int FREE = 0;
+    
+    int[] keys;
+    int[] values;
+    int size;
+    
+    private boolean hasFreeKey;
+    private int freeKeyValue;
+    private final int noEntryValue;
+    
+    public IntIntHashMap() {
+        this(INITIAL_CAPACITY, 0);
+    }
+    
+    /**
+     * Creates a new map.
+     * 
+     * @param expectedSize Number of entries the map can hold without resizing.
+     * @param noEntryValue Value returned for missing keys.
+     */
+    public IntIntHashMap(int expectedSize, int noEntryValue) {
+        int capacity = capacityFor(expectedSize);
+        this.keys = new int[capacity];
+        this.values = new int[capacity];
+        this.noEntryValue = noEntryValue;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    /**
+     * Returns the value returned for missing keys.
+     * 
+     * @return The no-entry value.
+     */
+    public int getNoEntryValue() {
+        return noEntryValue;
+    }
+    
+    public boolean containsKey(int key) {
+        if (key == FREE)
+            return hasFreeKey;
+        
+        return indexOf(key) >= 0;
+    }
+    
+    /**
+     * Returns the value of the key.
+     * 
+     * @param key A key.
+     * @return The value of the key, or the no-entry value if the key is not in
+     *         the map.
+     */
+    public int get(int key) {
+        return getOrDefault(key, noEntryValue);
+    }
+    
+    /**
+     * Returns the value of the key.
+     * 
+     * @param key          A key.
+     * @param defaultValue Value to return if the key is not in the map.
+     * @return The value of the key, or the default value.
+     */
+    public int getOrDefault(int key, int defaultValue) {
+        if (key == FREE)
+            return hasFreeKey ? freeKeyValue : defaultValue;
+        
+        int i = indexOf(key);
+        return i >= 0 ? values[i] : defaultValue;
+    }
+    
+    /**
+     * Associates the value with the key.
+     * 
+     * @param key   A key.
+     * @param value Value of the key.
+     * @return The previous value of the key, or the no-entry value if there
+     *         was none.
+     */
+    public int put(int key, int value) {
+        if (key == FREE) {
+            int old = hasFreeKey ? freeKeyValue : noEntryValue;
+            if (!hasFreeKey)
+                size++;
+            hasFreeKey = true;
+            freeKeyValue = value;
+            return old;
+        }
+        
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (keys[i] != FREE) {
+            if (keys[i] == key) {
+                int old = values[i];
+                values[i] = value;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        
+        keys[i] = key;
+        values[i] = value;
+        if (++size > keys.length * LOAD_FACTOR)
+            resize(keys.length * 2);
+        return noEntryValue;
+    }
+    
+    /**
+     * Adds the delta to the value of the key. A missing key is treated as if
+     * it had the no-entry value.
+     * 
+     * @param key   A key.
+     * @param delta Amount to add.
+     * @return The new value of the key.
+     */
+    public int addTo(int key, int delta) {
+        int value = get(key) + delta;
+        put(key, value);
+        return value;
+    }
+    
+    /**
+     * Removes the key from the map.
+     * 
+     * @param key A key.
+     * @return The value the key had, or the no-entry value if it was not in
+     *         the map.
+     */
+    public int remove(int key) {
+        if (key == FREE) {
+            if (!hasFreeKey)
+                return noEntryValue;
+            hasFreeKey = false;
+            size--;
+            return freeKeyValue;
+        }
+        
+        int i = indexOf(key);
+        if (i < 0)
+            return noEntryValue;
+        
+        int old = values[i];
+        shiftBack(i);
+        size--;
+        return old;
+    }
+    
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        hasFreeKey = false;
+        size = 0;
+    }
+    
+    /**
+     * Performs the action for each entry in the map, in no particular order.
+     * The action must not modify the map.
+     * 
+     * @param action Action to perform.
+     */
+    public void forEach(EntryConsumer action) {
+        if (hasFreeKey)
+            action.accept(FREE, freeKeyValue);
+        
+        for (int i = 0; i < keys.length; i++)
+            if (keys[i] != FREE)
+                action.accept(keys[i], values[i]);
+    }
+    
+    /**
+     * Returns the keys of the map in an array, in no particular order.
+     * 
+     * @return A new array.
+     */
+    public int[] keys() {
+        int[] result = new int[size];
+        int n = 0;
+        if (hasFreeKey)
+            result[n++] = FREE;
+        for (int key : keys)
+            if (key != FREE)
+                result[n++] = key;
+        return result;
+    }
+    
+    int indexOf(int key) {
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (keys[i] != FREE) {
+            if (keys[i] == key)
+                return i;
+            i = (i + 1) & mask;
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Empties the slot, moving back any following entries that would not be
+     * found anymore because of the gap.
+     */
+    private void shiftBack(int gap) {
+        int mask = keys.length - 1;
+        int i = gap;
+        while (true) {
+            i = (i + 1) & mask;
+            int key = keys[i];
+            if (key == FREE)
+                break;
+            
+            // Move the entry to the gap unless its home slot lies after the gap.
+            int home = mix(key) & mask;
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = key;
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        
+        keys[gap] = FREE;
+    }
+    
+    void resize(int capacity) {
+        if (capacity > MAX_CAPACITY)
+            throw new IllegalStateException("Map is too large");
+        
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[capacity];
+        values = new int[capacity];
+        
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            int key = oldKeys[j];
+            if (key == FREE)
+                continue;
+            
+            int i = mix(key) & mask;
+            while (keys[i] != FREE)
+                i = (i + 1) & mask;
+            keys[i] = key;
+            values[i] = oldValues[j];
+        }
+    }
+    
+    static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+    
+    static int capacityFor(int expectedSize) {
+        if (expectedSize < 0)
+            throw new IllegalArgumentException("Negative size: " + expectedSize);
+        
+        long needed = (long) Math.ceil(expectedSize / (double) LOAD_FACTOR) + 1;
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < needed) {
+            if (capacity == MAX_CAPACITY)
+                throw new IllegalArgumentException("Too many entries: " + expectedSize);
+            capacity <<= 1;
+        }
+        
+        return capacity;
+    }
+    
+    /**
+     * Receives the entries of the map in {@link #forEach(EntryConsumer)}.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(int key, int value);
+    }
+    
+}
@@ -0,0 +1,271 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.util;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * A hash map from ints to objects that stores its keys in a flat array without
+ * boxing them. Collisions are resolved by linear probing, and removal shifts
+ * the following entries back instead of leaving tombstones. Null values are
+ * not allowed, so that a lookup of a missing key can return null.
+ * 
+ * @param <V> Type of the values.
+ */
+public class IntObjectHashMap<V> {
+    
+    static final int INITIAL_CAPACITY = 16;
+    static final int MAX_CAPACITY = 1<<30;
+    static final float LOAD_FACTOR = 0.5f;
+    
+    /* Key 0 marks a free slot, so an entry with key 0 is stored separately. */
+    private static final int FREE = 0;
+    
+    int[] keys;
+    Object[] values;
+    int size;
+    
+    private V freeKeyValue;
+    
+    public IntObjectHashMap() {
+        this(INITIAL_CAPACITY);
+    }
+    
+    /**
+     * Creates a new map.
+     * 
+     * @param expectedSize Number of entries the map can hold without resizing.
+     */
+    public IntObjectHashMap(int expectedSize) {
+        int capacity = IntIntHashMap.capacityFor(expectedSize);
+        this.keys = new int[capacity];
+        this.values = new Object[capacity];
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+    
+    /**
+     * Returns the value of the key.
+     * 
+     * @param key A key.
+     * @return The value of the key, or null if the key is not in the map.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        if (key == FREE)
+            return freeKeyValue;
+        
+        int i = indexOf(key);
+        return i >= 0 ? (V) values[i] : null;
+    }
+    
+    /**
+     * Associates the value with the key.
+     * 
+     * @param key   A key.
+     * @param value Value of the key, not null.
+     * @return The previous value of the key, or null if there was none.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null)
+            throw new NullPointerException("Null values are not allowed");
+        
+        if (key == FREE) {
+            V old = freeKeyValue;
+            if (old == null)
+                size++;
+            freeKeyValue = value;
+            return old;
+        }
+        
+        int mask = keys.length - 1;
+        int i = IntIntHashMap.mix(key) & mask;
+        while (keys[i] != FREE) {
+            if (keys[i] == key) {
+                V old = (V) values[i];
+                values[i] = value;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        
+        keys[i] = key;
+        values[i] = value;
+        if (++size > keys.length * LOAD_FACTOR)
+            resize(keys.length * 2);
+        return null;
+    }
+    
+    /**
+     * Returns the value of the key, first computing and storing it if the key
+     * is not in the map.
+     * 
+     * @param key      A key.
+     * @param function Function computing the value of a missing key.
+     * @return The value of the key.
+     */
+    public V computeIfAbsent(int key, IntFunction<? extends V> function) {
+        V value = get(key);
+        if (value == null) {
+            value = function.apply(key);
+            put(key, value);
+        }
+        
+        return value;
+    }
+    
+    /**
+     * Removes the key from the map.
+     * 
+     * @param key A key.
+     * @return The value the key had, or null if it was not in the map.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        if (key == FREE) {
+            V old = freeKeyValue;
+            if (old != null)
+                size--;
+            freeKeyValue = null;
+            return old;
+        }
+        
+        int i = indexOf(key);
+        if (i < 0)
+            return null;
+        
+        V old = (V) values[i];
+        shiftBack(i);
+        size--;
+        return old;
+    }
+    
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        Arrays.fill(values, null);
+        freeKeyValue = null;
+        size = 0;
+    }
+    
+    /**
+     * Performs the action for each entry in the map, in no particular order.
+     * The action must not modify the map.
+     * 
+     * @param action Action to perform.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> action) {
+        if (freeKeyValue != null)
+            action.accept(FREE, freeKeyValue);
+        
+        for (int i = 0; i < keys.length; i++)
+            if (keys[i] != FREE)
+                action.accept(keys[i], (V) values[i]);
+    }
+    
+    int indexOf(int key) {
+        int mask = keys.length - 1;
+        int i = IntIntHashMap.mix(key) & mask;
+        while (keys[i] != FREE) {
+            if (keys[i] == key)
+                return i;
+            i = (i + 1) & mask;
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Empties the slot, moving back any following entries that would not be
+     * found anymore because of the gap.
+     */
+    private void shiftBack(int gap) {
+        int mask = keys.length - 1;
+        int i = gap;
+        while (true) {
+            i = (i + 1) & mask;
+            int key = keys[i];
+            if (key == FREE)
+                break;
+            
+            // Move the entry to the gap unless its home slot lies after the gap.
+            int home = IntIntHashMap.mix(key) & mask;
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = key;
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        
+        keys[gap] = FREE;
+        values[gap] = null;
+    }
+    
+    void resize(int capacity) {
+        if (capacity > MAX_CAPACITY)
+            throw new IllegalStateException("Map is too large");
+        
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            int key = oldKeys[j];
+            if (key == FREE)
+                continue;
+            
+            int i = IntIntHashMap.mix(key) & mask;
+            while (keys[i] != FREE)
+                i = (i + 1) & mask;
+            keys[i] = key;
+            values[i] = oldValues[j];
+        }
+    }
+    
+    /**
+     * Receives the entries of the map in {@link #forEach(EntryConsumer)}.
+     * 
+     * @param <V> Type of the values.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(int key, V value);
+    }
+    
+}
@@ -0,0 +1,116 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.util;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A stack of primitive ints, stored in fixed-size array chunks like in
+ * {@link ArrayStack}. Neither adding nor popping boxes the values, and
+ * chunks are kept after their values are popped.
+ */
+public class IntStack {
+    
+    static final int CHUNK_SHIFT = 10;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    
+    int[][] chunks;
+    int allocatedChunks;
+    int size;
+    
+    public IntStack() {
+        this.chunks = new int[4][];
+        this.chunks[0] = new int[CHUNK_SIZE];
+        this.allocatedChunks = 1;
+        this.size = 0;
+    }
+    
+    /**
+     * Returns and removes the last added value of this stack.
+     * 
+     * @return The value.
+     * @throws NoSuchElementException if the stack is empty.
+     */
+    public int pop() {
+        if (size == 0)
+            throw new NoSuchElementException("Stack is empty");
+        
+        size--;
+        return chunks[size >>> CHUNK_SHIFT][size & CHUNK_MASK];
+    }
+    
+    /**
+     * Returns the last added value of this stack.
+     * 
+     * @return The value.
+     * @throws NoSuchElementException if the stack is empty.
+     */
+    public int peek() {
+        if (size == 0)
+            throw new NoSuchElementException("Stack is empty");
+        
+        int last = size - 1;
+        return chunks[last >>> CHUNK_SHIFT][last & CHUNK_MASK];
+    }
+    
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void add(int value) {
+        int chunk = size >>> CHUNK_SHIFT;
+        if (chunk == allocatedChunks)
+            allocateChunk();
+        
+        chunks[chunk][size & CHUNK_MASK] = value;
+        size++;
+    }
+
+    /**
+     * Removes all values from this stack, and releases all but the first
+     * chunk.
+     */
+    public void clear() {
+        for (int c = 1; c < allocatedChunks; c++)
+            chunks[c] = null;
+        
+        allocatedChunks = 1;
+        size = 0;
+    }
+    
+    private void allocateChunk() {
+        if (allocatedChunks == chunks.length)
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+        
+        chunks[allocatedChunks++] = new int[CHUNK_SIZE];
+    }
+
+}
@@ -0,0 +1,307 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.util;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * A HashMap that also links its entries in a doubly-linked list, and iterates
+ * them in the order of the list. The order is either the order in which the
+ * keys were inserted, or the order in which they were last accessed, from the
+ * least recent to the most recent. Iterating takes time proportional to the
+ * size of the map instead of the capacity of its table.
+ * <p>
+ * In an access-ordered map, {@link #get(Object)} and replacing the value of an
+ * existing key move the key to the end of the order. Like any other change to
+ * the order, this invalidates the map's iterators.
+ * 
+ * @param <K> Type of keys.
+ * @param <V> Type of values.
+ */
+public class LinkedHashMap<K, V> extends HashMap<K, V> {
+    
+    final boolean accessOrder;
+    
+    // Least and most recently inserted or accessed entries.
+    LinkedEntry<K, V> head;
+    LinkedEntry<K, V> tail;
+    
+    /**
+     * Creates a new insertion-ordered LinkedHashMap.
+     */
+    public LinkedHashMap() {
+        this(false);
+    }
+    
+    /**
+     * Creates a new LinkedHashMap.
+     * 
+     * @param accessOrder True to order the keys by access, false to order them
+     *                    by insertion.
+     */
+    public LinkedHashMap(boolean accessOrder) {
+        this.accessOrder = accessOrder;
+    }
+    
+    /**
+     * Creates a new insertion-ordered LinkedHashMap containing the mappings of
+     * the specified map, in the order of its iterator.
+     * 
+     * @param m Map whose mappings to copy.
+     */
+    public LinkedHashMap(Map<? extends K, ? extends V> m) {
+        this(false);
+        putAll(m);
+    }
+    
+    /**
+     * Returns whether or not this map is ordered by access.
+     * 
+     * @return True if ordered by access, false if ordered by insertion.
+     */
+    public boolean isAccessOrder() {
+        return accessOrder;
+    }
+    
+    /**
+     * Returns the least recently inserted entry, or in an access-ordered map
+     * the least recently accessed entry. The entry doesn't count as accessed.
+     * 
+     * @return The eldest entry, or null if the map is empty.
+     */
+    public Map.Entry<K, V> eldest() {
+        return head;
+    }
+    
+    /**
+     * Returns the most recently inserted entry, or in an access-ordered map
+     * the most recently accessed entry.
+     * 
+     * @return The youngest entry, or null if the map is empty.
+     */
+    public Map.Entry<K, V> youngest() {
+        return tail;
+    }
+    
+    @Override
+    public V get(Object key) {
+        Entry<K, V> e = getEntry(key);
+        if (e == null)
+            return null;
+        
+        afterAccess(e);
+        return e.value;
+    }
+    
+    @Override
+    public boolean containsValue(Object value) {
+        for (LinkedEntry<K, V> e = head; e != null; e = e.after)
+            if (value.equals(e.value))
+                return true;
+        
+        return false;
+    }
+    
+    @Override
+    public void clear() {
+        super.clear();
+        head = null;
+        tail = null;
+    }
+    
+    /**
+     * Called after a new key has been put into this map, to decide whether the
+     * eldest entry should be removed. The default never removes entries;
+     * subclasses can override this to bound the size of the map.
+     * 
+     * @param eldest The eldest entry, which may be the one just inserted.
+     * @return True to remove the eldest entry, otherwise false.
+     */
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+        return false;
+    }
+    
+    @Override
+    Entry<K, V> newEntry(int hash, K key, V value, Entry<K, V> next) {
+        LinkedEntry<K, V> e = new LinkedEntry<>(hash, key, value, next);
+        linkLast(e);
+        return e;
+    }
+    
+    @Override
+    void afterAccess(Entry<K, V> e) {
+        LinkedEntry<K, V> le = (LinkedEntry<K, V>) e;
+        if (accessOrder && le != tail) {
+            unlink(le);
+            linkLast(le);
+            mods++;
+        }
+    }
+    
+    @Override
+    void afterInsertion() {
+        LinkedEntry<K, V> eldest = head;
+        if (eldest != null && removeEldestEntry(eldest))
+            remove(eldest.key);
+    }
+    
+    @Override
+    void afterRemoval(Entry<K, V> e) {
+        unlink((LinkedEntry<K, V>) e);
+    }
+    
+    private void linkLast(LinkedEntry<K, V> e) {
+        e.before = tail;
+        e.after = null;
+        if (tail == null)
+            head = e;
+        else
+            tail.after = e;
+        tail = e;
+    }
+    
+    private void unlink(LinkedEntry<K, V> e) {
+        if (e.before == null)
+            head = e.after;
+        else
+            e.before.after = e.after;
+        
+        if (e.after == null)
+            tail = e.before;
+        else
+            e.after.before = e.before;
+        
+        e.before = null;
+        e.after = null;
+    }
+    
+    @Override
+    Iterator<Map.Entry<K, V>> entryIterator() {
+        return new LinkedIterator<Map.Entry<K, V>>() {
+            @Override
+            public Map.Entry<K, V> next() {
+                return nextEntry();
+            }
+        };
+    }
+    
+    @Override
+    Iterator<K> keyIterator() {
+        return new LinkedIterator<K>() {
+            @Override
+            public K next() {
+                return nextEntry().key;
+            }
+        };
+    }
+    
+    @Override
+    Iterator<V> valueIterator() {
+        return new LinkedIterator<V>() {
+            @Override
+            public V next() {
+                return nextEntry().value;
+            }
+        };
+    }
+    
+    /* A linked list can't be split in the middle, so the spliterators split
+     * off batches from the front of the list instead.
+     */
+    
+    @Override
+    Spliterator<Map.Entry<K, V>> entrySpliterator() {
+        return Spliterators.spliterator(entryIterator(), size,
+                Spliterator.ORDERED | Spliterator.DISTINCT);
+    }
+    
+    @Override
+    Spliterator<K> keySpliterator() {
+        return Spliterators.spliterator(keyIterator(), size,
+                Spliterator.ORDERED | Spliterator.DISTINCT);
+    }
+    
+    @Override
+    Spliterator<V> valueSpliterator() {
+        return Spliterators.spliterator(valueIterator(), size,
+                Spliterator.ORDERED);
+    }
+    
+    static class LinkedEntry<K, V> extends Entry<K, V> {
+        
+        LinkedEntry<K, V> before;
+        LinkedEntry<K, V> after;
+        
+        LinkedEntry(int hash, K key, V value, Entry<K, V> next) {
+            super(hash, key, value, next);
+        }
+    }
+    
+    private abstract class LinkedIterator<E> implements Iterator<E> {
+        LinkedEntry<K, V> next;
+        LinkedEntry<K, V> current;
+        int expectedMods;
+        
+        LinkedIterator() {
+            next = head;
+            expectedMods = mods;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+        
+        @Override
+        public void remove() {
+            if (current == null)
+                throw new IllegalStateException();
+            if (expectedMods != mods)
+                throw new ConcurrentModificationException();
+            
+            K k = current.key;
+            current = null;
+            LinkedHashMap.this.remove(k);
+            expectedMods = mods;
+        }
+        
+        LinkedEntry<K, V> nextEntry() {
+            if (next == null)
+                throw new NoSuchElementException();
+            if (expectedMods != mods)
+                throw new ConcurrentModificationException();
+            
+            current = next;
+            next = next.after;
+            return current;
+        }
+    }
+    
+}
@@ -0,0 +1,209 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.util;
+
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * A cache that holds mappings up to a maximum total weight, and evicts the
+ * least recently used mappings to make room for new ones. By default every
+ * mapping weighs one, so the maximum weight is the maximum number of mappings.
+ * <p>
+ * A listener can be notified of evicted mappings, for example to return pooled
+ * arrays. Mappings that are removed, replaced or cleared explicitly are not
+ * reported as evicted.
+ * <p>
+ * LruCache is not synchronized.
+ * 
+ * @param <K> Type of keys.
+ * @param <V> Type of values.
+ */
+public class LruCache<K, V> {
+    
+    final LinkedHashMap<K, V> map;
+    final long maxWeight;
+    final ToIntBiFunction<? super K, ? super V> weigher;
+    long weight;
+    
+    BiConsumer<? super K, ? super V> evictionListener;
+    
+    /**
+     * Creates a new LruCache that holds at most the specified number of
+     * mappings.
+     * 
+     * @param maxSize Maximum number of mappings.
+     */
+    public LruCache(int maxSize) {
+        this(maxSize, (k, v) -> 1);
+    }
+    
+    /**
+     * Creates a new LruCache that holds mappings up to the specified total
+     * weight. A mapping heavier than the maximum weight is evicted as soon as
+     * it is put.
+     * 
+     * @param maxWeight Maximum total weight of the mappings.
+     * @param weigher   Function giving the weight of a mapping. The weight of a
+     *                  mapping must not change while it is in the cache.
+     */
+    public LruCache(long maxWeight, ToIntBiFunction<? super K, ? super V> weigher) {
+        if (maxWeight < 0)
+            throw new IllegalArgumentException("Negative maximum weight: " + maxWeight);
+        
+        this.map = new LinkedHashMap<>(true);
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+    
+    /**
+     * Sets the listener notified of each mapping evicted from this cache.
+     * 
+     * @param listener Listener taking the key and value of an evicted mapping,
+     *                 or null for none.
+     */
+    public void setEvictionListener(BiConsumer<? super K, ? super V> listener) {
+        this.evictionListener = listener;
+    }
+    
+    /**
+     * Returns the value mapped to the specified key, and marks the mapping as
+     * the most recently used.
+     * 
+     * @param key Key to look up.
+     * @return The value, or null if the key isn't cached.
+     */
+    public V get(K key) {
+        return map.get(key);
+    }
+    
+    /**
+     * Returns whether or not the specified key is cached. Doesn't count as a
+     * use of the mapping.
+     * 
+     * @param key Key to look up.
+     * @return True if the key is cached, otherwise false.
+     */
+    public boolean containsKey(K key) {
+        return map.containsKey(key);
+    }
+    
+    /**
+     * Maps the specified key to the specified value as the most recently used
+     * mapping, evicting the least recently used mappings if the cache grows
+     * too heavy.
+     * 
+     * @param key   Key to cache.
+     * @param value Value to cache.
+     * @return The value previously mapped to the key, or null if there was none.
+     */
+    public V put(K key, V value) {
+        int w = weightOf(key, value);
+        V oldValue = map.put(key, value);
+        if (oldValue != null)
+            weight -= weigher.applyAsInt(key, oldValue);
+        
+        weight += w;
+        evict();
+        return oldValue;
+    }
+    
+    /**
+     * Returns the value mapped to the specified key, computing and caching it
+     * first if the key isn't cached.
+     * 
+     * @param key    Key to look up.
+     * @param loader Function computing the value of an uncached key. If it
+     *               returns null, nothing is cached.
+     * @return The cached or computed value.
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+        V value = map.get(key);
+        if (value == null) {
+            value = loader.apply(key);
+            if (value != null)
+                put(key, value);
+        }
+        
+        return value;
+    }
+    
+    /**
+     * Removes the specified key from this cache. The eviction listener is not
+     * notified.
+     * 
+     * @param key Key to remove.
+     * @return The value mapped to the key, or null if it wasn't cached.
+     */
+    public V remove(K key) {
+        V value = map.remove(key);
+        if (value != null)
+            weight -= weigher.applyAsInt(key, value);
+        return value;
+    }
+    
+    /**
+     * Removes all mappings from this cache. The eviction listener is not
+     * notified.
+     */
+    public void clear() {
+        map.clear();
+        weight = 0;
+    }
+    
+    public int size() {
+        return map.size();
+    }
+    
+    public long weight() {
+        return weight;
+    }
+    
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+    
+    private int weightOf(K key, V value) {
+        int w = weigher.applyAsInt(key, value);
+        if (w < 0)
+            throw new IllegalArgumentException("Negative weight: " + w);
+        return w;
+    }
+    
+    private void evict() {
+        while (weight > maxWeight) {
+            Map.Entry<K, V> eldest = map.eldest();
+            K key = eldest.getKey();
+            V value = eldest.getValue();
+            map.remove(key);
+            weight -= weigher.applyAsInt(key, value);
+            if (evictionListener != null)
+                evictionListener.accept(key, value);
+        }
+    }
+    
+}
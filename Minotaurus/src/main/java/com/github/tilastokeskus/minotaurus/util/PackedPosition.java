@@ -0,0 +1,153 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.util;
+
+/**
+ * Helpers for encoding positions as primitives, so that hot loops need not
+ * allocate a {@link Position} for every cell they look at.
+ * <p>
+ * A position packed into an {@code int} is the index of its cell,
+ * {@code y * width + x}, and only positions inside a maze of the given width
+ * can be packed this way. A position packed into a {@code long} holds both
+ * coordinates in full and needs no width, so it also works for positions
+ * outside of the maze.
+ */
+public final class PackedPosition {
+    
+    private PackedPosition() {
+    }
+    
+    /**
+     * Packs the specified position into the index of its cell in a maze of
+     * the specified width.
+     * 
+     * @param x     X position, in {@code [0, width)}.
+     * @param y     Y position, no less than zero.
+     * @param width Width of the maze.
+     * @return The cell index.
+     */
+    public static int pack(int x, int y, int width) {
+        return y * width + x;
+    }
+    
+    /**
+     * Packs the specified position into the index of its cell in a maze of
+     * the specified width.
+     * 
+     * @param pos   Position to pack.
+     * @param width Width of the maze.
+     * @return The cell index.
+     */
+    public static int pack(Position pos, int width) {
+        return pack(pos.x, pos.y, width);
+    }
+    
+    /**
+     * Returns the x position of the specified cell index.
+     * 
+     * @param packed Cell index.
+     * @param width  Width of the maze.
+     * @return X position.
+     */
+    public static int unpackX(int packed, int width) {
+        return packed % width;
+    }
+    
+    /**
+     * Returns the y position of the specified cell index.
+     * 
+     * @param packed Cell index.
+     * @param width  Width of the maze.
+     * @return Y position.
+     */
+    public static int unpackY(int packed, int width) {
+        return packed / width;
+    }
+    
+    /**
+     * Returns the position of the specified cell index.
+     * 
+     * @param packed Cell index.
+     * @param width  Width of the maze.
+     * @return A new Position.
+     */
+    public static Position toPosition(int packed, int width) {
+        return new Position(unpackX(packed, width), unpackY(packed, width));
+    }
+    
+    /**
+     * Packs the specified position into a long, with x in the high and y in
+     * the low 32 bits.
+     * 
+     * @param x X position.
+     * @param y Y position.
+     * @return The packed position.
+     */
+    public static long packLong(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+    
+    /**
+     * Packs the specified position into a long.
+     * 
+     * @param pos Position to pack.
+     * @return The packed position.
+     * @see #packLong(int, int)
+     */
+    public static long packLong(Position pos) {
+        return packLong(pos.x, pos.y);
+    }
+    
+    /**
+     * Returns the x position of the specified packed long.
+     * 
+     * @param packed Position packed with {@link #packLong(int, int)}.
+     * @return X position.
+     */
+    public static int unpackX(long packed) {
+        return (int) (packed >> 32);
+    }
+    
+    /**
+     * Returns the y position of the specified packed long.
+     * 
+     * @param packed Position packed with {@link #packLong(int, int)}.
+     * @return Y position.
+     */
+    public static int unpackY(long packed) {
+        return (int) packed;
+    }
+    
+    /**
+     * Returns the position of the specified packed long.
+     * 
+     * @param packed Position packed with {@link #packLong(int, int)}.
+     * @return A new Position.
+     */
+    public static Position toPosition(long packed) {
+        return new Position(unpackX(packed), unpackY(packed));
+    }
+    
+}
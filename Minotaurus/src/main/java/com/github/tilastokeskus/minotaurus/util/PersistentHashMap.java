@@ -0,0 +1,644 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * An immutable hash map. Instead of modifying the map, {@link #with} and
+ * {@link #without} return a new version of it that shares all unchanged parts
+ * with the old one. Both versions stay valid, so keeping a snapshot of the map
+ * costs nothing, and each change costs O(log n) time and memory.
+ * <p>
+ * The map is a hash array mapped trie: every level of the trie consumes five
+ * bits of a key's hash, and each node stores its entries and its child nodes
+ * in one compact array indexed by bitmaps.
+ * <p>
+ * Neither keys nor values may be null.
+ * 
+ * @param <K> Type of keys.
+ * @param <V> Type of values.
+ */
+public final class PersistentHashMap<K, V> implements Iterable<Map.Entry<K, V>> {
+    
+    static final int BITS = 5;
+    static final int MASK = (1 << BITS) - 1;
+    
+    private static final PersistentHashMap EMPTY =
+            new PersistentHashMap<>(BitmapNode.EMPTY, 0);
+    
+    final Node root;
+    final int size;
+    
+    private PersistentHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+    
+    /**
+     * Returns the empty map.
+     * 
+     * @param <K> Type of keys.
+     * @param <V> Type of values.
+     * @return An empty PersistentHashMap.
+     */
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        return EMPTY;
+    }
+    
+    /**
+     * Returns a map with the same mappings as the specified map.
+     * 
+     * @param <K> Type of keys.
+     * @param <V> Type of values.
+     * @param m   Map to copy.
+     * @return A PersistentHashMap.
+     */
+    public static <K, V> PersistentHashMap<K, V> of(Map<? extends K, ? extends V> m) {
+        PersistentHashMap<K, V> map = empty();
+        for (Map.Entry<? extends K, ? extends V> e : m.entrySet())
+            map = map.with(e.getKey(), e.getValue());
+        return map;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+    
+    /**
+     * Returns the value of the specified key.
+     * 
+     * @param key Key to search for.
+     * @return The value, or null if the key is not in the map.
+     */
+    public V get(Object key) {
+        return (V) root.get(key, hash(key), 0);
+    }
+    
+    public V getOrDefault(Object key, V defaultValue) {
+        V value = get(key);
+        return value != null ? value : defaultValue;
+    }
+    
+    /**
+     * Returns a map where the specified key maps to the specified value, and
+     * which otherwise equals this map.
+     * 
+     * @param key   Key to add or replace.
+     * @param value Value of the key.
+     * @return A map with the mapping, or this map if the key already mapped
+     *         to the very same value.
+     */
+    public PersistentHashMap<K, V> with(K key, V value) {
+        Objects.requireNonNull(value);
+        Change change = new Change();
+        Node newRoot = root.with(key, value, hash(key), 0, change);
+        if (newRoot == root)
+            return this;
+        return new PersistentHashMap<>(newRoot, change.added ? size + 1 : size);
+    }
+    
+    /**
+     * Returns a map without the specified key, which otherwise equals this
+     * map.
+     * 
+     * @param key Key to remove.
+     * @return A map without the key, or this map if the key was not in it.
+     */
+    public PersistentHashMap<K, V> without(Object key) {
+        Node newRoot = root.without(key, hash(key), 0);
+        if (newRoot == root)
+            return this;
+        return new PersistentHashMap<>(newRoot, size - 1);
+    }
+    
+    /**
+     * Performs the specified action for each mapping in this map.
+     * 
+     * @param action Action to perform.
+     */
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        root.forEach(action);
+    }
+    
+    /**
+     * Returns an iterator of the mappings in this map. The entries cannot be
+     * modified.
+     * 
+     * @return An iterator.
+     */
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator() {
+        return new EntryIterator<>(root);
+    }
+    
+    /**
+     * Returns an unmodifiable {@link Map} view of this map.
+     * 
+     * @return A Map.
+     */
+    public Map<K, V> asMap() {
+        return new AbstractMap<K, V>() {
+            @Override
+            public Set<Map.Entry<K, V>> entrySet() {
+                return new AbstractSet<Map.Entry<K, V>>() {
+                    @Override
+                    public Iterator<Map.Entry<K, V>> iterator() {
+                        return PersistentHashMap.this.iterator();
+                    }
+
+                    @Override
+                    public int size() {
+                        return size;
+                    }
+                };
+            }
+
+            @Override
+            public V get(Object key) {
+                return key == null ? null : PersistentHashMap.this.get(key);
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return get(key) != null;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        
+        if (!(obj instanceof PersistentHashMap))
+            return false;
+        
+        PersistentHashMap<?, ?> other = (PersistentHashMap<?, ?>) obj;
+        if (size != other.size)
+            return false;
+        
+        for (Map.Entry<K, V> e : this)
+            if (!e.getValue().equals(other.get(e.getKey())))
+                return false;
+        
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (Map.Entry<K, V> e : this)
+            hash += e.getKey().hashCode() ^ e.getValue().hashCode();
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return asMap().toString();
+    }
+    
+    static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+    
+    /**
+     * Records what an insertion did, as the new node alone cannot tell.
+     */
+    static final class Change {
+        boolean added;
+    }
+    
+    /**
+     * A node of the trie. Nodes are never modified after they have been
+     * handed to a map.
+     */
+    static abstract class Node {
+        
+        abstract Object get(Object key, int hash, int shift);
+        
+        /**
+         * Returns a node with the mapping, or this node if nothing changed.
+         */
+        abstract Node with(Object key, Object value, int hash, int shift, Change change);
+        
+        /**
+         * Returns a node without the key, or this node if the key was not in
+         * it.
+         */
+        abstract Node without(Object key, int hash, int shift);
+        
+        abstract boolean hasNodes();
+        
+        abstract int entryCount();
+        
+        abstract Object keyAt(int index);
+        
+        abstract Object valueAt(int index);
+        
+        abstract int nodeCount();
+        
+        abstract Node nodeAt(int index);
+        
+        @SuppressWarnings("unchecked")
+        <K, V> void forEach(BiConsumer<? super K, ? super V> action) {
+            for (int i = 0; i < entryCount(); i++)
+                action.accept((K) keyAt(i), (V) valueAt(i));
+            for (int i = 0; i < nodeCount(); i++)
+                nodeAt(i).forEach(action);
+        }
+    }
+    
+    /**
+     * A node with up to 32 slots, each holding either an entry or a child
+     * node. Entries are stored as key-value pairs at the front of the content
+     * array and child nodes in reverse order at its back, so that both can be
+     * found with a population count of the matching bitmap.
+     */
+    static final class BitmapNode extends Node {
+        
+        static final BitmapNode EMPTY = new BitmapNode(0, 0, new Object[0]);
+        
+        final int dataMap;
+        final int nodeMap;
+        final Object[] content;
+        
+        BitmapNode(int dataMap, int nodeMap, Object[] content) {
+            this.dataMap = dataMap;
+            this.nodeMap = nodeMap;
+            this.content = content;
+        }
+
+        @Override
+        Object get(Object key, int hash, int shift) {
+            int bit = bit(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int i = dataIndex(bit);
+                return key.equals(content[2*i]) ? content[2*i + 1] : null;
+            }
+            
+            if ((nodeMap & bit) != 0)
+                return node(nodeIndex(bit)).get(key, hash, shift + BITS);
+            
+            return null;
+        }
+
+        @Override
+        Node with(Object key, Object value, int hash, int shift, Change change) {
+            int bit = bit(hash, shift);
+            
+            if ((dataMap & bit) != 0) {
+                int i = dataIndex(bit);
+                Object k = content[2*i];
+                if (key.equals(k)) {
+                    if (content[2*i + 1] == value)
+                        return this;
+                    
+                    Object[] c = content.clone();
+                    c[2*i + 1] = value;
+                    return new BitmapNode(dataMap, nodeMap, c);
+                }
+                
+                // Two keys share this slot, so push both a level down.
+                change.added = true;
+                Node sub = merge(k, content[2*i + 1], hash(k),
+                                 key, value, hash, shift + BITS);
+                return dataToNode(bit, i, sub);
+            }
+            
+            if ((nodeMap & bit) != 0) {
+                int j = nodeIndex(bit);
+                Node child = node(j);
+                Node newChild = child.with(key, value, hash, shift + BITS, change);
+                if (newChild == child)
+                    return this;
+                
+                Object[] c = content.clone();
+                c[content.length - 1 - j] = newChild;
+                return new BitmapNode(dataMap, nodeMap, c);
+            }
+            
+            change.added = true;
+            int i = dataIndex(bit);
+            Object[] c = new Object[content.length + 2];
+            System.arraycopy(content, 0, c, 0, 2*i);
+            c[2*i] = key;
+            c[2*i + 1] = value;
+            System.arraycopy(content, 2*i, c, 2*i + 2, content.length - 2*i);
+            return new BitmapNode(dataMap | bit, nodeMap, c);
+        }
+
+        @Override
+        Node without(Object key, int hash, int shift) {
+            int bit = bit(hash, shift);
+            
+            if ((dataMap & bit) != 0) {
+                int i = dataIndex(bit);
+                if (!key.equals(content[2*i]))
+                    return this;
+                
+                Object[] c = new Object[content.length - 2];
+                System.arraycopy(content, 0, c, 0, 2*i);
+                System.arraycopy(content, 2*i + 2, c, 2*i, content.length - 2*i - 2);
+                return new BitmapNode(dataMap ^ bit, nodeMap, c);
+            }
+            
+            if ((nodeMap & bit) != 0) {
+                int j = nodeIndex(bit);
+                Node child = node(j);
+                Node newChild = child.without(key, hash, shift + BITS);
+                if (newChild == child)
+                    return this;
+                
+                // A child left with a single entry is inlined into this node.
+                if (!newChild.hasNodes() && newChild.entryCount() == 1)
+                    return nodeToData(bit, j, newChild.keyAt(0), newChild.valueAt(0));
+                
+                Object[] c = content.clone();
+                c[content.length - 1 - j] = newChild;
+                return new BitmapNode(dataMap, nodeMap, c);
+            }
+            
+            return this;
+        }
+        
+        private Node dataToNode(int bit, int i, Node sub) {
+            int j = nodeIndex(bit);
+            Object[] c = new Object[content.length - 1];
+            int nodeStart = content.length - 1 - j;
+            
+            // Entries before i, entries after i, nodes up to j, new node, rest.
+            System.arraycopy(content, 0, c, 0, 2*i);
+            System.arraycopy(content, 2*i + 2, c, 2*i, nodeStart + 1 - 2*i - 2);
+            c[nodeStart - 1] = sub;
+            System.arraycopy(content, nodeStart + 1, c, nodeStart, content.length - nodeStart - 1);
+            return new BitmapNode(dataMap ^ bit, nodeMap | bit, c);
+        }
+        
+        private Node nodeToData(int bit, int j, Object key, Object value) {
+            int i = dataIndex(bit);
+            Object[] c = new Object[content.length + 1];
+            int nodePos = content.length - 1 - j;
+            
+            System.arraycopy(content, 0, c, 0, 2*i);
+            c[2*i] = key;
+            c[2*i + 1] = value;
+            System.arraycopy(content, 2*i, c, 2*i + 2, nodePos - 2*i);
+            System.arraycopy(content, nodePos + 1, c, nodePos + 2, content.length - nodePos - 1);
+            return new BitmapNode(dataMap | bit, nodeMap ^ bit, c);
+        }
+        
+        private int dataIndex(int bit) {
+            return Integer.bitCount(dataMap & (bit - 1));
+        }
+        
+        private int nodeIndex(int bit) {
+            return Integer.bitCount(nodeMap & (bit - 1));
+        }
+        
+        private Node node(int j) {
+            return (Node) content[content.length - 1 - j];
+        }
+
+        @Override
+        boolean hasNodes() {
+            return nodeMap != 0;
+        }
+
+        @Override
+        int entryCount() {
+            return Integer.bitCount(dataMap);
+        }
+
+        @Override
+        Object keyAt(int index) {
+            return content[2*index];
+        }
+
+        @Override
+        Object valueAt(int index) {
+            return content[2*index + 1];
+        }
+
+        @Override
+        int nodeCount() {
+            return Integer.bitCount(nodeMap);
+        }
+
+        @Override
+        Node nodeAt(int index) {
+            return node(index);
+        }
+    }
+    
+    /**
+     * A node for keys whose hashes are entirely equal.
+     */
+    static final class CollisionNode extends Node {
+        
+        final int hash;
+        final Object[] content;
+        
+        CollisionNode(int hash, Object[] content) {
+            this.hash = hash;
+            this.content = content;
+        }
+        
+        private int indexOf(Object key) {
+            for (int i = 0; i < content.length; i += 2)
+                if (key.equals(content[i]))
+                    return i;
+            return -1;
+        }
+
+        @Override
+        Object get(Object key, int hash, int shift) {
+            int i = indexOf(key);
+            return i == -1 ? null : content[i + 1];
+        }
+
+        @Override
+        Node with(Object key, Object value, int hash, int shift, Change change) {
+            
+            /* The hashes agree on the bits below the shift but differ above
+             * it, so a bitmap level can tell the keys apart.
+             */
+            if (hash != this.hash) {
+                Node level = new BitmapNode(0, bit(this.hash, shift), new Object[] {this});
+                return level.with(key, value, hash, shift, change);
+            }
+            
+            int i = indexOf(key);
+            if (i != -1) {
+                if (content[i + 1] == value)
+                    return this;
+                
+                Object[] c = content.clone();
+                c[i + 1] = value;
+                return new CollisionNode(hash, c);
+            }
+            
+            change.added = true;
+            Object[] c = Arrays.copyOf(content, content.length + 2);
+            c[content.length] = key;
+            c[content.length + 1] = value;
+            return new CollisionNode(hash, c);
+        }
+
+        @Override
+        Node without(Object key, int hash, int shift) {
+            int i = indexOf(key);
+            if (i == -1)
+                return this;
+            
+            Object[] c = new Object[content.length - 2];
+            System.arraycopy(content, 0, c, 0, i);
+            System.arraycopy(content, i + 2, c, i, content.length - i - 2);
+            return new CollisionNode(hash, c);
+        }
+
+        @Override
+        boolean hasNodes() {
+            return false;
+        }
+
+        @Override
+        int entryCount() {
+            return content.length / 2;
+        }
+
+        @Override
+        Object keyAt(int index) {
+            return content[2*index];
+        }
+
+        @Override
+        Object valueAt(int index) {
+            return content[2*index + 1];
+        }
+
+        @Override
+        int nodeCount() {
+            return 0;
+        }
+
+        @Override
+        Node nodeAt(int index) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+    
+    static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+    
+    /**
+     * Creates a node holding two entries whose hashes agree on all bits below
+     * the specified shift.
+     */
+    static Node merge(Object k1, Object v1, int h1,
+                      Object k2, Object v2, int h2, int shift) {
+        if (h1 == h2 || shift >= 32)
+            return new CollisionNode(h1, new Object[] {k1, v1, k2, v2});
+        
+        int f1 = (h1 >>> shift) & MASK;
+        int f2 = (h2 >>> shift) & MASK;
+        if (f1 == f2) {
+            Node sub = merge(k1, v1, h1, k2, v2, h2, shift + BITS);
+            return new BitmapNode(0, 1 << f1, new Object[] {sub});
+        }
+        
+        Object[] c = f1 < f2
+                ? new Object[] {k1, v1, k2, v2}
+                : new Object[] {k2, v2, k1, v1};
+        return new BitmapNode((1 << f1) | (1 << f2), 0, c);
+    }
+    
+    /**
+     * Walks the trie depth first, keeping the path from the root in a stack.
+     */
+    private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+        
+        // Trie depth is at most seven bitmap levels plus a collision node.
+        private final Node[] nodes = new Node[8];
+        private final int[] nextEntry = new int[8];
+        private final int[] nextNode = new int[8];
+        private int depth;
+        
+        EntryIterator(Node root) {
+            nodes[0] = root;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (depth >= 0) {
+                Node n = nodes[depth];
+                if (nextEntry[depth] < n.entryCount())
+                    return true;
+                
+                if (nextNode[depth] < n.nodeCount()) {
+                    Node child = n.nodeAt(nextNode[depth]++);
+                    depth++;
+                    nodes[depth] = child;
+                    nextEntry[depth] = 0;
+                    nextNode[depth] = 0;
+                } else {
+                    nodes[depth--] = null;
+                }
+            }
+            
+            return false;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            
+            Node n = nodes[depth];
+            int i = nextEntry[depth]++;
+            return new AbstractMap.SimpleImmutableEntry<>(
+                    (K) n.keyAt(i), (V) n.valueAt(i));
+        }
+    }
+    
+}
@@ -0,0 +1,151 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.util;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * An immutable hash set. Like {@link PersistentHashMap}, which backs it,
+ * {@link #with} and {@link #without} return new versions of the set that share
+ * all unchanged parts with the old one.
+ * <p>
+ * Elements may not be null.
+ * 
+ * @param <E> Type of elements.
+ */
+public final class PersistentHashSet<E> implements Iterable<E> {
+    
+    private static final PersistentHashSet EMPTY =
+            new PersistentHashSet<>(PersistentHashMap.empty());
+    
+    final PersistentHashMap<E, Boolean> map;
+    
+    private PersistentHashSet(PersistentHashMap<E, Boolean> map) {
+        this.map = map;
+    }
+    
+    /**
+     * Returns the empty set.
+     * 
+     * @param <E> Type of elements.
+     * @return An empty PersistentHashSet.
+     */
+    public static <E> PersistentHashSet<E> empty() {
+        return EMPTY;
+    }
+    
+    /**
+     * Returns a set with the elements of the specified iterable.
+     * 
+     * @param <E>      Type of elements.
+     * @param elements Elements to add.
+     * @return A PersistentHashSet.
+     */
+    public static <E> PersistentHashSet<E> of(Iterable<? extends E> elements) {
+        PersistentHashSet<E> set = empty();
+        for (E e : elements)
+            set = set.with(e);
+        return set;
+    }
+    
+    public int size() {
+        return map.size();
+    }
+    
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+    
+    public boolean contains(Object elem) {
+        return map.containsKey(elem);
+    }
+    
+    /**
+     * Returns a set with the specified element added to the elements of this
+     * set.
+     * 
+     * @param elem Element to add.
+     * @return A set with the element, or this set if it already had it.
+     */
+    public PersistentHashSet<E> with(E elem) {
+        PersistentHashMap<E, Boolean> m = map.with(elem, Boolean.TRUE);
+        return m == map ? this : new PersistentHashSet<>(m);
+    }
+    
+    /**
+     * Returns a set with the elements of this set except for the specified
+     * element.
+     * 
+     * @param elem Element to remove.
+     * @return A set without the element, or this set if it didn't have it.
+     */
+    public PersistentHashSet<E> without(Object elem) {
+        PersistentHashMap<E, Boolean> m = map.without(elem);
+        return m == map ? this : new PersistentHashSet<>(m);
+    }
+
+    @Override
+    public void forEach(Consumer<? super E> action) {
+        map.forEach((elem, present) -> action.accept(elem));
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        Iterator<Map.Entry<E, Boolean>> it = map.iterator();
+        return new Iterator<E>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public E next() {
+                return it.next().getKey();
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof PersistentHashSet
+                && map.equals(((PersistentHashSet<?>) obj).map);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (E e : this)
+            hash += e.hashCode();
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return map.asMap().keySet().toString();
+    }
+    
+}
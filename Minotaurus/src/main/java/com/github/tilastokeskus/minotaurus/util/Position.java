@@ -25,9 +25,10 @@
 package com.github.tilastokeskus.minotaurus.util;
 
 /**
- * Immutable alternative to java.awt.Point.
+ * Immutable alternative to java.awt.Point. Positions are ordered row by row,
+ * first by y and then by x.
  */
-public class Position {
+public class Position implements Comparable<Position> {
     public final int x;
     public final int y;
     
@@ -64,6 +65,13 @@ public class Position {
         return hash;
     }
     
+    @Override
+    public int compareTo(Position other) {
+        if (y != other.y)
+            return Integer.compare(y, other.y);
+        return Integer.compare(x, other.x);
+    }
+    
     @Override
     public String toString() {
         return "[" + x + ":" + y + "]";
@@ -0,0 +1,69 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.util;
+
+import java.util.function.Predicate;
+
+/**
+ * A predicate on positions that can also be tested with plain coordinates.
+ * Implementations only need to provide {@link #test(int, int)}, so a runner
+ * that tests thousands of cells per move allocates no positions for it.
+ * <pre>
+ * PositionPredicate p = (x, y) -&gt; maze.get(x, y) == MazeBlock.FLOOR;
+ * </pre>
+ */
+@FunctionalInterface
+public interface PositionPredicate extends Predicate<Position> {
+    
+    /**
+     * Evaluates this predicate on the specified position.
+     * 
+     * @param x X position.
+     * @param y Y position.
+     * @return True if the position matches the predicate, otherwise false.
+     */
+    boolean test(int x, int y);
+    
+    @Override
+    default boolean test(Position pos) {
+        return test(pos.x, pos.y);
+    }
+    
+    /**
+     * Returns the specified predicate as a PositionPredicate. If it already is
+     * one, it is returned as is; otherwise every call to
+     * {@link #test(int, int)} creates a position to test it with.
+     * 
+     * @param predicate Predicate to adapt.
+     * @return A PositionPredicate.
+     */
+    static PositionPredicate of(Predicate<Position> predicate) {
+        if (predicate instanceof PositionPredicate)
+            return (PositionPredicate) predicate;
+        
+        return (x, y) -> predicate.test(new Position(x, y));
+    }
+    
+}
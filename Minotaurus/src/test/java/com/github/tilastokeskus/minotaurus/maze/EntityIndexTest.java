@@ -0,0 +1,253 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.maze;
+
+import com.github.tilastokeskus.minotaurus.util.ArrayList;
+import com.github.tilastokeskus.minotaurus.util.Position;
+import java.util.List;
+import java.util.Random;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class EntityIndexTest {
+    
+    EntityIndex index;
+    
+    public EntityIndexTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+        index = new EntityIndex(4, 3);
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    @Test
+    public void addShouldKeepEntitiesInArrivalOrder() {
+        MazeEntity ent1 = new MazeEntity(1, 1);
+        MazeEntity ent2 = new MazeEntity(1, 1);
+        MazeEntity ent3 = new MazeEntity(1, 1);
+        index.add(ent1);
+        index.add(ent2);
+        index.add(ent3);
+        
+        List<MazeEntity> list = entitiesAt(1, 1);
+        assertTrue(index.countAt(1, 1) == 3);
+        assertTrue(list.get(0) == ent1);
+        assertTrue(list.get(1) == ent2);
+        assertTrue(list.get(2) == ent3);
+    }
+    
+    @Test
+    public void addShouldIgnoreEntitiesAlreadyIndexed() {
+        MazeEntity ent = new MazeEntity(1, 1);
+        assertTrue(index.add(ent));
+        assertFalse(index.add(ent));
+        assertTrue(index.countAt(1, 1) == 1);
+        assertTrue(index.size() == 1);
+    }
+    
+    @Test
+    public void addShouldTellEqualEntitiesApart() {
+        MazeEntity ent = new MazeEntity(1, 1);
+        MazeEntity clone = ent.clone();
+        assertTrue(ent.equals(clone));
+        
+        index.add(ent);
+        index.add(clone);
+        assertTrue(index.countAt(1, 1) == 2);
+        index.remove(clone);
+        assertTrue(entitiesAt(1, 1).get(0) == ent);
+    }
+    
+    @Test
+    public void removeShouldUnlinkFromAnyPositionInChain() {
+        MazeEntity[] ents = new MazeEntity[4];
+        for (int i = 0; i < ents.length; i++) {
+            ents[i] = new MazeEntity(2, 1);
+            index.add(ents[i]);
+        }
+        
+        index.remove(ents[1]);
+        index.remove(ents[3]);
+        index.remove(ents[0]);
+        assertTrue(index.countAt(2, 1) == 1);
+        assertTrue(entitiesAt(2, 1).get(0) == ents[2]);
+        
+        index.remove(ents[2]);
+        assertTrue(index.countAt(2, 1) == 0);
+        assertTrue(entitiesAt(2, 1).isEmpty());
+        assertFalse(index.remove(ents[2]));
+    }
+    
+    @Test
+    public void moveShouldMoveEntityToItsNewCell() {
+        MazeEntity ent = new MazeEntity(0, 0);
+        index.add(ent);
+        
+        ent.position = new Position(3, 2);
+        assertTrue(index.move(ent));
+        assertTrue(index.countAt(0, 0) == 0);
+        assertTrue(entitiesAt(3, 2).get(0) == ent);
+        assertFalse(index.move(new MazeEntity(0, 0)));
+    }
+    
+    @Test
+    public void entitiesOutsideBoundsShouldBeFoundByPosition() {
+        MazeEntity ent1 = new MazeEntity(5, 5);
+        MazeEntity ent2 = new MazeEntity(-1, 2);
+        index.add(ent1);
+        index.add(ent2);
+        
+        assertTrue(index.countAt(5, 5) == 1);
+        assertTrue(entitiesAt(-1, 2).get(0) == ent2);
+        
+        ent1.position = new Position(-1, 2);
+        index.move(ent1);
+        assertTrue(index.countAt(5, 5) == 0);
+        assertTrue(index.countAt(-1, 2) == 2);
+        
+        ent1.position = new Position(1, 1);
+        index.move(ent1);
+        assertTrue(index.countAt(-1, 2) == 1);
+        assertTrue(entitiesAt(1, 1).get(0) == ent1);
+    }
+    
+    @Test
+    public void clearShouldRemoveAllEntities() {
+        index.add(new MazeEntity(1, 1));
+        index.add(new MazeEntity(9, 9));
+        index.clear();
+        
+        assertTrue(index.size() == 0);
+        assertTrue(index.countAt(1, 1) == 0);
+        assertTrue(index.countAt(9, 9) == 0);
+        index.add(new MazeEntity(1, 1));
+        assertTrue(index.countAt(1, 1) == 1);
+    }
+    
+    @Test
+    public void forkShouldNotSeeLaterChangesOfParent() {
+        MazeEntity ent1 = new MazeEntity(1, 1);
+        MazeEntity ent2 = new MazeEntity(2, 2);
+        index.add(ent1);
+        
+        EntityIndex fork = index.fork();
+        index.add(ent2);
+        index.remove(ent1);
+        
+        assertTrue(fork.countAt(1, 1) == 1);
+        assertTrue(fork.countAt(2, 2) == 0);
+        assertTrue(fork.size() == 1);
+        assertTrue(index.countAt(1, 1) == 0);
+        assertTrue(index.countAt(2, 2) == 1);
+    }
+    
+    @Test
+    public void parentShouldNotSeeChangesOfFork() {
+        MazeEntity ent1 = new MazeEntity(1, 1);
+        MazeEntity ent2 = new MazeEntity(1, 1);
+        index.add(ent1);
+        index.add(ent2);
+        
+        EntityIndex fork = index.fork();
+        fork.remove(ent1);
+        fork.add(new MazeEntity(3, 2));
+        
+        assertTrue(index.countAt(1, 1) == 2);
+        assertTrue(index.countAt(3, 2) == 0);
+        assertTrue(entitiesAt(1, 1).get(0) == ent1);
+        assertTrue(fork.countAt(1, 1) == 1);
+        assertTrue(fork.countAt(3, 2) == 1);
+    }
+    
+    @Test
+    public void chunksShouldBeAllocatedOnlyWhenNeeded() {
+        index = new EntityIndex(EntityIndex.CELLS_PER_CHUNK, 10);
+        assertTrue(index.allocatedChunks() == 0);
+        
+        index.add(new MazeEntity(0, 0));
+        index.add(new MazeEntity(1, 0));
+        assertTrue(index.allocatedChunks() == 1);
+        assertTrue(index.countAt(5, 5) == 0);
+        assertTrue(index.allocatedChunks() == 1);
+    }
+    
+    @Test
+    public void indexShouldAgreeWithEntityPositionsAfterRandomOperations() {
+        Random r = new Random(1);
+        List<MazeEntity> added = new ArrayList<>();
+        
+        for (int i = 0; i < 5000; i++) {
+            int op = r.nextInt(3);
+            if (op == 0 || added.isEmpty()) {
+                MazeEntity ent = new MazeEntity(r.nextInt(6) - 1, r.nextInt(5) - 1);
+                index.add(ent);
+                added.add(ent);
+            } else if (op == 1) {
+                index.remove(added.remove(r.nextInt(added.size())));
+            } else {
+                MazeEntity ent = added.get(r.nextInt(added.size()));
+                ent.position = new Position(r.nextInt(6) - 1, r.nextInt(5) - 1);
+                index.move(ent);
+            }
+        }
+        
+        assertTrue(index.size() == added.size());
+        for (int x = -1; x < 5; x++) {
+            for (int y = -1; y < 4; y++) {
+                int expected = 0;
+                for (MazeEntity ent : added)
+                    if (ent.getPosition().equals(new Position(x, y)))
+                        expected++;
+                
+                assertTrue(index.countAt(x, y) == expected);
+                for (MazeEntity ent : entitiesAt(x, y))
+                    assertTrue(ent.getPosition().equals(new Position(x, y)));
+            }
+        }
+    }
+    
+    private List<MazeEntity> entitiesAt(int x, int y) {
+        List<MazeEntity> list = new ArrayList<>();
+        index.forEachAt(x, y, list::add);
+        return list;
+    }
+}
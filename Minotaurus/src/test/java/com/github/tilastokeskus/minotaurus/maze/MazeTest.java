@@ -24,11 +24,16 @@
 package com.github.tilastokeskus.minotaurus.maze;
 
 import static com.github.tilastokeskus.minotaurus.exception.ThrowableAssertion.assertThrown;
+import com.github.tilastokeskus.minotaurus.util.ArrayList;
 import com.github.tilastokeskus.minotaurus.util.Position;
 import java.awt.Color;
 import java.awt.Point;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 import javax.swing.JComponent;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -87,6 +92,20 @@ public class MazeTest {
         assertTrue(maze.get(0, 2) == MazeBlock.ENTITY);
     }
     
+    @Test
+    public void mazeLayoutVersionShouldChangeOnlyWithLayout() {
+        int version = maze.getLayoutVersion();
+        maze.set(0, 1, MazeBlock.FLOOR);
+        maze.addEntity(new MazeEntity(0, 1));
+        assertTrue(maze.getLayoutVersion() == version);
+        
+        maze.set(0, 1, MazeBlock.WALL);
+        assertTrue(maze.getLayoutVersion() != version);
+        version = maze.getLayoutVersion();
+        maze.setLayout(new MazeBlock[][] {{MazeBlock.FLOOR}});
+        assertTrue(maze.getLayoutVersion() != version);
+    }
+    
     @Test
     public void mazeShouldChangeNullBlocksToWall() {
         Maze m = new Maze(2, 2);
@@ -163,6 +182,62 @@ public class MazeTest {
         assertTrue(layout[0][0] == MazeBlock.ENTITY);
     }
     
+    @Test
+    public void mazeSetLayoutShouldChangeDimensionsAndKeepEntities() {
+        MockEntity ent = new MockEntity(0, 1);
+        maze.addEntity(ent);
+        
+        maze.setLayout(new MazeBlock[][] {{MazeBlock.FLOOR, MazeBlock.FLOOR},
+                                          {MazeBlock.WALL, MazeBlock.FLOOR}});
+        assertTrue(maze.getWidth() == 2);
+        assertTrue(maze.getHeight() == 2);
+        assertTrue(maze.get(1, 0) == MazeBlock.FLOOR);
+        assertTrue(maze.get(0, 1) == MazeBlock.WALL);
+        assertTrue(maze.getEntitiesAt(0, 1).get(0) == ent);
+        
+        ent.setPosition(1, 1);
+        assertTrue(maze.entityCountAt(1, 1) == 1);
+    }
+    
+    @Test
+    public void mazeCloneShouldNotShareLayout() {
+        Maze clone = maze.clone();
+        clone.set(0, 1, MazeBlock.WALL);
+        assertTrue(maze.get(0, 1) == MazeBlock.FLOOR);
+        assertTrue(clone.get(0, 1) == MazeBlock.WALL);
+    }
+    
+    @Test
+    public void mazeForkShouldBeIndependentOfParent() {
+        MockEntity ent1 = new MockEntity(0, 1);
+        maze.addEntity(ent1);
+        
+        Maze fork = maze.fork();
+        assertTrue(fork.get(0, 1) == MazeBlock.FLOOR);
+        assertTrue(fork.getEntitiesAt(0, 1).get(0) == ent1);
+        
+        fork.set(0, 1, MazeBlock.WALL);
+        fork.removeEntity(ent1);
+        assertTrue(maze.get(0, 1) == MazeBlock.FLOOR);
+        assertTrue(maze.getEntitiesAt(0, 1).get(0) == ent1);
+        assertTrue(fork.entityCountAt(0, 1) == 0);
+        
+        maze.set(0, 0, MazeBlock.FLOOR);
+        assertTrue(fork.get(0, 0) == MazeBlock.WALL);
+    }
+    
+    @Test
+    public void mazeForkShouldBeSnapshotOfEntities() {
+        MockEntity ent = new MockEntity(0, 1);
+        maze.addEntity(ent);
+        
+        Maze fork = maze.fork();
+        ent.setPosition(0, 2);
+        assertTrue(maze.entityCountAt(0, 2) == 1);
+        assertTrue(fork.entityCountAt(0, 1) == 1);
+        assertTrue(fork.entityCountAt(0, 2) == 0);
+    }
+    
     @Test
     public void mazeAddEntityShouldAddEntity() {
         MockEntity ent = new MockEntity(5, 5);
@@ -246,6 +321,262 @@ public class MazeTest {
         }
     }
     
+    @Test
+    public void mazeEntityCountShouldFollowEntities() {
+        MockEntity ent1 = new MockEntity(0, 1);
+        MockEntity ent2 = new MockEntity(0, 1);
+        
+        assertTrue(maze.entityCountAt(0, 1) == 0);
+        maze.addEntity(ent1);
+        maze.addEntity(ent2);
+        assertTrue(maze.entityCountAt(0, 1) == 2);
+        
+        ent1.setPosition(0, 2);
+        assertTrue(maze.entityCountAt(0, 1) == 1);
+        assertTrue(maze.entityCountAt(0, 2) == 1);
+        
+        maze.removeEntity(ent2);
+        assertTrue(maze.entityCountAt(0, 1) == 0);
+    }
+    
+    @Test
+    public void mazeForEachEntityAtShouldVisitEntitiesAtPosition() {
+        MockEntity ent1 = new MockEntity(0, 1);
+        MockEntity ent2 = new MockEntity(0, 2);
+        MockEntity ent3 = new MockEntity(0, 1);
+        maze.addEntity(ent1);
+        maze.addEntity(ent2);
+        maze.addEntity(ent3);
+        
+        List<MazeEntity> visited = new ArrayList<>();
+        maze.forEachEntityAt(0, 1, visited::add);
+        assertTrue(visited.size() == 2);
+        assertTrue(visited.get(0) == ent1);
+        assertTrue(visited.get(1) == ent3);
+    }
+    
+    @Test
+    public void mazeGetEntitiesShouldReturnAllEntities() {
+        MockEntity ent1 = new MockEntity(0, 1);
+        MockEntity ent2 = new MockEntity(5, 5);
+        maze.addEntity(ent1);
+        maze.addEntity(ent2);
+        ent1.setPosition(0, 2);
+        
+        assertTrue(maze.getEntities().size() == 2);
+        assertTrue(maze.getEntities().contains(ent1));
+        assertTrue(maze.getEntities().contains(ent2));
+    }
+    
+    @Test
+    public void mazeGetByCellShouldMatchGetByPosition() {
+        Random r = new Random(1);
+        maze = new Maze(4, 3);
+        for (int y = 0; y < 3; y++)
+            for (int x = 0; x < 4; x++)
+                maze.set(x, y, MazeBlock.values()[r.nextInt(MazeBlock.values().length)]);
+        
+        for (int y = 0; y < 3; y++) {
+            for (int x = 0; x < 4; x++) {
+                int cell = maze.cellOf(x, y);
+                assertTrue(cell == y * 4 + x);
+                assertTrue(maze.get(cell) == maze.get(x, y));
+            }
+        }
+    }
+    
+    @Test
+    public void mazeGetByCellShouldThrowOutOfBounds() {
+        assertThrown(() -> maze.get(-1))
+                .expect(IllegalArgumentException.class);
+        assertThrown(() -> maze.get(3))
+                .expect(IllegalArgumentException.class);
+        assertThrown(() -> maze.cellOf(1, 0))
+                .expect(IllegalArgumentException.class);
+    }
+    
+    @Test
+    public void mazeIsInBoundsShouldMatchDimensions() {
+        assertTrue(maze.isInBounds(0, 0));
+        assertTrue(maze.isInBounds(0, 2));
+        assertFalse(maze.isInBounds(-1, 0));
+        assertFalse(maze.isInBounds(1, 0));
+        assertFalse(maze.isInBounds(0, 3));
+    }
+    
+    @Test
+    public void mazeEntityCountAtCellShouldFollowEntities() {
+        MockEntity ent = new MockEntity(0, 1);
+        maze.addEntity(ent);
+        assertTrue(maze.entityCountAt(maze.cellOf(0, 1)) == 1);
+        
+        ent.setPosition(0, 2);
+        assertTrue(maze.entityCountAt(maze.cellOf(0, 1)) == 0);
+        assertTrue(maze.entityCountAt(maze.cellOf(0, 2)) == 1);
+    }
+    
+    @Test
+    public void mazeEntityIsAtShouldFollowPosition() {
+        MockEntity ent = new MockEntity(3, 4);
+        assertTrue(ent.isAt(3, 4));
+        assertFalse(ent.isAt(4, 3));
+        
+        ent.setPosition(4, 3);
+        assertTrue(ent.isAt(4, 3));
+        assertFalse(ent.isAt(3, 4));
+    }
+    
+    @Test
+    public void mazeEntitySetPositionShouldPassOldPositionToObservers() {
+        MockEntity ent = new MockEntity(3, 4);
+        List<Object> args = new ArrayList<>();
+        ent.addObserver((o, arg) -> args.add(arg));
+        
+        ent.setPosition(5, 6);
+        ent.setPosition(5, 6);
+        assertEquals(new Position(3, 4), args.get(0));
+        assertEquals(new Position(5, 6), args.get(1));
+        assertEquals(new Position(5, 6), ent.getPosition());
+    }
+    
+    @Test
+    public void mazeForEachChangedCellShouldPassChangesInOrder() {
+        long since = maze.getChangeCount();
+        MockEntity ent = new MockEntity(0, 0);
+        maze.addEntity(ent);
+        ent.setPosition(0, 1);
+        ent.setPosition(0, 1);
+        maze.set(0, 2, maze.get(0, 2));
+        maze.set(0, 2, maze.get(0, 2) == MazeBlock.WALL
+                ? MazeBlock.FLOOR : MazeBlock.WALL);
+        maze.removeEntity(ent);
+    
+        List<Integer> cells = new ArrayList<>();
+        assertTrue(maze.forEachChangedCell(since, cells::add));
+        assertEquals(Arrays.asList(0, 0, 1, 2, 1), cells);
+        assertTrue(maze.getChangeCount() == since + 5);
+    
+        cells.clear();
+        assertTrue(maze.forEachChangedCell(since + 3, cells::add));
+        assertEquals(Arrays.asList(2, 1), cells);
+    }
+    
+    @Test
+    public void mazeForEachChangedCellShouldFailWhenChangesAreForgotten() {
+        long since = maze.getChangeCount();
+        MockEntity ent = new MockEntity(0, 0);
+        maze.addEntity(ent);
+        for (int i = 0; i < ChangeJournal.CAPACITY; i++)
+            ent.setPosition(0, 1 + i % 2);
+        assertFalse(maze.forEachChangedCell(since, cell -> {}));
+    
+        since = maze.getChangeCount();
+        maze.setLayout(new MazeBlock[][] {{MazeBlock.FLOOR}, {MazeBlock.FLOOR},
+                                          {MazeBlock.FLOOR}});
+        assertFalse(maze.forEachChangedCell(since, cell -> {}));
+        assertTrue(maze.forEachChangedCell(maze.getChangeCount(), cell -> {}));
+    }
+    
+    @Test
+    public void mazeEntityQueriesShouldBeSafeWhileEntitiesMove() throws Exception {
+        Maze big = new Maze(4, 4);
+        List<MockEntity> ents = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            ents.add(new MockEntity(i % 4, i / 4));
+            big.addEntity(ents.get(i));
+        }
+        
+        // Keep moving entities around, and in and out of the maze.
+        Thread mover = new Thread(() -> {
+            Random r = new Random(1);
+            for (int i = 0; i < 1000000; i++) {
+                MockEntity ent = ents.get(r.nextInt(ents.size()));
+                if (r.nextInt(10) == 0) {
+                    big.removeEntity(ent);
+                    big.addEntity(ent);
+                } else {
+                    ent.setPosition(r.nextInt(4), r.nextInt(4));
+                }
+            }
+        });
+        mover.start();
+        
+        List<Object> seen = new ArrayList<>();
+        while (mover.isAlive()) {
+            for (int cell = 0; cell < 16; cell++) {
+                assertTrue(big.entityCountAt(cell) <= ents.size());
+                big.forEachEntityAt(cell % 4, cell / 4, seen::add);
+                for (MazeEntity ent : big.getEntitiesAt(cell % 4, cell / 4))
+                    seen.add(ent);
+            }
+            
+            for (Object ent : seen)
+                assertTrue(ent instanceof MockEntity && ents.contains(ent));
+            seen.clear();
+        }
+        
+        mover.join();
+    }
+    
+    @Test
+    public void mazeEntityQueriesShouldNotWaitForEachOther() throws Exception {
+        maze.addEntity(new MockEntity(0, 0));
+        CountDownLatch inside = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        
+        // Hold on to the entities while another thread queries them.
+        Thread holder = new Thread(() -> maze.forEachEntityAt(0, 0, ent -> {
+            inside.countDown();
+            try {
+                done.await(1, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        holder.start();
+        assertTrue(inside.await(1, TimeUnit.SECONDS));
+        
+        FutureTask<Integer> query = new FutureTask<>(() -> maze.entityCountAt(0, 0));
+        new Thread(query).start();
+        assertTrue(query.get(500, TimeUnit.MILLISECONDS) == 1);
+        done.countDown();
+        holder.join();
+    }
+    
+    @Test
+    public void mazeEntityQueriesShouldBeSafeWhileLayoutChangesSize() throws Exception {
+        Maze big = new Maze(4, 4);
+        List<MockEntity> ents = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            ents.add(new MockEntity(i % 3, i / 3));
+            big.addEntity(ents.get(i));
+        }
+        
+        MazeBlock[][] small = new MazeBlock[3][3];
+        MazeBlock[][] large = new MazeBlock[4][4];
+        Thread resizer = new Thread(() -> {
+            Random r = new Random(1);
+            for (int i = 0; i < 20000; i++) {
+                big.setLayout(i % 2 == 0 ? small : large);
+                ents.get(r.nextInt(ents.size())).setPosition(r.nextInt(3), r.nextInt(3));
+            }
+        });
+        resizer.start();
+        
+        while (resizer.isAlive())
+            for (int y = 0; y < 3; y++)
+                for (int x = 0; x < 3; x++)
+                    assertTrue(big.entityCountAt(x, y) <= ents.size());
+        
+        resizer.join();
+        int total = 0;
+        for (int y = 0; y < 3; y++)
+            for (int x = 0; x < 3; x++)
+                total += big.entityCountAt(x, y);
+        assertTrue(total == ents.size());
+        assertTrue(big.getEntities().size() == ents.size());
+    }
+    
     private class MockEntity extends MazeEntity {
         public MockEntity(int x, int y) {
             super(x, y);
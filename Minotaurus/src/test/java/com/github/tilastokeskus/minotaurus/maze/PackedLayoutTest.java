@@ -0,0 +1,127 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.maze;
+
+import java.util.Random;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PackedLayoutTest {
+    
+    public PackedLayoutTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    @Test
+    public void newLayoutShouldBeAllWalls() {
+        PackedLayout layout = new PackedLayout(7, 5);
+        for (int y = 0; y < 5; y++)
+            for (int x = 0; x < 7; x++)
+                assertTrue(layout.get(x, y) == MazeBlock.WALL);
+    }
+    
+    @Test
+    public void setShouldOnlyChangeGivenBlock() {
+        PackedLayout layout = new PackedLayout(40, 3);
+        layout.set(31, 0, MazeBlock.ENTITY);
+        layout.set(32, 0, MazeBlock.FLOOR);
+        
+        assertTrue(layout.get(30, 0) == MazeBlock.WALL);
+        assertTrue(layout.get(31, 0) == MazeBlock.ENTITY);
+        assertTrue(layout.get(32, 0) == MazeBlock.FLOOR);
+        assertTrue(layout.get(33, 0) == MazeBlock.WALL);
+        
+        layout.set(31, 0, MazeBlock.FLOOR);
+        assertTrue(layout.get(31, 0) == MazeBlock.FLOOR);
+    }
+    
+    @Test
+    public void layoutShouldMatchMatrixItWasCreatedFrom() {
+        Random r = new Random(1);
+        MazeBlock[] blocks = MazeBlock.values();
+        MazeBlock[][] matrix = new MazeBlock[13][29];
+        for (int y = 0; y < 13; y++)
+            for (int x = 0; x < 29; x++)
+                matrix[y][x] = blocks[r.nextInt(blocks.length)];
+        
+        PackedLayout layout = PackedLayout.of(matrix);
+        assertTrue(layout.getWidth() == 29);
+        assertTrue(layout.getHeight() == 13);
+        assertArrayEquals(matrix, layout.toArray());
+    }
+    
+    @Test
+    public void forkShouldBeIndependent() {
+        PackedLayout layout = new PackedLayout(3, 3);
+        PackedLayout fork = layout.fork();
+        fork.set(1, 1, MazeBlock.FLOOR);
+        layout.set(2, 2, MazeBlock.ENTITY);
+        
+        assertTrue(layout.get(1, 1) == MazeBlock.WALL);
+        assertTrue(layout.get(2, 2) == MazeBlock.ENTITY);
+        assertTrue(fork.get(1, 1) == MazeBlock.FLOOR);
+        assertTrue(fork.get(2, 2) == MazeBlock.WALL);
+    }
+    
+    @Test
+    public void forkShouldOnlyCopyChangedChunks() {
+        int blocksPerChunk = PackedLayout.WORDS_PER_CHUNK * 32;
+        PackedLayout layout = new PackedLayout(blocksPerChunk, 10);
+        PackedLayout fork = layout.fork();
+        assertTrue(fork.ownedChunks() == 0);
+        assertTrue(layout.ownedChunks() == 0);
+        
+        fork.set(5, 0, MazeBlock.FLOOR);
+        fork.set(6, 0, MazeBlock.FLOOR);
+        fork.set(0, 9, MazeBlock.FLOOR);
+        assertTrue(fork.ownedChunks() == 2);
+        assertTrue(layout.ownedChunks() == 0);
+        
+        PackedLayout second = fork.fork();
+        second.set(5, 0, MazeBlock.WALL);
+        assertTrue(fork.get(5, 0) == MazeBlock.FLOOR);
+        assertTrue(second.get(5, 0) == MazeBlock.WALL);
+        assertTrue(layout.get(5, 0) == MazeBlock.WALL);
+    }
+}
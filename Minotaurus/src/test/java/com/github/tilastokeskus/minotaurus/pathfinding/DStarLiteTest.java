@@ -0,0 +1,205 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.tilastokeskus.minotaurus.pathfinding;
+
+import com.github.tilastokeskus.minotaurus.maze.Maze;
+import com.github.tilastokeskus.minotaurus.maze.MazeBlock;
+import com.github.tilastokeskus.minotaurus.maze.MazeEntity;
+import com.github.tilastokeskus.minotaurus.maze.TestMazeGenerator;
+import com.github.tilastokeskus.minotaurus.util.Direction;
+import com.github.tilastokeskus.minotaurus.util.PositionPredicate;
+import java.util.Random;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class DStarLiteTest {
+    
+    private Maze maze;
+    private DStarLite planner;
+    private PositionPredicate free;
+    
+    public DStarLiteTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+        maze = DistanceFieldTest.parse(DistanceFieldTest.LAYOUT);
+        planner = new DStarLite(maze);
+        free = (x, y) -> maze.isInBounds(x, y)
+                && maze.get(x, y) == MazeBlock.FLOOR
+                && maze.entityCountAt(x, y) == 0;
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    @Test
+    public void dStarLiteShouldFindShortestPaths() {
+        assertTrue(planner.getNextMove(1, 1, goals(7, 1), free) == Direction.DOWN);
+        assertTrue(planner.getPathLength() == 14);
+        
+        assertTrue(planner.getNextMove(5, 3, goals(5, 3), free) == Direction.NONE);
+        assertTrue(planner.getPathLength() == 0);
+        
+        assertTrue(planner.getNextMove(1, 1, new int[] {-1, 1000}, free) == Direction.NONE);
+        assertTrue(planner.getPathLength() == -1);
+    }
+    
+    @Test
+    public void dStarLiteShouldReplanAsTheStartMoves() {
+        assertTrue(planner.getNextMove(1, 1, goals(5, 3), free) == Direction.RIGHT);
+        assertTrue(planner.getPathLength() == 6);
+        
+        assertTrue(planner.getNextMove(2, 1, goals(5, 3), free) == Direction.RIGHT);
+        assertTrue(planner.getPathLength() == 5);
+        
+        assertTrue(planner.getNextMove(3, 1, goals(5, 3), free) == Direction.DOWN);
+        assertTrue(planner.getPathLength() == 4);
+        
+        // Nothing has changed, so nothing is searched.
+        int expansions = planner.expansions;
+        assertTrue(planner.getNextMove(3, 1, goals(5, 3), free) == Direction.DOWN);
+        assertTrue(planner.expansions == expansions);
+    }
+    
+    @Test
+    public void dStarLiteShouldReplanAfterEntityMoves() {
+        MazeEntity blocker = new MazeEntity(7, 5);
+        maze.addEntity(blocker);
+        assertTrue(planner.getNextMove(1, 1, goals(5, 3), free) == Direction.RIGHT);
+        assertTrue(planner.getPathLength() == 6);
+        
+        // The only way to the goal goes through (3, 2).
+        blocker.setPosition(3, 2);
+        assertTrue(planner.getNextMove(1, 1, goals(5, 3), free) == Direction.NONE);
+        assertTrue(planner.getPathLength() == -1);
+        
+        blocker.setPosition(1, 3);
+        assertTrue(planner.getNextMove(1, 1, goals(5, 3), free) == Direction.RIGHT);
+        assertTrue(planner.getPathLength() == 6);
+        
+        // An entity next to the start is never stepped into.
+        blocker.setPosition(2, 1);
+        assertTrue(planner.getNextMove(1, 1, goals(7, 1), free) == Direction.DOWN);
+        assertTrue(planner.getPathLength() == 14);
+        assertTrue(planner.getNextMove(1, 1, goals(5, 3), free) == Direction.NONE);
+        assertTrue(planner.getPathLength() == -1);
+    }
+    
+    @Test
+    public void dStarLiteShouldReplanAfterGoalChanges() {
+        assertTrue(planner.getNextMove(1, 1, goals(5, 3), free) == Direction.RIGHT);
+        assertTrue(planner.getPathLength() == 6);
+        
+        assertTrue(planner.getNextMove(1, 1, goals(7, 1), free) == Direction.DOWN);
+        assertTrue(planner.getPathLength() == 14);
+        
+        assertTrue(planner.getNextMove(1, 1, goals(7, 1, 5, 3), free) == Direction.RIGHT);
+        assertTrue(planner.getPathLength() == 6);
+        
+        assertTrue(planner.getNextMove(1, 1, new int[0], free) == Direction.NONE);
+        assertTrue(planner.getPathLength() == -1);
+        
+        assertTrue(planner.getNextMove(1, 1, goals(7, 1), free) == Direction.DOWN);
+        assertTrue(planner.getPathLength() == 14);
+    }
+    
+    @Test
+    public void dStarLiteShouldRecheckEveryCellWhenJournalOverflows() {
+        MazeEntity bouncer = new MazeEntity(6, 1);
+        maze.addEntity(bouncer);
+        assertTrue(planner.getNextMove(1, 1, goals(5, 3), free) == Direction.RIGHT);
+        assertTrue(planner.getPathLength() == 6);
+        
+        long since = maze.getChangeCount();
+        maze.set(3, 2, MazeBlock.WALL);
+        bounce(bouncer);
+        assertFalse(maze.forEachChangedCell(since, cell -> {}));
+        assertTrue(planner.getNextMove(1, 1, goals(5, 3), free) == Direction.NONE);
+        assertTrue(planner.getPathLength() == -1);
+        
+        since = maze.getChangeCount();
+        maze.set(3, 2, MazeBlock.FLOOR);
+        bounce(bouncer);
+        assertFalse(maze.forEachChangedCell(since, cell -> {}));
+        assertTrue(planner.getNextMove(1, 1, goals(5, 3), free) == Direction.RIGHT);
+        assertTrue(planner.getPathLength() == 6);
+    }
+    
+    @Test
+    public void dStarLiteShouldAgreeWithDistanceFieldAsWallsChange() {
+        maze = new TestMazeGenerator().generateMaze(40, 40);
+        planner = new DStarLite(maze);
+        int goal = maze.cellOf(38, 38);
+        Random r = new Random(1);
+        
+        int x = 1;
+        int y = 1;
+        for (int i = 0; i < 200; i++) {
+            int wx = 1 + r.nextInt(38);
+            int wy = 1 + r.nextInt(38);
+            if ((wx != x || wy != y) && maze.cellOf(wx, wy) != goal)
+                maze.set(wx, wy, maze.get(wx, wy) == MazeBlock.WALL
+                        ? MazeBlock.FLOOR : MazeBlock.WALL);
+            
+            Direction dir = planner.getNextMove(x, y, new int[] {goal}, free);
+            int distance = DistanceField.compute(maze, goal).getDistance(x, y);
+            if (distance == DistanceField.UNREACHABLE)
+                assertTrue(planner.getPathLength() == -1);
+            else
+                assertTrue(planner.getPathLength() == distance);
+            
+            if (dir != Direction.NONE) {
+                x += dir.deltaX;
+                y += dir.deltaY;
+            }
+        }
+    }
+    
+    private int[] goals(int... coordinates) {
+        int[] cells = new int[coordinates.length / 2];
+        for (int i = 0; i < cells.length; i++)
+            cells[i] = maze.cellOf(coordinates[2*i], coordinates[2*i + 1]);
+        return cells;
+    }
+    
+    private void bounce(MazeEntity e) {
+        for (int i = 0; i < 2500; i++)
+            e.setPosition(e.getPosition().x == 6 ? 7 : 6, 1);
+    }
+    
+}
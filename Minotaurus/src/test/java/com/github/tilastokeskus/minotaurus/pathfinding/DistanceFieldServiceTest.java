@@ -0,0 +1,117 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.tilastokeskus.minotaurus.pathfinding;
+
+import com.github.tilastokeskus.minotaurus.maze.Maze;
+import com.github.tilastokeskus.minotaurus.maze.MazeBlock;
+import com.github.tilastokeskus.minotaurus.maze.MazeEntity;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class DistanceFieldServiceTest {
+    
+    private Maze maze;
+    private DistanceFieldService service;
+    private MazeEntity goal1;
+    private MazeEntity goal2;
+    
+    public DistanceFieldServiceTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+        maze = DistanceFieldTest.parse(DistanceFieldTest.LAYOUT);
+        service = new DistanceFieldService(maze);
+        goal1 = new MazeEntity(1, 1);
+        goal2 = new MazeEntity(7, 1);
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    @Test
+    public void serviceShouldShareFieldsOfSameGoals() {
+        DistanceField field = service.getDistanceField(Arrays.asList(goal1, goal2));
+        assertTrue(service.getDistanceField(Arrays.asList(goal2, goal1)) == field);
+        assertTrue(service.getDistanceField(maze.cellOf(7, 1), maze.cellOf(1, 1)) == field);
+        assertTrue(service.computations == 1);
+        assertTrue(field.getDistance(4, 5) == 7);
+    }
+    
+    @Test
+    public void serviceShouldRecomputeWhenGoalsMove() {
+        List<MazeEntity> goals = Arrays.asList(goal1);
+        DistanceField field = service.getDistanceField(goals);
+        goal1.setPosition(7, 1);
+        DistanceField moved = service.getDistanceField(goals);
+        assertTrue(moved != field);
+        assertTrue(moved.getDistance(7, 1) == 0);
+        assertTrue(service.computations == 2);
+        
+        // The field of the old position is kept for a while.
+        goal1.setPosition(1, 1);
+        assertTrue(service.getDistanceField(goals) == field);
+        assertTrue(service.computations == 2);
+    }
+    
+    @Test
+    public void serviceShouldRecomputeWhenWallsChange() {
+        List<MazeEntity> goals = Arrays.asList(goal1);
+        DistanceField field = service.getDistanceField(goals);
+        assertTrue(field.getDistance(5, 1) == 16);
+        
+        // Setting a block to what it already is changes nothing.
+        maze.set(3, 1, MazeBlock.FLOOR);
+        assertTrue(service.getDistanceField(goals) == field);
+        
+        maze.set(4, 1, MazeBlock.FLOOR);
+        DistanceField changed = service.getDistanceField(goals);
+        assertTrue(changed != field);
+        assertTrue(changed.getDistance(5, 1) == 4);
+        assertTrue(service.computations == 2);
+    }
+    
+    @Test
+    public void serviceShouldIgnoreGoalsOutsideMaze() {
+        DistanceField field = service.getDistanceField(
+                Arrays.asList(goal1, new MazeEntity(-5, 3)));
+        assertTrue(field.getDistance(1, 5) == 4);
+    }
+    
+}
@@ -0,0 +1,134 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.tilastokeskus.minotaurus.pathfinding;
+
+import com.github.tilastokeskus.minotaurus.maze.Maze;
+import com.github.tilastokeskus.minotaurus.maze.MazeBlock;
+import com.github.tilastokeskus.minotaurus.util.Direction;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class DistanceFieldTest {
+    
+    /* A maze with a dead end on the left and a room on the right that can
+     * only be entered from below.
+     */
+    static final String[] LAYOUT = {
+        "#########",
+        "#...#...#",
+        "#.#.###.#",
+        "#.#...#.#",
+        "#.#####.#",
+        "#.......#",
+        "#########"
+    };
+    
+    private Maze maze;
+    
+    public DistanceFieldTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+        maze = parse(LAYOUT);
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    static Maze parse(String[] rows) {
+        MazeBlock[][] layout = new MazeBlock[rows.length][rows[0].length()];
+        for (int y = 0; y < rows.length; y++)
+            for (int x = 0; x < rows[y].length(); x++)
+                layout[y][x] = rows[y].charAt(x) == '#' ? MazeBlock.WALL : MazeBlock.FLOOR;
+        return new Maze(layout);
+    }
+    
+    @Test
+    public void distanceFieldShouldMeasureShortestPaths() {
+        DistanceField field = DistanceField.compute(maze, maze.cellOf(1, 1));
+        assertTrue(field.getDistance(1, 1) == 0);
+        assertTrue(field.getDistance(3, 1) == 2);
+        assertTrue(field.getDistance(5, 3) == 6);
+        assertTrue(field.getDistance(1, 5) == 4);
+        assertTrue(field.getDistance(7, 1) == 14);
+        assertTrue(field.getDistance(maze.cellOf(7, 5)) == 10);
+        assertFalse(field.isReachable(0, 0));
+        assertFalse(field.isReachable(-1, 3));
+        assertTrue(field.getDistance(100, 100) == DistanceField.UNREACHABLE);
+    }
+    
+    @Test
+    public void distanceFieldShouldMeasureDistanceToNearestGoal() {
+        DistanceField field = DistanceField.compute(maze,
+                maze.cellOf(1, 1), maze.cellOf(7, 1), -1, 10000);
+        assertTrue(field.getDistance(7, 5) == 4);
+        assertTrue(field.getDistance(1, 5) == 4);
+        assertTrue(field.getDistance(4, 5) == 7);
+        assertTrue(field.getDistance(5, 1) == 2);
+    }
+    
+    @Test
+    public void distanceFieldDescentShouldLeadToGoal() {
+        DistanceField field = DistanceField.compute(maze, maze.cellOf(7, 1));
+        int x = 1;
+        int y = 1;
+        int steps = 0;
+        Direction dir;
+        while ((dir = field.getDescent(x, y)) != Direction.NONE) {
+            x += dir.deltaX;
+            y += dir.deltaY;
+            assertTrue(maze.get(x, y) == MazeBlock.FLOOR);
+            steps++;
+        }
+        
+        assertTrue(x == 7 && y == 1);
+        assertTrue(steps == 14);
+        assertTrue(field.getDescent(0, 0) == Direction.NONE);
+    }
+    
+    @Test
+    public void distanceFieldShouldRecordLayoutVersion() {
+        maze.set(3, 1, MazeBlock.WALL);
+        DistanceField field = DistanceField.compute(maze, maze.cellOf(1, 1));
+        assertTrue(field.getLayoutVersion() == maze.getLayoutVersion());
+        assertFalse(field.isReachable(5, 3));
+        assertTrue(field.getDistance(5, 1) == 16);
+        assertTrue(field.getWidth() == 9 && field.getHeight() == 7);
+    }
+    
+}
@@ -0,0 +1,146 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.tilastokeskus.minotaurus.pathfinding;
+
+import static com.github.tilastokeskus.minotaurus.exception.ThrowableAssertion.assertThrown;
+import com.github.tilastokeskus.minotaurus.maze.Maze;
+import com.github.tilastokeskus.minotaurus.maze.MazeBlock;
+import com.github.tilastokeskus.minotaurus.maze.MazeEntity;
+import com.github.tilastokeskus.minotaurus.maze.TestMazeGenerator;
+import com.github.tilastokeskus.minotaurus.util.Direction;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class HierarchicalPathfinderTest {
+    
+    private Maze maze;
+    private HierarchicalPathfinder pathfinder;
+    
+    public HierarchicalPathfinderTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+        maze = DistanceFieldTest.parse(DistanceFieldTest.LAYOUT);
+        pathfinder = new HierarchicalPathfinder(maze, 3);
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    @Test
+    public void hierarchicalPathfinderShouldFindPathsAcrossClusters() {
+        assertTrue(pathfinder.getNextMove(1, 1, maze.cellOf(7, 1)) == Direction.DOWN);
+        assertTrue(pathfinder.getPathLength() == 14);
+        
+        assertTrue(pathfinder.getNextMove(7, 1, maze.cellOf(1, 1)) == Direction.DOWN);
+        assertTrue(pathfinder.getPathLength() == 14);
+        
+        int[] goals = new int[] {maze.cellOf(7, 1), maze.cellOf(5, 3)};
+        assertTrue(pathfinder.getNextMove(1, 1, goals) == Direction.RIGHT);
+        assertTrue(pathfinder.getPathLength() == 6);
+    }
+    
+    @Test
+    public void hierarchicalPathfinderShouldHandleTrivialQueries() {
+        assertTrue(pathfinder.getNextMove(5, 3, maze.cellOf(5, 3)) == Direction.NONE);
+        assertTrue(pathfinder.getPathLength() == 0);
+        
+        assertTrue(pathfinder.getNextMove(1, 1, maze.cellOf(0, 0), -1) == Direction.NONE);
+        assertTrue(pathfinder.getPathLength() == -1);
+        
+        assertThrown(() -> new HierarchicalPathfinder(maze, 1))
+                .expect(IllegalArgumentException.class);
+    }
+    
+    @Test
+    public void hierarchicalPathfinderShouldFollowLayoutChanges() {
+        pathfinder.getNextMove(1, 1, maze.cellOf(5, 3));
+        assertTrue(pathfinder.getPathLength() == 6);
+        
+        maze.set(3, 1, MazeBlock.WALL);
+        assertTrue(pathfinder.getNextMove(1, 1, maze.cellOf(5, 3)) == Direction.NONE);
+        assertTrue(pathfinder.getPathLength() == -1);
+        
+        maze.set(3, 1, MazeBlock.FLOOR);
+        assertTrue(pathfinder.getNextMove(1, 1, maze.cellOf(5, 3)) == Direction.RIGHT);
+        assertTrue(pathfinder.getPathLength() == 6);
+    }
+    
+    @Test
+    public void hierarchicalPathfinderShouldOnlyRebuildTouchedClusters() {
+        maze = new TestMazeGenerator().generateMaze(40, 40);
+        pathfinder = new HierarchicalPathfinder(maze, 8);
+        assertTrue(pathfinder.clusterBuilds == 0);
+        
+        pathfinder.getNextMove(1, 1, maze.cellOf(38, 38));
+        assertTrue(pathfinder.getPathLength() == 74);
+        int builds = pathfinder.clusterBuilds;
+        assertTrue(builds > 0 && builds <= 25);
+        
+        pathfinder.getNextMove(1, 1, maze.cellOf(38, 38));
+        assertTrue(pathfinder.clusterBuilds == builds);
+        
+        // A change inside a cluster only touches that cluster.
+        int[][] nodes = collectNodes();
+        maze.set(20, 20, MazeBlock.WALL);
+        maze.addEntity(new MazeEntity(12, 12));
+        pathfinder.getNextMove(1, 1, maze.cellOf(38, 38));
+        assertTrue(pathfinder.getPathLength() == 74);
+        for (int i = 0; i < nodes.length; i++)
+            if (i != 12 && nodes[i] != null)
+                assertTrue(pathfinder.clusters[i].nodes == nodes[i]);
+        
+        // A change on a border touches the clusters on both sides.
+        nodes = collectNodes();
+        maze.set(15, 3, MazeBlock.WALL);
+        pathfinder.getNextMove(1, 1, maze.cellOf(38, 38));
+        assertTrue(pathfinder.getPathLength() == 74);
+        assertTrue(pathfinder.clusters[1].nodes != nodes[1]);
+        for (int i = 0; i < nodes.length; i++)
+            if (i != 1 && i != 2 && nodes[i] != null)
+                assertTrue(pathfinder.clusters[i].nodes == nodes[i]);
+    }
+    
+    private int[][] collectNodes() {
+        int[][] nodes = new int[pathfinder.clusters.length][];
+        for (int i = 0; i < nodes.length; i++)
+            nodes[i] = pathfinder.clusters[i].nodes;
+        return nodes;
+    }
+    
+}
@@ -0,0 +1,114 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.tilastokeskus.minotaurus.pathfinding;
+
+import com.github.tilastokeskus.minotaurus.maze.Maze;
+import com.github.tilastokeskus.minotaurus.maze.MazeBlock;
+import com.github.tilastokeskus.minotaurus.util.Direction;
+import com.github.tilastokeskus.minotaurus.util.PositionPredicate;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class JumpPointSearchTest {
+    
+    private Maze maze;
+    private JumpPointSearch search;
+    private PositionPredicate floor;
+    
+    public JumpPointSearchTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+        maze = DistanceFieldTest.parse(DistanceFieldTest.LAYOUT);
+        search = new JumpPointSearch(maze.getWidth(), maze.getHeight());
+        floor = (x, y) -> maze.get(x, y) == MazeBlock.FLOOR;
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    @Test
+    public void jumpPointSearchShouldFindShortestPaths() {
+        assertTrue(search.search(1, 1, new int[] {maze.cellOf(7, 1)}, floor));
+        assertTrue(search.getPathLength() == 14);
+        assertTrue(search.getFirstMove() == Direction.DOWN);
+        
+        assertTrue(search.search(7, 1, new int[] {maze.cellOf(1, 1)}, floor));
+        assertTrue(search.getPathLength() == 14);
+        assertTrue(search.getFirstMove() == Direction.DOWN);
+        
+        assertTrue(search.search(1, 1, new int[] {maze.cellOf(5, 3)}, floor));
+        assertTrue(search.getPathLength() == 6);
+        assertTrue(search.getFirstMove() == Direction.RIGHT);
+    }
+    
+    @Test
+    public void jumpPointSearchShouldFindNearestGoal() {
+        int[] goals = new int[] {maze.cellOf(7, 1), maze.cellOf(5, 3)};
+        assertTrue(search.search(1, 1, goals, floor));
+        assertTrue(search.getPathLength() == 6);
+        assertTrue(search.getFirstMove() == Direction.RIGHT);
+        
+        assertTrue(search.search(5, 3, goals, floor));
+        assertTrue(search.getPathLength() == 0);
+        assertTrue(search.getFirstMove() == Direction.NONE);
+    }
+    
+    @Test
+    public void jumpPointSearchShouldHonorPredicate() {
+        PositionPredicate predicate = (x, y) -> floor.test(x, y)
+                && !(x == 1 && y == 3);
+        assertFalse(search.search(1, 1, new int[] {maze.cellOf(7, 1)}, predicate));
+        assertTrue(search.getPathLength() == -1);
+        assertTrue(search.getFirstMove() == Direction.NONE);
+        
+        assertFalse(search.search(1, 1, new int[] {maze.cellOf(0, 0)}, floor));
+    }
+    
+    @Test
+    public void jumpPointSearchShouldExpandFewCellsInOpenArea() {
+        search = new JumpPointSearch(50, 50);
+        PositionPredicate arena = (x, y) -> x > 0 && y > 0 && x < 49 && y < 49;
+        
+        assertTrue(search.search(1, 1, new int[] {48 * 50 + 48}, arena));
+        assertTrue(search.getPathLength() == 94);
+        assertTrue(search.getFirstMove() == Direction.RIGHT);
+        assertTrue(search.getExpansions() <= 3);
+    }
+    
+}
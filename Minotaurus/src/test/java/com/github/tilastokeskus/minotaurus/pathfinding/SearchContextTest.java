@@ -0,0 +1,204 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.tilastokeskus.minotaurus.pathfinding;
+
+import static com.github.tilastokeskus.minotaurus.exception.ThrowableAssertion.assertThrown;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SearchContextTest {
+    
+    private SearchContext context;
+    
+    public SearchContextTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+        SearchContext.clearPool();
+        context = SearchContext.acquire(10, 10);
+    }
+    
+    @After
+    public void tearDown() {
+        if (context.borrowed)
+            context.release();
+        SearchContext.maxPooledCells = SearchContext.MAX_POOLED_CELLS;
+    }
+    
+    @Test
+    public void searchContextShouldRecordReachedCells() {
+        assertFalse(context.isReached(5));
+        context.reach(5, 3, 4);
+        assertTrue(context.isReached(5));
+        assertTrue(context.getG(5) == 3);
+        assertTrue(context.getParent(5) == 4);
+        assertFalse(context.isQueued(5));
+        assertFalse(context.isClosed(5));
+        
+        context.setClosed(5);
+        assertTrue(context.isClosed(5));
+        context.reach(5, 2, SearchContext.NONE);
+        assertTrue(context.isClosed(5));
+        assertTrue(context.getParent(5) == SearchContext.NONE);
+        
+        assertThrown(() -> context.getG(6))
+                .expect(NoSuchElementException.class);
+        assertThrown(() -> context.queue(6, 0))
+                .expect(NoSuchElementException.class);
+    }
+    
+    @Test
+    public void searchContextResetShouldForgetEverything() {
+        for (int cell = 0; cell < 100; cell++) {
+            context.reach(cell, cell, SearchContext.NONE);
+            context.queue(cell, cell);
+        }
+        
+        context.setClosed(0);
+        context.reset();
+        assertTrue(context.isQueueEmpty());
+        for (int cell = 0; cell < 100; cell++) {
+            assertFalse(context.isReached(cell));
+            assertFalse(context.isQueued(cell));
+            assertFalse(context.isClosed(cell));
+        }
+    }
+    
+    @Test
+    public void searchContextExtractMinShouldReturnCellsInPriorityOrder() {
+        Random r = new Random(1);
+        int[] priorities = new int[100];
+        for (int cell = 0; cell < 100; cell++) {
+            priorities[cell] = r.nextInt(50);
+            context.reach(cell, 0, SearchContext.NONE);
+            context.queue(cell, priorities[cell]);
+        }
+        
+        // Change some priorities both ways and close some cells.
+        for (int cell = 0; cell < 100; cell += 3) {
+            priorities[cell] = r.nextInt(50);
+            context.queue(cell, priorities[cell]);
+        }
+        for (int cell = 1; cell < 100; cell += 7)
+            context.setClosed(cell);
+        
+        int prev = Integer.MIN_VALUE;
+        int count = 0;
+        while (!context.isQueueEmpty()) {
+            int cell = context.extractMin();
+            assertTrue(priorities[cell] >= prev);
+            assertFalse(context.isQueued(cell));
+            assertFalse(context.isClosed(cell));
+            assertTrue(context.isReached(cell));
+            prev = priorities[cell];
+            count++;
+        }
+        
+        assertTrue(count == 100 - 15);
+        assertThrown(() -> context.extractMin())
+                .expect(NoSuchElementException.class);
+    }
+    
+    @Test
+    public void searchContextShouldBeReusedFromPool() {
+        context.reach(0, 1, SearchContext.NONE);
+        context.queue(0, 1);
+        context.release();
+        assertThrown(() -> context.release())
+                .expect(IllegalStateException.class);
+        
+        // A smaller grid gets the same context, started afresh.
+        SearchContext other = SearchContext.acquire(5, 5);
+        assertTrue(other == context);
+        assertTrue(other.getWidth() == 5 && other.getHeight() == 5);
+        assertFalse(other.isReached(0));
+        assertTrue(other.isQueueEmpty());
+        
+        // A second borrower gets a context of its own.
+        SearchContext second = SearchContext.acquire(5, 5);
+        assertTrue(second != other);
+        second.release();
+        
+        assertThrown(() -> SearchContext.acquire(0, 5))
+                .expect(IllegalArgumentException.class);
+    }
+    
+    @Test
+    public void searchContextPoolShouldPreferContextsThatFit() {
+        SearchContext large = SearchContext.acquire(50, 50);
+        SearchContext medium = SearchContext.acquire(20, 20);
+        large.release();
+        context.release();
+        medium.release();
+        
+        // The smallest context with room is taken, not the latest one.
+        SearchContext small = SearchContext.acquire(8, 8);
+        assertTrue(small == context);
+        SearchContext big = SearchContext.acquire(40, 40);
+        assertTrue(big == large);
+        
+        // Without room anywhere, the largest context is grown.
+        SearchContext huge = SearchContext.acquire(60, 60);
+        assertTrue(huge == medium);
+        assertTrue(huge.capacity() >= 3600);
+        
+        small.release();
+        big.release();
+        huge.release();
+    }
+    
+    @Test
+    public void searchContextPoolShouldLimitRetainedCells() {
+        SearchContext.maxPooledCells = 1000;
+        SearchContext large = SearchContext.acquire(30, 30);
+        SearchContext other = SearchContext.acquire(10, 10);
+        
+        large.release();
+        assertTrue(SearchContext.pooledCells == 900);
+        context.release();
+        assertTrue(SearchContext.pooledCells == 1000);
+        
+        // The pool is full, so the context is left to the garbage collector.
+        other.release();
+        assertTrue(SearchContext.pooledCells == 1000);
+        assertTrue(SearchContext.acquire(10, 10) == context);
+        assertTrue(SearchContext.pooledCells == 900);
+    }
+    
+}
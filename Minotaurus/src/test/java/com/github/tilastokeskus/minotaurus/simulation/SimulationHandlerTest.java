@@ -0,0 +1,476 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.tilastokeskus.minotaurus.simulation;
+
+import static com.github.tilastokeskus.minotaurus.exception.ThrowableAssertion.assertThrown;
+import com.github.tilastokeskus.minotaurus.maze.Maze;
+import com.github.tilastokeskus.minotaurus.maze.MazeEntity;
+import com.github.tilastokeskus.minotaurus.maze.TestMazeGenerator;
+import com.github.tilastokeskus.minotaurus.pathfinding.DistanceField;
+import com.github.tilastokeskus.minotaurus.runner.Runner;
+import com.github.tilastokeskus.minotaurus.scenario.TestScenario;
+import com.github.tilastokeskus.minotaurus.util.Direction;
+import com.github.tilastokeskus.minotaurus.util.Position;
+import com.github.tilastokeskus.minotaurus.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Observer;
+import java.util.function.Predicate;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SimulationHandlerTest {
+    
+    private WanderingRunner runner;
+    private SimulationHandler handler;
+    
+    public SimulationHandlerTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+        runner = new WanderingRunner();
+        handler = new SimulationHandler(new TestMazeGenerator(),
+                new TestScenario(), Arrays.asList(runner));
+    }
+    
+    @After
+    public void tearDown() {
+        handler.stop();
+    }
+    
+    @Test
+    public void runHeadlessShouldStopAfterMaxRounds() {
+        SimulationResult result = handler.runHeadless(100, 0, 0);
+        assertTrue(result.getRounds() == 100);
+        assertTrue(runner.moves == 100);
+        assertFalse(handler.isRunning());
+    }
+    
+    @Test
+    public void runHeadlessShouldStopWhenCapIsReached() {
+        SimulationResult result = handler.runHeadless(0, 10, 0);
+        assertTrue(result.getRounds() == 10);
+        assertTrue(result.getScore(runner) == 10);
+        assertTrue(result.getScore(0) == 10);
+    }
+    
+    @Test
+    public void runHeadlessShouldStopWhenTimeLimitIsReached() {
+        runner.delay = 5;
+        SimulationResult result = handler.runHeadless(0, 0, 50);
+        assertTrue(result.getRounds() > 0);
+        assertTrue(result.getRounds() < 100);
+        assertTrue(result.getElapsedNanos() >= 50_000_000L);
+    }
+    
+    @Test
+    public void runHeadlessShouldNotNotifyObservers() {
+        Observer observer = (o, arg) -> fail("Observer was notified");
+        handler.addObserver(observer);
+        handler.runHeadless(10, 0, 0);
+    }
+    
+    @Test
+    public void runHeadlessShouldThrowWhenNoLimitIsGiven() {
+        assertThrown(() -> handler.runHeadless(0, 0, 0))
+                .expect(IllegalArgumentException.class);
+    }
+    
+    @Test
+    public void simulationHandlerShouldGenerateMazeOfGivenSize() {
+        SimulationHandler h = new SimulationHandler(new TestMazeGenerator(),
+                new TestScenario(), Arrays.asList(runner), 42, 80, 30);
+        assertTrue(h.getMaze().getWidth() == 80);
+        assertTrue(h.getMaze().getHeight() == 30);
+        assertTrue(handler.getMaze().getWidth() == SimulationHandler.DEFAULT_MAZE_SIZE);
+        
+        assertThrown(() -> new SimulationHandler(new TestMazeGenerator(),
+                new TestScenario(), Arrays.asList(runner), 42, 0, 30))
+                .expect(IllegalArgumentException.class);
+    }
+    
+    @Test
+    public void simulationsWithSameSeedShouldPlayOutIdentically() {
+        WanderingRunner runner1 = new WanderingRunner();
+        WanderingRunner runner2 = new WanderingRunner();
+        SimulationHandler handler1 = new SimulationHandler(new TestMazeGenerator(),
+                new TestScenario(), Arrays.asList(runner1), 42);
+        SimulationHandler handler2 = new SimulationHandler(new TestMazeGenerator(),
+                new TestScenario(), Arrays.asList(runner2), 42);
+        
+        handler1.runHeadless(50, 0, 0);
+        handler2.runHeadless(50, 0, 0);
+        assertTrue(runner1.goalPositions.size() == 50);
+        assertArrayEquals(runner1.goalPositions.toArray(),
+                runner2.goalPositions.toArray());
+        assertTrue(handler1.getSeed() == 42);
+    }
+    
+    @Test
+    public void simulationsWithDifferentSeedsShouldDiffer() {
+        WanderingRunner runner1 = new WanderingRunner();
+        WanderingRunner runner2 = new WanderingRunner();
+        SimulationHandler handler1 = new SimulationHandler(new TestMazeGenerator(),
+                new TestScenario(), Arrays.asList(runner1), 1);
+        SimulationHandler handler2 = new SimulationHandler(new TestMazeGenerator(),
+                new TestScenario(), Arrays.asList(runner2), 2);
+        
+        handler1.runHeadless(50, 0, 0);
+        handler2.runHeadless(50, 0, 0);
+        assertFalse(Arrays.equals(runner1.goalPositions.toArray(),
+                runner2.goalPositions.toArray()));
+    }
+    
+    @Test
+    public void parallelDecisionsShouldAskRunnersConcurrently() {
+        WanderingRunner runner2 = new WanderingRunner();
+        runner2.setPosition(3, 3);
+        runner.barrier = new CyclicBarrier(2);
+        runner2.barrier = runner.barrier;
+        
+        handler = new SimulationHandler(new TestMazeGenerator(),
+                new TestScenario(), new ArrayList<>(Arrays.asList(runner, runner2)));
+        handler.setParallelDecisions(true);
+        SimulationResult result = handler.runHeadless(10, 0, 0);
+        
+        // The first runner's move is applied to the maze it decided on.
+        assertTrue(result.getRounds() == 10);
+        assertTrue(runner.moves == 10);
+        assertTrue(runner2.moves >= 1);
+    }
+    
+    @Test
+    public void parallelDecisionsShouldBeReproducible() {
+        WanderingRunner[] firstRunners = new WanderingRunner[2];
+        WanderingRunner[] secondRunners = new WanderingRunner[2];
+        for (WanderingRunner[] runners : Arrays.asList(firstRunners, secondRunners)) {
+            runners[0] = new WanderingRunner();
+            runners[1] = new WanderingRunner();
+            runners[1].setPosition(3, 3);
+            SimulationHandler h = new SimulationHandler(new TestMazeGenerator(),
+                    new TestScenario(), new ArrayList<>(Arrays.asList(runners)), 42);
+            h.setParallelDecisions(true);
+            h.runHeadless(50, 0, 0);
+        }
+        
+        assertArrayEquals(firstRunners[0].goalPositions.toArray(),
+                secondRunners[0].goalPositions.toArray());
+        assertTrue(firstRunners[1].getPosition().equals(secondRunners[1].getPosition()));
+    }
+    
+    @Test
+    public void parallelDecisionsShouldRethrowRunnerExceptions() {
+        WanderingRunner runner2 = new WanderingRunner();
+        runner2.setPosition(3, 3);
+        runner2.failure = new IllegalStateException("Runner failed on purpose");
+        
+        handler = new SimulationHandler(new TestMazeGenerator(),
+                new TestScenario(), new ArrayList<>(Arrays.asList(runner, runner2)));
+        handler.setParallelDecisions(true);
+        assertThrown(() -> handler.runHeadless(10, 0, 0))
+                .expect(IllegalStateException.class);
+    }
+    
+    @Test
+    public void parallelDecisionsShouldRemoveRunnersWhoseMovesBecameIllegal() {
+        WanderingRunner runner2 = new WanderingRunner();
+        runner2.setPosition(3, 1);
+        runner.heading = Direction.RIGHT;
+        runner2.heading = Direction.LEFT;
+        
+        /* Both runners decide to enter the cell between them. Whichever way
+         * the first move goes, the cell is taken by the time the second one
+         * is applied.
+         */
+        List<Runner> runners = new ArrayList<>(Arrays.asList(runner, runner2));
+        handler = new SimulationHandler(new TestMazeGenerator(),
+                new TestScenario(), runners);
+        handler.setParallelDecisions(true);
+        SimulationResult result = handler.runHeadless(1, 0, 0);
+        
+        assertTrue(result.getRounds() == 1);
+        assertTrue(runner2.moves == 1);
+        assertFalse(runners.contains(runner2));
+        assertEquals(new Position(3, 1), runner2.getPosition());
+    }
+    
+    @Test
+    public void moveTimeLimitShouldSkipSlowRunners() {
+        runner.delay = 200;
+        handler.setMoveTimeLimit(10);
+        SimulationResult result = handler.runHeadless(5, 0, 0);
+        
+        assertTrue(result.getRounds() == 5);
+        assertTrue(result.getTimeouts(0) == 5);
+        assertTrue(handler.getTimeouts(runner) == 5);
+        assertTrue(runner.moves >= 1);
+        assertTrue(handler.getRunners().contains(runner));
+        assertEquals(new Position(1, 1), runner.getPosition());
+    }
+    
+    @Test
+    public void moveTimeLimitShouldNotAffectFastRunners() {
+        handler.setMoveTimeLimit(1000);
+        SimulationResult result = handler.runHeadless(20, 0, 0);
+        
+        assertTrue(result.getTimeouts(0) == 0);
+        assertTrue(result.getScore(0) == 20);
+        assertTrue(runner.moves == 20);
+    }
+    
+    @Test
+    public void moveTimeLimitShouldOnlySkipSlowRunnersInParallelMode() {
+        WanderingRunner runner2 = new WanderingRunner();
+        runner2.setPosition(3, 3);
+        runner2.delay = 200;
+        
+        handler = new SimulationHandler(new TestMazeGenerator(),
+                new TestScenario(), new ArrayList<>(Arrays.asList(runner, runner2)));
+        handler.setParallelDecisions(true);
+        handler.setMoveTimeLimit(20);
+        SimulationResult result = handler.runHeadless(3, 0, 0);
+        
+        assertTrue(result.getTimeouts(0) == 0);
+        assertTrue(result.getTimeouts(1) == 3);
+        assertTrue(runner.moves == 3);
+    }
+    
+    @Test
+    public void runnersShouldShareDistanceFields() {
+        WanderingRunner runner2 = new WanderingRunner();
+        runner2.setPosition(3, 3);
+        handler = new SimulationHandler(new TestMazeGenerator(),
+                new TestScenario(), new ArrayList<>(Arrays.asList(runner, runner2)), 42);
+        
+        // In parallel mode both runners see the goal in the same place.
+        handler.setParallelDecisions(true);
+        handler.runHeadless(1, 0, 0);
+        
+        assertTrue(runner.field != null);
+        assertTrue(runner.field == runner2.field);
+        assertTrue(runner.field.getDistance(runner.goalPositions.get(0).x,
+                runner.goalPositions.get(0).y) == 0);
+    }
+    
+    @Test
+    public void moveTimeLimitShouldNotModifyMazeWhileRunnersDecideInParallel() {
+        WanderingRunner runner2 = new WanderingRunner();
+        runner2.setPosition(3, 3);
+        runner2.delay = 50;
+        
+        // Neither runner can finish before both have started deciding.
+        runner.barrier = new CyclicBarrier(2);
+        runner2.barrier = runner.barrier;
+        
+        handler = new SimulationHandler(new TestMazeGenerator(),
+                new TestScenario(), new ArrayList<>(Arrays.asList(runner, runner2)));
+        handler.setParallelDecisions(true);
+        handler.setMoveTimeLimit(1000);
+        handler.runHeadless(1, 0, 0);
+        
+        assertTrue(runner2.moves == 1);
+        assertTrue(runner2.changesWhileDeciding == 0);
+        assertTrue(handler.getTimeouts(runner2) == 0);
+    }
+    
+    @Test
+    public void moveTimeLimitShouldRemoveRunnersWhoseMovesBecameIllegal() {
+        WanderingRunner runner2 = new WanderingRunner();
+        runner2.setPosition(3, 1);
+        runner.heading = Direction.RIGHT;
+        runner2.heading = Direction.LEFT;
+        
+        List<Runner> runners = new ArrayList<>(Arrays.asList(runner, runner2));
+        handler = new SimulationHandler(new TestMazeGenerator(),
+                new TestScenario(), runners);
+        handler.setParallelDecisions(true);
+        handler.setMoveTimeLimit(1000);
+        handler.runHeadless(1, 0, 0);
+        
+        assertFalse(runners.contains(runner2));
+        assertEquals(new Position(3, 1), runner2.getPosition());
+    }
+    
+    @Test
+    public void moveTimeLimitShouldInterruptRunnersThatRunOutOfTime() throws InterruptedException {
+        LoopingRunner looper = new LoopingRunner();
+        handler = new SimulationHandler(new TestMazeGenerator(),
+                new TestScenario(), new ArrayList<>(Arrays.asList(looper)));
+        handler.setMoveTimeLimit(10);
+        SimulationResult result = handler.runHeadless(3, 0, 0);
+        
+        assertTrue(result.getTimeouts(0) == 3);
+        assertTrue(looper.stopped.await(1, TimeUnit.SECONDS));
+        
+        // The simulation is over, so its threads are let go as well.
+        looper.thread.join(1000);
+        assertFalse(looper.thread.isAlive());
+    }
+    
+    @Test
+    public void moveTimeLimitShouldNotAskBusyRunnersAgain() {
+        StubbornRunner stubborn = new StubbornRunner();
+        handler = new SimulationHandler(new TestMazeGenerator(),
+                new TestScenario(), new ArrayList<>(Arrays.asList(stubborn)));
+        handler.setMoveTimeLimit(10);
+        SimulationResult result = handler.runHeadless(5, 0, 0);
+        
+        assertTrue(result.getTimeouts(0) == 5);
+        assertTrue(stubborn.calls.get() == 1);
+        assertTrue(stubborn.maxDeciding == 1);
+    }
+    
+    @Test
+    public void setMoveTimeLimitShouldThrowOnNegativeLimit() {
+        assertThrown(() -> handler.setMoveTimeLimit(-1))
+                .expect(IllegalArgumentException.class);
+    }
+    
+    /**
+     * Moves to the first free position around it, and records where its goal
+     * was each round.
+     */
+    private static class WanderingRunner extends Runner {
+        
+        int moves;
+        int delay;
+        List<Position> goalPositions = new ArrayList<>();
+        CyclicBarrier barrier;
+        RuntimeException failure;
+        Direction heading;
+        DistanceField field;
+        long changesWhileDeciding;
+
+        @Override
+        public Direction getNextMove(Maze maze, Collection<MazeEntity> goals,
+                Predicate<Position> positionPredicate) {
+            if (failure != null)
+                throw failure;
+            
+            moves++;
+            goalPositions.add(goals.iterator().next().getPosition());
+            field = getDistanceField(maze, goals);
+            if (heading != null)
+                return heading;
+            
+            long changes = maze.getChangeCount();
+            
+            // Later rounds may have lost the other runner.
+            if (barrier != null && moves == 1) {
+                try {
+                    barrier.await(1, TimeUnit.SECONDS);
+                } catch (InterruptedException | BrokenBarrierException
+                        | TimeoutException ex) {
+                    throw new IllegalStateException("Runners were not asked concurrently", ex);
+                }
+            }
+            
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            changesWhileDeciding += maze.getChangeCount() - changes;
+            
+            for (Direction dir : Direction.values()) {
+                int x = getPosition().x + dir.deltaX;
+                int y = getPosition().y + dir.deltaY;
+                if (dir != Direction.NONE
+                        && positionPredicate.test(new Position(x, y))
+                        && maze.getEntitiesAt(x, y).isEmpty())
+                    return dir;
+            }
+            
+            return Direction.NONE;
+        }
+        
+    }
+    
+    /**
+     * Loops until it is interrupted.
+     */
+    private static class LoopingRunner extends Runner {
+        
+        volatile Thread thread;
+        CountDownLatch stopped = new CountDownLatch(1);
+
+        @Override
+        public Direction getNextMove(Maze maze, Collection<MazeEntity> goals,
+                Predicate<Position> positionPredicate) {
+            thread = Thread.currentThread();
+            while (!Thread.currentThread().isInterrupted()) {
+            }
+            
+            stopped.countDown();
+            return Direction.NONE;
+        }
+        
+    }
+    
+    /**
+     * Takes 100 milliseconds to decide, whether it is interrupted or not.
+     */
+    private static class StubbornRunner extends Runner {
+        
+        AtomicInteger calls = new AtomicInteger();
+        AtomicInteger deciding = new AtomicInteger();
+        volatile int maxDeciding;
+
+        @Override
+        public Direction getNextMove(Maze maze, Collection<MazeEntity> goals,
+                Predicate<Position> positionPredicate) {
+            calls.incrementAndGet();
+            maxDeciding = Math.max(maxDeciding, deciding.incrementAndGet());
+            long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+            while (System.nanoTime() < end) {
+            }
+            
+            deciding.decrementAndGet();
+            return Direction.NONE;
+        }
+        
+    }
+}
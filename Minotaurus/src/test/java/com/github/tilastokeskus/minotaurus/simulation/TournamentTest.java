@@ -0,0 +1,187 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.simulation;
+
+import static com.github.tilastokeskus.minotaurus.exception.ThrowableAssertion.assertThrown;
+import com.github.tilastokeskus.minotaurus.maze.Maze;
+import com.github.tilastokeskus.minotaurus.maze.MazeEntity;
+import com.github.tilastokeskus.minotaurus.maze.TestMazeGenerator;
+import com.github.tilastokeskus.minotaurus.runner.Runner;
+import com.github.tilastokeskus.minotaurus.scenario.TestScenario;
+import com.github.tilastokeskus.minotaurus.util.Direction;
+import com.github.tilastokeskus.minotaurus.util.Position;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Predicate;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class TournamentTest {
+    
+    private SteppingRunner runner;
+    private TestScenario scenario;
+    
+    public TournamentTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+        runner = new SteppingRunner();
+        scenario = new TestScenario();
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    @Test
+    public void runShouldPlayAllGames() throws InterruptedException {
+        Tournament tournament = new Tournament(new TestMazeGenerator(),
+                scenario, Arrays.asList(runner), 20);
+        tournament.setLimits(10, 0, 0);
+        tournament.setParallelism(4);
+        
+        TournamentResult result = tournament.run();
+        assertTrue(result.getCompletedGames() == 20);
+        assertTrue(result.getFailedGames() == 0);
+        assertTrue(result.getTotalRounds() == 200);
+        assertTrue(result.getScoreDistribution(0).getCount() == 20);
+        assertTrue(result.getWins(0) == 20);
+    }
+    
+    @Test
+    public void runShouldNotModifyGivenInstances() throws InterruptedException {
+        Tournament tournament = new Tournament(new TestMazeGenerator(),
+                scenario, Arrays.asList(runner), 5);
+        tournament.setLimits(10, 0, 0);
+        tournament.run();
+        
+        assertTrue(runner.moves == 0);
+        assertEquals(new Position(0, 0), runner.getPosition());
+        assertTrue(scenario.getScore(runner) == 0);
+    }
+    
+    @Test
+    public void runShouldDeriveGameSeedsFromTournamentSeed() throws InterruptedException {
+        Tournament tournament = new Tournament(new TestMazeGenerator(),
+                scenario, Arrays.asList(runner), 10);
+        tournament.setLimits(10, 0, 0);
+        tournament.setSeed(42);
+        
+        TournamentResult result1 = tournament.run();
+        TournamentResult result2 = tournament.run();
+        for (int i = 0; i < 10; i++)
+            assertTrue(result1.getGames().get(i).getSeed()
+                    == result2.getGames().get(i).getSeed());
+    }
+    
+    @Test
+    public void runShouldCountFailedGames() throws InterruptedException {
+        runner.fail = true;
+        Tournament tournament = new Tournament(new TestMazeGenerator(),
+                scenario, Arrays.asList(runner), 3);
+        tournament.setLimits(10, 0, 0);
+        
+        TournamentResult result = tournament.run();
+        assertTrue(result.getCompletedGames() == 0);
+        assertTrue(result.getFailedGames() == 3);
+    }
+    
+    @Test
+    public void constructorShouldThrowWhenNoGamesAreGiven() {
+        assertThrown(() -> new Tournament(new TestMazeGenerator(), scenario,
+                Arrays.asList(runner), 0))
+                .expect(IllegalArgumentException.class);
+    }
+    
+    @Test
+    public void setLimitsShouldThrowWhenNoLimitIsGiven() {
+        Tournament tournament = new Tournament(new TestMazeGenerator(),
+                scenario, Arrays.asList(runner), 1);
+        assertThrown(() -> tournament.setLimits(0, 0, 0))
+                .expect(IllegalArgumentException.class);
+    }
+    
+    @Test
+    public void setMazeSizeShouldThrowWhenSizeIsNotPositive() {
+        Tournament tournament = new Tournament(new TestMazeGenerator(),
+                scenario, Arrays.asList(runner), 1);
+        assertThrown(() -> tournament.setMazeSize(10, -1))
+                .expect(IllegalArgumentException.class);
+    }
+    
+    @Test
+    public void scoreDistributionShouldCalculateStatistics() {
+        ScoreDistribution dist = new ScoreDistribution(new int[] {4, 1, 3, 2});
+        assertTrue(dist.getMin() == 1);
+        assertTrue(dist.getMax() == 4);
+        assertTrue(dist.getMean() == 2.5);
+        assertTrue(dist.getMedian() == 2);
+        assertTrue(dist.getPercentile(100) == 4);
+        assertTrue(Math.abs(dist.getStandardDeviation() - Math.sqrt(1.25)) < 1e-9);
+        assertArrayEquals(new int[] {4, 1, 3, 2}, dist.getScores());
+    }
+    
+    /**
+     * Steps back and forth between two free positions, or throws if told to.
+     */
+    private static class SteppingRunner extends Runner {
+        
+        int moves;
+        boolean fail;
+
+        @Override
+        public Direction getNextMove(Maze maze, Collection<MazeEntity> goals,
+                Predicate<Position> positionPredicate) {
+            if (fail)
+                throw new IllegalStateException("Runner failed on purpose");
+            
+            moves++;
+            for (Direction dir : Direction.values()) {
+                int x = getPosition().x + dir.deltaX;
+                int y = getPosition().y + dir.deltaY;
+                if (dir != Direction.NONE
+                        && positionPredicate.test(new Position(x, y))
+                        && maze.getEntitiesAt(x, y).isEmpty())
+                    return dir;
+            }
+            
+            return Direction.NONE;
+        }
+        
+    }
+}
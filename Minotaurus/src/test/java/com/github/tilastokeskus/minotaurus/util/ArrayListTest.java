@@ -24,6 +24,9 @@
 package com.github.tilastokeskus.minotaurus.util;
 
 import static com.github.tilastokeskus.minotaurus.exception.ThrowableAssertion.assertThrown;
+import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -193,4 +196,43 @@ public class ArrayListTest {
         assertFalse(list.shouldResize(12));
         assertFalse(list.shouldResize(16));
     }
+    
+    @Test
+    public void arrayListSpliteratorShouldSplitInHalvesAndCoverAllElements() {
+        for (int i = 0; i < ITERATIONS; i++)
+            list.add(i);
+        
+        Spliterator<Integer> second = list.spliterator();
+        Spliterator<Integer> first = second.trySplit();
+        assertTrue(first.estimateSize() == ITERATIONS / 2);
+        assertTrue(second.estimateSize() == ITERATIONS - ITERATIONS / 2);
+        assertTrue(second.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED));
+        
+        int[] next = {0};
+        first.forEachRemaining(i -> assertTrue(i == next[0]++));
+        second.forEachRemaining(i -> assertTrue(i == next[0]++));
+        assertTrue(next[0] == ITERATIONS);
+    }
+    
+    @Test
+    public void arrayListParallelStreamShouldProcessAllElementsInOrder() {
+        for (int i = 0; i < ITERATIONS; i++)
+            list.add(i);
+        
+        assertTrue(list.parallelStream().mapToLong(i -> i).sum() == (long) ITERATIONS * (ITERATIONS - 1) / 2);
+        assertArrayEquals(list.toArray(),
+                list.parallelStream().collect(Collectors.toList()).toArray());
+    }
+    
+    @Test
+    public void arrayListSpliteratorShouldFailFastOnModification() {
+        for (int i = 0; i < 10; i++)
+            list.add(i);
+        
+        Spliterator<Integer> it = list.spliterator();
+        it.tryAdvance(i -> {});
+        list.add(10);
+        assertThrown(() -> it.tryAdvance(i -> {}))
+                .expect(ConcurrentModificationException.class);
+    }
 }
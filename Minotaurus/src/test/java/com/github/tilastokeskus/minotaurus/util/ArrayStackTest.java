@@ -0,0 +1,162 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.tilastokeskus.minotaurus.util;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ArrayStackTest {
+    
+    private final boolean BENCHMARK = false;
+    
+    private ArrayStack<Integer> stack;
+    
+    public ArrayStackTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+        stack = new ArrayStack<>();
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    @Test
+    public void arrayStackShouldInitiallyBeEmpty() {
+        assertTrue(stack.isEmpty());
+        assertTrue(stack.size() == 0);
+        assertTrue(stack.pop() == null);
+        assertTrue(stack.peek() == null);
+    }
+    
+    @Test
+    public void arrayStackSizeShouldGrowWhenElementsAreAdded() {
+        for (int i = 1; i <= 3 * ArrayStack.CHUNK_SIZE; i++) {
+            assertTrue(stack.add(i));
+            assertTrue(stack.size() == i);
+        }
+        
+        assertFalse(stack.isEmpty());
+    }
+    
+    @Test
+    public void arrayStackPopShouldReturnElementsInReverseOrderAcrossChunks() {
+        int n = 5 * ArrayStack.CHUNK_SIZE + 3;
+        for (int i = 1; i <= n; i++)
+            stack.add(i);
+        
+        for (int i = n; i >= 1; i--) {
+            assertTrue(stack.size() == i);
+            assertTrue(stack.peek() == i);
+            assertTrue(stack.pop() == i);
+        }
+        
+        assertTrue(stack.isEmpty());
+        assertTrue(stack.pop() == null);
+    }
+    
+    @Test
+    public void arrayStackShouldReuseChunksAfterPops() {
+        for (int i = 0; i < 3 * ArrayStack.CHUNK_SIZE; i++)
+            stack.add(i);
+        Object[][] chunks = stack.chunks.clone();
+        
+        for (int round = 0; round < 10; round++) {
+            while (!stack.isEmpty())
+                stack.pop();
+            for (int i = 0; i < 3 * ArrayStack.CHUNK_SIZE; i++)
+                stack.add(i);
+        }
+        
+        assertTrue(stack.allocatedChunks == 3);
+        for (int c = 0; c < 3; c++)
+            assertTrue(stack.chunks[c] == chunks[c]);
+    }
+    
+    @Test
+    public void arrayStackPopShouldNotHoldOnToElements() {
+        stack.add(1);
+        stack.add(2);
+        stack.pop();
+        assertTrue(stack.chunks[0][1] == null);
+    }
+    
+    @Test
+    public void arrayStackClearShouldInitialize() {
+        for (int i = 0; i < 2 * ArrayStack.CHUNK_SIZE; i++)
+            stack.add(i);
+        
+        stack.clear();
+        assertTrue(stack.isEmpty());
+        assertTrue(stack.size() == 0);
+        assertTrue(stack.allocatedChunks == 1);
+        assertTrue(stack.chunks[1] == null);
+        assertTrue(stack.chunks[0][0] == null);
+        
+        stack.add(7);
+        assertTrue(stack.peek() == 7);
+    }
+    
+    @Test
+    public void arrayStackBenchmarkAgainstLinkedListStack() {
+        if (BENCHMARK) {
+            int n = 10_000_000;
+            Integer elem = 1;
+            
+            ArrayStack<Integer> arrayStack = new ArrayStack<>();
+            int arrayAvg = new Benchmark(() -> {
+                for (int i = 0; i < n; i++)
+                    arrayStack.add(elem);
+                while (!arrayStack.isEmpty())
+                    arrayStack.pop();
+            }).runBenchmark(10);
+            
+            LinkedListStack<Integer> linkedStack = new LinkedListStack<>();
+            int linkedAvg = new Benchmark(() -> {
+                for (int i = 0; i < n; i++)
+                    linkedStack.add(elem);
+                while (!linkedStack.isEmpty())
+                    linkedStack.pop();
+            }).runBenchmark(10);
+            
+            System.out.println("ArrayStack push+pop: " + arrayAvg);
+            System.out.println("LinkedListStack push+pop: " + linkedAvg);
+        }
+    }
+    
+}
@@ -0,0 +1,161 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.tilastokeskus.minotaurus.util;
+
+import static com.github.tilastokeskus.minotaurus.exception.ThrowableAssertion.assertThrown;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class BitGridTest {
+    
+    private BitGrid grid;
+    
+    public BitGridTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+        grid = new BitGrid(1000, 1000);
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    @Test
+    public void bitGridShouldTakeOneBitPerCell() {
+        assertTrue(grid.words.length * 8 == 125000);
+        assertTrue(new BitGrid(7, 9).words.length == 1);
+        assertTrue(new BitGrid(0, 0).nextSetBit(0) == -1);
+    }
+    
+    @Test
+    public void bitGridSetClearAndTestShouldWorkProperly() {
+        assertFalse(grid.test(999, 999));
+        grid.set(999, 999);
+        grid.set(0);
+        grid.set(63);
+        grid.set(64);
+        assertTrue(grid.test(999, 999));
+        assertTrue(grid.test(0, 0));
+        assertTrue(grid.test(63) && grid.test(64));
+        assertFalse(grid.test(1) || grid.test(62) || grid.test(65));
+        
+        grid.clear(63);
+        grid.clear(5, 5);
+        assertFalse(grid.test(63));
+        assertTrue(grid.test(64));
+        assertTrue(grid.cardinality() == 3);
+    }
+    
+    @Test
+    public void bitGridTestAndSetShouldReportChanges() {
+        assertTrue(grid.testAndSet(12345));
+        assertFalse(grid.testAndSet(12345));
+        assertTrue(grid.test(12345));
+    }
+    
+    @Test
+    public void bitGridClearAllShouldClearEveryCell() {
+        for (int i = 0; i < 1000000; i += 7)
+            grid.set(i);
+        
+        grid.clearAll();
+        assertTrue(grid.cardinality() == 0);
+        assertTrue(grid.nextSetBit(0) == -1);
+        for (int i = 0; i < 1000000; i += 7)
+            assertFalse(grid.test(i));
+        
+        // Cells in a block written after clearing mustn't bring old bits back.
+        grid.set(14);
+        assertTrue(grid.test(14));
+        assertFalse(grid.test(7) || grid.test(21));
+        assertTrue(grid.cardinality() == 1);
+    }
+    
+    @Test
+    public void bitGridClearAllShouldSurviveGenerationOverflow() {
+        grid.set(100);
+        grid.generation = Integer.MAX_VALUE;
+        grid.set(200);
+        grid.clearAll();
+        assertFalse(grid.test(100));
+        assertFalse(grid.test(200));
+        grid.set(300);
+        assertTrue(grid.cardinality() == 1);
+    }
+    
+    @Test
+    public void bitGridShouldIterateSetBitsInOrder() {
+        Random random = new Random(42);
+        boolean[] expected = new boolean[1000000];
+        for (int round = 0; round < 3; round++) {
+            grid.clearAll();
+            Arrays.fill(expected, false);
+            for (int i = 0; i < 5000; i++) {
+                int cell = random.nextInt(expected.length);
+                grid.set(cell);
+                expected[cell] = true;
+            }
+            
+            int[] previous = {-1};
+            int[] count = {0};
+            grid.forEachSetBit(cell -> {
+                assertTrue(cell > previous[0]);
+                assertTrue(expected[cell]);
+                previous[0] = cell;
+                count[0]++;
+            });
+            
+            assertTrue(count[0] == grid.cardinality());
+            int n = 0;
+            for (boolean b : expected)
+                if (b)
+                    n++;
+            assertTrue(count[0] == n);
+        }
+    }
+    
+    @Test
+    public void bitGridShouldThrowOnPositionsOutOfBounds() {
+        assertThrown(() -> grid.set(1000, 0)).expect(IllegalArgumentException.class);
+        assertThrown(() -> grid.test(0, -1)).expect(IllegalArgumentException.class);
+        assertThrown(() -> new BitGrid(-1, 1)).expect(IllegalArgumentException.class);
+    }
+    
+}
@@ -0,0 +1,291 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.util;
+
+import static com.github.tilastokeskus.minotaurus.exception.ThrowableAssertion.assertThrown;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class BucketQueueTest {
+    
+    private final boolean BENCHMARK = false;
+    
+    BucketQueue queue;
+    
+    public BucketQueueTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+        queue = new BucketQueue(1000, 10);
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    @Test
+    public void bucketQueueExtractMinShouldReturnElementsInPriorityOrder() {
+        Random r = new Random(1);
+        for (int i = 0; i < 1000; i++)
+            queue.add(i, r.nextInt(10));
+        
+        assertTrue(queue.size() == 1000);
+        int prev = 0;
+        while (!queue.isEmpty()) {
+            int p = queue.minPriority();
+            int elem = queue.extractMin();
+            assertTrue(p >= prev);
+            assertFalse(queue.contains(elem));
+            prev = p;
+        }
+    }
+    
+    @Test
+    public void bucketQueueShouldReturnEqualPrioritiesLastInFirstOut() {
+        queue.add(1, 5);
+        queue.add(2, 5);
+        queue.add(3, 5);
+        assertTrue(queue.min() == 3);
+        assertTrue(queue.extractMin() == 3);
+        assertTrue(queue.extractMin() == 2);
+        assertTrue(queue.extractMin() == 1);
+    }
+    
+    @Test
+    public void bucketQueueShouldWrapAroundItsBuckets() {
+        int elem = 0;
+        for (int p = 0; p < 9; p++)
+            queue.add(elem++, p);
+        
+        // Keep the window full while sliding it across all of the buckets.
+        for (int p = 0; p < 100; p++) {
+            assertTrue(queue.minPriority() == p);
+            assertTrue(queue.getPriority(queue.min()) == p);
+            queue.extractMin();
+            queue.add(elem++, p + 9);
+        }
+    }
+    
+    @Test
+    public void bucketQueueShouldRejectPrioritiesOutsideItsWindow() {
+        queue.add(0, 100);
+        assertThrown(() -> queue.add(1, 110))
+                .expect(IllegalArgumentException.class);
+        
+        queue.add(1, 105);
+        queue.extractMin();
+        assertThrown(() -> queue.add(2, 99))
+                .expect(IllegalArgumentException.class);
+        assertThrown(() -> queue.changePriority(1, 99))
+                .expect(IllegalArgumentException.class);
+    }
+    
+    @Test
+    public void bucketQueueShouldAcceptLowerPrioritiesInEmptyQueueWindow() {
+        queue.add(0, 10);
+        queue.extractMin();
+        queue.add(1, 12);
+        queue.add(2, 10);
+        assertTrue(queue.extractMin() == 2);
+        
+        queue.clear();
+        queue.add(3, -50);
+        assertTrue(queue.minPriority() == -50);
+    }
+    
+    @Test
+    public void bucketQueueAddShouldNotAllowDuplicateElements() {
+        queue.add(3, 1);
+        assertThrown(() -> queue.add(3, 2))
+                .expect(IllegalStateException.class);
+    }
+    
+    @Test
+    public void bucketQueueChangePriorityShouldMoveElement() {
+        for (int i = 0; i < 100; i++)
+            queue.add(i, 5);
+        
+        queue.changePriority(42, 0);
+        assertTrue(queue.min() == 42);
+        assertTrue(queue.getPriority(42) == 0);
+        queue.changePriority(42, 9);
+        assertTrue(queue.getPriority(queue.min()) == 5);
+        assertTrue(queue.size() == 100);
+    }
+    
+    @Test
+    public void bucketQueueRemoveShouldRemoveElement() {
+        for (int i = 0; i < 100; i++)
+            queue.add(i, i % 10);
+        
+        for (int i = 0; i < 100; i += 2)
+            assertTrue(queue.remove(i));
+        assertFalse(queue.remove(0));
+        assertTrue(queue.size() == 50);
+        
+        boolean[] seen = new boolean[100];
+        while (!queue.isEmpty())
+            seen[queue.extractMin()] = true;
+        for (int i = 0; i < 100; i++)
+            assertTrue(seen[i] == (i % 2 == 1));
+    }
+    
+    @Test
+    public void bucketQueueShouldThrowWhenEmpty() {
+        assertThrown(() -> queue.extractMin())
+                .expect(NoSuchElementException.class);
+        assertThrown(() -> queue.getPriority(0))
+                .expect(NoSuchElementException.class);
+    }
+    
+    @Test
+    public void bucketQueueClearShouldRemoveAllElements() {
+        for (int i = 0; i < 1000; i++)
+            queue.add(i, i % 10);
+        
+        queue.clear();
+        assertTrue(queue.isEmpty());
+        for (int i = 0; i < 1000; i++)
+            assertFalse(queue.contains(i));
+        
+        queue.add(0, 0);
+        assertTrue(queue.extractMin() == 0);
+    }
+    
+    @Test
+    public void bucketQueueShouldFindSameDistancesAsPriorityQueue() {
+        int size = 100;
+        boolean[] walls = randomWalls(size, new Random(4));
+        assertArrayEquals(distancesWithPriorityQueue(walls, size),
+                          distancesWithBucketQueue(walls, size));
+    }
+    
+    @Test
+    public void bucketQueuePerformanceTest() {
+        if (BENCHMARK) {
+            for (int size : new int[] {50, 200, 1000}) {
+                boolean[] walls = randomWalls(size, new Random(5));
+                
+                int heapAvg = new Benchmark(() -> {
+                    distancesWithPriorityQueue(walls, size);
+                }).runBenchmark(20);
+                
+                int bucketAvg = new Benchmark(() -> {
+                    distancesWithBucketQueue(walls, size);
+                }).runBenchmark(20);
+                
+                System.out.println(size + "x" + size + " - PriorityQueue: " + heapAvg);
+                System.out.println(size + "x" + size + " - BucketQueue: " + bucketAvg);
+            }
+        }
+    }
+    
+    private static final int[][] STEPS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    
+    /**
+     * Returns a square grid where roughly every fourth cell is a wall.
+     */
+    private boolean[] randomWalls(int size, Random random) {
+        boolean[] walls = new boolean[size * size];
+        for (int i = 1; i < walls.length; i++)
+            walls[i] = random.nextInt(4) == 0;
+        return walls;
+    }
+    
+    /**
+     * Breadth-first distances from the top left corner, expanded in the
+     * order of a heap of {distance, cell} pairs.
+     */
+    private int[] distancesWithPriorityQueue(boolean[] walls, int size) {
+        int[] dist = new int[walls.length];
+        Arrays.fill(dist, Integer.MAX_VALUE);
+        dist[0] = 0;
+        
+        PriorityQueue<long[]> open = new PriorityQueue<>(
+                (long[] a, long[] b) -> Long.compare(a[0], b[0]));
+        open.add(new long[] {0, 0});
+        while (!open.isEmpty()) {
+            long[] top = open.extractMin();
+            int cell = (int) top[1];
+            if (top[0] > dist[cell])
+                continue;
+            
+            for (int[] step : STEPS) {
+                int next = neighbor(cell, step, size);
+                if (next != -1 && !walls[next] && dist[cell] + 1 < dist[next]) {
+                    dist[next] = dist[cell] + 1;
+                    open.add(new long[] {dist[next], next});
+                }
+            }
+        }
+        
+        return dist;
+    }
+    
+    private int[] distancesWithBucketQueue(boolean[] walls, int size) {
+        int[] dist = new int[walls.length];
+        Arrays.fill(dist, Integer.MAX_VALUE);
+        dist[0] = 0;
+        
+        BucketQueue open = new BucketQueue(walls.length, 2);
+        open.add(0, 0);
+        while (!open.isEmpty()) {
+            int cell = open.extractMin();
+            for (int[] step : STEPS) {
+                int next = neighbor(cell, step, size);
+                if (next != -1 && !walls[next] && dist[cell] + 1 < dist[next]) {
+                    dist[next] = dist[cell] + 1;
+                    open.add(next, dist[next]);
+                }
+            }
+        }
+        
+        return dist;
+    }
+    
+    private int neighbor(int cell, int[] step, int size) {
+        int x = cell % size + step[0];
+        int y = cell / size + step[1];
+        if (x < 0 || y < 0 || x >= size || y >= size)
+            return -1;
+        return y * size + x;
+    }
+}
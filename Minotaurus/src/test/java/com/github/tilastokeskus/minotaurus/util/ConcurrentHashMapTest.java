@@ -0,0 +1,392 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.util;
+
+import static com.github.tilastokeskus.minotaurus.exception.ThrowableAssertion.assertThrown;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ConcurrentHashMapTest {
+    
+    private final boolean BENCHMARK = false;
+    
+    private static final int THREADS = 4;
+    
+    private ConcurrentHashMap<Integer, Integer> map;
+    private ExecutorService pool;
+    
+    public ConcurrentHashMapTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+        map = new ConcurrentHashMap<>();
+        pool = Executors.newFixedThreadPool(THREADS);
+    }
+    
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+    
+    @Test
+    public void concurrentHashMapPutAndGetShouldWorkLikeHashMap() {
+        for (int i = -1000; i < 1000; i++)
+            assertNull(map.put(i, i*2));
+        
+        assertTrue(map.size() == 2000);
+        for (int i = -1000; i < 1000; i++) {
+            assertTrue(map.containsKey(i));
+            assertTrue(map.get(i) == i*2);
+        }
+        
+        assertTrue(map.put(5, 0) == 10);
+        assertNull(map.get(1000));
+        assertTrue(map.containsValue(0));
+        assertFalse(map.containsValue(-1));
+    }
+    
+    @Test
+    public void concurrentHashMapRemoveShouldRemoveEntry() {
+        for (int i = 0; i < 1000; i++)
+            map.put(i, i);
+        
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(map.remove(i) == i);
+            assertFalse(map.containsKey(i));
+            assertTrue(map.size() == 1000 - i - 1);
+        }
+        
+        assertTrue(map.isEmpty());
+        assertNull(map.remove(0));
+    }
+    
+    @Test
+    public void concurrentHashMapConditionalOperationsShouldCheckCurrentValue() {
+        assertNull(map.putIfAbsent(1, 1));
+        assertTrue(map.putIfAbsent(1, 2) == 1);
+        
+        assertFalse(map.replace(1, 2, 3));
+        assertTrue(map.replace(1, 1, 3));
+        assertTrue(map.replace(1, 4) == 3);
+        assertNull(map.replace(2, 4));
+        assertFalse(map.containsKey(2));
+        
+        assertFalse(map.remove(1, 3));
+        assertTrue(map.remove(1, 4));
+        assertTrue(map.isEmpty());
+    }
+    
+    @Test
+    public void concurrentHashMapComputeIfAbsentAndMergeShouldUpdateAtomically() {
+        assertTrue(map.computeIfAbsent(1, key -> key + 10) == 11);
+        assertTrue(map.computeIfAbsent(1, key -> 0) == 11);
+        assertNull(map.computeIfAbsent(2, key -> null));
+        assertFalse(map.containsKey(2));
+        
+        assertTrue(map.merge(3, 1, Integer::sum) == 1);
+        assertTrue(map.merge(3, 1, Integer::sum) == 2);
+        assertNull(map.merge(3, 1, (a, b) -> null));
+        assertFalse(map.containsKey(3));
+    }
+    
+    @Test
+    public void concurrentHashMapShouldNotAllowNulls() {
+        assertThrown(() -> map.put(null, 1))
+                .expect(NullPointerException.class);
+        assertThrown(() -> map.put(1, null))
+                .expect(NullPointerException.class);
+        assertThrown(() -> map.get(null))
+                .expect(NullPointerException.class);
+    }
+    
+    @Test
+    public void concurrentHashMapIteratorsShouldVisitAllEntries() {
+        for (int i = 0; i < 1000; i++)
+            map.put(i, i*2);
+        
+        boolean[] found = new boolean[1000];
+        for (Map.Entry<Integer, Integer> e : map.entrySet()) {
+            assertTrue(e.getValue() == e.getKey()*2);
+            found[e.getKey()] = true;
+        }
+        
+        for (int i = 0; i < 1000; i++)
+            assertTrue(found[i]);
+        assertTrue(map.keySet().size() == 1000);
+        assertTrue(map.values().size() == 1000);
+    }
+    
+    @Test
+    public void concurrentHashMapIteratorRemoveAndSetValueShouldWriteThrough() {
+        for (int i = 0; i < 100; i++)
+            map.put(i, i);
+        
+        Iterator<Integer> it = map.keySet().iterator();
+        while (it.hasNext())
+            if (it.next() % 2 == 0)
+                it.remove();
+        
+        for (Map.Entry<Integer, Integer> e : map.entrySet())
+            e.setValue(-1);
+        
+        assertTrue(map.size() == 50);
+        for (int i = 0; i < 100; i++)
+            assertTrue(map.getOrDefault(i, 0) == (i % 2 == 0 ? 0 : -1));
+    }
+    
+    @Test
+    public void concurrentHashMapIteratorsShouldTolerateModification() {
+        for (int i = 0; i < 1000; i++)
+            map.put(i, i);
+        
+        int count = 0;
+        for (Integer key : map.keySet()) {
+            map.remove(key);
+            map.put(key + 1000, key);
+            if (++count == 1000)
+                break;
+        }
+        
+        assertTrue(count == 1000);
+    }
+    
+    @Test
+    public void concurrentHashMapClearShouldRemoveAllEntries() {
+        for (int i = 0; i < 1000; i++)
+            map.put(i, i);
+        
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.keySet().iterator().hasNext());
+    }
+    
+    @Test
+    public void concurrentHashMapShouldWorkWithSingleSegment() {
+        map = new ConcurrentHashMap<>(1);
+        for (int i = 0; i < 1000; i++)
+            map.put(i, i);
+        
+        assertTrue(map.segments.length == 1);
+        for (int i = 0; i < 1000; i++)
+            assertTrue(map.get(i) == i);
+    }
+    
+    @Test
+    public void concurrentHashMapShouldAgreeWithHashMapAfterRandomOperations() {
+        HashMap<Integer, Integer> expected = new HashMap<>();
+        Random r = new Random(1);
+        
+        for (int i = 0; i < 100000; i++) {
+            int key = r.nextInt(2000) - 1000;
+            if (r.nextInt(3) == 0)
+                assertEquals(expected.remove(key), map.remove(key));
+            else
+                assertEquals(expected.put(key, i), map.put(key, i));
+        }
+        
+        assertTrue(map.size() == expected.size());
+        for (Map.Entry<Integer, Integer> e : expected.entrySet())
+            assertEquals(e.getValue(), map.get(e.getKey()));
+    }
+    
+    @Test
+    public void concurrentHashMapShouldNotLoseUpdatesFromManyThreads() throws Exception {
+        int keys = 100;
+        int increments = 10000;
+        
+        Future<?>[] futures = new Future<?>[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            int seed = t;
+            futures[t] = pool.submit(() -> {
+                Random r = new Random(seed);
+                for (int i = 0; i < increments; i++)
+                    map.merge(r.nextInt(keys), 1, Integer::sum);
+            });
+        }
+        
+        for (Future<?> f : futures)
+            f.get();
+        
+        int total = 0;
+        for (int value : map.values())
+            total += value;
+        assertTrue(total == THREADS * increments);
+    }
+    
+    @Test
+    public void concurrentHashMapReadersShouldSeeStableKeysWhileOthersWrite() throws Exception {
+        
+        // Keys below 1000 are never touched by the writers.
+        for (int i = 0; i < 1000; i++)
+            map.put(i, i);
+        
+        AtomicBoolean stop = new AtomicBoolean();
+        Future<?>[] writers = new Future<?>[THREADS - 1];
+        for (int t = 0; t < writers.length; t++) {
+            int seed = t;
+            writers[t] = pool.submit(() -> {
+                Random r = new Random(seed);
+                while (!stop.get()) {
+                    int key = 1000 + r.nextInt(10000);
+                    if (r.nextBoolean())
+                        map.put(key, key);
+                    else
+                        map.remove(key);
+                }
+            });
+        }
+        
+        try {
+            for (int round = 0; round < 50; round++) {
+                for (int i = 0; i < 1000; i++)
+                    assertTrue(map.get(i) == i);
+                
+                int stable = 0;
+                for (Map.Entry<Integer, Integer> e : map.entrySet()) {
+                    assertEquals(e.getKey(), e.getValue());
+                    if (e.getKey() < 1000)
+                        stable++;
+                }
+                assertTrue(stable == 1000);
+            }
+        } finally {
+            stop.set(true);
+        }
+        
+        for (Future<?> f : writers)
+            f.get();
+    }
+    
+    @Test
+    public void concurrentHashMapReadersShouldNeverSeePresentKeysAsAbsent() throws Exception {
+        int keys = 50000;
+        
+        /* One writer adds keys in order and never removes them, growing the
+         * tables as it goes, while the others churn keys of their own.
+         */
+        AtomicBoolean stop = new AtomicBoolean();
+        Future<?> adder = pool.submit(() -> {
+            for (int i = 0; i < keys; i++)
+                map.put(i, i);
+        });
+        Future<?>[] churners = new Future<?>[THREADS - 2];
+        for (int t = 0; t < churners.length; t++) {
+            int seed = t;
+            churners[t] = pool.submit(() -> {
+                Random r = new Random(seed);
+                while (!stop.get()) {
+                    int key = -1 - r.nextInt(1000);
+                    if (r.nextBoolean())
+                        map.put(key, key);
+                    else
+                        map.remove(key);
+                }
+            });
+        }
+        
+        // Once a key has been seen, it must stay visible with its value.
+        try {
+            boolean[] seen = new boolean[keys];
+            Random r = new Random(42);
+            while (!adder.isDone()) {
+                int key = r.nextInt(keys);
+                Integer value = map.get(key);
+                if (value != null) {
+                    assertTrue(value == key);
+                    seen[key] = true;
+                } else {
+                    assertFalse(seen[key]);
+                }
+                
+                if (map.containsKey(key))
+                    assertTrue(map.get(key) == key);
+            }
+        } finally {
+            stop.set(true);
+        }
+        
+        adder.get();
+        for (Future<?> f : churners)
+            f.get();
+        for (int i = 0; i < keys; i++)
+            assertTrue(map.get(i) == i);
+    }
+    
+    @Test
+    public void concurrentHashMapPerformanceTest() {
+        if (BENCHMARK) {
+            int numIters = 1000000;
+            
+            int putAvg = new Benchmark(() -> map.clear(), () -> {
+                for (int i = 0; i < numIters; i++)
+                    map.put(i, i);
+            }).runBenchmark(50);
+            
+            int getAvg = new Benchmark(() -> {
+                for (int i = 0; i < numIters; i++)
+                    map.get(i);
+            }).runBenchmark(50);
+            
+            int parallelMergeAvg = new Benchmark(() -> map.clear(), () -> {
+                Future<?>[] futures = new Future<?>[THREADS];
+                for (int t = 0; t < THREADS; t++)
+                    futures[t] = pool.submit(() -> {
+                        for (int i = 0; i < numIters / THREADS; i++)
+                            map.merge(i, 1, Integer::sum);
+                    });
+                try {
+                    for (Future<?> f : futures)
+                        f.get();
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }).runBenchmark(50);
+            
+            System.out.println("ConcurrentHashMap - Put: " + putAvg);
+            System.out.println("ConcurrentHashMap - Get: " + getAvg);
+            System.out.println("ConcurrentHashMap - Parallel merge: " + parallelMergeAvg);
+        }
+    }
+}
@@ -28,6 +28,8 @@ import com.github.tilastokeskus.minotaurus.util.HashMap.Entry;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -302,6 +304,117 @@ public class HashMapTest {
         assertTrue(numSame < 5);
     }
     
+    @Test
+    public void hashMapTableCapacityShouldStayPowerOfTwo() {
+        for (int i = 0; i < 1000; i++) {
+            map.put(i, i);
+            assertTrue(Integer.bitCount(map.table.length) == 1);
+        }
+    }
+    
+    @Test
+    public void hashMapShouldHandleNegativeHashCodes() {
+        HashMap<HashKey, Integer> m = new HashMap<>();
+        m.put(new HashKey(Integer.MIN_VALUE, 1), 1);
+        m.put(new HashKey(-1, 2), 2);
+        assertTrue(m.get(new HashKey(Integer.MIN_VALUE, 1)) == 1);
+        assertTrue(m.get(new HashKey(-1, 2)) == 2);
+        assertTrue(m.hash(new HashKey(Integer.MIN_VALUE, 0)) >= 0);
+    }
+    
+    @Test
+    public void hashMapShouldTreeifyCollidingGridKeys() {
+        HashMap<Position, Integer> m = new HashMap<>();
+        
+        // Position's hash code is 17889 + 67*x + y, so columns collide a lot.
+        for (int y = 0; y < 2000; y++)
+            for (int x = 0; x < 20; x++)
+                m.put(new Position(x, y), y * 20 + x);
+        
+        assertTrue(m.size() == 40000);
+        assertTrue(m.trees != null);
+        
+        for (int y = 0; y < 2000; y++)
+            for (int x = 0; x < 20; x++)
+                assertTrue(m.get(new Position(x, y)) == y * 20 + x);
+        
+        assertFalse(m.containsKey(new Position(20, 0)));
+        assertTrue(m.keySet().stream().count() == 40000);
+        
+        for (int y = 0; y < 2000; y += 2)
+            for (int x = 0; x < 20; x++)
+                assertTrue(m.remove(new Position(x, y)) == y * 20 + x);
+        
+        assertTrue(m.size() == 20000);
+        for (int y = 0; y < 2000; y++)
+            for (int x = 0; x < 20; x++)
+                assertTrue(m.containsKey(new Position(x, y)) == (y % 2 == 1));
+    }
+    
+    @Test
+    public void hashMapShouldTreeifyComparableKeysWithEqualHashes() {
+        HashMap<ComparableHashKey, Integer> m = new HashMap<>();
+        m.resizeTable(HashMap.MIN_TREEIFY_CAPACITY);
+        for (int i = 0; i < 40; i++)
+            m.put(new ComparableHashKey(7, i), i);
+        
+        int bucket = m.getBucketIndex(m.hash(new ComparableHashKey(7, 0)), m.table.length);
+        assertTrue(m.trees[bucket] != null);
+        assertTrue(m.trees[bucket].size == 40);
+        
+        for (int i = 0; i < 40; i++)
+            assertTrue(m.get(new ComparableHashKey(7, i)) == i);
+        
+        for (int i = 0; i < 35; i++)
+            assertTrue(m.remove(new ComparableHashKey(7, i)) == i);
+        
+        assertTrue(m.trees[bucket] == null);
+        for (int i = 35; i < 40; i++)
+            assertTrue(m.get(new ComparableHashKey(7, i)) == i);
+    }
+    
+    @Test
+    public void hashMapShouldNotTreeifyNonComparableKeys() {
+        HashMap<HashKey, Integer> m = new HashMap<>();
+        m.resizeTable(HashMap.MIN_TREEIFY_CAPACITY);
+        for (int i = 0; i < 40; i++)
+            m.put(new HashKey(7, i), i);
+        
+        assertTrue(m.trees == null);
+        for (int i = 0; i < 40; i++)
+            assertTrue(m.get(new HashKey(7, i)) == i);
+    }
+    
+    @Test
+    public void hashMapShouldDropTreeWhenKeyClassesAreMixed() {
+        HashMap<Object, Integer> m = new HashMap<>();
+        m.resizeTable(HashMap.MIN_TREEIFY_CAPACITY);
+        for (int i = 0; i < 20; i++)
+            m.put(new ComparableHashKey(7, i), i);
+        
+        int bucket = m.getBucketIndex(m.hash(new HashKey(7, 0)), m.table.length);
+        assertTrue(m.trees[bucket] != null);
+        
+        m.put(new HashKey(7, 100), 100);
+        assertTrue(m.trees[bucket] == null);
+        assertTrue(m.get(new HashKey(7, 100)) == 100);
+        for (int i = 0; i < 20; i++)
+            assertTrue(m.get(new ComparableHashKey(7, i)) == i);
+    }
+    
+    @Test
+    public void hashMapCopyConstructorShouldCopyEntries() {
+        for (int i = 0; i < 100; i++)
+            map.put(i, i);
+        
+        HashMap<Integer, Integer> copy = new HashMap<>(map);
+        map.put(0, 42);
+        map.remove(1);
+        assertTrue(copy.size() == 100);
+        for (int i = 0; i < 100; i++)
+            assertTrue(copy.get(i) == i);
+    }
+    
     @Test
     public void entryEqualsAndHashCodeShouldWorkProperly() {
         Entry<Integer, Integer> e1 = new Entry<>(1, 1, 1, null);
@@ -423,4 +536,78 @@ public class HashMapTest {
     private int millis(long start, long end) {
         return (int) ((end - start) / 1000000);
     }
+    
+    @Test
+    public void hashMapSpliteratorsShouldSplitAndCoverAllEntries() {
+        for (int i = 0; i < 1000; i++)
+            map.put(i, i*2);
+        
+        Spliterator<Integer> second = map.keySet().spliterator();
+        assertTrue(second.estimateSize() == 1000);
+        assertTrue(second.hasCharacteristics(Spliterator.SIZED | Spliterator.DISTINCT));
+        
+        Spliterator<Integer> first = second.trySplit();
+        assertTrue(first != null);
+        assertFalse(first.hasCharacteristics(Spliterator.SIZED));
+        
+        boolean[] found = new boolean[1000];
+        first.forEachRemaining(k -> found[k] = true);
+        while (second.tryAdvance(k -> {
+            assertFalse(found[k]);
+            found[k] = true;
+        }));
+        for (int i = 0; i < 1000; i++)
+            assertTrue(found[i]);
+    }
+    
+    @Test
+    public void hashMapParallelStreamsShouldSeeAllEntries() {
+        for (int i = 0; i < 1000; i++)
+            map.put(i, i*2);
+        
+        assertTrue(map.keySet().parallelStream().mapToLong(k -> k).sum() == 999L * 1000 / 2);
+        assertTrue(map.values().parallelStream().mapToLong(v -> v).sum() == 999L * 1000);
+        assertTrue(map.entrySet().parallelStream()
+                .filter(e -> e.getValue() == e.getKey() * 2).count() == 1000);
+        assertTrue(map.keySet().parallelStream().collect(Collectors.toSet()).size() == 1000);
+    }
+    
+    /**
+     * A key with a fixed hash code, distinguished by its id.
+     */
+    private static class HashKey {
+        
+        final int hash;
+        final int id;
+        
+        HashKey(int hash, int id) {
+            this.hash = hash;
+            this.id = id;
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof HashKey
+                    && ((HashKey) obj).hash == hash
+                    && ((HashKey) obj).id == id;
+        }
+        
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+    
+    private static class ComparableHashKey extends HashKey
+            implements Comparable<ComparableHashKey> {
+        
+        ComparableHashKey(int hash, int id) {
+            super(hash, id);
+        }
+        
+        @Override
+        public int compareTo(ComparableHashKey other) {
+            return Integer.compare(id, other.id);
+        }
+    }
 }
@@ -26,6 +26,7 @@ package com.github.tilastokeskus.minotaurus.util;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.Spliterator;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -256,4 +257,14 @@ public class HashSetTest {
         set.removeAll(l);
         assertFalse(set.removeAll(l));
     }
+    
+    @Test
+    public void hashSetParallelStreamShouldSeeAllElements() {
+        for (int i = 0; i < 1000; i++)
+            set.add(i);
+        
+        assertTrue(set.spliterator().hasCharacteristics(Spliterator.SIZED | Spliterator.DISTINCT));
+        assertTrue(set.parallelStream().mapToLong(i -> i).sum() == 999L * 1000 / 2);
+        assertTrue(set.parallelStream().filter(i -> i % 2 == 0).count() == 500);
+    }
 }
@@ -0,0 +1,244 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.util;
+
+import static com.github.tilastokeskus.minotaurus.exception.ThrowableAssertion.assertThrown;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class IndexedPriorityQueueTest {
+    
+    private final boolean BENCHMARK = false;
+    
+    private static final int KEYS = 1000;
+    
+    IndexedPriorityQueue<Item> queue;
+    
+    public IndexedPriorityQueueTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+        queue = new IndexedPriorityQueue<>(
+                (Item a, Item b) -> Integer.compare(a.priority, b.priority),
+                KEYS, item -> item.key);
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    @Test
+    public void indexedPriorityQueueExtractMinShouldReturnElementsInOrder() {
+        Random r = new Random(1);
+        for (int i = 0; i < KEYS; i++)
+            queue.add(new Item(i, r.nextInt(100)));
+        
+        assertTrue(queue.size() == KEYS);
+        int prev = Integer.MIN_VALUE;
+        while (!queue.isEmpty()) {
+            Item item = queue.extractMin();
+            assertTrue(item.priority >= prev);
+            assertFalse(queue.containsKey(item.key));
+            prev = item.priority;
+        }
+        
+        assertNull(queue.extractMin());
+    }
+    
+    @Test
+    public void indexedPriorityQueueContainsShouldFindQueuedKeys() {
+        for (int i = 0; i < KEYS; i += 2)
+            queue.add(new Item(i, i));
+        
+        for (int i = 0; i < KEYS; i++) {
+            assertTrue(queue.containsKey(i) == (i % 2 == 0));
+            assertTrue(queue.contains(new Item(i, -1)) == (i % 2 == 0));
+        }
+        
+        assertTrue(queue.get(4).priority == 4);
+        assertNull(queue.get(5));
+    }
+    
+    @Test
+    public void indexedPriorityQueueAddShouldNotAllowDuplicateKeys() {
+        queue.add(new Item(3, 1));
+        assertThrown(() -> queue.add(new Item(3, 2)))
+                .expect(IllegalStateException.class);
+    }
+    
+    @Test
+    public void indexedPriorityQueueDecreaseKeyShouldMoveElementToFront() {
+        for (int i = 0; i < 100; i++)
+            queue.add(new Item(i, 100 + i));
+        
+        queue.decreaseKey(new Item(57, 0));
+        assertTrue(queue.min().key == 57);
+        assertTrue(queue.size() == 100);
+        
+        queue.decreaseKey(new Item(57, 1000));
+        assertTrue(queue.min().key == 0);
+        assertTrue(queue.get(57).priority == 1000);
+    }
+    
+    @Test
+    public void indexedPriorityQueueDecreaseKeyShouldThrowForMissingKey() {
+        assertThrown(() -> queue.decreaseKey(new Item(1, 1)))
+                .expect(NoSuchElementException.class);
+    }
+    
+    @Test
+    public void indexedPriorityQueueRemoveShouldKeepHeapOrder() {
+        Random r = new Random(2);
+        for (int i = 0; i < KEYS; i++)
+            queue.add(new Item(i, r.nextInt(KEYS)));
+        
+        for (int i = 0; i < KEYS; i += 3)
+            assertTrue(queue.remove(new Item(i, -1)));
+        assertFalse(queue.remove(new Item(0, -1)));
+        assertNull(queue.removeKey(3));
+        
+        int prev = Integer.MIN_VALUE;
+        int count = 0;
+        while (!queue.isEmpty()) {
+            Item item = queue.extractMin();
+            assertTrue(item.key % 3 != 0);
+            assertTrue(item.priority >= prev);
+            prev = item.priority;
+            count++;
+        }
+        
+        assertTrue(count == KEYS - (KEYS + 2) / 3);
+    }
+    
+    @Test
+    public void indexedPriorityQueueShouldAgreeWithPriorityQueueAfterRandomOperations() {
+        Random r = new Random(3);
+        int[] priorities = new int[KEYS];
+        
+        for (int i = 0; i < 100000; i++) {
+            int key = r.nextInt(KEYS);
+            int priority = r.nextInt(10000);
+            if (!queue.containsKey(key)) {
+                queue.add(new Item(key, priority));
+                priorities[key] = priority;
+            } else if (r.nextBoolean()) {
+                queue.decreaseKey(new Item(key, priority));
+                priorities[key] = priority;
+            } else if (r.nextBoolean()) {
+                assertTrue(queue.removeKey(key).priority == priorities[key]);
+            } else {
+                Item min = queue.extractMin();
+                assertTrue(min.priority == priorities[min.key]);
+            }
+        }
+        
+        PriorityQueue<Integer> expected = new PriorityQueue<>();
+        for (int key = 0; key < KEYS; key++)
+            if (queue.containsKey(key))
+                expected.add(priorities[key]);
+        
+        assertTrue(queue.size() == expected.size());
+        while (!expected.isEmpty())
+            assertTrue(queue.extractMin().priority == expected.extractMin());
+    }
+    
+    @Test
+    public void indexedPriorityQueueClearShouldRemoveAllElements() {
+        for (int i = 0; i < KEYS; i++)
+            queue.add(new Item(i, i));
+        
+        queue.clear();
+        assertTrue(queue.isEmpty());
+        assertNull(queue.min());
+        for (int i = 0; i < KEYS; i++)
+            assertFalse(queue.containsKey(i));
+        
+        queue.add(new Item(5, 5));
+        assertTrue(queue.min().key == 5);
+    }
+    
+    @Test
+    public void indexedPriorityQueuePerformanceTest() {
+        if (BENCHMARK) {
+            int numIters = 100000;
+            Item[] items = new Item[numIters];
+            Random r = new Random();
+            for (int i = 0; i < numIters; i++)
+                items[i] = new Item(i, r.nextInt());
+            
+            IndexedPriorityQueue<Item> q = new IndexedPriorityQueue<>(
+                    (Item a, Item b) -> Integer.compare(a.priority, b.priority),
+                    numIters, item -> item.key);
+            PriorityQueue<Item> plain = new PriorityQueue<>(
+                    (Item a, Item b) -> Integer.compare(a.priority, b.priority));
+            
+            int indexedAvg = new Benchmark(() -> q.clear(), () -> {
+                for (int i = 0; i < numIters; i++)
+                    q.add(items[i]);
+                for (int i = 0; i < numIters; i += 10)
+                    q.contains(items[i]);
+                for (int i = 0; i < numIters; i += 10)
+                    q.remove(items[i]);
+            }).runBenchmark(20);
+            
+            int plainAvg = new Benchmark(() -> plain.clear(), () -> {
+                for (int i = 0; i < numIters; i++)
+                    plain.add(items[i]);
+                for (int i = 0; i < numIters; i += 10)
+                    plain.contains(items[i]);
+                for (int i = 0; i < numIters; i += 10)
+                    plain.remove(items[i]);
+            }).runBenchmark(20);
+            
+            System.out.println("IndexedPriorityQueue - Add/Contains/Remove: " + indexedAvg);
+            System.out.println("PriorityQueue - Add/Contains/Remove: " + plainAvg);
+        }
+    }
+    
+    private static class Item {
+        final int key;
+        final int priority;
+        
+        Item(int key, int priority) {
+            this.key = key;
+            this.priority = priority;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.util;
+
+import java.util.Random;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class IntIntHashMapTest {
+    
+    private final boolean BENCHMARK = false;
+    
+    private IntIntHashMap map;
+    
+    public IntIntHashMapTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+        map = new IntIntHashMap();
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    @Test
+    public void intIntHashMapIsEmptyShouldReturnTrueWhenMapHoldsNoKeys() {
+        assertTrue(map.isEmpty());
+        map.put(1, 2);
+        assertFalse(map.isEmpty());
+    }
+    
+    @Test
+    public void intIntHashMapPutShouldIncreaseSizeWhenKeyIsNew() {
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(map.size() == i);
+            map.put(i, i);
+        }
+        
+        map.put(5, 0);
+        assertTrue(map.size() == 1000);
+    }
+    
+    @Test
+    public void intIntHashMapGetShouldGetValueForKey() {
+        for (int i = -1000; i < 1000; i++)
+            map.put(i, i*2);
+        
+        for (int i = -1000; i < 1000; i++)
+            assertTrue(map.get(i) == i*2);
+        
+        assertTrue(map.get(1000) == 0);
+        assertTrue(map.getOrDefault(1000, -1) == -1);
+    }
+    
+    @Test
+    public void intIntHashMapShouldReturnNoEntryValueForMissingKeys() {
+        map = new IntIntHashMap(10, Integer.MAX_VALUE);
+        assertTrue(map.get(3) == Integer.MAX_VALUE);
+        assertTrue(map.put(3, 1) == Integer.MAX_VALUE);
+        assertTrue(map.remove(4) == Integer.MAX_VALUE);
+        assertTrue(map.getNoEntryValue() == Integer.MAX_VALUE);
+    }
+    
+    @Test
+    public void intIntHashMapShouldHandleZeroKey() {
+        assertFalse(map.containsKey(0));
+        assertTrue(map.put(0, 5) == 0);
+        assertTrue(map.containsKey(0));
+        assertTrue(map.get(0) == 5);
+        assertTrue(map.size() == 1);
+        assertArrayEquals(new int[] {0}, map.keys());
+        
+        assertTrue(map.remove(0) == 5);
+        assertFalse(map.containsKey(0));
+        assertTrue(map.isEmpty());
+    }
+    
+    @Test
+    public void intIntHashMapPutShouldReturnPreviouslyStoredValue() {
+        for (int i = 0; i < 1000; i++)
+            map.put(i, i*2);
+        for (int i = 0; i < 1000; i++)
+            assertTrue(map.put(i, i) == i*2);
+    }
+    
+    @Test
+    public void intIntHashMapAddToShouldAddToValue() {
+        assertTrue(map.addTo(7, 3) == 3);
+        assertTrue(map.addTo(7, 3) == 6);
+        assertTrue(map.get(7) == 6);
+    }
+    
+    @Test
+    public void intIntHashMapRemoveShouldRemoveEntry() {
+        for (int i = 0; i < 1000; i++)
+            map.put(i, i*2);
+        
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(map.remove(i) == i*2);
+            assertTrue(map.size() == 1000 - i - 1);
+            assertFalse(map.containsKey(i));
+            
+            for (int j = i+1; j < 1000; j++)
+                assertTrue(map.get(j) == j*2);
+        }
+    }
+    
+    @Test
+    public void intIntHashMapRemoveShouldKeepCollidingKeysReachable() {
+        
+        // Keys that are multiples of the capacity collide in a small table.
+        map = new IntIntHashMap(4, -1);
+        int capacity = map.keys.length;
+        for (int i = 1; i <= 5; i++)
+            map.put(i * capacity * 1024, i);
+        
+        map.remove(2 * capacity * 1024);
+        for (int i = 1; i <= 5; i++)
+            assertTrue(map.get(i * capacity * 1024) == (i == 2 ? -1 : i));
+    }
+    
+    @Test
+    public void intIntHashMapClearShouldRemoveAllKeys() {
+        for (int i = 0; i < 1000; i++)
+            map.put(i, i);
+        map.clear();
+        assertTrue(map.isEmpty());
+        
+        for (int i = 0; i < 1000; i++)
+            assertFalse(map.containsKey(i));
+    }
+    
+    @Test
+    public void intIntHashMapForEachShouldVisitAllEntries() {
+        for (int i = 0; i < 1000; i++)
+            map.put(i, i*2);
+        
+        boolean[] found = new boolean[1000];
+        map.forEach((key, value) -> {
+            assertTrue(value == key*2);
+            found[key] = true;
+        });
+        
+        for (int i = 0; i < 1000; i++)
+            assertTrue(found[i]);
+        assertTrue(map.keys().length == 1000);
+    }
+    
+    @Test
+    public void intIntHashMapShouldAgreeWithHashMapAfterRandomOperations() {
+        HashMap<Integer, Integer> expected = new HashMap<>();
+        Random r = new Random(1);
+        
+        for (int i = 0; i < 100000; i++) {
+            int key = r.nextInt(2000) - 1000;
+            if (r.nextInt(3) == 0) {
+                Integer old = expected.remove(key);
+                assertTrue(map.remove(key) == (old == null ? 0 : old));
+            } else {
+                Integer old = expected.put(key, i);
+                assertTrue(map.put(key, i) == (old == null ? 0 : old));
+            }
+        }
+        
+        assertTrue(map.size() == expected.size());
+        for (int key = -1000; key < 1000; key++) {
+            assertTrue(map.containsKey(key) == expected.containsKey(key));
+            if (expected.containsKey(key))
+                assertTrue(map.get(key) == expected.get(key));
+        }
+    }
+    
+    @Test
+    public void intIntHashMapShouldThrowOnNegativeSize() {
+        try {
+            new IntIntHashMap(-1, 0);
+            fail("Expected an exception");
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+    
+    @Test
+    public void intIntHashMapPerformanceTest() {
+        if (BENCHMARK) {
+            int numIters = 1000000;
+            HashMap<Integer, Integer> boxed = new HashMap<>();
+            
+            int putAvg = new Benchmark(() -> map.clear(), () -> {
+                for (int i = 0; i < numIters; i++)
+                    map.put(i, i);
+            }).runBenchmark(100);
+            
+            int getAvg = new Benchmark(() -> {
+                for (int i = 0; i < numIters; i++)
+                    map.get(i);
+            }).runBenchmark(100);
+            
+            int boxedPutAvg = new Benchmark(() -> boxed.clear(), () -> {
+                for (int i = 0; i < numIters; i++)
+                    boxed.put(i, i);
+            }).runBenchmark(100);
+            
+            int boxedGetAvg = new Benchmark(() -> {
+                for (int i = 0; i < numIters; i++)
+                    boxed.get(i);
+            }).runBenchmark(100);
+            
+            System.out.println("IntIntHashMap - Put: " + putAvg);
+            System.out.println("IntIntHashMap - Get: " + getAvg);
+            System.out.println("HashMap - Put: " + boxedPutAvg);
+            System.out.println("HashMap - Get: " + boxedGetAvg);
+        }
+    }
+}
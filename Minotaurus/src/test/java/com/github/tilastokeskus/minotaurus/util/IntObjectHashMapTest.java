@@ -0,0 +1,170 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.util;
+
+import static com.github.tilastokeskus.minotaurus.exception.ThrowableAssertion.assertThrown;
+import java.util.Random;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class IntObjectHashMapTest {
+    
+    private final boolean BENCHMARK = false;
+    
+    private IntObjectHashMap<String> map;
+    
+    public IntObjectHashMapTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+        map = new IntObjectHashMap<>();
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    @Test
+    public void intObjectHashMapGetShouldGetValueForKey() {
+        for (int i = -1000; i < 1000; i++)
+            map.put(i, "v" + i);
+        
+        for (int i = -1000; i < 1000; i++)
+            assertEquals("v" + i, map.get(i));
+        
+        assertTrue(map.size() == 2000);
+        assertNull(map.get(1000));
+    }
+    
+    @Test
+    public void intObjectHashMapPutShouldReturnPreviouslyStoredValue() {
+        assertNull(map.put(0, "a"));
+        assertNull(map.put(1, "b"));
+        assertEquals("a", map.put(0, "c"));
+        assertEquals("b", map.put(1, "d"));
+        assertTrue(map.size() == 2);
+    }
+    
+    @Test
+    public void intObjectHashMapPutShouldNotAllowNullValues() {
+        assertThrown(() -> map.put(1, null))
+                .expect(NullPointerException.class);
+    }
+    
+    @Test
+    public void intObjectHashMapComputeIfAbsentShouldComputeOnlyOnce() {
+        int[] calls = new int[1];
+        for (int i = 0; i < 3; i++)
+            map.computeIfAbsent(5, key -> {
+                calls[0]++;
+                return "v" + key;
+            });
+        
+        assertTrue(calls[0] == 1);
+        assertEquals("v5", map.get(5));
+    }
+    
+    @Test
+    public void intObjectHashMapRemoveShouldRemoveEntry() {
+        for (int i = 0; i < 1000; i++)
+            map.put(i, "v" + i);
+        
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("v" + i, map.remove(i));
+            assertFalse(map.containsKey(i));
+            for (int j = i + 1; j < 1000; j++)
+                assertEquals("v" + j, map.get(j));
+        }
+        
+        assertTrue(map.isEmpty());
+        assertNull(map.remove(0));
+    }
+    
+    @Test
+    public void intObjectHashMapClearShouldRemoveAllKeys() {
+        for (int i = 0; i < 100; i++)
+            map.put(i, "v");
+        map.clear();
+        
+        assertTrue(map.isEmpty());
+        for (int i = 0; i < 100; i++)
+            assertFalse(map.containsKey(i));
+    }
+    
+    @Test
+    public void intObjectHashMapShouldAgreeWithHashMapAfterRandomOperations() {
+        HashMap<Integer, String> expected = new HashMap<>();
+        Random r = new Random(1);
+        
+        for (int i = 0; i < 100000; i++) {
+            int key = r.nextInt(2000) - 1000;
+            if (r.nextInt(3) == 0)
+                assertEquals(expected.remove(key), map.remove(key));
+            else
+                assertEquals(expected.put(key, "v" + i), map.put(key, "v" + i));
+        }
+        
+        assertTrue(map.size() == expected.size());
+        int[] count = new int[1];
+        map.forEach((key, value) -> {
+            assertEquals(expected.get(key), value);
+            count[0]++;
+        });
+        assertTrue(count[0] == expected.size());
+    }
+    
+    @Test
+    public void intObjectHashMapPerformanceTest() {
+        if (BENCHMARK) {
+            int numIters = 1000000;
+            
+            int putAvg = new Benchmark(() -> map.clear(), () -> {
+                for (int i = 0; i < numIters; i++)
+                    map.put(i, "");
+            }).runBenchmark(100);
+            
+            int getAvg = new Benchmark(() -> {
+                for (int i = 0; i < numIters; i++)
+                    map.get(i);
+            }).runBenchmark(100);
+            
+            System.out.println("IntObjectHashMap - Put: " + putAvg);
+            System.out.println("IntObjectHashMap - Get: " + getAvg);
+        }
+    }
+}
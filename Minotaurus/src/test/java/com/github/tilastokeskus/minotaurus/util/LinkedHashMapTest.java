@@ -0,0 +1,182 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.tilastokeskus.minotaurus.util;
+
+import static com.github.tilastokeskus.minotaurus.exception.ThrowableAssertion.assertThrown;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LinkedHashMapTest {
+    
+    private LinkedHashMap<Integer, Integer> map;
+    
+    public LinkedHashMapTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+        map = new LinkedHashMap<>();
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    @Test
+    public void linkedHashMapShouldIterateInInsertionOrder() {
+        for (int i = 0; i < 1000; i++)
+            map.put((i * 7919) % 1000, i);
+        
+        // Replacing a value doesn't move the key in insertion order.
+        map.put(0, -1);
+        map.get(7919 % 1000);
+        
+        int i = 0;
+        for (Map.Entry<Integer, Integer> e : map.entrySet()) {
+            assertTrue(e.getKey() == (i * 7919) % 1000);
+            i++;
+        }
+        
+        assertTrue(i == 1000);
+        assertTrue(map.values().iterator().next() == -1);
+        assertTrue(map.eldest().getKey() == 0);
+    }
+    
+    @Test
+    public void linkedHashMapShouldIterateInAccessOrder() {
+        map = new LinkedHashMap<>(true);
+        for (int i = 0; i < 5; i++)
+            map.put(i, i);
+        
+        map.get(1);
+        map.put(0, 10);
+        map.get(42);
+        assertArrayEquals(new Object[] {2, 3, 4, 1, 0}, map.keySet().toArray());
+        assertTrue(map.eldest().getKey() == 2);
+        assertTrue(map.youngest().getKey() == 0);
+    }
+    
+    @Test
+    public void linkedHashMapRemoveShouldUnlinkEntries() {
+        for (int i = 0; i < 10; i++)
+            map.put(i, i);
+        
+        map.remove(0);
+        map.remove(5);
+        map.remove(9);
+        assertArrayEquals(new Object[] {1, 2, 3, 4, 6, 7, 8}, map.keySet().toArray());
+        assertTrue(map.eldest().getKey() == 1);
+        assertTrue(map.youngest().getKey() == 8);
+        
+        map.clear();
+        assertTrue(map.eldest() == null);
+        assertFalse(map.keySet().iterator().hasNext());
+        map.put(3, 3);
+        assertArrayEquals(new Object[] {3}, map.keySet().toArray());
+    }
+    
+    @Test
+    public void linkedHashMapIteratorRemoveShouldWorkProperly() {
+        for (int i = 0; i < 10; i++)
+            map.put(i, i);
+        
+        Iterator<Integer> itr = map.keySet().iterator();
+        assertThrown(() -> itr.remove()).expect(IllegalStateException.class);
+        while (itr.hasNext())
+            if (itr.next() % 2 == 0)
+                itr.remove();
+        
+        assertArrayEquals(new Object[] {1, 3, 5, 7, 9}, map.keySet().toArray());
+        assertTrue(map.size() == 5);
+    }
+    
+    @Test
+    public void linkedHashMapAccessShouldInvalidateIteratorsInAccessOrder() {
+        map = new LinkedHashMap<>(true);
+        map.put(1, 1);
+        map.put(2, 2);
+        Iterator<Integer> itr = map.keySet().iterator();
+        map.get(1);
+        assertThrown(() -> itr.next()).expect(ConcurrentModificationException.class);
+    }
+    
+    @Test
+    public void linkedHashMapOrderShouldSurviveResizing() {
+        for (int i = 999; i >= 0; i--)
+            map.put(i, i);
+        
+        int expected = 999;
+        for (int key : map.keySet())
+            assertTrue(key == expected--);
+        
+        assertTrue(map.containsValue(500));
+        assertFalse(map.containsValue(1000));
+    }
+    
+    @Test
+    public void linkedHashMapStreamsShouldKeepOrder() {
+        for (int i = 0; i < 5000; i++)
+            map.put(4999 - i, i);
+        
+        assertTrue(map.keySet().parallelStream()
+                .collect(Collectors.toList())
+                .equals(map.keySet().stream().collect(Collectors.toList())));
+        assertTrue(map.values().stream().mapToInt(v -> v).sum() == 4999 * 5000 / 2);
+        assertTrue(map.entrySet().stream().findFirst().get().getKey() == 4999);
+    }
+    
+    @Test
+    public void linkedHashMapRemoveEldestEntryShouldBoundSize() {
+        LinkedHashMap<Integer, Integer> bounded = new LinkedHashMap<Integer, Integer>(true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+                return size() > 3;
+            }
+        };
+        
+        for (int i = 0; i < 3; i++)
+            bounded.put(i, i);
+        
+        bounded.get(0);
+        bounded.put(3, 3);
+        assertArrayEquals(new Object[] {2, 0, 3}, bounded.keySet().toArray());
+    }
+    
+}
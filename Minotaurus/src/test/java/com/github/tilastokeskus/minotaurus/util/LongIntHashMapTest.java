@@ -0,0 +1,157 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.util;
+
+import java.util.Random;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LongIntHashMapTest {
+    
+    private final boolean BENCHMARK = false;
+    
+    private LongIntHashMap map;
+    
+    public LongIntHashMapTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+        map = new LongIntHashMap();
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    @Test
+    public void longIntHashMapGetShouldGetValueForKey() {
+        for (long i = -1000; i < 1000; i++)
+            map.put(i << 32 | (i & 0xffff), (int) i);
+        
+        for (long i = -1000; i < 1000; i++)
+            assertTrue(map.get(i << 32 | (i & 0xffff)) == (int) i);
+        
+        assertTrue(map.size() == 2000);
+        assertTrue(map.get(Long.MAX_VALUE) == 0);
+    }
+    
+    @Test
+    public void longIntHashMapShouldTellApartKeysDifferingInHighBits() {
+        map.put(1L, 1);
+        map.put(1L << 32 | 1, 2);
+        assertTrue(map.get(1L) == 1);
+        assertTrue(map.get(1L << 32 | 1) == 2);
+    }
+    
+    @Test
+    public void longIntHashMapShouldHandleZeroKey() {
+        map.put(0L, 5);
+        assertTrue(map.containsKey(0L));
+        assertTrue(map.get(0L) == 5);
+        assertTrue(map.remove(0L) == 5);
+        assertTrue(map.isEmpty());
+    }
+    
+    @Test
+    public void longIntHashMapRemoveShouldRemoveEntry() {
+        for (long i = 0; i < 1000; i++)
+            map.put(i * 31, (int) i);
+        
+        for (long i = 0; i < 1000; i++) {
+            assertTrue(map.remove(i * 31) == i);
+            assertFalse(map.containsKey(i * 31));
+            for (long j = i + 1; j < 1000; j++)
+                assertTrue(map.get(j * 31) == j);
+        }
+        
+        assertTrue(map.isEmpty());
+    }
+    
+    @Test
+    public void longIntHashMapForEachShouldVisitAllEntries() {
+        for (int i = 0; i < 1000; i++)
+            map.put(i, i);
+        
+        boolean[] found = new boolean[1000];
+        map.forEach((key, value) -> found[(int) key] = key == value);
+        for (int i = 0; i < 1000; i++)
+            assertTrue(found[i]);
+        assertTrue(map.keys().length == 1000);
+    }
+    
+    @Test
+    public void longIntHashMapShouldAgreeWithHashMapAfterRandomOperations() {
+        HashMap<Long, Integer> expected = new HashMap<>();
+        Random r = new Random(1);
+        
+        for (int i = 0; i < 100000; i++) {
+            long key = (long) r.nextInt(50) << 32 | r.nextInt(50);
+            if (r.nextInt(3) == 0) {
+                Integer old = expected.remove(key);
+                assertTrue(map.remove(key) == (old == null ? 0 : old));
+            } else {
+                Integer old = expected.put(key, i);
+                assertTrue(map.put(key, i) == (old == null ? 0 : old));
+            }
+        }
+        
+        assertTrue(map.size() == expected.size());
+        for (long key : map.keys())
+            assertTrue(map.get(key) == expected.get(key));
+    }
+    
+    @Test
+    public void longIntHashMapPerformanceTest() {
+        if (BENCHMARK) {
+            int numIters = 1000000;
+            
+            int putAvg = new Benchmark(() -> map.clear(), () -> {
+                for (long i = 0; i < numIters; i++)
+                    map.put(i << 32 | i, (int) i);
+            }).runBenchmark(100);
+            
+            int getAvg = new Benchmark(() -> {
+                for (long i = 0; i < numIters; i++)
+                    map.get(i << 32 | i);
+            }).runBenchmark(100);
+            
+            System.out.println("LongIntHashMap - Put: " + putAvg);
+            System.out.println("LongIntHashMap - Get: " + getAvg);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.tilastokeskus.minotaurus.util;
+
+import static com.github.tilastokeskus.minotaurus.exception.ThrowableAssertion.assertThrown;
+import java.util.NoSuchElementException;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LongStackTest {
+    
+    // Values that do not fit in an int.
+    private static final long BIG = 1L << 32;
+    
+    private LongStack stack;
+    
+    public LongStackTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+        stack = new LongStack();
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    @Test
+    public void longStackPopAndPeekShouldThrowWhenEmpty() {
+        assertTrue(stack.isEmpty());
+        assertThrown(() -> stack.pop()).expect(NoSuchElementException.class);
+        assertThrown(() -> stack.peek()).expect(NoSuchElementException.class);
+    }
+    
+    @Test
+    public void longStackPopShouldReturnValuesInReverseOrderAcrossChunks() {
+        int n = 3 * LongStack.CHUNK_SIZE + 1;
+        for (int i = 0; i < n; i++) {
+            stack.add(BIG * i);
+            assertTrue(stack.size() == i + 1);
+        }
+        
+        for (int i = n - 1; i >= 0; i--) {
+            assertTrue(stack.peek() == BIG * i);
+            assertTrue(stack.pop() == BIG * i);
+        }
+        
+        assertTrue(stack.isEmpty());
+    }
+    
+    @Test
+    public void longStackShouldReuseChunksAfterPops() {
+        for (int i = 0; i < 2 * LongStack.CHUNK_SIZE; i++)
+            stack.add(i);
+        long[] second = stack.chunks[1];
+        
+        while (!stack.isEmpty())
+            stack.pop();
+        for (int i = 0; i < 2 * LongStack.CHUNK_SIZE; i++)
+            stack.add(i);
+        
+        assertTrue(stack.allocatedChunks == 2);
+        assertTrue(stack.chunks[1] == second);
+    }
+    
+    @Test
+    public void longStackClearShouldInitialize() {
+        for (int i = 0; i < 2 * LongStack.CHUNK_SIZE; i++)
+            stack.add(i);
+        
+        stack.clear();
+        assertTrue(stack.isEmpty());
+        assertTrue(stack.allocatedChunks == 1);
+        
+        stack.add(5);
+        assertTrue(stack.size() == 1);
+        assertTrue(stack.pop() == 5);
+    }
+    
+}
@@ -0,0 +1,140 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.tilastokeskus.minotaurus.util;
+
+import static com.github.tilastokeskus.minotaurus.exception.ThrowableAssertion.assertThrown;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LruCacheTest {
+    
+    private LruCache<Integer, String> cache;
+    private ArrayList<Integer> evicted;
+    
+    public LruCacheTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+        cache = new LruCache<>(3);
+        evicted = new ArrayList<>();
+        cache.setEvictionListener((k, v) -> evicted.add(k));
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    @Test
+    public void lruCacheShouldEvictLeastRecentlyUsed() {
+        cache.put(1, "a");
+        cache.put(2, "b");
+        cache.put(3, "c");
+        assertTrue(cache.get(1).equals("a"));
+        cache.put(4, "d");
+        
+        assertTrue(cache.size() == 3);
+        assertFalse(cache.containsKey(2));
+        assertTrue(evicted.size() == 1 && evicted.get(0) == 2);
+        
+        cache.put(3, "C");
+        cache.put(5, "e");
+        assertFalse(cache.containsKey(1));
+        assertTrue(cache.get(3).equals("C"));
+        assertTrue(evicted.size() == 2 && evicted.get(1) == 1);
+    }
+    
+    @Test
+    public void lruCacheShouldEvictByWeight() {
+        cache = new LruCache<>(10, (k, v) -> v.length());
+        cache.setEvictionListener((k, v) -> evicted.add(k));
+        cache.put(1, "aaaa");
+        cache.put(2, "bbbb");
+        assertTrue(cache.weight() == 8);
+        
+        cache.put(3, "ccccc");
+        assertTrue(cache.weight() == 9);
+        assertTrue(evicted.size() == 1 && evicted.get(0) == 1);
+        
+        // Replacing a value updates the weight.
+        cache.put(3, "c");
+        assertTrue(cache.weight() == 5);
+        
+        // A mapping heavier than the cache can hold is evicted right away.
+        cache.put(4, "ddddddddddd");
+        assertFalse(cache.containsKey(4));
+        assertTrue(cache.size() == 0);
+        assertTrue(cache.weight() == 0);
+        assertTrue(evicted.size() == 4);
+    }
+    
+    @Test
+    public void lruCacheRemoveAndClearShouldNotNotifyListener() {
+        cache.put(1, "a");
+        cache.put(2, "b");
+        assertTrue(cache.remove(1).equals("a"));
+        assertTrue(cache.remove(1) == null);
+        cache.clear();
+        assertTrue(cache.size() == 0);
+        assertTrue(cache.weight() == 0);
+        assertTrue(evicted.isEmpty());
+    }
+    
+    @Test
+    public void lruCacheComputeIfAbsentShouldLoadOnlyMissingKeys() {
+        int[] loads = new int[1];
+        for (int i = 0; i < 2; i++) {
+            String v = cache.computeIfAbsent(7, k -> {
+                loads[0]++;
+                return "x" + k;
+            });
+            assertTrue(v.equals("x7"));
+        }
+        
+        assertTrue(loads[0] == 1);
+        assertTrue(cache.computeIfAbsent(8, k -> null) == null);
+        assertFalse(cache.containsKey(8));
+    }
+    
+    @Test
+    public void lruCacheShouldThrowOnNegativeWeights() {
+        assertThrown(() -> new LruCache<Integer, String>(-1, (k, v) -> 1))
+                .expect(IllegalArgumentException.class);
+        LruCache<Integer, String> c = new LruCache<>(10, (k, v) -> -1);
+        assertThrown(() -> c.put(1, "a")).expect(IllegalArgumentException.class);
+    }
+    
+}
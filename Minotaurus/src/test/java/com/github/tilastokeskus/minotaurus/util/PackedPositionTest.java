@@ -0,0 +1,96 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.tilastokeskus.minotaurus.util;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PackedPositionTest {
+    
+    public PackedPositionTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+    }
+    
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void packShouldNumberCellsRowByRow() {
+        assertTrue(PackedPosition.pack(0, 0, 7) == 0);
+        assertTrue(PackedPosition.pack(6, 0, 7) == 6);
+        assertTrue(PackedPosition.pack(0, 1, 7) == 7);
+        assertTrue(PackedPosition.pack(new Position(3, 2), 7) == 17);
+    }
+    
+    @Test
+    public void unpackShouldReversePack() {
+        for (int y = 0; y < 5; y++) {
+            for (int x = 0; x < 7; x++) {
+                int packed = PackedPosition.pack(x, y, 7);
+                assertTrue(PackedPosition.unpackX(packed, 7) == x);
+                assertTrue(PackedPosition.unpackY(packed, 7) == y);
+                assertEquals(new Position(x, y), PackedPosition.toPosition(packed, 7));
+            }
+        }
+    }
+    
+    @Test
+    public void packLongShouldKeepAnyCoordinates() {
+        int[] values = {0, 1, -1, 12345, -12345,
+                        Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (int x : values) {
+            for (int y : values) {
+                long packed = PackedPosition.packLong(x, y);
+                assertTrue(PackedPosition.unpackX(packed) == x);
+                assertTrue(PackedPosition.unpackY(packed) == y);
+                assertEquals(new Position(x, y), PackedPosition.toPosition(packed));
+            }
+        }
+    }
+    
+    @Test
+    public void packLongShouldBeUniquePerPosition() {
+        HashSet<Long> seen = new HashSet<>();
+        for (int y = -10; y <= 10; y++)
+            for (int x = -10; x <= 10; x++)
+                assertTrue(seen.add(PackedPosition.packLong(new Position(x, y))));
+    }
+    
+}
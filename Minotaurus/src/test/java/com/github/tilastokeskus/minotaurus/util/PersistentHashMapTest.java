@@ -0,0 +1,343 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.util;
+
+import static com.github.tilastokeskus.minotaurus.exception.ThrowableAssertion.assertThrown;
+import java.util.Map;
+import java.util.Random;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PersistentHashMapTest {
+    
+    private final boolean BENCHMARK = false;
+    
+    private PersistentHashMap<Integer, Integer> map;
+    
+    public PersistentHashMapTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+        map = PersistentHashMap.empty();
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    @Test
+    public void persistentHashMapWithShouldAddMappings() {
+        for (int i = -1000; i < 1000; i++) {
+            map = map.with(i, i*2);
+            assertTrue(map.size() == i + 1001);
+        }
+        
+        for (int i = -1000; i < 1000; i++)
+            assertTrue(map.get(i) == i*2);
+        assertNull(map.get(1000));
+        assertTrue(map.getOrDefault(1000, -1) == -1);
+    }
+    
+    @Test
+    public void persistentHashMapWithShouldReplaceValueWithoutChangingSize() {
+        map = map.with(1, 1).with(1, 2);
+        assertTrue(map.size() == 1);
+        assertTrue(map.get(1) == 2);
+    }
+    
+    @Test
+    public void persistentHashMapShouldReturnSameMapWhenNothingChanges() {
+        Integer value = 1000;
+        map = map.with(1, value);
+        assertTrue(map.with(1, value) == map);
+        assertTrue(map.without(2) == map);
+    }
+    
+    @Test
+    public void persistentHashMapOldVersionsShouldStayUnchanged() {
+        PersistentHashMap<Integer, Integer>[] versions = new PersistentHashMap[100];
+        for (int i = 0; i < 100; i++) {
+            versions[i] = map;
+            map = map.with(i, i);
+        }
+        
+        for (int i = 0; i < 100; i++) {
+            assertTrue(versions[i].size() == i);
+            for (int k = 0; k < 100; k++)
+                assertTrue(versions[i].containsKey(k) == k < i);
+        }
+        
+        PersistentHashMap<Integer, Integer> removed = map.without(50);
+        assertTrue(map.containsKey(50));
+        assertFalse(removed.containsKey(50));
+    }
+    
+    @Test
+    public void persistentHashMapWithShouldShareUnchangedNodes() {
+        for (int i = 0; i < 10000; i++)
+            map = map.with(i, i);
+        
+        PersistentHashMap<Integer, Integer> changed = map.with(0, -1);
+        PersistentHashMap.BitmapNode before = (PersistentHashMap.BitmapNode) map.root;
+        PersistentHashMap.BitmapNode after = (PersistentHashMap.BitmapNode) changed.root;
+        
+        int shared = 0;
+        for (int i = 0; i < before.content.length; i++)
+            if (before.content[i] == after.content[i])
+                shared++;
+        
+        // Only the path to the changed key is copied.
+        assertTrue(shared == before.content.length - 1);
+    }
+    
+    @Test
+    public void persistentHashMapWithoutShouldRemoveMappings() {
+        for (int i = 0; i < 1000; i++)
+            map = map.with(i, i);
+        
+        for (int i = 0; i < 1000; i++) {
+            map = map.without(i);
+            assertFalse(map.containsKey(i));
+            assertTrue(map.size() == 1000 - i - 1);
+            for (int j = i + 1; j < 1000; j += 97)
+                assertTrue(map.get(j) == j);
+        }
+        
+        assertTrue(map.isEmpty());
+        assertTrue(((PersistentHashMap.BitmapNode) map.root).content.length == 0);
+    }
+    
+    @Test
+    public void persistentHashMapShouldHandleCollidingKeys() {
+        PersistentHashMap<Collider, Integer> m = PersistentHashMap.empty();
+        for (int i = 0; i < 100; i++)
+            m = m.with(new Collider(i, i % 3), i);
+        
+        assertTrue(m.size() == 100);
+        for (int i = 0; i < 100; i++)
+            assertTrue(m.get(new Collider(i, i % 3)) == i);
+        assertNull(m.get(new Collider(100, 0)));
+        
+        for (int i = 0; i < 100; i += 2)
+            m = m.without(new Collider(i, i % 3));
+        assertTrue(m.size() == 50);
+        for (int i = 0; i < 100; i++)
+            assertTrue(m.containsKey(new Collider(i, i % 3)) == (i % 2 == 1));
+    }
+    
+    @Test
+    public void persistentHashMapShouldSplitCollisionsForNewHashes() {
+        
+        // Hashes 0 and 1 << 20 agree on their lowest 20 bits.
+        PersistentHashMap<Collider, Integer> m = PersistentHashMap.empty();
+        m = m.with(new Collider(1, 0), 1)
+             .with(new Collider(2, 0), 2)
+             .with(new Collider(3, 1 << 20), 3);
+        
+        assertTrue(m.size() == 3);
+        assertTrue(m.get(new Collider(1, 0)) == 1);
+        assertTrue(m.get(new Collider(2, 0)) == 2);
+        assertTrue(m.get(new Collider(3, 1 << 20)) == 3);
+        
+        m = m.without(new Collider(1, 0)).without(new Collider(3, 1 << 20));
+        assertTrue(m.size() == 1);
+        assertTrue(m.get(new Collider(2, 0)) == 2);
+    }
+    
+    @Test
+    public void persistentHashMapIteratorShouldVisitAllMappings() {
+        for (int i = 0; i < 1000; i++)
+            map = map.with(i, i*2);
+        
+        boolean[] found = new boolean[1000];
+        for (Map.Entry<Integer, Integer> e : map) {
+            assertTrue(e.getValue() == e.getKey()*2);
+            assertFalse(found[e.getKey()]);
+            found[e.getKey()] = true;
+        }
+        for (int i = 0; i < 1000; i++)
+            assertTrue(found[i]);
+        
+        int[] count = new int[1];
+        map.forEach((key, value) -> count[0]++);
+        assertTrue(count[0] == 1000);
+        assertTrue(map.asMap().size() == 1000);
+        assertTrue(map.asMap().get(5) == 10);
+    }
+    
+    @Test
+    public void persistentHashMapEqualsShouldCompareMappings() {
+        PersistentHashMap<Integer, Integer> other = PersistentHashMap.empty();
+        for (int i = 0; i < 100; i++) {
+            map = map.with(i, i);
+            other = other.with(99 - i, 99 - i);
+        }
+        
+        assertEquals(map, other);
+        assertTrue(map.hashCode() == other.hashCode());
+        assertNotEquals(map, other.with(0, 1));
+        assertNotEquals(map, other.without(0));
+    }
+    
+    @Test
+    public void persistentHashMapShouldNotAllowNulls() {
+        assertThrown(() -> map.with(null, 1))
+                .expect(NullPointerException.class);
+        assertThrown(() -> map.with(1, null))
+                .expect(NullPointerException.class);
+    }
+    
+    @Test
+    public void persistentHashMapShouldAgreeWithHashMapAfterRandomOperations() {
+        HashMap<Integer, Integer> expected = new HashMap<>();
+        Random r = new Random(1);
+        
+        for (int i = 0; i < 100000; i++) {
+            int key = r.nextInt(2000) - 1000;
+            if (r.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.without(key);
+            } else {
+                expected.put(key, i);
+                map = map.with(key, i);
+            }
+        }
+        
+        assertTrue(map.size() == expected.size());
+        for (Map.Entry<Integer, Integer> e : expected.entrySet())
+            assertEquals(e.getValue(), map.get(e.getKey()));
+        assertEquals(PersistentHashMap.of(expected), map);
+    }
+    
+    @Test
+    public void persistentHashMapShouldAgreeWithHashMapForCollidingKeys() {
+        HashMap<Collider, Integer> expected = new HashMap<>();
+        PersistentHashMap<Collider, Integer> m = PersistentHashMap.empty();
+        Random r = new Random(2);
+        
+        /* Few distinct hashes, sharing their low bits, so collision nodes
+         * keep being created, split and emptied.
+         */
+        for (int i = 0; i < 20000; i++) {
+            int id = r.nextInt(200);
+            Collider key = new Collider(id, (id % 4) << 25 | (id % 3));
+            if (r.nextInt(3) == 0) {
+                expected.remove(key);
+                m = m.without(key);
+            } else {
+                expected.put(key, i);
+                m = m.with(key, i);
+            }
+            assertTrue(m.size() == expected.size());
+        }
+        
+        for (Map.Entry<Collider, Integer> e : expected.entrySet())
+            assertEquals(e.getValue(), m.get(e.getKey()));
+        
+        int count = 0;
+        for (Map.Entry<Collider, Integer> e : m) {
+            assertEquals(expected.get(e.getKey()), e.getValue());
+            count++;
+        }
+        assertTrue(count == expected.size());
+    }
+    
+    @Test
+    public void persistentHashMapPerformanceTest() {
+        if (BENCHMARK) {
+            int numIters = 100000;
+            
+            int withAvg = new Benchmark(() -> map = PersistentHashMap.empty(), () -> {
+                for (int i = 0; i < numIters; i++)
+                    map = map.with(i, i);
+            }).runBenchmark(50);
+            
+            int getAvg = new Benchmark(() -> {
+                for (int i = 0; i < numIters; i++)
+                    map.get(i);
+            }).runBenchmark(50);
+            
+            HashMap<Integer, Integer> copied = new HashMap<>();
+            for (int i = 0; i < numIters; i++)
+                copied.put(i, i);
+            
+            // A snapshot per change, compared to copying a mutable map.
+            int snapshotAvg = new Benchmark(() -> {
+                PersistentHashMap<Integer, Integer> m = map;
+                for (int i = 0; i < 1000; i++)
+                    m = m.with(i, -i);
+            }).runBenchmark(50);
+            
+            int copyAvg = new Benchmark(() -> {
+                for (int i = 0; i < 10; i++) {
+                    HashMap<Integer, Integer> copy = new HashMap<>();
+                    copy.putAll(copied);
+                    copy.put(i, -i);
+                }
+            }).runBenchmark(50);
+            
+            System.out.println("PersistentHashMap - With: " + withAvg);
+            System.out.println("PersistentHashMap - Get: " + getAvg);
+            System.out.println("PersistentHashMap - 1000 snapshots: " + snapshotAvg);
+            System.out.println("HashMap - 10 copies: " + copyAvg);
+        }
+    }
+    
+    /**
+     * A key with a chosen hash code.
+     */
+    private static class Collider {
+        final int id;
+        final int hash;
+        
+        Collider(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Collider && ((Collider) obj).id == id;
+        }
+    }
+}
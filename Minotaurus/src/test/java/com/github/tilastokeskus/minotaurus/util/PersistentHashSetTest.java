@@ -0,0 +1,109 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.github.tilastokeskus.minotaurus.util;
+
+import java.util.Arrays;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PersistentHashSetTest {
+    
+    private PersistentHashSet<String> set;
+    
+    public PersistentHashSetTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+        set = PersistentHashSet.empty();
+    }
+    
+    @After
+    public void tearDown() {
+    }
+    
+    @Test
+    public void persistentHashSetWithShouldAddElements() {
+        for (int i = 0; i < 1000; i++)
+            set = set.with("s" + i);
+        
+        assertTrue(set.size() == 1000);
+        for (int i = 0; i < 1000; i++)
+            assertTrue(set.contains("s" + i));
+        assertFalse(set.contains("t"));
+    }
+    
+    @Test
+    public void persistentHashSetShouldReturnSameSetWhenNothingChanges() {
+        set = set.with("a");
+        assertTrue(set.with("a") == set);
+        assertTrue(set.without("b") == set);
+    }
+    
+    @Test
+    public void persistentHashSetWithoutShouldKeepOldVersion() {
+        PersistentHashSet<String> old = set.with("a").with("b");
+        set = old.without("a");
+        
+        assertTrue(old.contains("a"));
+        assertFalse(set.contains("a"));
+        assertTrue(set.size() == 1);
+        assertTrue(old.size() == 2);
+    }
+    
+    @Test
+    public void persistentHashSetIteratorShouldVisitAllElements() {
+        set = PersistentHashSet.of(Arrays.asList("a", "b", "c", "a"));
+        assertTrue(set.size() == 3);
+        
+        String[] elems = new String[3];
+        int i = 0;
+        for (String s : set)
+            elems[i++] = s;
+        Arrays.sort(elems);
+        assertArrayEquals(new String[] {"a", "b", "c"}, elems);
+    }
+    
+    @Test
+    public void persistentHashSetEqualsShouldCompareElements() {
+        PersistentHashSet<String> a = PersistentHashSet.of(Arrays.asList("a", "b"));
+        PersistentHashSet<String> b = PersistentHashSet.of(Arrays.asList("b", "a"));
+        assertEquals(a, b);
+        assertTrue(a.hashCode() == b.hashCode());
+        assertNotEquals(a, b.with("c"));
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Olavi Mustanoja.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.tilastokeskus.minotaurus.util;
+
+import java.util.function.Predicate;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PositionPredicateTest {
+    
+    public PositionPredicateTest() {
+    }
+    
+    @BeforeClass
+    public static void setUpClass() {
+    }
+    
+    @AfterClass
+    public static void tearDownClass() {
+    }
+    
+    @Before
+    public void setUp() {
+    }
+    
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testWithPositionShouldDelegateToCoordinates() {
+        PositionPredicate p = (x, y) -> x == 2 && y == 3;
+        assertTrue(p.test(new Position(2, 3)));
+        assertFalse(p.test(new Position(3, 2)));
+        assertTrue(p.negate().test(new Position(3, 2)));
+    }
+    
+    @Test
+    public void ofShouldReturnPositionPredicatesAsIs() {
+        PositionPredicate p = (x, y) -> true;
+        assertTrue(PositionPredicate.of(p) == p);
+    }
+    
+    @Test
+    public void ofShouldAdaptPlainPredicates() {
+        Predicate<Position> p = pos -> pos.x < pos.y;
+        PositionPredicate adapted = PositionPredicate.of(p);
+        assertTrue(adapted.test(1, 2));
+        assertFalse(adapted.test(2, 1));
+        assertTrue(adapted.test(new Position(1, 2)));
+    }
+    
+}
@@ -9,13 +9,12 @@ package com.github.tilastokeskus.astarrunner;
 import com.github.tilastokeskus.minotaurus.maze.Maze;
 import com.github.tilastokeskus.minotaurus.maze.MazeEntity;
 import com.github.tilastokeskus.minotaurus.runner.Runner;
+import com.github.tilastokeskus.minotaurus.pathfinding.SearchContext;
 import com.github.tilastokeskus.minotaurus.util.Direction;
-import com.github.tilastokeskus.minotaurus.util.HashSet;
+import com.github.tilastokeskus.minotaurus.util.PackedPosition;
 import com.github.tilastokeskus.minotaurus.util.Position;
-import com.github.tilastokeskus.minotaurus.util.PriorityQueue;
-import java.util.Arrays;
+import com.github.tilastokeskus.minotaurus.util.PositionPredicate;
 import java.util.Collection;
-import java.util.Objects;
 import java.util.function.Predicate;
 
 public class AStarRunner extends Runner {
@@ -27,88 +26,88 @@ public class AStarRunner extends Runner {
     private static final Direction dirs[] = new Direction[] {
         Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT
     };
-
+    
     @Override
     public Direction getNextMove(Maze maze, Collection<MazeEntity> goals, Predicate<Position> positionPredicate) {
         
-        // A queue of nodes we have yet to visit.
-        PriorityQueue<Node> open = new PriorityQueue<>((Node o1, Node o2) -> Integer.compare(o1.score, o2.score));
-        
-        // A set of nodes we know we have the best path to.
-        HashSet<Node> closed = new HashSet<>();
-        
-        // Number of moves it takes to reach a position from the start.
-        int[][] g = new int[maze.getHeight()][maze.getWidth()];
-        
-        for (int i = 0; i < g.length; i++)
-            Arrays.fill(g[i], Integer.MAX_VALUE);        
+        /* The g-scores, the closed set and the queue of cells we have yet to
+         * visit all live in a borrowed context, so a move allocates nothing.
+         */
+        SearchContext search = SearchContext.acquire(maze.getWidth(), maze.getHeight());
+        try {
+            return search(search, maze.getWidth(), goals, PositionPredicate.of(positionPredicate));
+        } finally {
+            search.release();
+        }
+    }
+    
+    private Direction search(SearchContext search, int width,
+                             Collection<MazeEntity> goals, PositionPredicate predicate) {
         
-        g[getPosition().y][getPosition().x] = 0;
+        if (goals.isEmpty())
+            return Direction.NONE;
         
-        Position closestGoal = getClosestGoalPosition(getPosition(), goals);
-        Node n = new Node(getPosition(), null);
-        n.score = distance(getPosition(), closestGoal);
-        open.add(n);
+        Position start = getPosition();
+        int startCell = PackedPosition.pack(start, width);
+        Position closestGoal = getClosestGoalPosition(start.x, start.y, goals);
+        search.reach(startCell, 0, SearchContext.NONE);
+        search.queue(startCell, distance(start.x, start.y, closestGoal));
         
-        while (!open.isEmpty()) {
+        while (!search.isQueueEmpty()) {
             
-            // Get the node with the smallest score.
-            n = open.extractMin();
-            closestGoal = getClosestGoalPosition(n.pos, goals);
-            if (distance(n.pos, closestGoal) == 0) {
+            // Get the cell with the smallest score.
+            int cell = search.extractMin();
+            int x = PackedPosition.unpackX(cell, width);
+            int y = PackedPosition.unpackY(cell, width);
+            closestGoal = getClosestGoalPosition(x, y, goals);
+            if (distance(x, y, closestGoal) == 0) {
                 
-                /* If we arrived at a goal, get the second position in the
-                 * move history (first position being the starting position).
+                /* If we arrived at a goal, get the second cell in the move
+                 * history (first cell being the starting cell).
                  */
-                while (n.prev.prev != null)
-                    n = n.prev;                
-                Position nextPos = n.pos;
+                while (search.getParent(cell) != startCell
+                        && search.getParent(cell) != SearchContext.NONE)
+                    cell = search.getParent(cell);
                 
                 // Return the direction we went from the starting position.
-                Direction dir = dirFromPositions(this.getPosition(), nextPos);
-                return dir;
+                return dirFromCells(startCell, cell, width);
             }
             
-            // Add the current node to the closed set.
-            closed.add(n);
+            // Add the current cell to the closed set.
+            search.setClosed(cell);
+            int newG = search.getG(cell) + 1;
             
             for (Direction dir : dirs) {
-                Position pos = n.pos;
-                Position newPos = new Position(pos.x + dir.deltaX, pos.y + dir.deltaY);
+                int nx = x + dir.deltaX;
+                int ny = y + dir.deltaY;
                 
                 // Skip direction if it would lead to an illegal position.
-                if (!positionPredicate.test(newPos))
+                if (!predicate.test(nx, ny))
                     continue;
                 
-                Node newNode = new Node(newPos, n);
-                
-                if (closed.contains(newNode))
+                int newCell = PackedPosition.pack(nx, ny, width);
+                if (search.isClosed(newCell))
                     continue;
                 
-                if (open.contains(newNode)) {
-                    
-                    // If we have a better path, update the info.
-                    if (g[pos.y][pos.x] + 1 < g[newPos.y][newPos.x])
-                        open.remove(newNode);
-                    else
-                        continue;
-                }
+                // If the cell is already queued, only a better path matters.
+                if (search.isQueued(newCell) && newG >= search.getG(newCell))
+                    continue;
                 
-                newNode.prev = n;
-                newNode.score = g[pos.y][pos.x] + 1 + distance(newPos, closestGoal);
-                open.add(newNode);
-                g[newPos.y][newPos.x] = g[pos.y][pos.x] + 1;
+                search.reach(newCell, newG, cell);
+                search.queue(newCell, newG + distance(nx, ny, closestGoal));
             }
         }
         
         return Direction.NONE;
     }
     
-    private Direction dirFromPositions(Position p1, Position p2) {
-        if (p1.x < p2.x) return Direction.RIGHT;
-        if (p1.x > p2.x) return Direction.LEFT;
-        if (p1.y < p2.y) return Direction.DOWN;
-        if (p1.y > p2.y) return Direction.UP;
+    private Direction dirFromCells(int from, int to, int width) {
+        int dx = PackedPosition.unpackX(to, width) - PackedPosition.unpackX(from, width);
+        int dy = PackedPosition.unpackY(to, width) - PackedPosition.unpackY(from, width);
+        if (dx > 0) return Direction.RIGHT;
+        if (dx < 0) return Direction.LEFT;
+        if (dy > 0) return Direction.DOWN;
+        if (dy < 0) return Direction.UP;
         return Direction.NONE;
     }
     
@@ -116,16 +115,17 @@ public class AStarRunner extends Runner {
      * Returns the position of the goal whose Manhattan distance from some
      * position is the lowest.
      * 
-     * @param p Position to calculate distance from.
+     * @param x X coordinate of the position to calculate distance from.
+     * @param y Y coordinate of the position to calculate distance from.
      * @param goals Collection of goals from which the closest one is chosen.
      * @return The position of the closest goal.
      */
-    private Position getClosestGoalPosition(Position p, Collection<MazeEntity> goals) {
+    private Position getClosestGoalPosition(int x, int y, Collection<MazeEntity> goals) {
         int minDist = Integer.MAX_VALUE;
-        Position bestPos = p;
+        Position bestPos = null;
         for (MazeEntity e : goals) {
             Position p2 = e.getPosition();
-            int dist = distance(p, p2);
+            int dist = distance(x, y, p2);
             if (dist < minDist) {
                 minDist = dist;
                 bestPos = p2;
@@ -138,46 +138,13 @@ public class AStarRunner extends Runner {
     /**
      * Manhattan distance between two positions.
      * 
-     * @param p1 Position 1.
-     * @param p2 Position 2.
+     * @param x X coordinate of position 1.
+     * @param y Y coordinate of position 1.
+     * @param p Position 2.
      * @return Manhattan distance between the positions.
      */
-    private int distance(Position p1, Position p2) {
-        int x1 = p1.x;
-        int y1 = p1.y;
-        int x2 = p2.x;
-        int y2 = p2.y;
-        return Math.abs(x1 - x2) + Math.abs(y1 - y2);
-    }
-    
-    private static class Node {
-        int score;
-        Position pos;
-        Node prev;
-        
-        public Node(Position pos, Node prev) {
-            this.pos = pos;
-            this.prev = prev;
-        }
-
-        @Override
-        public boolean equals(Object obj) {
-            if (this == obj)
-                return true;
-                
-            if (obj == null || getClass() != obj.getClass())
-                return false;
-                
-            final Node other = (Node) obj;
-            return this.pos.equals(other.pos);
-        }
-
-        @Override
-        public int hashCode() {
-            int hash = 3;
-            hash = 37 * hash + Objects.hashCode(this.pos);
-            return hash;
-        }
+    private int distance(int x, int y, Position p) {
+        return Math.abs(x - p.x) + Math.abs(y - p.y);
     }
 
 }
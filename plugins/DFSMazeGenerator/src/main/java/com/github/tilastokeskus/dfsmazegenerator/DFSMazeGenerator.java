@@ -28,6 +28,7 @@ import com.github.tilastokeskus.minotaurus.maze.AbstractMazeGenerator;
 import com.github.tilastokeskus.minotaurus.maze.Maze;
 import com.github.tilastokeskus.minotaurus.maze.MazeBlock;
 import com.github.tilastokeskus.minotaurus.maze.MazeGenerator;
+import com.github.tilastokeskus.minotaurus.util.IntStack;
 import java.util.Random;
 
 public class DFSMazeGenerator extends AbstractMazeGenerator {
@@ -38,45 +39,88 @@ public class DFSMazeGenerator extends AbstractMazeGenerator {
     
     private String title;
     
-    private final int[][] dirs = new int[][] {
+    private static final int[][] DIRS = new int[][] {
         {-1, 0}, {1, 0}, {0, -1}, {0, 1}
     };
+    
+    private int[][] dirs = DIRS.clone();
 
     @Override
     public Maze generateMaze(int width, int height) {
+        return generateMaze(width, height, new Random());
+    }
+
+    @Override
+    public Maze generateMaze(int width, int height, Random random) {
+        
+        /* Start every maze from the same direction order, so that the maze
+         * only depends on the random number generator.
+         */
+        dirs = DIRS.clone();
         MazeBlock[][] layout = new MazeBlock[height][width];
-        dfs(layout, 0, 0, 0, 0);
+        dfs(layout, random);
         
         return new Maze(layout);
     }
     
     /**
-     * Depth-first search maze generation algorithm.
+     * Depth-first search maze generation algorithm. Instead of recursing, the
+     * search keeps its own stack so that large mazes cannot overflow the call
+     * stack. Each entry on the stack is a cell and the index of the next
+     * direction to try from it, which makes the search visit cells in exactly
+     * the same order as a recursive one would.
+     * 
+     * @param layout    Current layout.
+     * @param random    Random number generator to shuffle directions with.
+     */
+    private void dfs(MazeBlock[][] layout, Random random) {
+        IntStack stack = new IntStack();
+        visit(layout, 0, 0, 0, 0, random, stack);
+        
+        while (!stack.isEmpty()) {
+            int i = stack.pop();
+            int y = stack.pop();
+            int x = stack.pop();
+            if (i == 4)
+                continue;
+            
+            stack.add(x);
+            stack.add(y);
+            stack.add(i + 1);
+            visit(layout, x + dirs[i][0], y + dirs[i][1], x, y, random, stack);
+        }
+    }
+    
+    /**
+     * Carves the current position and pushes it on the stack, unless it is
+     * out of bounds or would join two passages.
      * 
      * @param layout    Current layout.
      * @param x         Current x pos.
      * @param y         Current y pos.
      * @param lx        Previous x pos.
      * @param ly        Previous x pos.
+     * @param random    Random number generator to shuffle directions with.
+     * @param stack     Stack of positions to continue from.
      */
-    private void dfs(MazeBlock[][] layout, int x, int y, int lx, int ly) {
+    private void visit(MazeBlock[][] layout, int x, int y, int lx, int ly,
+            Random random, IntStack stack) {
         if (!isInBounds(layout, x, y) 
                 || hasAdjacentVisited(layout, x, y, lx, ly))
             return;
         
         layout[y][x] = MazeBlock.FLOOR;
         
-        shuffleDirs();
+        shuffleDirs(random);
         
-        for (int i = 0; i < 4; i++) {
-            dfs(layout, x + dirs[i][0], y + dirs[i][1], x, y);
-        }
+        stack.add(x);
+        stack.add(y);
+        stack.add(0);
     }
     
-    private void shuffleDirs() {        
-        Random r = new Random();
+    private void shuffleDirs(Random random) {
         for (int i = 3; i >= 1; i--) {
-            int j = r.nextInt(i);
+            int j = random.nextInt(i);
             int[] temp = dirs[j];
             dirs[j] = dirs[i];
             dirs[i] = temp;
@@ -115,4 +159,11 @@ public class DFSMazeGenerator extends AbstractMazeGenerator {
     public String toString() {
         return this.title;
     }
+    
+    @Override
+    public DFSMazeGenerator clone() {
+        DFSMazeGenerator clone = (DFSMazeGenerator) super.clone();
+        clone.dirs = dirs.clone();
+        return clone;
+    }
 }
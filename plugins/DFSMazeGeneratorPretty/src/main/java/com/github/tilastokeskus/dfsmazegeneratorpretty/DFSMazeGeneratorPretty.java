@@ -29,6 +29,7 @@ import com.github.tilastokeskus.minotaurus.maze.Maze;
 import com.github.tilastokeskus.minotaurus.maze.MazeBlock;
 import com.github.tilastokeskus.minotaurus.maze.MazeGenerator;
 import com.github.tilastokeskus.minotaurus.util.Direction;
+import com.github.tilastokeskus.minotaurus.util.IntStack;
 import java.util.Random;
 
 public class DFSMazeGeneratorPretty extends AbstractMazeGenerator {
@@ -39,14 +40,26 @@ public class DFSMazeGeneratorPretty extends AbstractMazeGenerator {
         MazeGenerator.testGenerator(DFSMazeGeneratorPretty.class, 20, 20);
     }
     
-    private final Direction[] dirs = new Direction[] {
+    private static final Direction[] DIRS = new Direction[] {
         Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT
     };
+    
+    private Direction[] dirs = DIRS.clone();
 
     @Override
     public Maze generateMaze(int width, int height) {
+        return generateMaze(width, height, new Random());
+    }
+
+    @Override
+    public Maze generateMaze(int width, int height, Random random) {
+        
+        /* Start every maze from the same direction order, so that the maze
+         * only depends on the random number generator.
+         */
+        dirs = DIRS.clone();
         int[][] layout = new int[height/2][width/2];
-        dfs(layout, 0, 0, 0, 0);
+        dfs(layout, random);
         
         boolean[] dirOk = new boolean[4];
         
@@ -70,7 +83,7 @@ public class DFSMazeGeneratorPretty extends AbstractMazeGenerator {
         for (int y = 1; y < height; y++) {
             for (int x = 1; x < width; x++) {
                 if (maze[y][x] == MazeBlock.WALL) {
-                    double r = Math.random();
+                    double r = random.nextDouble();
                     if (r <= ERASE_WALL)
                         maze[y][x] = MazeBlock.FLOOR;
                 }
@@ -81,15 +94,49 @@ public class DFSMazeGeneratorPretty extends AbstractMazeGenerator {
     }
     
     /**
-     * Depth-first search maze generation algorithm.
+     * Depth-first search maze generation algorithm. Instead of recursing, the
+     * search keeps its own stack so that large mazes cannot overflow the call
+     * stack. Each entry on the stack is a cell and the index of the next
+     * direction to try from it, which makes the search visit cells in exactly
+     * the same order as a recursive one would.
+     * 
+     * @param layout    Current layout.
+     * @param random    Random number generator to shuffle directions with.
+     */
+    private void dfs(int[][] layout, Random random) {
+        IntStack stack = new IntStack();
+        visit(layout, 0, 0, 0, 0, random, stack);
+        
+        while (!stack.isEmpty()) {
+            int i = stack.pop();
+            int y = stack.pop();
+            int x = stack.pop();
+            if (i == 4)
+                continue;
+            
+            stack.add(x);
+            stack.add(y);
+            stack.add(i + 1);
+            visit(layout, x + dirs[i].deltaX, y + dirs[i].deltaY, x, y,
+                    random, stack);
+        }
+    }
+    
+    /**
+     * Opens the passage between the current and the previous position and
+     * pushes the current position on the stack, unless it is out of bounds or
+     * already visited.
      * 
      * @param layout    Current layout.
      * @param x         Current x pos.
      * @param y         Current y pos.
      * @param lx        Previous x pos.
      * @param ly        Previous x pos.
+     * @param random    Random number generator to shuffle directions with.
+     * @param stack     Stack of positions to continue from.
      */
-    private void dfs(int[][] layout, int x, int y, int lx, int ly) {
+    private void visit(int[][] layout, int x, int y, int lx, int ly,
+            Random random, IntStack stack) {
         if (!isInBounds(layout, x, y) || layout[y][x] != 0)
             return;
         
@@ -101,17 +148,16 @@ public class DFSMazeGeneratorPretty extends AbstractMazeGenerator {
             }
         }
         
-        shuffleDirs();
+        shuffleDirs(random);
         
-        for (int i = 0; i < 4; i++) {
-            dfs(layout, x + dirs[i].deltaX, y + dirs[i].deltaY, x, y);
-        }
+        stack.add(x);
+        stack.add(y);
+        stack.add(0);
     }
     
-    private void shuffleDirs() {        
-        Random r = new Random();
+    private void shuffleDirs(Random random) {
         for (int i = 3; i >= 1; i--) {
-            int j = r.nextInt(i);
+            int j = random.nextInt(i);
             Direction temp = dirs[j];
             dirs[j] = dirs[i];
             dirs[i] = temp;
@@ -122,6 +168,13 @@ public class DFSMazeGeneratorPretty extends AbstractMazeGenerator {
         return x >= 0 && x < layout[0].length && y >= 0 && y < layout.length;
     }
     
+    @Override
+    public DFSMazeGeneratorPretty clone() {
+        DFSMazeGeneratorPretty clone = (DFSMazeGeneratorPretty) super.clone();
+        clone.dirs = dirs.clone();
+        return clone;
+    }
+    
     private int bitOffset(Direction dir) {
         switch (dir) {
             case UP: return 1<<1;
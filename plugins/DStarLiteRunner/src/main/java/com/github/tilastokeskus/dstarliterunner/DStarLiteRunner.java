@@ -0,0 +1,60 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package com.github.tilastokeskus.dstarliterunner;
+
+import com.github.tilastokeskus.minotaurus.maze.Maze;
+import com.github.tilastokeskus.minotaurus.maze.MazeEntity;
+import com.github.tilastokeskus.minotaurus.pathfinding.DStarLite;
+import com.github.tilastokeskus.minotaurus.runner.Runner;
+import com.github.tilastokeskus.minotaurus.util.Direction;
+import com.github.tilastokeskus.minotaurus.util.Position;
+import com.github.tilastokeskus.minotaurus.util.PositionPredicate;
+import java.util.Collection;
+import java.util.function.Predicate;
+
+/**
+ * A runner that plans with D* Lite. The search state is kept between moves:
+ * when the runner moves, entities move or goals appear and disappear, only
+ * the cells whose distance to the goals is affected are searched again, so a
+ * move usually costs a handful of queue operations instead of a whole search.
+ * 
+ * @see DStarLite
+ */
+public class DStarLiteRunner extends Runner {
+    
+    public static void main(String[] args) {
+        Runner.testRunner(DStarLiteRunner.class, 20, 20, 50);
+    }
+    
+    // Kept between moves, and only created again for a different maze.
+    DStarLite planner;
+
+    @Override
+    public Direction getNextMove(Maze maze, Collection<MazeEntity> goals, Predicate<Position> positionPredicate) {
+        if (planner == null || planner.getMaze() != maze)
+            planner = new DStarLite(maze);
+        
+        int[] goalCells = new int[goals.size()];
+        int n = 0;
+        for (MazeEntity e : goals) {
+            Position p = e.getPosition();
+            goalCells[n++] = maze.isInBounds(p.x, p.y) ? maze.cellOf(p.x, p.y) : -1;
+        }
+        
+        Position pos = getPosition();
+        return planner.getNextMove(pos.x, pos.y, goalCells,
+                PositionPredicate.of(positionPredicate));
+    }
+    
+    @Override
+    public DStarLiteRunner clone() {
+        DStarLiteRunner clone = (DStarLiteRunner) super.clone();
+        clone.planner = null;
+        return clone;
+    }
+
+}
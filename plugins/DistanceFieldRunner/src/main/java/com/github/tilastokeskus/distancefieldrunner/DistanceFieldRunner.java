@@ -0,0 +1,67 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package com.github.tilastokeskus.distancefieldrunner;
+
+import com.github.tilastokeskus.minotaurus.maze.Maze;
+import com.github.tilastokeskus.minotaurus.maze.MazeEntity;
+import com.github.tilastokeskus.minotaurus.pathfinding.DistanceField;
+import com.github.tilastokeskus.minotaurus.runner.Runner;
+import com.github.tilastokeskus.minotaurus.util.Direction;
+import com.github.tilastokeskus.minotaurus.util.Position;
+import com.github.tilastokeskus.minotaurus.util.PositionPredicate;
+import java.util.Collection;
+import java.util.function.Predicate;
+
+/**
+ * Follows the distance field of its goals downhill. The field is shared with
+ * the other runners of the simulation, so each move only takes a lookup of
+ * the neighboring cells. If the way down is blocked, the runner takes the
+ * closest free neighbor instead, even one from which no goal is reachable.
+ * Only when every neighbor is taken does it return {@link Direction#NONE},
+ * which the bundled scenarios reject like any other illegal move.
+ */
+public class DistanceFieldRunner extends Runner {
+    
+    public static void main(String[] args) {
+        Runner.testRunner(DistanceFieldRunner.class, 20, 20, 50);
+    }
+    
+    private static final Direction dirs[] = new Direction[] {
+        Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT
+    };
+
+    @Override
+    public Direction getNextMove(Maze maze, Collection<MazeEntity> goals, Predicate<Position> positionPredicate) {
+        DistanceField field = getDistanceField(maze, goals);
+        PositionPredicate predicate = PositionPredicate.of(positionPredicate);
+        int x = getPosition().x;
+        int y = getPosition().y;
+        
+        Direction descent = field.getDescent(x, y);
+        if (descent != Direction.NONE
+                && predicate.test(x + descent.deltaX, y + descent.deltaY))
+            return descent;
+        
+        int bestDist = DistanceField.UNREACHABLE;
+        Direction bestDir = Direction.NONE;
+        for (Direction dir : dirs) {
+            int nx = x + dir.deltaX;
+            int ny = y + dir.deltaY;
+            if (!predicate.test(nx, ny))
+                continue;
+            
+            int dist = field.getDistance(nx, ny);
+            if (bestDir == Direction.NONE || dist < bestDist) {
+                bestDist = dist;
+                bestDir = dir;
+            }
+        }
+        
+        return bestDir;
+    }
+
+}
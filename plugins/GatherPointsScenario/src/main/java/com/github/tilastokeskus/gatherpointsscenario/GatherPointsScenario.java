@@ -6,13 +6,13 @@ import com.github.tilastokeskus.minotaurus.maze.MazeEntity;
 import com.github.tilastokeskus.minotaurus.scenario.AbstractScenario;
 import java.util.Collection;
 import java.util.List;
-import java.util.Random;
 import com.github.tilastokeskus.minotaurus.runner.Runner;
 import com.github.tilastokeskus.minotaurus.scenario.Setting;
 import com.github.tilastokeskus.minotaurus.util.ArrayList;
 import com.github.tilastokeskus.minotaurus.util.Direction;
 import com.github.tilastokeskus.minotaurus.util.HashMap;
 import com.github.tilastokeskus.minotaurus.util.Position;
+import com.github.tilastokeskus.minotaurus.util.PositionPredicate;
 import java.util.Map;
 import java.util.Observable;
 import java.util.Observer;
@@ -33,21 +33,20 @@ public class GatherPointsScenario extends AbstractScenario implements Observer {
      * is gathered, a new one spawns in an unoccupied space.
      */
     public GatherPointsScenario() {
-        goals = new ArrayList<>();
-        runners = new ArrayList<>();
-        
-        modifiableSettings = new HashMap<>();
-        modifiableSettings.put("goals", new Setting<Integer>(
-                Integer.class,
-                "Number of goals in the maze",
-                v -> (v > 0 && v <= 10),
-                Integer::parseInt));        
-        modifiableSettings.get("goals").addObserver(this);
-        modifiableSettings.get("goals").setValue(1);
+        initialize(1);
     }
     
     @Override
     public void _reset() {
+        initialize(1);
+    }
+    
+    /**
+     * Creates the scenario's goals and settings anew.
+     * 
+     * @param numGoals Number of goals in the maze.
+     */
+    private void initialize(int numGoals) {
         goals = new ArrayList<>();
         runners = new ArrayList<>();
         
@@ -58,7 +57,7 @@ public class GatherPointsScenario extends AbstractScenario implements Observer {
                 v -> (v > 0 && v <= 10),
                 Integer::parseInt));        
         modifiableSettings.get("goals").addObserver(this);
-        modifiableSettings.get("goals").setValue(1);
+        modifiableSettings.get("goals").setValue(numGoals);
     }
     
     @Override
@@ -144,12 +143,11 @@ public class GatherPointsScenario extends AbstractScenario implements Observer {
     }
     
     private void resetGoal(MazeEntity goal) {
-        Random r = new Random();
         int x, y;
         do {
-            x = r.nextInt(maze.getWidth());
-            y = r.nextInt(maze.getHeight());
-        } while (maze.get(x, y) != MazeBlock.FLOOR || maze.getEntitiesAt(x, y).size() > 0);
+            x = random.nextInt(maze.getWidth());
+            y = random.nextInt(maze.getHeight());
+        } while (maze.get(x, y) != MazeBlock.FLOOR || maze.entityCountAt(x, y) > 0);
         
         goal.setPosition(x, y);
     }
@@ -171,7 +169,15 @@ public class GatherPointsScenario extends AbstractScenario implements Observer {
 
     @Override
     public Predicate<Position> getPositionPredicate(Runner runner) {
-        return pos -> maze.get(pos.x, pos.y) == MazeBlock.FLOOR;
+        PositionPredicate predicate = (x, y) -> maze.get(x, y) == MazeBlock.FLOOR;
+        return predicate;
+    }
+    
+    @Override
+    public GatherPointsScenario clone() {
+        GatherPointsScenario clone = (GatherPointsScenario) super.clone();
+        clone.initialize((int) modifiableSettings.get("goals").getValue());
+        return clone;
     }
     
 }
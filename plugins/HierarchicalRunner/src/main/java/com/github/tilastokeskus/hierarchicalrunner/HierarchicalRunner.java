@@ -0,0 +1,93 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package com.github.tilastokeskus.hierarchicalrunner;
+
+import com.github.tilastokeskus.minotaurus.maze.Maze;
+import com.github.tilastokeskus.minotaurus.maze.MazeEntity;
+import com.github.tilastokeskus.minotaurus.pathfinding.HierarchicalPathfinder;
+import com.github.tilastokeskus.minotaurus.runner.Runner;
+import com.github.tilastokeskus.minotaurus.util.Direction;
+import com.github.tilastokeskus.minotaurus.util.Position;
+import com.github.tilastokeskus.minotaurus.util.PositionPredicate;
+import java.util.Collection;
+import java.util.function.Predicate;
+
+/**
+ * Plans its way through large mazes with hierarchical path-finding: it
+ * first finds a route through the clusters of the maze, and then only the
+ * moves within the cluster it is in. The paths are nearly as short as those
+ * of A*, and the work needed for each move grows with the number of clusters
+ * rather than the number of cells. The planner only knows about walls, so
+ * if the next cell is taken, the runner takes the free neighbor with the
+ * shortest path instead, even one from which no goal is reachable. Only when
+ * every neighbor is taken does it return {@link Direction#NONE}, which the
+ * bundled scenarios reject like any other illegal move.
+ */
+public class HierarchicalRunner extends Runner {
+    
+    public static void main(String[] args) {
+        Runner.testRunner(HierarchicalRunner.class, 20, 20, 50);
+    }
+    
+    private static final Direction dirs[] = new Direction[] {
+        Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT
+    };
+    
+    // Kept between moves, and only created again for a different maze.
+    HierarchicalPathfinder pathfinder;
+
+    @Override
+    public Direction getNextMove(Maze maze, Collection<MazeEntity> goals, Predicate<Position> positionPredicate) {
+        if (pathfinder == null || pathfinder.getMaze() != maze)
+            pathfinder = new HierarchicalPathfinder(maze);
+        
+        int[] goalCells = new int[goals.size()];
+        int n = 0;
+        for (MazeEntity e : goals) {
+            Position p = e.getPosition();
+            goalCells[n++] = maze.isInBounds(p.x, p.y) ? maze.cellOf(p.x, p.y) : -1;
+        }
+        
+        int x = getPosition().x;
+        int y = getPosition().y;
+        PositionPredicate predicate = PositionPredicate.of(positionPredicate);
+        Direction dir = pathfinder.getNextMove(x, y, goalCells);
+        if (dir == Direction.NONE
+                || predicate.test(x + dir.deltaX, y + dir.deltaY))
+            return dir;
+        
+        // The way is blocked by another entity; step aside to the free
+        // neighbor closest to a goal. Unreachable neighbors come last.
+        int bestLength = Integer.MAX_VALUE;
+        Direction bestDir = Direction.NONE;
+        for (Direction d : dirs) {
+            int nx = x + d.deltaX;
+            int ny = y + d.deltaY;
+            if (!predicate.test(nx, ny))
+                continue;
+            
+            pathfinder.getNextMove(nx, ny, goalCells);
+            int length = pathfinder.getPathLength();
+            if (length == -1)
+                length = Integer.MAX_VALUE;
+            if (bestDir == Direction.NONE || length < bestLength) {
+                bestLength = length;
+                bestDir = d;
+            }
+        }
+        
+        return bestDir;
+    }
+    
+    @Override
+    public HierarchicalRunner clone() {
+        HierarchicalRunner clone = (HierarchicalRunner) super.clone();
+        clone.pathfinder = null;
+        return clone;
+    }
+
+}
@@ -0,0 +1,61 @@
+/*
+ * To change this license header, choose License Headers in Project Properties.
+ * To change this template file, choose Tools | Templates
+ * and open the template in the editor.
+ */
+
+package com.github.tilastokeskus.jumppointrunner;
+
+import com.github.tilastokeskus.minotaurus.maze.Maze;
+import com.github.tilastokeskus.minotaurus.maze.MazeEntity;
+import com.github.tilastokeskus.minotaurus.pathfinding.JumpPointSearch;
+import com.github.tilastokeskus.minotaurus.runner.Runner;
+import com.github.tilastokeskus.minotaurus.util.Direction;
+import com.github.tilastokeskus.minotaurus.util.Position;
+import com.github.tilastokeskus.minotaurus.util.PositionPredicate;
+import java.util.Collection;
+import java.util.function.Predicate;
+
+/**
+ * Finds a shortest path to the nearest goal with jump point search, which
+ * finds the same paths as A* but skips over straight corridors and open
+ * floor instead of queuing every cell of them.
+ */
+public class JumpPointRunner extends Runner {
+    
+    public static void main(String[] args) {
+        Runner.testRunner(JumpPointRunner.class, 20, 20, 50);
+    }
+    
+    // Kept between moves, and only allocated again when the maze changes size.
+    JumpPointSearch search;
+
+    @Override
+    public Direction getNextMove(Maze maze, Collection<MazeEntity> goals, Predicate<Position> positionPredicate) {
+        if (search == null || search.getWidth() != maze.getWidth()
+                || search.getHeight() != maze.getHeight())
+            search = new JumpPointSearch(maze.getWidth(), maze.getHeight());
+        
+        int[] goalCells = new int[goals.size()];
+        int n = 0;
+        for (MazeEntity e : goals) {
+            Position p = e.getPosition();
+            goalCells[n++] = maze.isInBounds(p.x, p.y) ? maze.cellOf(p.x, p.y) : -1;
+        }
+        
+        Position pos = getPosition();
+        if (!search.search(pos.x, pos.y, goalCells,
+                PositionPredicate.of(positionPredicate)))
+            return Direction.NONE;
+        
+        return search.getFirstMove();
+    }
+    
+    @Override
+    public JumpPointRunner clone() {
+        JumpPointRunner clone = (JumpPointRunner) super.clone();
+        clone.search = null;
+        return clone;
+    }
+
+}
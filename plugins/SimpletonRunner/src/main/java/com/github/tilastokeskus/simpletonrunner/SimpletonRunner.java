@@ -11,6 +11,7 @@ import com.github.tilastokeskus.minotaurus.maze.MazeEntity;
 import com.github.tilastokeskus.minotaurus.util.Direction;
 import com.github.tilastokeskus.minotaurus.runner.Runner;
 import com.github.tilastokeskus.minotaurus.util.Position;
+import com.github.tilastokeskus.minotaurus.util.PositionPredicate;
 import java.util.Collection;
 import java.util.function.Predicate;
 
@@ -31,18 +32,19 @@ public class SimpletonRunner extends Runner {
     @Override
     public Direction getNextMove(Maze maze, Collection<MazeEntity> goals, Predicate<Position> positionPredicate) {
         MazeEntity goal = getClosestGoal(goals);
+        PositionPredicate predicate = PositionPredicate.of(positionPredicate);
+        Position goalPos = goal.getPosition();
         
         int bestDist = getDistanceTo(goal);
         Direction bestDir = Direction.NONE;
         for (Direction dir : dirs) {
             int nx = getPosition().x + dir.deltaX;
             int ny = getPosition().y + dir.deltaY;
-            Position newPos = new Position(nx, ny);
             
-            if (!positionPredicate.test(newPos))
+            if (!predicate.test(nx, ny))
                 continue;
             
-            int dist = getManhattanDistance(newPos, goal.getPosition());
+            int dist = Math.abs(nx - goalPos.x) + Math.abs(ny - goalPos.y);
             
             if (dist < bestDist) {
                 bestDist = dist;
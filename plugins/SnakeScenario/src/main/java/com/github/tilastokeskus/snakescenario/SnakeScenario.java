@@ -16,11 +16,11 @@ import com.github.tilastokeskus.minotaurus.util.ArrayList;
 import com.github.tilastokeskus.minotaurus.util.Direction;
 import com.github.tilastokeskus.minotaurus.util.HashMap;
 import com.github.tilastokeskus.minotaurus.util.Position;
+import com.github.tilastokeskus.minotaurus.util.PositionPredicate;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.util.function.Predicate;
 
 /**
@@ -106,9 +106,9 @@ public class SnakeScenario extends AbstractScenario {
         if (maze.get(nx, ny) == MazeBlock.WALL)
             return false;
 
-        List<MazeEntity> entities = maze.getEntitiesAt(nx, ny);
-        boolean collisionAllowed = entities.isEmpty() 
-                || (entities.size() == 1 && entities.get(0) == goal);
+        int entities = maze.entityCountAt(nx, ny);
+        boolean collisionAllowed = entities == 0
+                || (entities == 1 && goal.isAt(nx, ny));
 
         /* If the runner tries to move illegally on top of some entity with
          * whom collision is not allowed, return false.
@@ -124,7 +124,7 @@ public class SnakeScenario extends AbstractScenario {
             snake.add(snake.size() - 1, tail);
         }
 
-        if (entities.size() == 1)
+        if (entities == 1)
             handleGoalCollision(runner);
 
         return true;
@@ -152,24 +152,32 @@ public class SnakeScenario extends AbstractScenario {
 
     @Override
     public Predicate<Position> getPositionPredicate(Runner runner) {
-        return pos -> {
-            List<MazeEntity> entities = maze.getEntitiesAt(pos.x, pos.y);
-            if ((entities.size() == 1 && entities.get(0) != goal) || entities.size() > 1)
+        PositionPredicate predicate = (x, y) -> {
+            int entities = maze.entityCountAt(x, y);
+            if ((entities == 1 && !goal.isAt(x, y)) || entities > 1)
                 return false;
             
-            return maze.get(pos.x, pos.y) == MazeBlock.FLOOR;
+            return maze.get(x, y) == MazeBlock.FLOOR;
         };
+        return predicate;
     }
     
     private void resetGoal(MazeEntity goal) {
-        Random r = new Random();
         int x, y;
         do {
-            x = r.nextInt(maze.getWidth());
-            y = r.nextInt(maze.getHeight());
-        } while (maze.get(x, y) != MazeBlock.FLOOR || maze.getEntitiesAt(x, y).size() > 0);
+            x = random.nextInt(maze.getWidth());
+            y = random.nextInt(maze.getHeight());
+        } while (maze.get(x, y) != MazeBlock.FLOOR || maze.entityCountAt(x, y) > 0);
         
         goal.setPosition(x, y);
     }
+    
+    @Override
+    public SnakeScenario clone() {
+        SnakeScenario clone = (SnakeScenario) super.clone();
+        clone.snakes = new HashMap<>();
+        clone.goal = goal.clone();
+        return clone;
+    }
 
 }
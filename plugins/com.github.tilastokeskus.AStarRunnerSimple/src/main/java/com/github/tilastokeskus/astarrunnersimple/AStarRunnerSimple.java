@@ -10,13 +10,13 @@ import com.github.tilastokeskus.minotaurus.maze.Maze;
 import com.github.tilastokeskus.minotaurus.maze.MazeBlock;
 import com.github.tilastokeskus.minotaurus.maze.MazeEntity;
 import com.github.tilastokeskus.minotaurus.runner.Runner;
+import com.github.tilastokeskus.minotaurus.pathfinding.SearchContext;
 import com.github.tilastokeskus.minotaurus.util.Direction;
-import com.github.tilastokeskus.minotaurus.util.HashSet;
+import com.github.tilastokeskus.minotaurus.util.BucketQueue;
+import com.github.tilastokeskus.minotaurus.util.PackedPosition;
 import com.github.tilastokeskus.minotaurus.util.Position;
-import com.github.tilastokeskus.minotaurus.util.PriorityQueue;
-import java.util.Arrays;
+import com.github.tilastokeskus.minotaurus.util.PositionPredicate;
 import java.util.Collection;
-import java.util.Objects;
 import java.util.function.Predicate;
 
 /**
@@ -37,87 +37,118 @@ public class AStarRunnerSimple extends Runner {
     
     MazeEntity closestGoal;
     Position closestGoalPosition;
-
+    
+    /* A queue of cells we have yet to visit. Kept between moves, and only
+     * created again when the maze changes size.
+     */
+    BucketQueue open;
+    int openCells;
+    
     @Override
     public Direction getNextMove(Maze maze, Collection<MazeEntity> goals, Predicate<Position> positionPredicate) {
         
-        // A queue of nodes we have yet to visit.
-        PriorityQueue<Node> open = new PriorityQueue<>((Node o1, Node o2) -> Integer.compare(o1.score, o2.score));
-        
-        // A set of nodes we know we have the best path to.
-        HashSet<Node> closed = new HashSet<>();
-        
-        // Number of moves it takes to reach a position from the start.
-        int[][] g = new int[maze.getHeight()][maze.getWidth()];
-        
-        for (int i = 0; i < g.length; i++)
-            Arrays.fill(g[i], Integer.MAX_VALUE);        
-        
-        g[getPosition().y][getPosition().x] = 0;
+        PositionPredicate predicate = PositionPredicate.of(positionPredicate);
         
         if (closestGoal == null
                 || !closestGoal.getPosition().equals(closestGoalPosition)) {
             closestGoal = getClosestGoal(getPosition(), goals);
             closestGoalPosition = closestGoal.getPosition();
         }
-            
-        Node n = new Node(getPosition(), null);
-        n.score = distance(getPosition(), closestGoalPosition);
-        open.add(n);
+        
+        /* The g-scores and the closed set live in a borrowed context, so a
+         * move allocates nothing.
+         */
+        SearchContext search = SearchContext.acquire(maze.getWidth(), maze.getHeight());
+        try {
+            return search(search, maze.getWidth(), predicate);
+        } finally {
+            search.release();
+        }
+    }
+    
+    private Direction search(SearchContext search, int width, PositionPredicate predicate) {
+        
+        /* Each step costs one and the heuristic only ever targets one goal, so
+         * the score of a neighbor is either the same as or two more than the
+         * score of the current cell. Three buckets are therefore enough.
+         */
+        int numCells = search.getWidth() * search.getHeight();
+        if (open == null || openCells != numCells) {
+            open = new BucketQueue(numCells, 3);
+            openCells = numCells;
+        } else {
+            open.clear();
+        }
+        
+        Position start = getPosition();
+        int startCell = PackedPosition.pack(start, width);
+        search.reach(startCell, 0, SearchContext.NONE);
+        open.add(startCell, distance(start, closestGoalPosition));
         
         while (!open.isEmpty()) {
             
-            // Get the node with the smallest score.
-            n = open.extractMin();
-            if (distance(n.pos, closestGoalPosition) == 0) {
+            // Get the cell with the smallest score.
+            int cell = open.extractMin();
+            int x = PackedPosition.unpackX(cell, width);
+            int y = PackedPosition.unpackY(cell, width);
+            if (x == closestGoalPosition.x && y == closestGoalPosition.y) {
                 
-                /* If we arrived at a goal, get the second position in the
-                 * move history (first position being the starting position).
+                /* If we arrived at a goal, get the second cell in the move
+                 * history (first cell being the starting cell).
                  */
-                while (n.prev.prev != null)
-                    n = n.prev;                
-                Position nextPos = n.pos;
+                while (search.getParent(cell) != startCell
+                        && search.getParent(cell) != SearchContext.NONE)
+                    cell = search.getParent(cell);
+                Position nextPos = PackedPosition.toPosition(cell, width);
                 
                 // Return the direction we went from the starting position.
-                Direction dir = dirFromPositions(this.getPosition(), nextPos);
+                Direction dir = dirFromPositions(start, nextPos);
                 return dir;
             }
             
-            // Add the current node to the closed set.
-            closed.add(n);
+            // Add the current cell to the closed set.
+            search.setClosed(cell);
             
             for (Direction dir : dirs) {
-                Position pos = n.pos;
-                Position newPos = new Position(pos.x + dir.deltaX, pos.y + dir.deltaY);
+                int nx = x + dir.deltaX;
+                int ny = y + dir.deltaY;
                 
                 // Skip direction if it would lead to an illegal position.
-                if (!positionPredicate.test(newPos))
+                if (!predicate.test(nx, ny))
                     continue;
                 
-                Node newNode = new Node(newPos, n);
-                
-                if (closed.contains(newNode))
+                int newCell = PackedPosition.pack(nx, ny, width);
+                if (search.isClosed(newCell))
                     continue;
                 
-                if (open.contains(newNode)) {
-                    
-                    // If we have a better path, update the info.
-                    if (g[pos.y][pos.x] + 1 < g[newPos.y][newPos.x])
-                        open.remove(newNode);
-                    else
-                        continue;
-                }
+                // If the cell is already queued, only a better path matters.
+                int newG = search.getG(cell) + 1;
+                boolean queued = open.contains(newCell);
+                if (queued && newG >= search.getG(newCell))
+                    continue;
                 
-                newNode.prev = n;
-                newNode.score = g[pos.y][pos.x] + 1 + distance(newPos, closestGoalPosition);
-                open.add(newNode);
-                g[newPos.y][newPos.x] = g[pos.y][pos.x] + 1;
+                search.reach(newCell, newG, cell);
+                int score = newG + Math.abs(nx - closestGoalPosition.x)
+                        + Math.abs(ny - closestGoalPosition.y);
+                if (queued)
+                    open.changePriority(newCell, score);
+                else
+                    open.add(newCell, score);
             }
         }
         
         return Direction.NONE;
     }
     
+    @Override
+    public AStarRunnerSimple clone() {
+        AStarRunnerSimple clone = (AStarRunnerSimple) super.clone();
+        clone.closestGoal = null;
+        clone.closestGoalPosition = null;
+        clone.open = null;
+        return clone;
+    }
+    
     private Direction dirFromPositions(Position p1, Position p2) {
         if (p1.x < p2.x) return Direction.RIGHT;
         if (p1.x > p2.x) return Direction.LEFT;
@@ -163,35 +194,5 @@ public class AStarRunnerSimple extends Runner {
         int y2 = p2.y;
         return Math.abs(x1 - x2) + Math.abs(y1 - y2);
     }
-    
-    private static class Node {
-        int score;
-        Position pos;
-        Node prev;
-        
-        public Node(Position pos, Node prev) {
-            this.pos = pos;
-            this.prev = prev;
-        }
-
-        @Override
-        public boolean equals(Object obj) {
-            if (this == obj)
-                return true;
-                
-            if (obj == null || getClass() != obj.getClass())
-                return false;
-                
-            final Node other = (Node) obj;
-            return this.pos.equals(other.pos);
-        }
-
-        @Override
-        public int hashCode() {
-            int hash = 3;
-            hash = 37 * hash + Objects.hashCode(this.pos);
-            return hash;
-        }
-    }
 
 }